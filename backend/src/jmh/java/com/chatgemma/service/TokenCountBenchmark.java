@@ -0,0 +1,96 @@
+package com.chatgemma.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// 컨텍스트 예산 계산 한 번에 드는 비용 비교 (history 메시지 수만큼 토큰 수를 합산)
+// - legacyEstimate: 이전 구현 (IntStream으로 글자마다 한글 판별)
+// - estimate: 반복문으로 바꾼 추정치 (토크나이저가 없을 때의 대체 경로)
+// - tokenizeOnRequest: 요청마다 SentencePiece로 다시 토큰화
+// - storedCounts: 저장 시 기록한 토큰 수 합산 (현재 경로)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TokenCountBenchmark {
+
+    private static final String[] SAMPLES = {
+            "안녕하세요! 오늘 회의 일정 좀 정리해 줄 수 있을까요?",
+            "네, 오늘 오후 2시에 기획 회의, 4시에 디자인 리뷰가 있습니다. 회의실은 3층 대회의실입니다.",
+            "Spring Boot에서 WebClient 타임아웃을 설정하는 방법을 알려줘",
+            "WebClient는 Reactor Netty의 HttpClient로 responseTimeout을 지정하고, 요청 단위로는 "
+                    + "Mono.timeout(Duration.ofSeconds(30))을 붙일 수 있습니다. 예시 코드는 다음과 같습니다.",
+            "환불 규정은 구매 후 14일 이내, 미개봉 상품에 한해 전액 환불됩니다.",
+    };
+
+    @Param({"10", "70"})
+    public int messageCount;
+
+    private String[] history;
+    private int[] storedCounts;
+    private SentencePieceTokenizer tokenizer;
+
+    @Setup
+    public void setUp() throws Exception {
+        String modelPath = System.getProperty("chatgemma.tokenizer.model-path", "");
+        if (modelPath.isBlank()) {
+            throw new IllegalStateException("Gemma tokenizer.model 경로가 필요합니다: ./gradlew jmh -PtokenizerModel=...");
+        }
+        tokenizer = SentencePieceTokenizer.load(Path.of(modelPath));
+
+        history = new String[messageCount];
+        storedCounts = new int[messageCount];
+        for (int i = 0; i < messageCount; i++) {
+            // 실제 대화처럼 답변은 질문보다 길게
+            String sample = SAMPLES[i % SAMPLES.length];
+            history[i] = i % 2 == 0 ? sample : sample.repeat(4);
+            storedCounts[i] = tokenizer.countTokens(history[i]);
+        }
+    }
+
+    @Benchmark
+    public int legacyEstimate() {
+        int total = 0;
+        for (String content : history) {
+            long koreanChars = content.chars().filter(ch -> ch >= 0xAC00 && ch <= 0xD7AF).count();
+            long otherChars = content.length() - koreanChars;
+            total += (int) (koreanChars * 2.5 + otherChars * 1.2);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public int estimate() {
+        int total = 0;
+        for (String content : history) {
+            total += TokenCounter.estimate(content);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public int tokenizeOnRequest() {
+        int total = 0;
+        for (String content : history) {
+            total += tokenizer.countTokens(content);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public int storedCounts() {
+        int total = 0;
+        for (int count : storedCounts) {
+            total += count;
+        }
+        return total;
+    }
+}
\ No newline at end of file
@@ -1,21 +1,169 @@
 package com.chatgemma.config;
 
+import com.chatgemma.service.GenerationOptions;
+import com.chatgemma.service.OllamaBackend;
+import com.chatgemma.service.OllamaBackendPool;
+import com.chatgemma.service.OllamaBulkhead;
+import com.chatgemma.service.OllamaCircuitBreaker;
+import com.chatgemma.service.OllamaEmbedder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelOption;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.ExchangeStrategies;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.List;
 
 @Configuration
 public class WebClientConfig {
 
-    @Value("${chatgemma.ollama.base-url:http://localhost:11434}")
-    private String ollamaBaseUrl;
+    // 쉼표로 구분한 Ollama 서버 목록 (미지정 시 base-url 하나)
+    @Value("${chatgemma.ollama.base-urls:${chatgemma.ollama.base-url:http://localhost:11434}}")
+    private List<String> ollamaBaseUrls;
+
+    // 요청별 타임아웃은 GenerationTimeoutPolicy가 적용하고, 여기서는 응답 읽기 대기의 최종 상한만 둔다
+    @Value("${chatgemma.ollama.timeouts.max-total:10m}")
+    private Duration maxResponseTimeout;
+
+    @Value("${chatgemma.ollama.connect-timeout:5s}")
+    private Duration connectTimeout;
+
+    @Value("${chatgemma.ollama.pool.max-connections:50}")
+    private int maxConnections;
+
+    @Value("${chatgemma.ollama.pool.pending-acquire-max-count:100}")
+    private int pendingAcquireMaxCount;
+
+    @Value("${chatgemma.ollama.pool.pending-acquire-timeout:10s}")
+    private Duration pendingAcquireTimeout;
+
+    @Value("${chatgemma.ollama.pool.max-idle-time:30s}")
+    private Duration maxIdleTime;
+
+    @Value("${chatgemma.ollama.pool.max-life-time:10m}")
+    private Duration maxLifeTime;
+
+    @Value("${chatgemma.ollama.pool.evict-in-background:60s}")
+    private Duration evictInBackground;
+
+    @Value("${chatgemma.ollama.health-check.eject-after-failures:2}")
+    private int ejectAfterFailures;
+
+    @Value("${chatgemma.ollama.health-check.timeout:3s}")
+    private Duration healthCheckTimeout;
+
+    @Value("${chatgemma.ollama.routing.virtual-nodes:128}")
+    private int virtualNodes;
+
+    @Value("${chatgemma.ollama.routing.load-factor:1.25}")
+    private double loadFactor;
+
+    // 임베딩 전용 Ollama 서버 (비우면 생성 서버 풀 사용)
+    @Value("${chatgemma.ollama.semantic-cache.embedding-base-url:}")
+    private String embeddingBaseUrl;
+
+    @Value("${chatgemma.ollama.semantic-cache.embedding-model:nomic-embed-text}")
+    private String embeddingModel;
+
+    @Value("${chatgemma.ollama.semantic-cache.embed-timeout:2s}")
+    private Duration embedTimeout;
+
+    @Value("${chatgemma.ollama.semantic-cache.embedding-max-connections:16}")
+    private int embeddingMaxConnections;
+
+    @Value("${chatgemma.ollama.options.num-predict:0}")
+    private int numPredict;
+
+    @Value("${chatgemma.ollama.options.num-ctx:0}")
+    private int numCtx;
+
+    @Value("${chatgemma.ollama.options.temperature:#{null}}")
+    private Double temperature;
 
+    @Value("${chatgemma.ollama.options.keep-alive:#{null}}")
+    private String keepAlive;
+
+    // Ollama 전용 커넥션 풀 (전역 기본 풀과 분리, Micrometer 메트릭 활성화)
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider ollamaConnectionProvider() {
+        return ConnectionProvider.builder("ollama")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount) // 대기열이 가득 차면 즉시 실패
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .maxLifeTime(maxLifeTime)
+                .evictInBackground(evictInBackground)
+                .metrics(true) // reactor.netty.connection.provider.* 메트릭
+                .build();
+    }
+
+    // 임베딩 전용 서버 커넥션 풀 (생성 요청 풀과 분리, Micrometer 메트릭 활성화)
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider ollamaEmbeddingConnectionProvider() {
+        return ConnectionProvider.builder("ollama-embedding")
+                .maxConnections(embeddingMaxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(embedTimeout) // 임베딩 타임아웃보다 오래 기다리지 않는다
+                .maxIdleTime(maxIdleTime)
+                .maxLifeTime(maxLifeTime)
+                .evictInBackground(evictInBackground)
+                .metrics(true)
+                .build();
+    }
+
+    // 전용 서버가 지정되면 전용 풀의 WebClient로, 아니면 생성 서버 풀(격벽/회로 차단기 경유)로 임베딩
+    @Bean
+    public OllamaEmbedder ollamaEmbedder(OllamaBackendPool ollamaBackendPool, OllamaBulkhead bulkhead,
+                                         OllamaCircuitBreaker circuitBreaker,
+                                         ConnectionProvider ollamaEmbeddingConnectionProvider,
+                                         WebClient.Builder webClientBuilder) {
+        WebClient dedicatedClient = embeddingBaseUrl == null || embeddingBaseUrl.isBlank() ? null
+                : webClientBuilder.clone()
+                        .baseUrl(embeddingBaseUrl.trim())
+                        .clientConnector(new ReactorClientHttpConnector(
+                                createHttpClient(ollamaEmbeddingConnectionProvider).responseTimeout(embedTimeout)))
+                        .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .build();
+        return new OllamaEmbedder(ollamaBackendPool, bulkhead, circuitBreaker, dedicatedClient, embeddingModel,
+                embedTimeout);
+    }
+
+    // 서버마다 WebClient를 두되 커넥션 풀은 공유 (풀은 호스트별로 커넥션을 분리해서 관리)
     @Bean
-    public WebClient webClient() {
+    public OllamaBackendPool ollamaBackendPool(ConnectionProvider ollamaConnectionProvider, MeterRegistry meterRegistry) {
+        List<OllamaBackend> backends = ollamaBackendUrls().stream()
+                .map(url -> new OllamaBackend(url, createWebClient(url, ollamaConnectionProvider)))
+                .toList();
+        return new OllamaBackendPool(backends, meterRegistry, ejectAfterFailures, healthCheckTimeout,
+                virtualNodes, loadFactor);
+    }
+
+    // 모든 생성 요청의 기본 옵션 (0 또는 미지정 값은 Ollama에 보내지 않음, num-ctx 0은 /api/show 기준)
+    @Bean
+    public GenerationOptions defaultGenerationOptions() {
+        return new GenerationOptions(numPredict, numCtx, temperature, keepAlive);
+    }
+
+    private List<String> ollamaBackendUrls() {
+        return ollamaBaseUrls.stream()
+                .map(String::trim)
+                .filter(url -> !url.isEmpty())
+                .distinct()
+                .toList();
+    }
+
+    private WebClient createWebClient(String baseUrl, ConnectionProvider ollamaConnectionProvider) {
+        HttpClient httpClient = createHttpClient(ollamaConnectionProvider)
+                .responseTimeout(maxResponseTimeout);
+
         // 대용량 응답 처리를 위한 버퍼 크기 설정
         ExchangeStrategies strategies = ExchangeStrategies.builder()
                 .codecs(configurer -> configurer
@@ -24,9 +172,16 @@ public class WebClientConfig {
                 .build();
 
         return WebClient.builder()
-                .baseUrl(ollamaBaseUrl)
+                .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
                 .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
                 .exchangeStrategies(strategies)
                 .build();
     }
-}
\ No newline at end of file
+
+    private HttpClient createHttpClient(ConnectionProvider connectionProvider) {
+        return HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, true);
+    }
+}
@@ -0,0 +1,27 @@
+package com.chatgemma.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    private final Duration asyncRequestTimeout;
+
+    // REST 메시지 전송은 Mono를 반환하는 비동기 요청이므로, 서블릿 컨테이너 기본 타임아웃(30초)이 아니라
+    // 생성 시간 상한(max-total) + 여유(대기열 대기, 첫 토큰 전 재시도)까지 기다린다
+    // (타임아웃이 먼저 나면 구독이 취소되어 사용자 메시지만 저장되고 AI 응답은 버려진다)
+    public WebMvcConfig(@Value("${chatgemma.ollama.timeouts.max-total:10m}") Duration maxTotal,
+                        @Value("${chatgemma.rest.async-timeout-margin:2m}") Duration margin) {
+        this.asyncRequestTimeout = maxTotal.plus(margin);
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setDefaultTimeout(asyncRequestTimeout.toMillis());
+    }
+}
@@ -3,22 +3,27 @@ package com.chatgemma.controller;
 import com.chatgemma.dto.response.UserResponse;
 import com.chatgemma.entity.User;
 import com.chatgemma.service.AdminService;
+import com.chatgemma.service.TokenUsageLedger;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpSession;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/admin")
 public class AdminController {
 
     private final AdminService adminService;
+    private final TokenUsageLedger tokenUsageLedger;
 
-    public AdminController(AdminService adminService) {
+    public AdminController(AdminService adminService, TokenUsageLedger tokenUsageLedger) {
         this.adminService = adminService;
+        this.tokenUsageLedger = tokenUsageLedger;
     }
 
     @GetMapping("/pending-users")
@@ -130,6 +135,19 @@ public class AdminController {
         }
     }
 
+    // 모델/사용자별 토큰 사용량 (애플리케이션 시작 이후 누적)
+    @GetMapping("/token-usage")
+    public ResponseEntity<Map<String, Object>> getTokenUsage(HttpSession session) {
+        if (!isAdmin(session)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        Map<String, Object> usage = new LinkedHashMap<>();
+        usage.put("byModel", tokenUsageLedger.getUsageByModel());
+        usage.put("byUser", tokenUsageLedger.getUsageByUser());
+        return ResponseEntity.ok(usage);
+    }
+
     private Long getUserIdFromSession(HttpSession session) {
         return (Long) session.getAttribute("userId");
     }
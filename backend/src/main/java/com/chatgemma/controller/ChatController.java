@@ -7,12 +7,15 @@ import com.chatgemma.dto.response.MessageResponse;
 import com.chatgemma.entity.Chat;
 import com.chatgemma.entity.Message;
 import com.chatgemma.service.ChatService;
+import com.chatgemma.service.GenerationOptions;
+import com.chatgemma.service.exception.AiServiceBusyException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpSession;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
 
 import java.util.List;
 
@@ -97,26 +100,27 @@ public class ChatController {
     }
 
     @PostMapping("/{chatId}/messages")
-    public ResponseEntity<MessageResponse> sendMessage(@PathVariable Long chatId,
-                                                     @Valid @RequestBody ChatRequest request,
-                                                     HttpSession session,
-                                                     HttpServletRequest httpRequest) {
+    public Mono<ResponseEntity<MessageResponse>> sendMessage(@PathVariable Long chatId,
+                                                           @Valid @RequestBody ChatRequest request,
+                                                           @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                                           HttpSession session,
+                                                           HttpServletRequest httpRequest) {
         Long userId = getUserIdFromSession(session);
         if (userId == null) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+            return Mono.just(ResponseEntity.status(HttpStatus.UNAUTHORIZED).<MessageResponse>build());
         }
 
         try {
-            Message userMessage = chatService.sendMessage(chatId, userId, request.getMessage(), request.getImageUrl(), httpRequest.getRemoteAddr(), httpRequest.getHeader("User-Agent"));
-
-            // AI 응답을 위해 최신 메시지들을 조회하여 AI 응답 찾기
-            List<Message> messages = chatService.getChatMessages(chatId, userId);
-            Message aiMessage = messages.get(messages.size() - 1); // 마지막 메시지가 AI 응답
-
-
-            return ResponseEntity.ok(new MessageResponse(aiMessage));
+            // AI 응답이 도착하면 비동기로 응답 (요청 스레드는 즉시 반환됨)
+            // Idempotency-Key 헤더가 있으면 같은 키의 재시도는 처음 요청의 응답을 돌려받는다
+            GenerationOptions options = request.getOptions() != null ? request.getOptions().toGenerationOptions() : null;
+            return chatService.sendMessageAsync(chatId, userId, request.getMessage(), request.getImageUrl(), options, idempotencyKey, httpRequest.getRemoteAddr(), httpRequest.getHeader("User-Agent"))
+                    .map(aiMessage -> ResponseEntity.ok(new MessageResponse(aiMessage)))
+                    .onErrorResume(AiServiceBusyException.class,
+                            e -> Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).<MessageResponse>build()))
+                    .onErrorResume(e -> Mono.just(ResponseEntity.badRequest().<MessageResponse>build()));
         } catch (Exception e) {
-            return ResponseEntity.badRequest().build();
+            return Mono.just(ResponseEntity.badRequest().<MessageResponse>build());
         }
     }
 
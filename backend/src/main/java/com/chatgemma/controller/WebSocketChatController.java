@@ -2,15 +2,18 @@ package com.chatgemma.controller;
 
 import com.chatgemma.dto.request.ChatMessageRequest;
 import com.chatgemma.dto.response.ChatMessageResponse;
+import com.chatgemma.service.ActiveGenerationRegistry;
 import com.chatgemma.service.ChatService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
 
 import java.security.Principal;
 import java.time.LocalDateTime;
@@ -23,10 +26,13 @@ public class WebSocketChatController {
 
     private final ChatService chatService;
     private final SimpMessagingTemplate messagingTemplate;
+    private final ActiveGenerationRegistry generationRegistry;
 
-    public WebSocketChatController(ChatService chatService, SimpMessagingTemplate messagingTemplate) {
+    public WebSocketChatController(ChatService chatService, SimpMessagingTemplate messagingTemplate,
+                                   ActiveGenerationRegistry generationRegistry) {
         this.chatService = chatService;
         this.messagingTemplate = messagingTemplate;
+        this.generationRegistry = generationRegistry;
     }
 
     @MessageMapping("/chat.sendMessage")
@@ -47,9 +53,9 @@ public class WebSocketChatController {
             // 사용자 메시지와 AI 응답을 모두 처리하고 저장
             logger.info("💾 Saving user message and processing AI response");
 
-            // AI 응답을 스트리밍으로 전송 (비동기)
+            // AI 응답을 스트리밍으로 전송 (비동기, 중지 명령/연결 종료 시 취소할 수 있도록 등록)
             String aiMessageId = System.currentTimeMillis() + "_ai";
-            chatService.processMessageStreamAsync(request, sessionId, userId, (chunk) -> {
+            generationRegistry.start(sessionId, request.getChatId(), chatService.processMessageStreamAsync(request, sessionId, userId, (chunk) -> {
                 ChatMessageResponse aiChunk = ChatMessageResponse.builder()
                     .id(aiMessageId)
                     .chatId(request.getChatId())
@@ -66,7 +72,21 @@ public class WebSocketChatController {
                 String destination = "/topic/chat/" + request.getChatId();
                 logger.info("📍 Broadcasting to destination: {}", destination);
                 messagingTemplate.convertAndSend(destination, aiChunk);
-            }).thenRun(() -> {
+            }, position -> {
+                // 생성 대기열 순번 안내 (Ollama 동시 실행 슬롯이 모두 사용 중일 때)
+                ChatMessageResponse queueFrame = ChatMessageResponse.builder()
+                    .id(aiMessageId)
+                    .chatId(request.getChatId())
+                    .content("")
+                    .role("SYSTEM")
+                    .timestamp(LocalDateTime.now())
+                    .isStreaming(true)
+                    .queuePosition(position)
+                    .build();
+
+                logger.info("⏳ Generation queued: chatId={}, position={}", request.getChatId(), position);
+                messagingTemplate.convertAndSend("/topic/chat/" + request.getChatId(), queueFrame);
+            }).doOnSuccess(done -> {
                 // 스트리밍 완료 표시
                 ChatMessageResponse completionMessage = ChatMessageResponse.builder()
                     .id(aiMessageId)
@@ -83,7 +103,20 @@ public class WebSocketChatController {
                 String destination = "/topic/chat/" + request.getChatId();
                 logger.info("📍 Broadcasting completion to destination: {}", destination);
                 messagingTemplate.convertAndSend(destination, completionMessage);
-            });
+            }).doOnCancel(() -> {
+                // 중지/연결 종료로 취소된 경우에도 같은 메시지 ID로 완료 신호 전송
+                ChatMessageResponse completionMessage = ChatMessageResponse.builder()
+                    .id(aiMessageId)
+                    .chatId(request.getChatId())
+                    .content("")
+                    .role("ASSISTANT")
+                    .timestamp(LocalDateTime.now())
+                    .isStreaming(false)
+                    .build();
+
+                logger.info("⏹️ Generation cancelled, sending completion signal: chatId={}", request.getChatId());
+                messagingTemplate.convertAndSend("/topic/chat/" + request.getChatId(), completionMessage);
+            }));
 
         } catch (Exception e) {
             logger.error("Error processing WebSocket message", e);
@@ -108,6 +141,28 @@ public class WebSocketChatController {
         }
     }
 
+    // 사용자가 응답 생성을 중지: Ollama 요청을 끊고 지금까지 받은 응답만 저장 (완료 신호는 취소 시 전송)
+    @MessageMapping("/chat.stop")
+    public void stopGeneration(@Payload String chatId,
+                               SimpMessageHeaderAccessor headerAccessor) {
+        String sessionId = headerAccessor.getSessionId();
+        logger.info("🛑 WebSocket stop requested: chatId={}, sessionId={}", chatId, sessionId);
+
+        if (!generationRegistry.cancel(sessionId, chatId)) {
+            logger.info("No active generation to stop: chatId={}, sessionId={}", chatId, sessionId);
+        }
+    }
+
+    // 브라우저 탭 종료, 페이지 이동 등으로 연결이 끊기면 남은 생성을 모두 취소
+    @EventListener
+    public void handleSessionDisconnect(SessionDisconnectEvent event) {
+        int cancelled = generationRegistry.cancelSession(event.getSessionId());
+        if (cancelled > 0) {
+            logger.info("🔌 WebSocket disconnected, cancelled generations: sessionId={}, chats={}",
+                       event.getSessionId(), cancelled);
+        }
+    }
+
     @MessageMapping("/chat.join")
     public void joinChat(@Payload String chatId,
                         SimpMessageHeaderAccessor headerAccessor,
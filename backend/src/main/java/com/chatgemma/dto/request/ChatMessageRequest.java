@@ -1,5 +1,6 @@
 package com.chatgemma.dto.request;
 
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
@@ -15,6 +16,13 @@ public class ChatMessageRequest {
 
     private String imageUrl;
 
+    @Valid
+    private GenerationOptionsRequest options;
+
+    // 재전송 시 같은 값을 보내면 처음 요청의 응답에 다시 연결된다 (선택)
+    @Size(max = 128, message = "멱등성 키는 128자를 초과할 수 없습니다")
+    private String idempotencyKey;
+
     public ChatMessageRequest() {}
 
     public ChatMessageRequest(String chatId, String content, String imageUrl) {
@@ -46,4 +54,20 @@ public class ChatMessageRequest {
     public void setImageUrl(String imageUrl) {
         this.imageUrl = imageUrl;
     }
+
+    public GenerationOptionsRequest getOptions() {
+        return options;
+    }
+
+    public void setOptions(GenerationOptionsRequest options) {
+        this.options = options;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
 }
\ No newline at end of file
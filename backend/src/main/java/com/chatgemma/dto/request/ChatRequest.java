@@ -1,5 +1,6 @@
 package com.chatgemma.dto.request;
 
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 
@@ -11,6 +12,9 @@ public class ChatRequest {
 
     private String imageUrl;
 
+    @Valid
+    private GenerationOptionsRequest options;
+
     public String getMessage() {
         return message;
     }
@@ -26,4 +30,12 @@ public class ChatRequest {
     public void setImageUrl(String imageUrl) {
         this.imageUrl = imageUrl;
     }
+
+    public GenerationOptionsRequest getOptions() {
+        return options;
+    }
+
+    public void setOptions(GenerationOptionsRequest options) {
+        this.options = options;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,44 @@
+package com.chatgemma.dto.request;
+
+import com.chatgemma.service.GenerationOptions;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
+
+// 요청별 생성 옵션 (서버 메모리에 영향을 주는 num_ctx, keep_alive는 서버 설정으로만 지정)
+public class GenerationOptionsRequest {
+
+    @Min(value = 1, message = "최대 생성 토큰 수는 1 이상이어야 합니다")
+    private Integer numPredict;
+
+    @DecimalMin(value = "0.0", message = "temperature는 0 이상이어야 합니다")
+    @DecimalMax(value = "2.0", message = "temperature는 2 이하여야 합니다")
+    private Double temperature;
+
+    public Integer getNumPredict() {
+        return numPredict;
+    }
+
+    public void setNumPredict(Integer numPredict) {
+        this.numPredict = numPredict;
+    }
+
+    public Double getTemperature() {
+        return temperature;
+    }
+
+    public void setTemperature(Double temperature) {
+        this.temperature = temperature;
+    }
+
+    // WebSocket 메시지(@Payload)는 Bean Validation을 거치지 않으므로 변환할 때 범위를 다시 확인
+    public GenerationOptions toGenerationOptions() {
+        if (numPredict != null && numPredict < 1) {
+            throw new IllegalArgumentException("최대 생성 토큰 수는 1 이상이어야 합니다");
+        }
+        if (temperature != null && !(temperature >= 0.0 && temperature <= 2.0)) {
+            throw new IllegalArgumentException("temperature는 0 이상 2 이하여야 합니다");
+        }
+        return new GenerationOptions(numPredict, null, temperature, null);
+    }
+}
\ No newline at end of file
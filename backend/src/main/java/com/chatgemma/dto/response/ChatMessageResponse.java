@@ -12,6 +12,7 @@ public class ChatMessageResponse {
     private String imageUrl;
     private boolean isStreaming = false;
     private boolean isError = false;
+    private Integer queuePosition; // 생성 대기열 순번 (대기 중일 때만 설정)
 
     public ChatMessageResponse() {}
 
@@ -24,6 +25,7 @@ public class ChatMessageResponse {
         this.imageUrl = builder.imageUrl;
         this.isStreaming = builder.isStreaming;
         this.isError = builder.isError;
+        this.queuePosition = builder.queuePosition;
     }
 
     public static Builder builder() {
@@ -39,6 +41,7 @@ public class ChatMessageResponse {
         private String imageUrl;
         private boolean isStreaming = false;
         private boolean isError = false;
+        private Integer queuePosition;
 
         public Builder id(String id) {
             this.id = id;
@@ -80,6 +83,11 @@ public class ChatMessageResponse {
             return this;
         }
 
+        public Builder queuePosition(Integer queuePosition) {
+            this.queuePosition = queuePosition;
+            return this;
+        }
+
         public ChatMessageResponse build() {
             return new ChatMessageResponse(this);
         }
@@ -109,4 +117,7 @@ public class ChatMessageResponse {
 
     public boolean isError() { return isError; }
     public void setError(boolean error) { isError = error; }
+
+    public Integer getQueuePosition() { return queuePosition; }
+    public void setQueuePosition(Integer queuePosition) { this.queuePosition = queuePosition; }
 }
\ No newline at end of file
@@ -0,0 +1,135 @@
+package com.chatgemma.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+// 긴 대화의 오래된 턴을 요약한 기록 (채팅당 하나, 새 턴이 쌓이면 기존 요약에 이어서 갱신)
+@Entity
+@Table(name = "chat_summaries", indexes = {
+        @Index(name = "idx_chat_summary_chat_id", columnList = "chatId", unique = true)
+})
+public class ChatSummary {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long chatId;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String content;
+
+    // 이 ID까지의 메시지가 요약에 포함되어 있다 (이후 메시지만 원문으로 보낸다)
+    @Column(nullable = false)
+    private Long coveredUntilMessageId;
+
+    @Column(nullable = false)
+    private Integer coveredMessageCount;
+
+    // 요약의 모델 입력 토큰 수 (토크나이저가 없으면 null)
+    @Column(nullable = true)
+    private Integer tokenCount;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    protected ChatSummary() {
+        // JPA를 위한 기본 생성자
+    }
+
+    private ChatSummary(Long chatId, String content, Long coveredUntilMessageId, int coveredMessageCount) {
+        if (chatId == null || coveredUntilMessageId == null) {
+            throw new IllegalArgumentException("채팅 ID와 마지막 요약 메시지 ID는 필수입니다");
+        }
+        validateContent(content);
+
+        this.chatId = chatId;
+        this.content = content;
+        this.coveredUntilMessageId = coveredUntilMessageId;
+        this.coveredMessageCount = coveredMessageCount;
+        this.createdAt = LocalDateTime.now();
+        this.updatedAt = this.createdAt;
+    }
+
+    public static ChatSummary create(Long chatId, String content, Long coveredUntilMessageId, int coveredMessageCount) {
+        return new ChatSummary(chatId, content, coveredUntilMessageId, coveredMessageCount);
+    }
+
+    // 기존 요약 + 새로 요약한 메시지로 갱신
+    public void extend(String content, Long coveredUntilMessageId, int addedMessageCount) {
+        validateContent(content);
+        if (coveredUntilMessageId == null || coveredUntilMessageId <= this.coveredUntilMessageId) {
+            throw new IllegalArgumentException("요약 범위는 이전 요약 이후로만 늘릴 수 있습니다");
+        }
+        this.content = content;
+        this.coveredUntilMessageId = coveredUntilMessageId;
+        this.coveredMessageCount += addedMessageCount;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    public void recordTokenCount(Integer tokenCount) {
+        this.tokenCount = tokenCount;
+    }
+
+    public boolean covers(Message message) {
+        return message.getId() != null && message.getId() <= coveredUntilMessageId;
+    }
+
+    private static void validateContent(String content) {
+        if (content == null || content.trim().isEmpty()) {
+            throw new IllegalArgumentException("요약 내용은 필수입니다");
+        }
+    }
+
+    // Getters
+    public Long getId() {
+        return id;
+    }
+
+    public Long getChatId() {
+        return chatId;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public Long getCoveredUntilMessageId() {
+        return coveredUntilMessageId;
+    }
+
+    public Integer getCoveredMessageCount() {
+        return coveredMessageCount;
+    }
+
+    public Integer getTokenCount() {
+        return tokenCount;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ChatSummary that = (ChatSummary) o;
+        return Objects.equals(id, that.id) &&
+               Objects.equals(chatId, that.chatId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, chatId);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,81 @@
+package com.chatgemma.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+
+// Ollama가 생성 완료 시 반환하는 토큰 수와 처리 시간 (시간 단위는 모두 나노초)
+@Embeddable
+public class GenerationUsage {
+
+    @Column(name = "usage_model", length = 100)
+    private String model;
+
+    @Column(name = "prompt_eval_count")
+    private Integer promptEvalCount;
+
+    @Column(name = "prompt_eval_duration")
+    private Long promptEvalDuration;
+
+    @Column(name = "eval_count")
+    private Integer evalCount;
+
+    @Column(name = "eval_duration")
+    private Long evalDuration;
+
+    @Column(name = "load_duration")
+    private Long loadDuration;
+
+    @Column(name = "total_duration")
+    private Long totalDuration;
+
+    protected GenerationUsage() {
+        // JPA를 위한 기본 생성자
+    }
+
+    public GenerationUsage(String model, Integer promptEvalCount, Long promptEvalDuration,
+                           Integer evalCount, Long evalDuration, Long loadDuration, Long totalDuration) {
+        this.model = model;
+        this.promptEvalCount = promptEvalCount;
+        this.promptEvalDuration = promptEvalDuration;
+        this.evalCount = evalCount;
+        this.evalDuration = evalDuration;
+        this.loadDuration = loadDuration;
+        this.totalDuration = totalDuration;
+    }
+
+    // 생성 속도 (eval 통계가 없으면 null)
+    public Double getTokensPerSecond() {
+        if (evalCount == null || evalDuration == null || evalDuration <= 0) {
+            return null;
+        }
+        return evalCount / (evalDuration / 1_000_000_000.0);
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public Integer getPromptEvalCount() {
+        return promptEvalCount;
+    }
+
+    public Long getPromptEvalDuration() {
+        return promptEvalDuration;
+    }
+
+    public Integer getEvalCount() {
+        return evalCount;
+    }
+
+    public Long getEvalDuration() {
+        return evalDuration;
+    }
+
+    public Long getLoadDuration() {
+        return loadDuration;
+    }
+
+    public Long getTotalDuration() {
+        return totalDuration;
+    }
+}
\ No newline at end of file
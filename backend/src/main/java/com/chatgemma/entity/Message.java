@@ -35,6 +35,14 @@ public class Message {
     @Column(nullable = true)
     private Boolean excludeFromContext;
 
+    // 저장 시 토크나이저로 센 모델 입력 토큰 수 (토크나이저가 없었거나 도입 전 메시지는 null)
+    @Column(nullable = true)
+    private Integer tokenCount;
+
+    // AI 응답 생성 시 Ollama 토큰/시간 통계 (사용자 메시지는 null)
+    @Embedded
+    private GenerationUsage usage;
+
     protected Message() {
         // JPA를 위한 기본 생성자
     }
@@ -87,6 +95,14 @@ public class Message {
         return this.excludeFromContext != null && this.excludeFromContext;
     }
 
+    public void recordUsage(GenerationUsage usage) {
+        this.usage = usage;
+    }
+
+    public void recordTokenCount(Integer tokenCount) {
+        this.tokenCount = tokenCount;
+    }
+
     private static void validateRequired(Long value, String message) {
         if (value == null) {
             throw new IllegalArgumentException(message);
@@ -137,6 +153,14 @@ public class Message {
         return excludeFromContext;
     }
 
+    public GenerationUsage getUsage() {
+        return usage;
+    }
+
+    public Integer getTokenCount() {
+        return tokenCount;
+    }
+
     // Enums
     public enum Role {
         USER, ASSISTANT
@@ -0,0 +1,15 @@
+package com.chatgemma.repository;
+
+import com.chatgemma.entity.ChatSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface ChatSummaryRepository extends JpaRepository<ChatSummary, Long> {
+
+    Optional<ChatSummary> findByChatId(Long chatId);
+
+    void deleteByChatId(Long chatId);
+}
\ No newline at end of file
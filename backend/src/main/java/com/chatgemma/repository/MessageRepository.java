@@ -40,9 +40,14 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
     List<Message> findByChatIdAndRole(Long chatId, Role role);
 
     // 컨텍스트에서 제외되지 않은 메시지만 조회 (대화 기억용)
-    @Query("SELECT m FROM Message m WHERE m.chatId = :chatId AND (m.excludeFromContext IS NULL OR m.excludeFromContext = false) ORDER BY m.createdAt DESC")
-    List<Message> findByChatIdAndExcludeFromContextFalseOrderByCreatedAtDesc(@Param("chatId") Long chatId);
-
     @Query("SELECT m FROM Message m WHERE m.chatId = :chatId AND (m.excludeFromContext IS NULL OR m.excludeFromContext = false) ORDER BY m.createdAt ASC")
     List<Message> findByChatIdAndExcludeFromContextFalseOrderByCreatedAtAsc(@Param("chatId") Long chatId);
+
+    // beforeId보다 앞의 컨텍스트 메시지 (최근 메시지 창 밖의 장기 기억 인덱스 채우기용)
+    @Query("SELECT m FROM Message m WHERE m.chatId = :chatId AND m.id < :beforeId AND (m.excludeFromContext IS NULL OR m.excludeFromContext = false) ORDER BY m.createdAt ASC")
+    List<Message> findContextMessagesBefore(@Param("chatId") Long chatId, @Param("beforeId") Long beforeId);
+
+    // 컨텍스트에 포함된 마지막 메시지 ID (역할별, 없으면 null)
+    @Query("SELECT MAX(m.id) FROM Message m WHERE m.chatId = :chatId AND m.role = :role AND (m.excludeFromContext IS NULL OR m.excludeFromContext = false)")
+    Long findLastContextMessageId(@Param("chatId") Long chatId, @Param("role") Role role);
 }
\ No newline at end of file
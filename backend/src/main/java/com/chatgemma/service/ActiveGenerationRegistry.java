@@ -0,0 +1,94 @@
+package com.chatgemma.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+// WebSocket 세션/채팅별로 진행 중인 생성 구독을 보관해 중지 명령이나 연결 종료 시 취소할 수 있게 한다
+// 구독을 취소하면 Ollama HTTP 요청이 끊기고 입장 관리자 슬롯도 반납된다
+@Component
+public class ActiveGenerationRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(ActiveGenerationRegistry.class);
+
+    private final Map<Key, Disposable.Composite> active = new ConcurrentHashMap<>();
+
+    // generation을 구독하고 종료될 때까지 (sessionId, chatId)로 추적
+    public Disposable start(String sessionId, String chatId, Mono<Void> generation) {
+        Key key = new Key(sessionId, chatId);
+        Disposable.Swap handle = Disposables.swap();
+        active.compute(key, (k, group) -> {
+            Disposable.Composite target = group != null ? group : Disposables.composite();
+            target.add(handle);
+            return target;
+        });
+
+        handle.update(generation
+                .doFinally(signal -> release(key, handle))
+                .subscribe());
+        return handle;
+    }
+
+    // 해당 세션이 요청한 채팅의 생성을 모두 취소, 취소한 생성이 있으면 true
+    public boolean cancel(String sessionId, String chatId) {
+        Disposable.Composite group = active.remove(new Key(sessionId, chatId));
+        if (group == null) {
+            return false;
+        }
+        logger.info("🛑 Cancelling {} generation(s): sessionId={}, chatId={}", group.size(), sessionId, chatId);
+        group.dispose();
+        return true;
+    }
+
+    // 세션 종료 시 그 세션의 생성을 모두 취소
+    public int cancelSession(String sessionId) {
+        int cancelled = 0;
+        for (Key key : active.keySet()) {
+            if (Objects.equals(key.sessionId, sessionId) && cancel(key.sessionId, key.chatId)) {
+                cancelled++;
+            }
+        }
+        return cancelled;
+    }
+
+    public int getActiveCount() {
+        return active.values().stream().mapToInt(Disposable.Composite::size).sum();
+    }
+
+    private void release(Key key, Disposable handle) {
+        active.computeIfPresent(key, (k, group) -> {
+            group.remove(handle);
+            return group.size() == 0 ? null : group;
+        });
+    }
+
+    private static final class Key {
+        private final String sessionId;
+        private final String chatId;
+
+        private Key(String sessionId, String chatId) {
+            this.sessionId = sessionId;
+            this.chatId = chatId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return Objects.equals(sessionId, key.sessionId) && Objects.equals(chatId, key.chatId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(sessionId, chatId);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,261 @@
+package com.chatgemma.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// 모델별 Ollama 동시 실행 한도를 측정 지연과 처리량으로 조절 (AIMD + 처리량 기울기)
+// - 프롬프트 평가 토큰당 지연 또는 Ollama 내부 대기 시간이 기준치보다 커지면 곱셈 감소
+// - 한도를 모두 쓰고 있고 한도를 올렸을 때 합산 tokens/sec가 좋아졌으면 1씩 증가
+@Component
+public class AdaptiveConcurrencyLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+
+    private static final double SMOOTHING = 0.2;          // EWMA 가중치
+    private static final double BASELINE_DRIFT = 0.01;    // 기준 지연이 서서히 회복되도록 허용하는 비율
+    private static final double MIN_THROUGHPUT_GAIN = 0.05;
+
+    private final MeterRegistry meterRegistry;
+    private final boolean adaptive;
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double latencyTolerance;
+    private final double backoffRatio;
+    private final long maxQueueWaitNanos;
+    private final int samplesPerDecision;
+
+    private final Map<String, ModelLimit> limits = new ConcurrentHashMap<>();
+
+    public AdaptiveConcurrencyLimiter(MeterRegistry meterRegistry,
+                                      @Value("${chatgemma.ollama.concurrency.adaptive:true}") boolean adaptive,
+                                      @Value("${chatgemma.ollama.scheduler.max-concurrent:2}") int initialLimit,
+                                      @Value("${chatgemma.ollama.concurrency.min-limit:1}") int minLimit,
+                                      @Value("${chatgemma.ollama.concurrency.max-limit:8}") int maxLimit,
+                                      @Value("${chatgemma.ollama.concurrency.latency-tolerance:2.0}") double latencyTolerance,
+                                      @Value("${chatgemma.ollama.concurrency.backoff-ratio:0.75}") double backoffRatio,
+                                      @Value("${chatgemma.ollama.concurrency.max-queue-wait-ms:1000}") long maxQueueWaitMillis,
+                                      @Value("${chatgemma.ollama.concurrency.samples-per-decision:5}") int samplesPerDecision) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("동시 실행 한도 범위가 올바르지 않습니다");
+        }
+        this.meterRegistry = meterRegistry;
+        this.adaptive = adaptive;
+        this.initialLimit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyTolerance = latencyTolerance;
+        this.backoffRatio = backoffRatio;
+        this.maxQueueWaitNanos = maxQueueWaitMillis * 1_000_000L;
+        this.samplesPerDecision = Math.max(1, samplesPerDecision);
+    }
+
+    public int getLimit(String model) {
+        return limitFor(model).limit;
+    }
+
+    public int getInFlight(String model) {
+        return limitFor(model).inFlight.get();
+    }
+
+    // 요청 시작 시 호출, 시작 시점의 동시 실행 수(자기 자신 포함)를 반환
+    public int onRequestStart(String model) {
+        return limitFor(model).inFlight.incrementAndGet();
+    }
+
+    public void onRequestEnd(String model) {
+        limitFor(model).inFlight.decrementAndGet();
+    }
+
+    // 완료된 생성의 Ollama 통계 (모든 시간 단위는 나노초)
+    public void onSample(String model, long promptEvalCount, long promptEvalNanos,
+                         long evalCount, long evalNanos, long queueWaitNanos, int inFlightAtStart) {
+        ModelLimit state = limitFor(model);
+
+        if (promptEvalCount > 0 && promptEvalNanos > 0) {
+            double perTokenMillis = promptEvalNanos / 1_000_000.0 / promptEvalCount;
+            state.promptEvalLatency.record(perTokenMillis);
+        }
+        if (evalCount > 0 && evalNanos > 0) {
+            state.tokensPerSecond.record(evalCount / (evalNanos / 1_000_000_000.0));
+        }
+
+        if (!adaptive) {
+            return;
+        }
+
+        synchronized (state) {
+            state.observe(promptEvalCount, promptEvalNanos, evalCount, evalNanos, queueWaitNanos, inFlightAtStart);
+            if (state.samplesAtLimit < samplesPerDecision) {
+                return;
+            }
+
+            int current = state.limit;
+            int next = current;
+            String reason = null;
+
+            if (state.isLatencyInflated()) {
+                next = Math.max(minLimit, Math.min(current - 1, (int) Math.floor(current * backoffRatio)));
+                reason = "latency";
+            } else if (state.isThroughputWorseThanLowerLimit()) {
+                next = Math.max(minLimit, current - 1);
+                reason = "throughput";
+            } else if (state.maxInFlightAtLimit >= current && current < maxLimit && state.isThroughputImproving()) {
+                next = current + 1;
+                reason = "throughput";
+            }
+
+            state.resetWindow();
+            if (next != current) {
+                applyLimit(model, state, next, reason);
+            }
+            state.limitHistory.record(state.limit);
+        }
+    }
+
+    // 타임아웃 등 과부하 신호는 즉시 곱셈 감소
+    public void onDrop(String model) {
+        if (!adaptive) {
+            return;
+        }
+        ModelLimit state = limitFor(model);
+        synchronized (state) {
+            int current = state.limit;
+            int next = Math.max(minLimit, Math.min(current - 1, (int) Math.floor(current * backoffRatio)));
+            state.resetWindow();
+            if (next != current) {
+                applyLimit(model, state, next, "drop");
+            }
+            state.limitHistory.record(state.limit);
+        }
+    }
+
+    private void applyLimit(String model, ModelLimit state, int next, String reason) {
+        String direction = next > state.limit ? "increase" : "decrease";
+        logger.info("🎚️ Ollama concurrency limit {}: model={}, {} -> {} ({})", direction, model, state.limit, next, reason);
+        state.limit = next;
+        Counter.builder("chatgemma.ollama.concurrency.limit.adjustments")
+                .description("Adaptive concurrency limit changes")
+                .tag("model", model)
+                .tag("direction", direction)
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private ModelLimit limitFor(String model) {
+        return limits.computeIfAbsent(model, this::createLimit);
+    }
+
+    private ModelLimit createLimit(String model) {
+        ModelLimit state = new ModelLimit(initialLimit, maxLimit);
+
+        Gauge.builder("chatgemma.ollama.concurrency.limit", state, s -> s.limit)
+                .description("Current adaptive concurrency limit")
+                .tag("model", model)
+                .register(meterRegistry);
+        Gauge.builder("chatgemma.ollama.concurrency.in.flight", state, s -> s.inFlight.get())
+                .description("Generations currently running on Ollama")
+                .tag("model", model)
+                .register(meterRegistry);
+        state.limitHistory = DistributionSummary.builder("chatgemma.ollama.concurrency.limit.history")
+                .description("Concurrency limit recorded at every decision")
+                .tag("model", model)
+                .register(meterRegistry);
+        state.promptEvalLatency = DistributionSummary.builder("chatgemma.ollama.prompt.eval.latency")
+                .description("Prompt evaluation latency per prompt token")
+                .baseUnit("milliseconds")
+                .tag("model", model)
+                .register(meterRegistry);
+        state.tokensPerSecond = DistributionSummary.builder("chatgemma.ollama.tokens.per.second")
+                .description("Generation speed per request")
+                .tag("model", model)
+                .register(meterRegistry);
+
+        return state;
+    }
+
+    private final class ModelLimit {
+        private volatile int limit;
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        // 아래 필드는 synchronized(this)로 보호
+        private final double[] throughputByLimit;   // 한도별 합산 tokens/sec (EWMA)
+        private double baselineLatency = Double.NaN; // 프롬프트 토큰당 지연의 최저치 (ms)
+        private double recentLatency = Double.NaN;
+        private double recentQueueWaitNanos = 0;
+        private int samplesAtLimit = 0;
+        private int maxInFlightAtLimit = 0;
+
+        private DistributionSummary limitHistory;
+        private DistributionSummary promptEvalLatency;
+        private DistributionSummary tokensPerSecond;
+
+        private ModelLimit(int initialLimit, int maxLimit) {
+            this.limit = initialLimit;
+            this.throughputByLimit = new double[maxLimit + 1];
+            Arrays.fill(throughputByLimit, Double.NaN);
+        }
+
+        private void observe(long promptEvalCount, long promptEvalNanos, long evalCount, long evalNanos,
+                             long queueWaitNanos, int inFlightAtStart) {
+            if (promptEvalCount > 0 && promptEvalNanos > 0) {
+                double perToken = promptEvalNanos / 1_000_000.0 / promptEvalCount;
+                recentLatency = ewma(recentLatency, perToken);
+                baselineLatency = Double.isNaN(baselineLatency)
+                        ? perToken
+                        : Math.min(baselineLatency * (1 + BASELINE_DRIFT), perToken);
+            }
+            if (evalCount > 0 && evalNanos > 0) {
+                double aggregate = evalCount / (evalNanos / 1_000_000_000.0) * Math.max(1, inFlightAtStart);
+                throughputByLimit[limit] = ewma(throughputByLimit[limit], aggregate);
+            }
+            recentQueueWaitNanos = ewma(recentQueueWaitNanos, Math.max(0, queueWaitNanos));
+            samplesAtLimit++;
+            maxInFlightAtLimit = Math.max(maxInFlightAtLimit, inFlightAtStart);
+        }
+
+        private boolean isLatencyInflated() {
+            boolean promptEvalInflated = !Double.isNaN(recentLatency) && recentLatency > baselineLatency * latencyTolerance;
+            boolean queuingInsideOllama = recentQueueWaitNanos > maxQueueWaitNanos;
+            return promptEvalInflated || queuingInsideOllama;
+        }
+
+        private boolean isThroughputWorseThanLowerLimit() {
+            if (limit <= minLimit) {
+                return false;
+            }
+            double current = throughputByLimit[limit];
+            double lower = throughputByLimit[limit - 1];
+            return !Double.isNaN(current) && !Double.isNaN(lower) && current < lower;
+        }
+
+        private boolean isThroughputImproving() {
+            double current = throughputByLimit[limit];
+            if (limit <= minLimit || Double.isNaN(throughputByLimit[limit - 1])) {
+                return true; // 비교 대상이 없으면 탐색을 위해 증가 허용
+            }
+            return !Double.isNaN(current) && current >= throughputByLimit[limit - 1] * (1 + MIN_THROUGHPUT_GAIN);
+        }
+
+        private void resetWindow() {
+            samplesAtLimit = 0;
+            maxInFlightAtLimit = 0;
+        }
+
+        private double ewma(double previous, double sample) {
+            return Double.isNaN(previous) ? sample : previous + SMOOTHING * (sample - previous);
+        }
+    }
+}
\ No newline at end of file
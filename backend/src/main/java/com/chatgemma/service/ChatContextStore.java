@@ -0,0 +1,104 @@
+package com.chatgemma.service;
+
+import com.chatgemma.entity.Message;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+
+// 채팅별로 Ollama가 반환한 context(토큰 배열)를 보관해 다음 턴에는 새 메시지만 평가하도록 한다
+// - 저장된 context가 직전 턴(사용자 메시지 + AI 응답)과 일치할 때만 재사용
+// - 대화 초기화, 모델 변경, 누락된 턴이 있으면 사용하지 않고 전체 프롬프트를 다시 구성
+@Component
+public class ChatContextStore {
+
+    private final boolean enabled;
+    private final Cache<Long, Entry> contexts;
+    private final Counter hits;
+    private final Counter misses;
+
+    public ChatContextStore(MeterRegistry meterRegistry,
+                            @Value("${chatgemma.ollama.context-cache.enabled:true}") boolean enabled,
+                            @Value("${chatgemma.ollama.context-cache.max-size-bytes:67108864}") long maxSizeBytes,
+                            @Value("${chatgemma.ollama.context-cache.expire-after-access:30m}") Duration expireAfterAccess) {
+        this.enabled = enabled;
+        this.contexts = Caffeine.newBuilder()
+                .maximumWeight(maxSizeBytes)
+                .weigher((Long chatId, Entry entry) -> entry.sizeInBytes())
+                .expireAfterAccess(expireAfterAccess)
+                .build();
+        this.hits = Counter.builder("chatgemma.ollama.context.reuse")
+                .description("Turns sent to Ollama as a stored context plus the new message")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("chatgemma.ollama.context.reuse")
+                .description("Turns sent to Ollama as a stored context plus the new message")
+                .tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    // 직전 턴이 저장 시점의 사용자 메시지/AI 응답과 같을 때만 context 반환, 아니면 null
+    public int[] find(Long chatId, String model, List<Message> recentMessages) {
+        if (!enabled || chatId == null) {
+            return null;
+        }
+
+        Entry entry = contexts.getIfPresent(chatId);
+        if (entry == null || !entry.model.equals(model) || !entry.matchesLastTurn(recentMessages)) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.context;
+    }
+
+    public void save(Long chatId, String model, String userMessage, String response, int[] context) {
+        if (!enabled || chatId == null || userMessage == null || response == null
+                || context == null || context.length == 0) {
+            return;
+        }
+        contexts.put(chatId, new Entry(model, userMessage, response, context));
+    }
+
+    public void invalidate(Long chatId) {
+        if (chatId != null) {
+            contexts.invalidate(chatId);
+        }
+    }
+
+    private static final class Entry {
+        private final String model;
+        private final String userMessage;
+        private final String response;
+        private final int[] context;
+
+        private Entry(String model, String userMessage, String response, int[] context) {
+            this.model = model;
+            this.userMessage = userMessage;
+            this.response = response;
+            this.context = context;
+        }
+
+        private boolean matchesLastTurn(List<Message> recentMessages) {
+            if (recentMessages == null || recentMessages.size() < 2) {
+                return false;
+            }
+            Message lastUser = recentMessages.get(recentMessages.size() - 2);
+            Message lastAssistant = recentMessages.get(recentMessages.size() - 1);
+            return lastUser.isUserMessage()
+                    && lastAssistant.isAssistantMessage()
+                    && Objects.equals(lastUser.getContent(), userMessage)
+                    && Objects.equals(lastAssistant.getContent(), response);
+        }
+
+        private int sizeInBytes() {
+            return context.length * Integer.BYTES + (userMessage.length() + response.length()) * Character.BYTES;
+        }
+    }
+}
\ No newline at end of file
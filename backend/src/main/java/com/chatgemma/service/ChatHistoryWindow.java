@@ -0,0 +1,265 @@
+package com.chatgemma.service;
+
+import com.chatgemma.entity.ChatSummary;
+import com.chatgemma.entity.Message;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+// 활성 채팅별 최근 컨텍스트 메시지 창 (채팅마다 링 버퍼 하나)
+// - 메시지를 보낼 때마다 컨텍스트 히스토리 전체를 조회/정렬하지 않도록, 컨텍스트에 포함되는 최근 메시지와 토큰 수를 메모리에 유지
+// - 메시지 저장/대화 초기화 시 갱신하고, 창이 없는 채팅(서버 재시작, 제거됨)만 처음 한 번 DB에서 채운다
+// - 채팅의 저장된 요약도 창과 함께 유지 (요약 갱신/삭제, 대화 초기화 시 비우고 다음 조회 때 다시 읽는다)
+// - 창 크기: 최대 capacity개, 오래된 메시지를 빼도 max-tokens 이상 남으면 뺀다 (히스토리 토큰 예산을 채울 만큼만 유지)
+// - 채팅 수가 max-chats를 넘으면 오래 쓰이지 않은 채팅부터, expire-after-access 동안 쓰이지 않은 채팅은 제거
+@Component
+public class ChatHistoryWindow {
+
+    private final TokenCounter tokenCounter;
+    private final boolean enabled;
+    private final int capacity;
+    private final int maxTokens;
+    private final Cache<Long, Window> windows;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public ChatHistoryWindow(TokenCounter tokenCounter,
+                             MeterRegistry meterRegistry,
+                             @Value("${chatgemma.history-window.enabled:true}") boolean enabled,
+                             @Value("${chatgemma.history-window.capacity:64}") int capacity,
+                             @Value("${chatgemma.history-window.max-tokens:32768}") int maxTokens,
+                             @Value("${chatgemma.history-window.max-chats:10000}") long maxChats,
+                             @Value("${chatgemma.history-window.expire-after-access:30m}") Duration expireAfterAccess) {
+        if (capacity < 1 || maxTokens < 1 || maxChats < 1) {
+            throw new IllegalArgumentException("창 크기, 토큰 상한, 채팅 수 상한은 1 이상이어야 합니다");
+        }
+        this.tokenCounter = tokenCounter;
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.maxTokens = maxTokens;
+        this.windows = Caffeine.newBuilder()
+                .maximumSize(maxChats)
+                .expireAfterAccess(expireAfterAccess)
+                .build();
+
+        this.hits = lookups(meterRegistry, "hit");
+        this.misses = lookups(meterRegistry, "miss");
+        Gauge.builder("chatgemma.history.window.chats", this, ChatHistoryWindow::chatCount)
+                .description("Chats whose recent context messages are held in memory")
+                .register(meterRegistry);
+    }
+
+    // 채팅의 최근 컨텍스트 메시지 (오래된 순)
+    // 창이 없거나, 방금 저장한 currentMessageId가 창에 없으면(동시에 저장된 메시지로 어긋남)
+    // loader(컨텍스트 히스토리 전체 조회)로 다시 채운다. 창 앞으로 밀려난 메시지가 있는지는 isComplete로 확인
+    public List<Message> recent(Long chatId, Long currentMessageId, Supplier<List<Message>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        Window window = windows.getIfPresent(chatId);
+        List<Message> messages = window != null ? window.snapshot(currentMessageId) : null;
+        if (messages != null) {
+            hits.increment();
+            return messages;
+        }
+
+        misses.increment();
+        // 채우는 동안 저장된 메시지의 append는 채우기가 끝날 때까지 기다렸다가 새 창에 추가된다
+        if (window != null) {
+            windows.asMap().remove(chatId, window);
+        }
+        return windows.get(chatId, id -> new Window(loader.get())).snapshot(null);
+    }
+
+    // recent가 컨텍스트 히스토리 전체를 돌려주는지 (창 앞으로 밀려난 메시지가 없음), 창이 없으면 알 수 없으므로 false
+    public boolean isComplete(Long chatId) {
+        if (!enabled) {
+            return true;
+        }
+        Window window = windows.getIfPresent(chatId);
+        if (window == null) {
+            return false;
+        }
+        synchronized (window) {
+            return window.complete;
+        }
+    }
+
+    // 컨텍스트에 포함된 마지막 role 메시지 ID (없으면 null), 창만으로 알 수 없으면 loader
+    public Long lastMessageId(Long chatId, Message.Role role, Supplier<Long> loader) {
+        Window window = enabled ? windows.getIfPresent(chatId) : null;
+        if (window != null) {
+            synchronized (window) {
+                for (Iterator<Entry> it = window.entries.descendingIterator(); it.hasNext(); ) {
+                    Message message = it.next().message;
+                    if (message.getRole() == role) {
+                        return message.getId();
+                    }
+                }
+                if (window.complete) {
+                    return null;
+                }
+            }
+        }
+        return loader.get();
+    }
+
+    // 채팅의 저장된 요약, 창이 없으면 loader(DB 조회)
+    public Optional<ChatSummary> summary(Long chatId, Supplier<Optional<ChatSummary>> loader) {
+        Window window = enabled ? windows.getIfPresent(chatId) : null;
+        if (window == null) {
+            return loader.get();
+        }
+        int version;
+        synchronized (window) {
+            if (window.summary != null) {
+                return window.summary;
+            }
+            version = window.summaryVersion;
+        }
+        Optional<ChatSummary> loaded = loader.get();
+        synchronized (window) {
+            // 조회하는 동안 요약이 갱신/삭제되었으면 이전 값을 남기지 않는다 (다음 조회 때 다시 읽는다)
+            if (window.summaryVersion == version) {
+                window.summary = loaded;
+            }
+        }
+        return loaded;
+    }
+
+    // 요약이 갱신/삭제되면 호출 (다음 조회 때 DB에서 다시 읽는다)
+    public void invalidateSummary(Long chatId) {
+        Window window = chatId != null ? windows.getIfPresent(chatId) : null;
+        if (window != null) {
+            window.clearSummary();
+        }
+    }
+
+    // 저장된 메시지를 창 끝에 추가 (창이 없는 채팅은 다음 조회 때 DB에서 채우므로 무시)
+    public void append(Message message) {
+        if (!enabled || message == null || message.getId() == null || message.isExcludedFromContext()) {
+            return;
+        }
+        // compute는 같은 채팅의 진행 중인 채우기(recent)가 끝날 때까지 기다린다 (getIfPresent면 그 사이 메시지를 놓친다)
+        windows.asMap().compute(message.getChatId(), (chatId, window) -> {
+            if (window != null) {
+                window.add(message);
+            }
+            return window;
+        });
+    }
+
+    // 대화 초기화: 초기화를 요청한 메시지만 남긴다 (창에 없으면 다음 조회 때 다시 채운다)
+    public void reset(Long chatId, Long keepMessageId) {
+        Window window = windows.getIfPresent(chatId);
+        if (window != null && !window.retainOnly(keepMessageId)) {
+            windows.invalidate(chatId);
+        }
+    }
+
+    public void invalidate(Long chatId) {
+        if (chatId != null) {
+            windows.invalidate(chatId);
+        }
+    }
+
+    public long chatCount() {
+        return windows.estimatedSize();
+    }
+
+    private static Counter lookups(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("chatgemma.history.window.lookups")
+                .description("Context history lookups served by the in-memory window or loaded from the database")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    // 모든 접근은 Window 모니터로 보호
+    private final class Window {
+        private final Deque<Entry> entries = new ArrayDeque<>(capacity + 1);
+        private int tokens;
+        private boolean complete = true; // 컨텍스트 히스토리 전체를 담고 있는지 (밀려난 메시지가 없음)
+        private Optional<ChatSummary> summary; // null이면 아직 읽지 않음
+        private int summaryVersion;
+
+        private Window(List<Message> history) {
+            for (Message message : history) {
+                add(message);
+            }
+        }
+
+        private synchronized void add(Message message) {
+            if (message.getId() == null || contains(message.getId())) {
+                return; // 채우는 중 저장된 메시지가 조회 결과와 append 양쪽으로 들어온 경우
+            }
+            Entry entry = new Entry(message, tokenCounter.count(message));
+            entries.addLast(entry);
+            tokens += entry.tokens;
+            while (entries.size() > capacity
+                    || (entries.size() > 1 && tokens - entries.peekFirst().tokens >= maxTokens)) {
+                tokens -= entries.removeFirst().tokens;
+                complete = false;
+            }
+        }
+
+        private boolean contains(Long messageId) {
+            for (Entry entry : entries) {
+                if (entry.message.getId().equals(messageId)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // 사용할 수 없는 상태면 null
+        private synchronized List<Message> snapshot(Long currentMessageId) {
+            List<Message> messages = new ArrayList<>(entries.size());
+            boolean hasCurrent = currentMessageId == null;
+            for (Entry entry : entries) {
+                messages.add(entry.message);
+                hasCurrent |= entry.message.getId().equals(currentMessageId);
+            }
+            return hasCurrent ? messages : null;
+        }
+
+        private synchronized boolean retainOnly(Long messageId) {
+            entries.removeIf(entry -> !entry.message.getId().equals(messageId));
+            if (entries.isEmpty()) {
+                return false;
+            }
+            tokens = entries.peekFirst().tokens;
+            complete = true;
+            clearSummary();
+            return true;
+        }
+
+        private synchronized void clearSummary() {
+            summary = null;
+            summaryVersion++;
+        }
+    }
+
+    private static final class Entry {
+        private final Message message;
+        private final int tokens;
+
+        private Entry(Message message, int tokens) {
+            this.message = message;
+            this.tokens = tokens;
+        }
+    }
+}
\ No newline at end of file
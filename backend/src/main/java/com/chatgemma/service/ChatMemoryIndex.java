@@ -0,0 +1,404 @@
+package com.chatgemma.service;
+
+import com.chatgemma.entity.Message;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// 채팅별 메시지 임베딩 인덱스 (장기 대화 기억)
+// - 긴 대화에서는 최근 몇 개 메시지 + 현재 질문과 의미가 가까운 예전 턴(질문/답 쌍)만 골라 컨텍스트로 보낸다
+// - 메시지를 저장할 때 백그라운드로 임베딩해 추가, 인덱스에 없는 예전 메시지(서버 재시작 등)는 조회 시 백그라운드로 채운다
+// - 최근 메시지 창(ChatHistoryWindow) 밖으로 밀려난 예전 턴은 인덱스의 벡터로 비교하고, 고른 메시지만 DB에서 가져온다
+// - 짧은 대화(min-messages 이하)는 전체를 그대로 보내 Ollama 프롬프트 prefix 재사용을 유지
+// - 토큰 예산은 최근 메시지에 먼저 쓰고, 남은 만큼만 관련 있는 예전 턴을 유사도 높은 순으로 넣는다
+//   (예전 턴을 앞에 붙여 보내면 OllamaService가 예산에 맞춰 오래된 것부터 자를 때 검색한 턴이 먼저 빠진다)
+// - 임베딩 실패, 짧은 대화는 전체 대화를 그대로 사용 (그 경우 토큰 예산에 맞춘 절단은 OllamaService가 담당)
+// - 채팅 하나의 메시지 수는 많아야 수천 개라 HNSW 대신 전수 비교
+// - 임베딩 전용 서버가 지정된 경우에만 동작 (OllamaEmbedder 참고)
+@Component
+public class ChatMemoryIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatMemoryIndex.class);
+
+    private static final int MAX_EMBED_CHARS = 2000; // 긴 답변은 앞부분만 임베딩 (주제 판단에 충분)
+    private static final int BACKFILL_CONCURRENCY = 2;
+
+    private final Embedder embedder;
+    private final TokenCounter tokenCounter;
+    private final boolean enabled;
+    private final int recentMessages;
+    private final int topK;
+    private final int minMessages;
+    private final double minSimilarity;
+
+    // 가중치 = 채팅에 저장된 벡터 수
+    private final Cache<Long, ChatMemory> memories;
+
+    private final Counter retrieved;
+    private final Counter fallbacks;
+    private final DistributionSummary contextMessages;
+
+    public ChatMemoryIndex(Embedder embedder,
+                           TokenCounter tokenCounter,
+                           MeterRegistry meterRegistry,
+                           @Value("${chatgemma.memory.enabled:false}") boolean enabled,
+                           @Value("${chatgemma.memory.recent-messages:6}") int recentMessages,
+                           @Value("${chatgemma.memory.top-k:4}") int topK,
+                           @Value("${chatgemma.memory.min-messages:20}") int minMessages,
+                           @Value("${chatgemma.memory.min-similarity:0.5}") double minSimilarity,
+                           @Value("${chatgemma.memory.max-vectors:50000}") long maxVectors,
+                           @Value("${chatgemma.memory.expire-after-access:2h}") Duration expireAfterAccess) {
+        if (recentMessages < 1 || topK < 0 || minMessages < recentMessages) {
+            throw new IllegalArgumentException("최근 메시지 수는 1 이상, top-k는 0 이상, min-messages는 최근 메시지 수 이상이어야 합니다");
+        }
+        this.embedder = embedder;
+        this.tokenCounter = tokenCounter;
+        // 메시지마다 임베딩하므로 생성 서버에서 임베딩하면 생성 모델이 계속 내려간다: 임베딩 전용 서버가 있을 때만 사용
+        this.enabled = enabled && embedder.hasDedicatedBackend();
+        if (enabled && !this.enabled) {
+            logger.warn("장기 대화 기억을 사용하지 않습니다: 임베딩 전용 서버(chatgemma.ollama.semantic-cache.embedding-base-url)가 필요합니다");
+        }
+        this.recentMessages = recentMessages;
+        this.topK = topK;
+        this.minMessages = minMessages;
+        this.minSimilarity = minSimilarity;
+        this.memories = Caffeine.newBuilder()
+                .maximumWeight(maxVectors)
+                .weigher((Long chatId, ChatMemory memory) -> memory.vectors.size())
+                .expireAfterAccess(expireAfterAccess)
+                .build();
+
+        this.retrieved = assemblies(meterRegistry, "retrieved");
+        this.fallbacks = assemblies(meterRegistry, "fallback");
+        this.contextMessages = DistributionSummary.builder("chatgemma.memory.context.messages")
+                .description("History messages sent after retrieval-based selection")
+                .register(meterRegistry);
+        Gauge.builder("chatgemma.memory.vectors", this, ChatMemoryIndex::vectorCount)
+                .description("Message embeddings held by the chat memory index")
+                .register(meterRegistry);
+    }
+
+    // 저장된 메시지를 백그라운드로 임베딩해 인덱스에 추가 (실패해도 메시지 저장에는 영향 없음)
+    public void index(Message message) {
+        if (!enabled || message == null || message.getId() == null || isBlank(message.getContent())) {
+            return;
+        }
+        embedder.embed(text(message.getContent()))
+                .subscribe(vector -> store(message.getChatId(), message, vector),
+                        e -> logger.debug("Chat memory indexing skipped: messageId={}, {}", message.getId(), e.getMessage()));
+    }
+
+    // history(오래된 순, 컨텍스트 히스토리 전체)에서 컨텍스트로 보낼 메시지 선택
+    public Mono<List<Message>> select(Long chatId, String query, List<Message> history, int tokenBudget) {
+        return select(chatId, query, history, null, tokenBudget);
+    }
+
+    // 최근 메시지 + query와 관련 있는 예전 턴, 시간 순서 유지
+    // older: history(최근 메시지 창) 앞으로 밀려난 메시지가 있을 때 그 메시지를 DB에서 가져오는 방법 (없으면 null)
+    // tokenBudget: 이전 턴에 쓸 수 있는 토큰 수 (OllamaService.historyTokenBudget)
+    public Mono<List<Message>> select(Long chatId, String query, List<Message> history, OlderMessages older,
+                                      int tokenBudget) {
+        boolean hasOlder = older != null && !history.isEmpty();
+        if (!enabled || (!hasOlder && history.size() <= minMessages) || isBlank(query)) {
+            return Mono.just(history);
+        }
+        int split = Math.max(0, history.size() - recentMessages);
+        ChatMemory memory = memories.get(chatId, id -> new ChatMemory());
+        backfill(chatId, memory, history.subList(0, split), () -> { });
+        Long windowStart = hasOlder ? history.get(0).getId() : null;
+        if (windowStart != null) {
+            backfillOlder(chatId, memory, older, windowStart);
+        }
+
+        return embedder.embed(text(query))
+                .flatMap(vector -> assemble(memory, VectorMath.normalize(vector), history, split, older, windowStart,
+                        tokenBudget))
+                .switchIfEmpty(Mono.fromSupplier(() -> fallback(history, null)))
+                .onErrorResume(e -> Mono.just(fallback(history, e)));
+    }
+
+    public void invalidate(Long chatId) {
+        memories.invalidate(chatId);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long vectorCount() {
+        return memories.asMap().values().stream().mapToLong(memory -> memory.vectors.size()).sum();
+    }
+
+    // windowStart: history 첫 메시지 ID (그보다 앞의 인덱스 벡터도 후보, 고른 메시지는 older로 가져온다), 없으면 null
+    private Mono<List<Message>> assemble(ChatMemory memory, float[] query, List<Message> history, int split,
+                                         OlderMessages older, Long windowStart, int tokenBudget) {
+        PriorityQueue<Scored> best = new PriorityQueue<>(Comparator.comparingDouble((Scored s) -> s.similarity));
+        for (int i = 0; i < split; i++) {
+            score(best, query, memory.vectors.get(history.get(i).getId()), i, history.get(i).getId());
+        }
+        NavigableMap<Long, Embedding> outside = windowStart != null
+                ? memory.vectors.headMap(windowStart, false) : Collections.emptyNavigableMap();
+        for (Map.Entry<Long, Embedding> entry : outside.entrySet()) {
+            score(best, query, entry.getValue(), -1, entry.getKey());
+        }
+
+        // 유사도 높은 순
+        List<Scored> ranked = new ArrayList<>(best);
+        ranked.sort(Comparator.comparingDouble((Scored s) -> s.similarity).reversed());
+
+        Set<Long> olderIds = new TreeSet<>();
+        for (Scored scored : ranked) {
+            if (scored.index < 0) {
+                olderIds.add(scored.messageId);
+                Long partner = partnerOf(outside, scored.messageId);
+                if (partner != null) {
+                    olderIds.add(partner);
+                }
+            }
+        }
+
+        if (olderIds.isEmpty()) {
+            return Mono.just(combine(ranked, Map.of(), outside, history, split, tokenBudget));
+        }
+        // JPA 조회는 블로킹 호출이므로 임베딩 응답을 받은 이벤트 루프가 아닌 별도 스케줄러에서 수행
+        return Mono.fromCallable(() -> older.findAll(olderIds))
+                .subscribeOn(Schedulers.boundedElastic())
+                .map(found -> {
+                    Map<Long, Message> olderById = new HashMap<>();
+                    found.forEach(message -> olderById.put(message.getId(), message));
+                    return combine(ranked, olderById, outside, history, split, tokenBudget);
+                });
+    }
+
+    private void score(PriorityQueue<Scored> best, float[] query, Embedding embedding, int index, Long messageId) {
+        if (embedding == null || embedding.values.length != query.length) {
+            return;
+        }
+        double similarity = VectorMath.dot(query, embedding.values);
+        if (similarity < minSimilarity) {
+            return;
+        }
+        best.add(new Scored(index, messageId, similarity));
+        if (best.size() > topK) {
+            best.poll();
+        }
+    }
+
+    // 최근 메시지를 먼저 넣고, 고른 예전 턴을 유사도 높은 순으로 남은 토큰 예산에 맞는 만큼만 추가 (시간 순서로 정렬)
+    // 질문만 또는 답만 있으면 의미가 끊기므로 같은 턴의 상대 메시지도 함께 넣는다
+    private List<Message> combine(List<Scored> ranked, Map<Long, Message> olderById,
+                                  NavigableMap<Long, Embedding> outside, List<Message> history, int split,
+                                  int tokenBudget) {
+        List<Message> recent = history.subList(split, history.size());
+        int usedTokens = recent.stream().mapToInt(tokenCounter::count).sum();
+
+        // 메시지 ID(오래된 순) -> 고른 예전 메시지
+        NavigableMap<Long, Message> chosen = new TreeMap<>();
+        int skipped = 0;
+        for (Scored scored : ranked) {
+            List<Message> turn = new ArrayList<>(2);
+            if (scored.index < 0) {
+                Message message = olderById.get(scored.messageId);
+                if (message == null) {
+                    continue; // 컨텍스트에서 제외되었거나 요약에 포함된 메시지
+                }
+                turn.add(message);
+                Long partner = partnerOf(outside, scored.messageId);
+                if (partner != null && olderById.containsKey(partner)) {
+                    turn.add(olderById.get(partner));
+                }
+            } else {
+                turn.add(history.get(scored.index));
+                int partner = partnerOf(history, scored.index, split);
+                if (partner >= 0) {
+                    turn.add(history.get(partner));
+                }
+            }
+            turn.removeIf(message -> chosen.containsKey(message.getId()));
+            int turnTokens = turn.stream().mapToInt(tokenCounter::count).sum();
+            if (usedTokens + turnTokens > tokenBudget) {
+                skipped++;
+                continue; // 더 짧은 다음 턴은 들어갈 수 있다
+            }
+            turn.forEach(message -> chosen.put(message.getId(), message));
+            usedTokens += turnTokens;
+        }
+
+        List<Message> context = new ArrayList<>(chosen.values());
+        context.addAll(recent);
+
+        retrieved.increment();
+        contextMessages.record(context.size());
+        logger.debug("🧠 Chat memory selected {} retrieved and {} recent messages ({} tokens, {} turns over budget)",
+                chosen.size(), recent.size(), usedTokens, skipped);
+        return context;
+    }
+
+    private List<Message> fallback(List<Message> history, Throwable error) {
+        fallbacks.increment();
+        if (error != null) {
+            logger.warn("⚠️ Chat memory retrieval skipped: {}", error.getMessage());
+        }
+        return history;
+    }
+
+    // 인덱스에 없는 예전 메시지를 채운다 (채팅당 한 번에 하나의 작업, 임베딩 오류가 나면 다음 조회 때 다시 시도)
+    // onSkipped: 다른 채우기 작업이 진행 중이어서 시작하지 못했거나 오류로 중단된 경우 호출
+    private void backfill(Long chatId, ChatMemory memory, List<Message> older, Runnable onSkipped) {
+        List<Message> missing = older.stream()
+                .filter(message -> message.getId() != null && !isBlank(message.getContent())
+                        && !memory.vectors.containsKey(message.getId()))
+                .toList();
+        if (missing.isEmpty()) {
+            return;
+        }
+        if (!memory.backfilling.compareAndSet(false, true)) {
+            onSkipped.run();
+            return;
+        }
+        Flux.fromIterable(missing)
+                .flatMap(message -> embedder.embed(text(message.getContent()))
+                        .doOnNext(vector -> store(chatId, message, vector)), BACKFILL_CONCURRENCY)
+                .doFinally(signal -> memory.backfilling.set(false))
+                .subscribe(vector -> { },
+                        e -> {
+                            onSkipped.run();
+                            logger.warn("⚠️ Chat memory backfill stopped: chatId={}, {}", chatId, e.getMessage());
+                        },
+                        () -> logger.debug("Chat memory backfilled: chatId={}, messages={}", chatId, missing.size()));
+    }
+
+    // 창 앞으로 밀려난 메시지를 인덱스 수명 동안 한 번만 DB에서 읽어 채운다 (이후 턴은 저장 시 인덱싱된 벡터를 사용)
+    private void backfillOlder(Long chatId, ChatMemory memory, OlderMessages older, Long windowStart) {
+        if (!memory.olderLoaded.compareAndSet(false, true)) {
+            return;
+        }
+        Runnable retryLater = () -> memory.olderLoaded.set(false);
+        Mono.fromCallable(() -> older.before(windowStart))
+                .subscribeOn(Schedulers.boundedElastic())
+                .subscribe(messages -> backfill(chatId, memory, messages, retryLater),
+                        e -> {
+                            retryLater.run();
+                            logger.warn("⚠️ Chat memory backfill stopped: chatId={}, {}", chatId, e.getMessage());
+                        });
+    }
+
+    private void store(Long chatId, Message message, float[] vector) {
+        float[] normalized;
+        try {
+            normalized = VectorMath.normalize(vector);
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+        ChatMemory memory = memories.get(chatId, id -> new ChatMemory());
+        if (memory.vectors.putIfAbsent(message.getId(), new Embedding(normalized, message.getRole())) == null) {
+            memories.put(chatId, memory); // 벡터 수가 바뀌었으므로 가중치 다시 계산
+        }
+    }
+
+    private static int partnerOf(List<Message> history, int index, int split) {
+        Message.Role role = history.get(index).getRole();
+        if (role == Message.Role.USER && index + 1 < split
+                && history.get(index + 1).getRole() == Message.Role.ASSISTANT) {
+            return index + 1;
+        }
+        if (role == Message.Role.ASSISTANT && index > 0
+                && history.get(index - 1).getRole() == Message.Role.USER) {
+            return index - 1;
+        }
+        return -1;
+    }
+
+    // 창 밖 메시지의 같은 턴 상대: 인덱스에서 바로 뒤(질문의 답) 또는 바로 앞(답의 질문) 메시지
+    private static Long partnerOf(NavigableMap<Long, Embedding> outside, Long messageId) {
+        Embedding embedding = outside.get(messageId);
+        if (embedding == null) {
+            return null;
+        }
+        Map.Entry<Long, Embedding> neighbor = embedding.role == Message.Role.USER
+                ? outside.higherEntry(messageId) : outside.lowerEntry(messageId);
+        Message.Role partnerRole = embedding.role == Message.Role.USER ? Message.Role.ASSISTANT : Message.Role.USER;
+        return neighbor != null && neighbor.getValue().role == partnerRole ? neighbor.getKey() : null;
+    }
+
+    private static String text(String content) {
+        String normalized = GenerationCoalescer.normalize(content);
+        return normalized.length() > MAX_EMBED_CHARS ? normalized.substring(0, MAX_EMBED_CHARS) : normalized;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private static Counter assemblies(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("chatgemma.memory.assemblies")
+                .description("Long chat context assemblies by result")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    // 최근 메시지 창 앞으로 밀려난 메시지 조회 (DB)
+    public interface OlderMessages {
+
+        // beforeId보다 앞의 컨텍스트 메시지 전체 (오래된 순, 인덱스 채우기용)
+        List<Message> before(Long beforeId);
+
+        // 검색으로 고른 메시지 (오래된 순, 컨텍스트에서 제외되었거나 요약에 포함된 메시지는 빼고 반환)
+        List<Message> findAll(Collection<Long> messageIds);
+    }
+
+    private static final class ChatMemory {
+        // 메시지 ID(오래된 순) -> 정규화된 임베딩
+        private final NavigableMap<Long, Embedding> vectors = new ConcurrentSkipListMap<>();
+        private final AtomicBoolean backfilling = new AtomicBoolean();
+        private final AtomicBoolean olderLoaded = new AtomicBoolean();
+    }
+
+    private static final class Embedding {
+        private final float[] values;
+        private final Message.Role role;
+
+        private Embedding(float[] values, Message.Role role) {
+            this.values = values;
+            this.role = role;
+        }
+    }
+
+    private static final class Scored {
+        private final int index; // history 인덱스, 창 밖 메시지면 -1
+        private final Long messageId;
+        private final double similarity;
+
+        private Scored(int index, Long messageId, double similarity) {
+            this.index = index;
+            this.messageId = messageId;
+            this.similarity = similarity;
+        }
+    }
+}
\ No newline at end of file
@@ -1,7 +1,10 @@
 package com.chatgemma.service;
 
+import com.chatgemma.dto.request.ChatMessageRequest;
 import com.chatgemma.entity.AuditLog;
 import com.chatgemma.entity.Chat;
+import com.chatgemma.entity.ChatSummary;
+import com.chatgemma.entity.GenerationUsage;
 import com.chatgemma.entity.Message;
 import com.chatgemma.repository.AuditLogRepository;
 import com.chatgemma.repository.ChatRepository;
@@ -13,8 +16,18 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 @Service
 @Transactional(readOnly = true)
@@ -26,13 +39,36 @@ public class ChatService {
     private final MessageRepository messageRepository;
     private final AuditLogRepository auditLogRepository;
     private final OllamaService ollamaService;
+    private final GenerationScheduler generationScheduler;
+    private final TokenUsageLedger tokenUsageLedger;
+    private final GenerationCoalescer generationCoalescer;
+    private final IdempotencyStore idempotencyStore;
+    private final ChatMemoryIndex chatMemoryIndex;
+    private final ConversationCompactor conversationCompactor;
+    private final TokenCounter tokenCounter;
+    private final ChatHistoryWindow historyWindow;
+    private final ChatContextStore contextStore;
 
     public ChatService(ChatRepository chatRepository, MessageRepository messageRepository,
-                      AuditLogRepository auditLogRepository, OllamaService ollamaService) {
+                      AuditLogRepository auditLogRepository, OllamaService ollamaService,
+                      GenerationScheduler generationScheduler, TokenUsageLedger tokenUsageLedger,
+                      GenerationCoalescer generationCoalescer, IdempotencyStore idempotencyStore,
+                      ChatMemoryIndex chatMemoryIndex, ConversationCompactor conversationCompactor,
+                      TokenCounter tokenCounter, ChatHistoryWindow historyWindow,
+                      ChatContextStore contextStore) {
         this.chatRepository = chatRepository;
         this.messageRepository = messageRepository;
         this.auditLogRepository = auditLogRepository;
         this.ollamaService = ollamaService;
+        this.generationScheduler = generationScheduler;
+        this.tokenUsageLedger = tokenUsageLedger;
+        this.generationCoalescer = generationCoalescer;
+        this.idempotencyStore = idempotencyStore;
+        this.chatMemoryIndex = chatMemoryIndex;
+        this.conversationCompactor = conversationCompactor;
+        this.tokenCounter = tokenCounter;
+        this.historyWindow = historyWindow;
+        this.contextStore = contextStore;
     }
 
     @Transactional
@@ -94,60 +130,139 @@ public class ChatService {
 
         // 3. 채팅 자체를 물리적 삭제
         chatRepository.delete(chat);
+        chatMemoryIndex.invalidate(chatId);
+        historyWindow.invalidate(chatId);
+        contextStore.invalidate(chatId);
+        conversationCompactor.discard(chatId);
+        tokenUsageLedger.removeChat(chatId);
         logger.info("✅ Deleted chat: {}", chatId);
     }
 
+    // 논블로킹 메시지 전송: AI 응답 메시지를 Mono로 반환하여 요청 스레드를 점유하지 않는다
     @Transactional
-    public Message sendMessage(Long chatId, Long userId, String content, String imageUrl,
-                              String clientIp, String userAgent) {
+    public Mono<Message> sendMessageAsync(Long chatId, Long userId, String content, String imageUrl,
+                                          String clientIp, String userAgent) {
+        return sendMessageAsync(chatId, userId, content, imageUrl, null, clientIp, userAgent);
+    }
+
+    // options: 전역 기본값 위에 덮어쓸 생성 옵션 (null이면 기본값)
+    @Transactional
+    public Mono<Message> sendMessageAsync(Long chatId, Long userId, String content, String imageUrl,
+                                          GenerationOptions options, String clientIp, String userAgent) {
         // 입력 검증을 먼저 수행
         validateMessageContent(content);
 
-        // 채팅 존재 및 권한 확인
-        Chat chat = getChatByIdAndUserId(chatId, userId);
+        // 채팅 존재 및 권한 확인 후 사용자 메시지 저장
+        Message savedUserMessage = saveUserMessage(chatId, userId, content, imageUrl);
 
-        // 사용자 메시지 저장
-        Message userMessage;
-        if (imageUrl != null && !imageUrl.trim().isEmpty()) {
-            userMessage = Message.createUserMessageWithImage(chatId, content, imageUrl);
-        } else {
-            userMessage = Message.createUserMessage(chatId, content);
+        return requestAiResponse(chatId, userId, savedUserMessage, options, clientIp, userAgent);
+    }
+
+    // idempotencyKey: 클라이언트가 보낸 멱등성 키 (null/공백이면 미적용)
+    // 같은 키로 재시도하면 사용자 메시지를 다시 저장하지 않고 처음 요청의 AI 응답(진행 중이면 완료 시)을 돌려준다
+    // 아래 자기 호출은 프록시를 거치지 않으므로 사용자 메시지 저장은 이 메서드의 쓰기 트랜잭션 안에서 수행된다
+    @Transactional
+    public Mono<Message> sendMessageAsync(Long chatId, Long userId, String content, String imageUrl,
+                                          GenerationOptions options, String idempotencyKey,
+                                          String clientIp, String userAgent) {
+        String key = IdempotencyStore.normalizeKey(idempotencyKey);
+        if (key == null) {
+            return sendMessageAsync(chatId, userId, content, imageUrl, options, clientIp, userAgent);
         }
-        Message savedUserMessage = messageRepository.save(userMessage);
 
-        try {
-            // 최근 대화 히스토리 가져오기 (컨텍스트에서 제외되지 않은 메시지만, 80% 토큰 사용을 위해 최대 70개)
-            List<Message> recentMessages = messageRepository.findByChatIdAndExcludeFromContextFalseOrderByCreatedAtDesc(chatId)
-                .stream()
-                .filter(msg -> !msg.getId().equals(savedUserMessage.getId())) // 방금 저장한 사용자 메시지 제외
-                .limit(70)
-                .sorted((m1, m2) -> m1.getCreatedAt().compareTo(m2.getCreatedAt()))
-                .toList();
+        PendingResponse pending = idempotencyStore.computeIfAbsent(userId, key,
+                GenerationCoalescer.of(chatId, content, imageUrl, options, null), PendingResponse.class,
+                () -> new PendingResponse(Mono.defer(
+                        () -> sendMessageAsync(chatId, userId, content, imageUrl, options, clientIp, userAgent))));
+        // 실패한 요청은 같은 키로 다시 시도할 수 있도록 제거
+        pending.start(e -> idempotencyStore.invalidate(userId, key, PendingResponse.class, pending));
+        return pending.response;
+    }
+
+    private Mono<Message> requestAiResponse(Long chatId, Long userId, Message savedUserMessage,
+                                            GenerationOptions options, String clientIp, String userAgent) {
+        String content = savedUserMessage.getContent();
+        String imageUrl = savedUserMessage.getImageUrl();
+
+        // 대화 히스토리 가져오기 (모델 토큰 예산에 맞춘 절단은 OllamaService가 담당)
+        Mono<ConversationContext> context = assembleContext(chatId, savedUserMessage.getId(), content, options);
+        AtomicReference<GenerationUsage> usage = new AtomicReference<>();
+
+        // AI 응답 요청 (컨텍스트 포함, 입장 관리자를 거쳐 동시 실행 수 제한)
+        return context
+                .flatMap(conversation -> generationScheduler.submit(userId,
+                        () -> ollamaService.sendMessageWithContextAsync(chatId, content, imageUrl, conversation,
+                                options, usage::set), null)
+                        .next())
+                // JPA 저장은 블로킹 호출이므로 Netty 이벤트 루프가 아닌 별도 스케줄러에서 수행
+                .publishOn(Schedulers.boundedElastic())
+                .map(aiResponse -> {
+                    // 대화 초기화 요청인 경우 이전 메시지들을 컨텍스트에서 제외
+                    if (isContextResetRequest(content)) {
+                        excludePreviousMessagesFromContext(chatId, savedUserMessage.getId());
+                    }
 
-            // AI 응답 요청 (컨텍스트 포함)
-            String aiResponse = ollamaService.sendMessageWithContext(content, imageUrl, recentMessages);
+                    // AI 응답 메시지 저장 (토큰 사용량 포함)
+                    Message aiMessage = saveAssistantMessage(chatId, aiResponse, usage.get());
+                    tokenUsageLedger.record(userId, chatId, usage.get());
 
-            // 대화 초기화 요청인 경우 이전 메시지들을 컨텍스트에서 제외
-            if (isContextResetRequest(content)) {
-                excludePreviousMessagesFromContext(chatId, savedUserMessage.getId());
-            }
+                    // 감사 로그 기록
+                    recordAuditLog(userId, "SEND_MESSAGE", "MESSAGE", savedUserMessage.getId(),
+                            clientIp, userAgent, imageUrl != null ? "{\"hasImage\":true}" : null);
 
-            // AI 응답 메시지 저장
-            Message aiMessage = Message.createAssistantMessage(chatId, aiResponse);
-            messageRepository.save(aiMessage);
+                    return aiMessage;
+                })
+                // AI 서비스 오류 시에도 사용자 메시지는 저장되어 있음
+                .doOnError(e -> recordAuditLog(userId, "AI_ERROR", "MESSAGE", savedUserMessage.getId(),
+                        clientIp, userAgent, "{\"error\":\"" + e.getMessage() + "\"}"));
+    }
 
-            // 감사 로그 기록
-            recordAuditLog(userId, "SEND_MESSAGE", "MESSAGE", savedUserMessage.getId(),
-                    clientIp, userAgent, imageUrl != null ? "{\"hasImage\":true}" : null);
+    // 컨텍스트에서 제외되지 않은 메시지 중 저장된 요약 이후의 메시지에서 최근 + 관련 있는 예전 턴을 고르고,
+    // 요약이 있으면 함께 전달한다 (DB 조회는 호출 시점에 바로 수행, 활성 채팅은 메시지 창과 요약 모두 메모리에서)
+    // 예전 턴은 요약과 최근 메시지를 넣고 남은 토큰 예산 안에서만 고른다
+    private Mono<ConversationContext> assembleContext(Long chatId, Long currentMessageId, String query,
+                                                      GenerationOptions options) {
+        List<Message> recent = findRecentContextMessages(chatId, currentMessageId);
+        Optional<ChatSummary> summary = historyWindow.summary(chatId, () -> conversationCompactor.findSummary(chatId));
+        List<Message> history = recent.stream()
+                .filter(msg -> summary.map(s -> !s.covers(msg)).orElse(true))
+                .toList();
+        // 창 앞으로 밀려난 예전 턴은 장기 기억 검색에 걸린 메시지만 DB에서 가져온다
+        ChatMemoryIndex.OlderMessages older = historyWindow.isComplete(chatId) ? null : olderContextMessages(chatId, summary);
+        int tokenBudget = ollamaService.historyTokenBudget(query,
+                ConversationContext.of(summary.orElse(null), List.of()), options);
+        return chatMemoryIndex.select(chatId, query, history, older, tokenBudget)
+                .map(selected -> ConversationContext.of(summary.orElse(null), selected));
+    }
 
-            return savedUserMessage;
+    // 활성 채팅은 메모리의 최근 메시지 창을 사용하고, 창이 없을 때만 DB에서 조회
+    private List<Message> findRecentContextMessages(Long chatId, Long currentMessageId) {
+        return historyWindow.recent(chatId, currentMessageId,
+                        () -> messageRepository.findByChatIdAndExcludeFromContextFalseOrderByCreatedAtAsc(chatId))
+                .stream()
+                .filter(msg -> !msg.getId().equals(currentMessageId)) // 방금 저장한 사용자 메시지 제외
+                .toList();
+    }
 
-        } catch (Exception e) {
-            // AI 서비스 오류 시에도 사용자 메시지는 저장되어 있음
-            recordAuditLog(userId, "AI_ERROR", "MESSAGE", savedUserMessage.getId(),
-                    clientIp, userAgent, "{\"error\":\"" + e.getMessage() + "\"}");
-            throw e;
-        }
+    // 최근 메시지 창 앞의 컨텍스트 메시지 조회 (요약에 포함된 메시지 제외)
+    private ChatMemoryIndex.OlderMessages olderContextMessages(Long chatId, Optional<ChatSummary> summary) {
+        return new ChatMemoryIndex.OlderMessages() {
+            @Override
+            public List<Message> before(Long beforeId) {
+                return messageRepository.findContextMessagesBefore(chatId, beforeId).stream()
+                        .filter(msg -> summary.map(s -> !s.covers(msg)).orElse(true))
+                        .toList();
+            }
+
+            @Override
+            public List<Message> findAll(Collection<Long> messageIds) {
+                return messageRepository.findAllById(messageIds).stream()
+                        .filter(msg -> chatId.equals(msg.getChatId()) && !msg.isExcludedFromContext())
+                        .filter(msg -> summary.map(s -> !s.covers(msg)).orElse(true))
+                        .sorted(Comparator.comparing(Message::getId))
+                        .toList();
+            }
+        };
     }
 
     public List<Message> getChatMessages(Long chatId, Long userId) {
@@ -183,67 +298,122 @@ public class ChatService {
     }
 
     // WebSocket용 스트리밍 메시지 처리 (사용자 메시지와 AI 응답 모두 저장)
-    public java.util.concurrent.CompletableFuture<Void> processMessageStreamAsync(
-            com.chatgemma.dto.request.ChatMessageRequest request,
-            String sessionId,
-            Long userId,
-            java.util.function.Consumer<String> chunkConsumer) {
-
-        // 1. 먼저 사용자 메시지를 동기적으로 저장
+    // 같은 대화 상태에서 같은 질문이 이미 생성 중이면 새로 생성하지 않고 그 스트림에 합류한다 (메시지도 한 번만 저장)
+    public Mono<Void> processMessageStreamAsync(ChatMessageRequest request,
+                                                String sessionId,
+                                                Long userId,
+                                                Consumer<String> chunkConsumer,
+                                                IntConsumer queuePositionConsumer) {
+
+        // 채팅 권한 확인 (합류하는 요청도 확인)
         Long chatId = Long.parseLong(request.getChatId());
-        saveUserMessage(chatId, userId, request.getContent(), request.getImageUrl());
-        logger.info("✅ User message saved to DB: chatId={}, content={}", chatId, request.getContent());
-
-        // 2. AI 응답을 비동기적으로 처리하고 저장
-        return java.util.concurrent.CompletableFuture.runAsync(() -> {
-            try {
-                // AI 응답을 누적할 StringBuilder
-                StringBuilder fullResponse = new StringBuilder();
-
-                // 최근 대화 히스토리 가져오기 (컨텍스트에서 제외되지 않은 메시지만, 80% 토큰 사용을 위해 최대 70개)
-                List<Message> recentMessages = messageRepository.findByChatIdAndExcludeFromContextFalseOrderByCreatedAtDesc(chatId)
-                    .stream()
-                    .limit(70)
-                    .sorted((m1, m2) -> m1.getCreatedAt().compareTo(m2.getCreatedAt()))
-                    .toList();
-
-                // OllamaServiceImpl을 사용한 실제 AI 스트리밍 (컨텍스트 포함)
-                if (ollamaService instanceof OllamaServiceImpl) {
-                    OllamaServiceImpl ollamaImpl = (OllamaServiceImpl) ollamaService;
-                    ollamaImpl.sendMessageStreamWithContext(request.getContent(), request.getImageUrl(), recentMessages, chunk -> {
-                        fullResponse.append(chunk);
-                        chunkConsumer.accept(chunk);
-                    });
-                } else {
-                    // 기본 구현체를 사용하는 경우 (fallback)
-                    String response = ollamaService.sendMessageWithContext(request.getContent(), request.getImageUrl(), recentMessages);
-                    String[] words = response.split("\\s+");
-                    for (int i = 0; i < words.length; i++) {
-                        String word = words[i];
-                        // 마지막 단어가 아닌 경우에만 공백 추가
-                        String chunk = (i == words.length - 1) ? word : word + " ";
-                        fullResponse.append(chunk);
-                        chunkConsumer.accept(chunk);
-                        try {
-                            Thread.sleep(100);
-                        } catch (InterruptedException e) {
-                            Thread.currentThread().interrupt();
-                            break;
-                        }
-                    }
-                }
+        getChatByIdAndUserId(chatId, userId);
 
-                // AI 응답을 DB에 저장
-                if (fullResponse.length() > 0) {
-                    saveAssistantMessage(chatId, fullResponse.toString());
-                    logger.info("✅ AI response saved to DB: chatId={}, responseLength={}", chatId, fullResponse.length());
-                }
+        GenerationOptions options = request.getOptions() != null ? request.getOptions().toGenerationOptions() : null;
+        GenerationCoalescer.Key key = GenerationCoalescer.of(chatId, request.getContent(), request.getImageUrl(),
+                options, historyWindow.lastMessageId(chatId, Message.Role.ASSISTANT,
+                        () -> messageRepository.findLastContextMessageId(chatId, Message.Role.ASSISTANT)));
+
+        // 멱등성 키가 있으면 처음 요청의 생성에 다시 연결 (완료되었거나 중단 후 일부 응답이 저장된 경우 그 응답을 그대로 전달)
+        String idempotencyKey = IdempotencyStore.normalizeKey(request.getIdempotencyKey());
+        PendingStream pending = idempotencyKey == null ? null : idempotencyStore.computeIfAbsent(userId,
+                idempotencyKey, GenerationCoalescer.of(chatId, request.getContent(), request.getImageUrl(), options, null),
+                PendingStream.class, () -> new PendingStream(key));
+        if (pending != null && pending.response != null) {
+            chunkConsumer.accept(pending.response);
+            return Mono.empty();
+        }
+        if (pending != null && pending.cancelled) {
+            // 토큰을 받기 전에 중단된 요청의 재시도: 저장된 사용자 메시지로 다시 생성
+            logger.info("🔁 Regenerating cancelled response without re-saving user message: chatId={}", chatId);
+        }
 
-            } catch (Exception e) {
-                logger.error("❌ Error processing AI response", e);
-                chunkConsumer.accept("오류가 발생했습니다: " + e.getMessage());
-            }
-        });
+        return generationCoalescer.execute(pending != null ? pending.flightKey : key,
+                        () -> generateAndSave(chatId, userId, request, options, queuePositionConsumer, pending))
+                .doOnNext(chunkConsumer)
+                .onErrorResume(e -> {
+                    if (pending != null) {
+                        idempotencyStore.invalidate(userId, idempotencyKey, PendingStream.class, pending);
+                    }
+                    logger.error("❌ Error processing AI response", e);
+                    chunkConsumer.accept("오류가 발생했습니다: " + e.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    // 사용자 메시지를 저장하고 AI 응답을 스트리밍으로 전달, 완료 시 저장 (합류한 요청과 공유되어 한 번만 실행)
+    // pending: 멱등성 키 항목 (null 가능). 사용자 메시지가 이미 저장되어 있으면 다시 저장하지 않고,
+    // 전체 응답이나 중단 시점까지의 응답은 저장 전에 기록해 재시도가 같은 응답을 받게 한다
+    private Flux<String> generateAndSave(Long chatId, Long userId, ChatMessageRequest request,
+                                         GenerationOptions options, IntConsumer queuePositionConsumer,
+                                         PendingStream pending) {
+        StringBuilder fullResponse = new StringBuilder();
+        AtomicReference<GenerationUsage> usage = new AtomicReference<>();
+        // 전체 응답 저장과 중단 시 부분 응답 저장 중 먼저 시작한 쪽만 실행
+        AtomicBoolean finished = new AtomicBoolean(false);
+        AtomicReference<Mono<Void>> finalSave = new AtomicReference<>();
+
+        return Mono.fromCallable(() -> {
+                    Message savedUserMessage = pending != null ? pending.userMessage : null;
+                    if (savedUserMessage == null) {
+                        savedUserMessage = saveUserMessage(chatId, userId, request.getContent(), request.getImageUrl());
+                        if (pending != null) {
+                            pending.userMessage = savedUserMessage;
+                        }
+                        logger.info("✅ User message saved to DB: chatId={}, content={}", chatId, request.getContent());
+                    }
+                    return assembleContext(chatId, savedUserMessage.getId(), request.getContent(), options);
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                // 긴 대화는 저장된 요약 + 최근 메시지 + 현재 질문과 관련 있는 예전 턴만 사용
+                .flatMap(context -> context)
+                // 입장 관리자를 거쳐 슬롯이 배정되면 스트리밍 시작 (대기 중에는 대기 순번 전달)
+                .flatMapMany(conversation -> generationScheduler.submit(userId,
+                        () -> ollamaService.streamMessageWithContext(chatId, request.getContent(), request.getImageUrl(),
+                                conversation, options, usage::set),
+                        queuePositionConsumer))
+                .doOnNext(fullResponse::append)
+                // 사용자가 중지하거나 연결이 끊겨 구독이 모두 취소되면 그때까지 받은 응답만 저장
+                .doOnCancel(() -> {
+                    if (!finished.compareAndSet(false, true)) {
+                        return; // 마지막 청크 후 전체 응답 저장이 이미 시작됨
+                    }
+                    if (pending != null) {
+                        pending.cancel(fullResponse.length() > 0 ? fullResponse.toString() : null);
+                    }
+                    Schedulers.boundedElastic().schedule(() -> {
+                        if (fullResponse.length() > 0) {
+                            saveAssistantMessage(chatId, fullResponse.toString());
+                            logger.info("⏹️ Partial AI response saved after cancel: chatId={}, responseLength={}",
+                                    chatId, fullResponse.length());
+                        }
+                    });
+                })
+                // 스트림이 끝나면 전체 응답 저장을 시작한다. 저장은 구독과 분리해 실행하므로
+                // 완료 직후 취소되어도 중단되지 않고, 완료 신호는 저장이 끝난 뒤 전달한다
+                .doOnComplete(() -> {
+                    if (!finished.compareAndSet(false, true)) {
+                        return;
+                    }
+                    // 저장으로 대화 상태가 바뀌기 전에 재시도용 응답을 먼저 기록
+                    if (pending != null && fullResponse.length() > 0) {
+                        pending.complete(fullResponse.toString());
+                    }
+                    Mono<Void> save = Mono.<Void>fromRunnable(() -> {
+                        if (fullResponse.length() > 0) {
+                            saveAssistantMessage(chatId, fullResponse.toString(), usage.get());
+                            tokenUsageLedger.record(userId, chatId, usage.get());
+                            logger.info("✅ AI response saved to DB: chatId={}, responseLength={}",
+                                    chatId, fullResponse.length());
+                        }
+                    }).subscribeOn(Schedulers.boundedElastic()).cache();
+                    save.subscribe(unused -> { },
+                            e -> logger.error("❌ Failed to save AI response: chatId={}", chatId, e));
+                    finalSave.set(save);
+                })
+                .concatWith(Mono.defer(() -> finalSave.get() != null ? finalSave.get() : Mono.<Void>empty())
+                        .then(Mono.<String>empty()));
     }
 
     // 사용자 메시지 저장 헬퍼 메서드
@@ -258,14 +428,30 @@ public class ChatService {
         } else {
             userMessage = Message.createUserMessage(chatId, content);
         }
-        return messageRepository.save(userMessage);
+        // 컨텍스트 예산 계산 때마다 다시 토큰화하지 않도록 저장 시 한 번만 센다
+        userMessage.recordTokenCount(tokenCounter.exactCount(content));
+        Message savedMessage = messageRepository.save(userMessage);
+        historyWindow.append(savedMessage);
+        chatMemoryIndex.index(savedMessage);
+        return savedMessage;
     }
 
     // AI 응답 저장 헬퍼 메서드
     @Transactional
     public Message saveAssistantMessage(Long chatId, String content) {
+        return saveAssistantMessage(chatId, content, null);
+    }
+
+    @Transactional
+    public Message saveAssistantMessage(Long chatId, String content, GenerationUsage usage) {
         Message aiMessage = Message.createAssistantMessage(chatId, content);
-        return messageRepository.save(aiMessage);
+        aiMessage.recordUsage(usage);
+        aiMessage.recordTokenCount(tokenCounter.exactCount(content));
+        Message savedMessage = messageRepository.save(aiMessage);
+        historyWindow.append(savedMessage);
+        chatMemoryIndex.index(savedMessage);
+        conversationCompactor.onMessageSaved(chatId);
+        return savedMessage;
     }
 
     private void recordAuditLog(Long userId, String action, String resourceType, Long resourceId,
@@ -317,7 +503,52 @@ public class ChatService {
             messageRepository.save(message);
         }
 
+        historyWindow.reset(chatId, currentMessageId);
+        // 장기 기억 검색은 창 밖 메시지를 인덱스 벡터로 고르므로 제외된 메시지의 벡터도 버린다
+        chatMemoryIndex.invalidate(chatId);
+        conversationCompactor.discard(chatId);
+
         logger.info("✅ Excluded {} previous messages from context for chatId: {}",
                    previousMessages.size(), chatId);
     }
+
+    // REST 멱등성 키 항목: 처음 요청의 AI 응답 (한 번만 실행, 클라이언트가 연결을 끊어도 끝까지 진행)
+    private static final class PendingResponse {
+        private final Mono<Message> response;
+        private final AtomicBoolean started = new AtomicBoolean(false);
+
+        private PendingResponse(Mono<Message> call) {
+            this.response = call.cache();
+        }
+
+        private void start(Consumer<Throwable> onError) {
+            if (started.compareAndSet(false, true)) {
+                response.subscribe(message -> { }, onError);
+            }
+        }
+    }
+
+    // WebSocket 멱등성 키 항목: 처음 요청의 생성 키 (진행 중이면 합류) + 저장된 사용자 메시지 + 저장된 응답
+    // 연결이 끊겨 생성이 취소된 뒤의 재시도는 중단 시점까지 저장된 응답을 받고,
+    // 토큰을 받기 전에 취소되었으면 사용자 메시지를 다시 저장하지 않고 다시 생성한다
+    private static final class PendingStream {
+        private final GenerationCoalescer.Key flightKey;
+        private volatile Message userMessage;
+        private volatile String response;
+        private volatile boolean cancelled;
+
+        private PendingStream(GenerationCoalescer.Key flightKey) {
+            this.flightKey = flightKey;
+        }
+
+        private void complete(String response) {
+            this.response = response;
+        }
+
+        // partialResponse: 취소 시점까지 받은 응답 (없으면 null)
+        private void cancel(String partialResponse) {
+            this.response = partialResponse;
+            this.cancelled = true;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,73 @@
+package com.chatgemma.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+// 가상 노드를 둔 일관 해시 링: 노드가 빠지거나 추가되어도 해당 노드 구간의 키만 재배치된다
+public class ConsistentHashRing<T> {
+
+    private final TreeMap<Long, T> ring = new TreeMap<>();
+    private final int nodeCount;
+
+    public ConsistentHashRing(Collection<T> nodes, Function<T, String> nodeKey, int virtualNodes) {
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("가상 노드 수는 1 이상이어야 합니다");
+        }
+        for (T node : nodes) {
+            String key = nodeKey.apply(node);
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.put(hash(key + "#" + i), node);
+            }
+        }
+        this.nodeCount = nodes.size();
+    }
+
+    // 키 위치에서 시계 방향으로 만나는 순서대로 노드 목록 (중복 제거) - 첫 번째가 기본 담당 노드
+    public List<T> walk(String key) {
+        Set<T> ordered = new LinkedHashSet<>();
+        if (ring.isEmpty()) {
+            return new ArrayList<>(ordered);
+        }
+
+        long position = hash(key);
+        SortedMap<Long, T> tail = ring.tailMap(position);
+        collect(tail, ordered);
+        if (ordered.size() < nodeCount) {
+            collect(ring.headMap(position), ordered);
+        }
+        return new ArrayList<>(ordered);
+    }
+
+    private void collect(SortedMap<Long, T> section, Set<T> ordered) {
+        for (Map.Entry<Long, T> entry : section.entrySet()) {
+            ordered.add(entry.getValue());
+            if (ordered.size() == nodeCount) {
+                return;
+            }
+        }
+    }
+
+    // MD5 앞 8바이트 (노드/키 분포가 고르게 퍼지도록 암호학적 해시 사용, 보안 목적 아님)
+    static long hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            long hash = 0;
+            for (int i = 0; i < 8; i++) {
+                hash = (hash << 8) | (digest[i] & 0xFF);
+            }
+            return hash;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 알고리즘을 사용할 수 없습니다", e);
+        }
+    }
+}
\ No newline at end of file
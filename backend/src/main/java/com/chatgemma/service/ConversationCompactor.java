@@ -0,0 +1,292 @@
+package com.chatgemma.service;
+
+import com.chatgemma.entity.ChatSummary;
+import com.chatgemma.entity.Message;
+import com.chatgemma.repository.ChatSummaryRepository;
+import com.chatgemma.repository.MessageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+// 긴 대화의 오래된 턴을 백그라운드에서 하나의 요약으로 압축
+// - 메시지가 저장되면 채팅을 후보로 표시만 하고, 주기 작업이 GPU가 놀고 있을 때(실행/대기 중인 생성 없음) 하나씩 요약
+// - 요약 이후의 메시지 중 최근 keep-recent-messages개를 뺀 나머지가 trigger-tokens를 넘으면 기존 요약에 이어서 갱신
+// - Ollama 호출은 백그라운드 레인을 사용하고, 요약 중에 사용자 생성이 입장하면 요약 요청을 취소(HTTP 연결 종료)해
+//   Ollama 안에서 사용자 요청이 요약 뒤에 기다리지 않게 한다 (취소된 채팅은 다음 주기에 다시 요약)
+@Component
+public class ConversationCompactor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConversationCompactor.class);
+
+    private final ChatSummaryRepository summaryRepository;
+    private final MessageRepository messageRepository;
+    private final OllamaService ollamaService;
+    private final GenerationScheduler generationScheduler;
+    private final TokenCounter tokenCounter;
+    private final ChatContextStore contextStore;
+    private final ChatHistoryWindow historyWindow;
+    private final boolean enabled;
+    private final int triggerTokens;
+    private final int keepRecentMessages;
+    private final int maxInputTokens;
+    private final int maxSummaryTokens;
+
+    private final Set<Long> pendingChats = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    private final AtomicReference<Summarization> inFlight = new AtomicReference<>();
+
+    private final Counter compacted;
+    private final Counter failed;
+    private final Counter preempted;
+
+    public ConversationCompactor(ChatSummaryRepository summaryRepository,
+                                 MessageRepository messageRepository,
+                                 OllamaService ollamaService,
+                                 GenerationScheduler generationScheduler,
+                                 TokenCounter tokenCounter,
+                                 ChatContextStore contextStore,
+                                 ChatHistoryWindow historyWindow,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${chatgemma.summary.enabled:true}") boolean enabled,
+                                 @Value("${chatgemma.summary.trigger-tokens:4000}") int triggerTokens,
+                                 @Value("${chatgemma.summary.keep-recent-messages:10}") int keepRecentMessages,
+                                 @Value("${chatgemma.summary.max-input-tokens:8000}") int maxInputTokens,
+                                 @Value("${chatgemma.summary.max-summary-tokens:512}") int maxSummaryTokens) {
+        if (triggerTokens < 1 || keepRecentMessages < 0 || maxInputTokens < 1 || maxSummaryTokens < 1) {
+            throw new IllegalArgumentException("요약 기준 토큰 수와 입력/출력 토큰 상한은 1 이상이어야 합니다");
+        }
+        this.summaryRepository = summaryRepository;
+        this.messageRepository = messageRepository;
+        this.ollamaService = ollamaService;
+        this.generationScheduler = generationScheduler;
+        this.tokenCounter = tokenCounter;
+        this.contextStore = contextStore;
+        this.historyWindow = historyWindow;
+        this.enabled = enabled;
+        this.triggerTokens = triggerTokens;
+        this.keepRecentMessages = keepRecentMessages;
+        this.maxInputTokens = maxInputTokens;
+        this.maxSummaryTokens = maxSummaryTokens;
+
+        this.compacted = compactions(meterRegistry, "compacted");
+        this.failed = compactions(meterRegistry, "failed");
+        this.preempted = compactions(meterRegistry, "preempted");
+        Gauge.builder("chatgemma.summary.pending", pendingChats, Set::size)
+                .description("Chats waiting for a background summarization check")
+                .register(meterRegistry);
+        generationScheduler.addAdmissionListener(this::preempt);
+    }
+
+    public Optional<ChatSummary> findSummary(Long chatId) {
+        return summaryRepository.findByChatId(chatId);
+    }
+
+    // 새 메시지가 저장된 채팅을 다음 주기의 요약 후보로 표시 (DB/Ollama 호출 없음)
+    public void onMessageSaved(Long chatId) {
+        if (enabled && chatId != null) {
+            pendingChats.add(chatId);
+        }
+    }
+
+    // 대화 초기화/채팅 삭제 시 요약도 버린다 (요약에 제외된 메시지 내용이 남지 않도록)
+    @Transactional
+    public void discard(Long chatId) {
+        pendingChats.remove(chatId);
+        summaryRepository.deleteByChatId(chatId);
+        historyWindow.invalidateSummary(chatId);
+    }
+
+    // 요약 한 건이 수 분 걸릴 수 있으므로 스케줄러 스레드(헬스 체크, 모델 정보 갱신 등과 공유)를 막지 않도록
+    // 별도 스레드에서 처리하고, 이전 주기의 처리가 끝나지 않았으면 건너뛴다
+    @Scheduled(fixedDelayString = "${chatgemma.summary.interval-ms:30000}")
+    public void compactPending() {
+        if (!enabled || pendingChats.isEmpty() || !draining.compareAndSet(false, true)) {
+            return;
+        }
+        Mono.fromRunnable(this::drainPending)
+                .subscribeOn(Schedulers.boundedElastic())
+                .doFinally(signal -> draining.set(false))
+                .subscribe(unused -> { },
+                        e -> logger.warn("⚠️ Conversation summarization stopped: {}", e.getMessage()));
+    }
+
+    // 사용자 생성이 실행/대기 중이면 다음 주기로 미룬다
+    void drainPending() {
+        for (Iterator<Long> it = pendingChats.iterator(); it.hasNext() && isIdle(); ) {
+            Long chatId = it.next();
+            it.remove();
+            try {
+                if (compact(chatId)) {
+                    compacted.increment();
+                }
+            } catch (RuntimeException e) {
+                failed.increment();
+                pendingChats.add(chatId); // 다음 주기에 다시 시도
+                logger.warn("⚠️ Conversation summarization failed: chatId={}, error={}", chatId, e.getMessage());
+                return;
+            }
+        }
+    }
+
+    // 요약할 만큼 쌓였으면 요약을 갱신하고 true
+    boolean compact(Long chatId) {
+        Optional<ChatSummary> existing = summaryRepository.findByChatId(chatId);
+        List<Message> unsummarized = messageRepository.findByChatIdAndExcludeFromContextFalseOrderByCreatedAtAsc(chatId)
+                .stream()
+                .filter(message -> existing.map(summary -> !summary.covers(message)).orElse(true))
+                .toList();
+        List<Message> batch = selectBatch(unsummarized);
+        if (batch.isEmpty()) {
+            return false;
+        }
+
+        String summary = summarize(chatId, existing.map(ChatSummary::getContent).orElse(null), batch);
+        if (summary == null || summary.isBlank()) {
+            return false;
+        }
+
+        // 요약하는 동안 대화가 초기화되거나 삭제됐으면 버린다
+        Message last = batch.get(batch.size() - 1);
+        boolean stillInContext = messageRepository.findById(last.getId())
+                .map(message -> !message.isExcludedFromContext())
+                .orElse(false);
+        if (!stillInContext) {
+            return false;
+        }
+
+        ChatSummary saved;
+        if (existing.isPresent()) {
+            saved = existing.get();
+            saved.extend(summary, last.getId(), batch.size());
+        } else {
+            saved = ChatSummary.create(chatId, summary, last.getId(), batch.size());
+        }
+        saved.recordTokenCount(tokenCounter.exactCount(summary));
+        summaryRepository.save(saved);
+        historyWindow.invalidateSummary(chatId);
+        contextStore.invalidate(chatId); // 다음 턴은 Ollama context 대신 갱신된 요약으로 프롬프트를 구성
+        logger.info("🗜️ Conversation compacted: chatId={}, summarizedMessages={}, summaryLength={}",
+                chatId, saved.getCoveredMessageCount(), summary.length());
+
+        // 한 번에 다 요약하지 못했으면 다음 주기에 이어서
+        if (unsummarized.size() - batch.size() > keepRecentMessages) {
+            pendingChats.add(chatId);
+        }
+        return true;
+    }
+
+    // 최근 메시지를 뺀 오래된 메시지가 trigger-tokens 이상이면 앞에서부터 max-input-tokens까지
+    // 질문/답 턴 중간에서 자르지 않도록 경계가 사용자 메시지면 그 메시지는 다음 묶음으로 넘긴다
+    private List<Message> selectBatch(List<Message> unsummarized) {
+        int end = unsummarized.size() - keepRecentMessages;
+        if (end > 0 && unsummarized.get(end - 1).getRole() == Message.Role.USER) {
+            end--;
+        }
+        if (end <= 0) {
+            return List.of();
+        }
+
+        int olderTokens = 0;
+        for (Message message : unsummarized.subList(0, end)) {
+            olderTokens += tokenCounter.count(message);
+        }
+        if (olderTokens < triggerTokens) {
+            return List.of();
+        }
+
+        int limit = 0;
+        int tokens = 0;
+        while (limit < end) {
+            int messageTokens = tokenCounter.count(unsummarized.get(limit));
+            if (limit > 0 && tokens + messageTokens > maxInputTokens) {
+                break;
+            }
+            tokens += messageTokens;
+            limit++;
+        }
+        if (limit < end && limit > 1 && unsummarized.get(limit - 1).getRole() == Message.Role.USER) {
+            limit--;
+        }
+        return unsummarized.subList(0, limit);
+    }
+
+    // 요약 응답을 기다린다. 사용자 생성이 입장해 취소되면 null
+    private String summarize(Long chatId, String previousSummary, List<Message> batch) {
+        Summarization summarization = new Summarization(chatId);
+        inFlight.set(summarization);
+        try {
+            // 마지막 유휴 확인 이후 입장한 생성은 위 등록 전이라 취소 신호를 놓쳤을 수 있다
+            if (!isIdle()) {
+                preempt();
+                return null;
+            }
+            summarization.request.update(ollamaService.summarizeConversation(chatId, previousSummary, batch, maxSummaryTokens)
+                    .subscribe(summarization.result::complete, summarization.result::completeExceptionally,
+                            () -> summarization.result.complete(null)));
+            return summarization.result.join();
+        } catch (CancellationException e) {
+            return null;
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : e;
+        } finally {
+            inFlight.compareAndSet(summarization, null);
+        }
+    }
+
+    // 사용자 생성이 실행되거나 대기열에 들어가면 진행 중인 요약을 취소하고 그 채팅을 다시 후보로 표시
+    void preempt() {
+        Summarization summarization = inFlight.getAndSet(null);
+        if (summarization == null) {
+            return;
+        }
+        summarization.request.dispose();
+        if (summarization.result.cancel(false)) {
+            pendingChats.add(summarization.chatId);
+            preempted.increment();
+            logger.info("⏸️ Conversation summarization yielded to user generation: chatId={}", summarization.chatId);
+        }
+    }
+
+    private boolean isIdle() {
+        return generationScheduler.getRunningCount() == 0 && generationScheduler.getQueuedCount() == 0;
+    }
+
+    // 진행 중인 요약 요청 (취소하면 Ollama HTTP 요청도 끊는다)
+    private static final class Summarization {
+        private final Long chatId;
+        private final Disposable.Swap request = Disposables.swap();
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+
+        private Summarization(Long chatId) {
+            this.chatId = chatId;
+        }
+    }
+
+    private static Counter compactions(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("chatgemma.summary.compactions")
+                .description("Background conversation summarizations by result")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
\ No newline at end of file
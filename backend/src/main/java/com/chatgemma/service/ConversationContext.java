@@ -0,0 +1,62 @@
+package com.chatgemma.service;
+
+import com.chatgemma.entity.ChatSummary;
+import com.chatgemma.entity.Message;
+
+import java.util.List;
+
+// 생성 요청에 넣을 이전 대화: 저장된 요약(없으면 null) + 원문으로 보낼 턴 (오래된 순)
+// - 요약은 턴 목록과 따로 전달하므로 턴을 자르거나 다시 정렬해도 요약이 빠지지 않는다
+// - 토큰 예산이 부족하면 요약은 항상 먼저 확보하고 턴은 오래된 것부터 뺀다
+public final class ConversationContext {
+
+    private static final ConversationContext EMPTY = new ConversationContext(null, null, List.of());
+
+    private final String summary;
+    private final Integer summaryTokenCount;
+    private final List<Message> turns;
+
+    private ConversationContext(String summary, Integer summaryTokenCount, List<Message> turns) {
+        this.summary = summary == null || summary.isBlank() ? null : summary;
+        this.summaryTokenCount = this.summary != null ? summaryTokenCount : null;
+        this.turns = turns != null ? List.copyOf(turns) : List.of();
+    }
+
+    public static ConversationContext empty() {
+        return EMPTY;
+    }
+
+    public static ConversationContext of(List<Message> turns) {
+        return new ConversationContext(null, null, turns);
+    }
+
+    // summaryTokenCount: 요약의 모델 입력 토큰 수 (모르면 null, 사용할 때 센다)
+    public static ConversationContext of(String summary, Integer summaryTokenCount, List<Message> turns) {
+        return new ConversationContext(summary, summaryTokenCount, turns);
+    }
+
+    public static ConversationContext of(ChatSummary summary, List<Message> turns) {
+        return summary == null ? of(turns) : of(summary.getContent(), summary.getTokenCount(), turns);
+    }
+
+    public String getSummary() {
+        return summary;
+    }
+
+    public Integer getSummaryTokenCount() {
+        return summaryTokenCount;
+    }
+
+    public List<Message> getTurns() {
+        return turns;
+    }
+
+    public boolean hasSummary() {
+        return summary != null;
+    }
+
+    // 요약도 이전 턴도 없음 (첫 턴)
+    public boolean isEmpty() {
+        return summary == null && turns.isEmpty();
+    }
+}
@@ -0,0 +1,17 @@
+package com.chatgemma.service;
+
+import reactor.core.publisher.Mono;
+
+// 텍스트를 임베딩 벡터로 변환 (의미 기반 응답 캐시용, 테스트에서는 결정적인 스텁으로 대체)
+public interface Embedder {
+
+    Mono<float[]> embed(String text);
+
+    // 캐시 항목을 구분하는 임베딩 모델 식별자 (모델이 바뀌면 이전 벡터와 비교할 수 없다)
+    String getModelName();
+
+    // 생성 모델과 다른 서버에서 임베딩하는지 (같은 서버면 임베딩 모델을 올릴 때 생성 모델이 내려갈 수 있다)
+    default boolean hasDedicatedBackend() {
+        return true;
+    }
+}
\ No newline at end of file
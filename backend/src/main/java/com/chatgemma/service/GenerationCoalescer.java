@@ -0,0 +1,117 @@
+package com.chatgemma.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.text.Normalizer;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+// 같은 채팅에서 같은 대화 상태로 같은 질문이 동시에 들어오면(더블 클릭, 재전송, 여러 탭) 생성을 한 번만 실행한다
+// 나중에 들어온 요청은 진행 중인 스트림에 합류해 처음부터의 청크를 모두 받는다
+// 모든 구독자가 떠나면 생성을 취소하고, 생성이 끝나거나 취소되면 그 신호가 구독자에게 전달되기 전에 키를 제거한다
+@Component
+public class GenerationCoalescer {
+
+    private static final Logger logger = LoggerFactory.getLogger(GenerationCoalescer.class);
+
+    private final Map<Key, Flux<String>> inFlight = new ConcurrentHashMap<>();
+    private final Counter coalesced;
+
+    public GenerationCoalescer(MeterRegistry meterRegistry) {
+        this.coalesced = Counter.builder("chatgemma.generation.coalesced")
+                .description("Generations not started because an identical one was already in flight")
+                .register(meterRegistry);
+    }
+
+    // 진행 중인 같은 키의 생성이 있으면 합류, 없으면 generation을 구독해 새로 시작
+    public Flux<String> execute(Key key, Supplier<? extends Publisher<String>> generation) {
+        return Flux.defer(() -> {
+            AtomicBoolean started = new AtomicBoolean(false);
+            Flux<String> flight = inFlight.computeIfAbsent(key, k -> {
+                started.set(true);
+                return share(k, generation);
+            });
+            if (!started.get()) {
+                coalesced.increment();
+                logger.info("🔗 Joined in-flight generation: chatId={}", key.chatId);
+            }
+            return flight;
+        });
+    }
+
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    // generation은 한 번만 구독한다. 키를 얻은 직후 스트림이 끝나 다시 연결된 구독자(드문 경합)는
+    // 빈 응답 대신 그 사이 시작된 같은 키의 생성에 합류하거나 새로 시작한다 (키는 종료 신호 전에 이미 제거됨)
+    private Flux<String> share(Key key, Supplier<? extends Publisher<String>> generation) {
+        AtomicReference<Flux<String>> self = new AtomicReference<>();
+        AtomicBoolean subscribed = new AtomicBoolean(false);
+        Runnable release = () -> inFlight.remove(key, self.get());
+        Flux<String> shared = Flux.<String>defer(() -> subscribed.compareAndSet(false, true)
+                        ? generation.get() : execute(key, generation))
+                .doOnTerminate(release)
+                .doOnCancel(release)
+                .replay()
+                .refCount(1);
+        self.set(shared);
+        return shared;
+    }
+
+    // contextVersion: 대화 상태 식별자 (컨텍스트에 포함된 마지막 AI 응답 ID). 응답이 저장되면 다음 턴은 다른 키가 된다
+    public static Key of(Long chatId, String content, String imageUrl, GenerationOptions options, Long contextVersion) {
+        return new Key(chatId, normalize(content), imageUrl != null ? imageUrl.trim() : "", options, contextVersion);
+    }
+
+    // 유니코드 정규화(NFC) + 앞뒤 공백 제거 + 연속 공백 하나로
+    static String normalize(String content) {
+        if (content == null) {
+            return "";
+        }
+        return Normalizer.normalize(content, Normalizer.Form.NFC).strip().replaceAll("\\s+", " ");
+    }
+
+    public static final class Key {
+        private final Long chatId;
+        private final String content;
+        private final String imageUrl;
+        private final GenerationOptions options;
+        private final Long contextVersion;
+
+        private Key(Long chatId, String content, String imageUrl, GenerationOptions options, Long contextVersion) {
+            this.chatId = chatId;
+            this.content = content;
+            this.imageUrl = imageUrl;
+            this.options = options;
+            this.contextVersion = contextVersion;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return Objects.equals(chatId, key.chatId)
+                    && Objects.equals(content, key.content)
+                    && Objects.equals(imageUrl, key.imageUrl)
+                    && Objects.equals(options, key.options)
+                    && Objects.equals(contextVersion, key.contextVersion);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(chatId, content, imageUrl, options, contextVersion);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,92 @@
+package com.chatgemma.service;
+
+import java.util.Objects;
+
+// Ollama 생성 옵션 (null인 값은 지정하지 않음 = 상위 설정 또는 Modelfile 기본값 사용)
+// - numPredict: 최대 생성 토큰 수 (전역 설정이 상한, 요청별로 더 낮출 수만 있다)
+// - numCtx: 컨텍스트 길이 (미지정 시 /api/show 기준)
+// - keepAlive: 마지막 요청 후 모델을 메모리에 유지할 시간 ("30m", "24h", 단위 없는 정수는 초, "-1" = 계속 유지)
+public final class GenerationOptions {
+
+    private static final GenerationOptions NONE = new GenerationOptions(null, null, null, null);
+
+    private final Integer numPredict;
+    private final Integer numCtx;
+    private final Double temperature;
+    private final String keepAlive;
+
+    public GenerationOptions(Integer numPredict, Integer numCtx, Double temperature, String keepAlive) {
+        this.numPredict = positiveOrNull(numPredict);
+        this.numCtx = positiveOrNull(numCtx);
+        this.temperature = temperature;
+        this.keepAlive = keepAlive == null || keepAlive.isBlank() ? null : keepAlive.trim();
+    }
+
+    public static GenerationOptions none() {
+        return NONE;
+    }
+
+    // override에 지정된 값이 우선, 단 num_predict는 이 옵션의 값을 넘을 수 없다
+    public GenerationOptions overriddenBy(GenerationOptions override) {
+        if (override == null || override == NONE) {
+            return this;
+        }
+        Integer predict = override.numPredict;
+        if (predict == null || (numPredict != null && predict > numPredict)) {
+            predict = numPredict;
+        }
+        return new GenerationOptions(
+                predict,
+                override.numCtx != null ? override.numCtx : numCtx,
+                override.temperature != null ? override.temperature : temperature,
+                override.keepAlive != null ? override.keepAlive : keepAlive);
+    }
+
+    public GenerationOptions withNumCtx(int numCtx) {
+        return new GenerationOptions(numPredict, numCtx, temperature, keepAlive);
+    }
+
+    public Integer getNumPredict() {
+        return numPredict;
+    }
+
+    public Integer getNumCtx() {
+        return numCtx;
+    }
+
+    public Double getTemperature() {
+        return temperature;
+    }
+
+    public String getKeepAlive() {
+        return keepAlive;
+    }
+
+    // Ollama에 보낼 keep_alive 값: 단위 없는 정수는 JSON 숫자(초)로 보낸다
+    // 문자열은 Go의 time.ParseDuration으로 해석되어 "-1"처럼 단위가 없으면 400 오류가 난다
+    public Object getKeepAliveValue() {
+        if (keepAlive != null && keepAlive.matches("-?\\d+")) {
+            return Long.parseLong(keepAlive);
+        }
+        return keepAlive;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof GenerationOptions that)) return false;
+        return Objects.equals(numPredict, that.numPredict)
+                && Objects.equals(numCtx, that.numCtx)
+                && Objects.equals(temperature, that.temperature)
+                && Objects.equals(keepAlive, that.keepAlive);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(numPredict, numCtx, temperature, keepAlive);
+    }
+
+    private static Integer positiveOrNull(Integer value) {
+        return value != null && value > 0 ? value : null;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,295 @@
+package com.chatgemma.service;
+
+import com.chatgemma.service.exception.AiServiceBusyException;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.IntConsumer;
+import java.util.function.IntSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+// Ollama 앞단의 생성 요청 입장 관리자: 동시 실행 수를 제한하고 사용자별 라운드로빈으로 대기열을 공정하게 처리
+// 라운드로빈 순서 안에서는 이미 메모리에 로드된 모델의 요청을 먼저 꺼내 모델 교체(재로드)를 줄인다
+@Component
+public class GenerationScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(GenerationScheduler.class);
+    private static final Long ANONYMOUS_USER_ID = -1L;
+    // 로드된 모델 우선 처리로 순서를 양보할 수 있는 최대 횟수 (기아 방지)
+    private static final int MAX_RESIDENCY_SKIPS = 8;
+
+    private final IntSupplier concurrencyLimit;
+    private final int maxQueueSize;
+    private final String defaultModel;
+    private final Predicate<String> isResident;
+    private final List<Runnable> admissionListeners = new CopyOnWriteArrayList<>();
+
+    // 사용자별 대기열과 라운드로빈 순서 (모든 상태 변경은 this 모니터로 보호)
+    private final Map<Long, Deque<PendingGeneration>> queuesByUser = new HashMap<>();
+    private final Deque<Long> userRotation = new ArrayDeque<>();
+    private int running = 0;
+    private int queued = 0;
+
+    // 동시 실행 한도는 모델별 적응형 한도를 따른다
+    @Autowired
+    public GenerationScheduler(AdaptiveConcurrencyLimiter concurrencyLimiter,
+                               ModelResidencyManager residencyManager,
+                               @Value("${chatgemma.ollama.model-name:gemma3n:e4b}") String modelName,
+                               @Value("${chatgemma.ollama.scheduler.max-queue-size:50}") int maxQueueSize) {
+        this.concurrencyLimit = () -> concurrencyLimiter.getLimit(modelName);
+        this.maxQueueSize = maxQueueSize;
+        this.defaultModel = modelName;
+        this.isResident = residencyManager::isResident;
+    }
+
+    // 고정 한도
+    public GenerationScheduler(int maxConcurrent, int maxQueueSize) {
+        this(maxConcurrent, maxQueueSize, model -> false);
+    }
+
+    // 고정 한도 + 모델 로드 여부 판단
+    public GenerationScheduler(int maxConcurrent, int maxQueueSize, Predicate<String> isResident) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("동시 실행 수는 1 이상이어야 합니다");
+        }
+        this.concurrencyLimit = () -> maxConcurrent;
+        this.maxQueueSize = maxQueueSize;
+        this.defaultModel = null;
+        this.isResident = isResident;
+    }
+
+    // 입장이 허가된 시점에 generation을 구독한다. 종료/취소/오류 시 슬롯을 반납한다.
+    public <T> Flux<T> submit(Long userId, Supplier<? extends Publisher<T>> generation,
+                              IntConsumer queuePositionListener) {
+        return submit(userId, defaultModel, generation, queuePositionListener);
+    }
+
+    // model: 이 생성이 사용할 Ollama 모델 (대기열에서 로드된 모델 우선 처리에 사용)
+    public <T> Flux<T> submit(Long userId, String model, Supplier<? extends Publisher<T>> generation,
+                              IntConsumer queuePositionListener) {
+        return Flux.defer(() -> {
+            PendingGeneration pending = new PendingGeneration(userId, model, queuePositionListener);
+            return Mono.<Void>create(sink -> admit(pending, sink))
+                    .thenMany(Flux.defer(generation))
+                    .doFinally(signal -> finish(pending));
+        });
+    }
+
+    // 생성이 실행되거나 대기열에 들어갈 때마다 호출 (Ollama를 함께 쓰는 백그라운드 작업이 양보하는 데 사용)
+    public void addAdmissionListener(Runnable listener) {
+        admissionListeners.add(listener);
+    }
+
+    public synchronized int getRunningCount() {
+        return running;
+    }
+
+    public synchronized int getQueuedCount() {
+        return queued;
+    }
+
+    private void admit(PendingGeneration pending, MonoSink<Void> sink) {
+        pending.sink = sink;
+        boolean admitted = false;
+        boolean rejected = false;
+
+        synchronized (this) {
+            if (running < concurrencyLimit.getAsInt() && queued == 0) {
+                pending.state = State.RUNNING;
+                running++;
+                admitted = true;
+            } else if (queued >= maxQueueSize) {
+                pending.state = State.REJECTED;
+                rejected = true;
+            } else {
+                pending.state = State.QUEUED;
+                queuesByUser.computeIfAbsent(pending.userId, id -> new ArrayDeque<>()).addLast(pending);
+                if (!userRotation.contains(pending.userId)) {
+                    userRotation.addLast(pending.userId);
+                }
+                queued++;
+            }
+        }
+
+        if (!rejected) {
+            notifyAdmission();
+        }
+        if (admitted) {
+            sink.success();
+        } else if (rejected) {
+            logger.warn("⚠️ Generation queue full: userId={}, queued={}", pending.userId, maxQueueSize);
+            sink.error(new AiServiceBusyException("대기 중인 요청이 너무 많습니다. 잠시 후 다시 시도해주세요"));
+        } else {
+            publishQueuePositions();
+        }
+    }
+
+    // 생성을 시작하기 전에 호출해 백그라운드 작업이 먼저 Ollama 자리를 비우게 한다
+    private void notifyAdmission() {
+        for (Runnable listener : admissionListeners) {
+            try {
+                listener.run();
+            } catch (Exception e) {
+                logger.warn("Admission listener failed", e);
+            }
+        }
+    }
+
+    private void finish(PendingGeneration pending) {
+        boolean leftQueue = false;
+
+        synchronized (this) {
+            if (pending.state == State.QUEUED) {
+                // 대기 중 취소된 요청은 대기열에서만 제거
+                Deque<PendingGeneration> userQueue = queuesByUser.get(pending.userId);
+                if (userQueue != null && userQueue.remove(pending)) {
+                    queued--;
+                    leftQueue = true;
+                    if (userQueue.isEmpty()) {
+                        queuesByUser.remove(pending.userId);
+                        userRotation.remove(pending.userId);
+                    }
+                }
+            } else if (pending.state == State.RUNNING) {
+                running--;
+            }
+            pending.state = State.DONE;
+        }
+
+        if (leftQueue) {
+            publishQueuePositions();
+        }
+        drain();
+    }
+
+    private void drain() {
+        List<PendingGeneration> admitted = new ArrayList<>();
+
+        synchronized (this) {
+            while (running < concurrencyLimit.getAsInt() && queued > 0) {
+                PendingGeneration next = pollNextFair();
+                next.state = State.RUNNING;
+                running++;
+                admitted.add(next);
+            }
+        }
+
+        for (PendingGeneration pending : admitted) {
+            pending.sink.success();
+        }
+        if (!admitted.isEmpty()) {
+            publishQueuePositions();
+        }
+    }
+
+    // 라운드로빈: 순서상 맨 앞 사용자의 가장 오래된 요청을 꺼내고, 남은 요청이 있으면 사용자를 맨 뒤로 보낸다
+    private PendingGeneration pollNextFair() {
+        Long userId = pickUser();
+        userRotation.remove(userId);
+        Deque<PendingGeneration> userQueue = queuesByUser.get(userId);
+        PendingGeneration next = userQueue.pollFirst();
+        queued--;
+
+        if (userQueue.isEmpty()) {
+            queuesByUser.remove(userId);
+        } else {
+            userRotation.addLast(userId);
+        }
+        return next;
+    }
+
+    // 순서상 맨 앞 사용자의 요청 모델이 로드되어 있지 않으면, 로드된 모델을 요청한 다음 사용자에게 먼저 양보한다
+    // 맨 앞 요청이 이미 여러 번 양보했거나 로드된 모델의 요청이 없으면 순서대로 처리
+    private Long pickUser() {
+        Long first = userRotation.peekFirst();
+        PendingGeneration head = queuesByUser.get(first).peekFirst();
+        if (head.residencySkips >= MAX_RESIDENCY_SKIPS || isResident.test(head.model)) {
+            return first;
+        }
+        for (Long userId : userRotation) {
+            if (isResident.test(queuesByUser.get(userId).peekFirst().model)) {
+                head.residencySkips++;
+                return userId;
+            }
+        }
+        return first;
+    }
+
+    // 대기 순번은 라운드로빈 순서 기준 (로드된 모델 우선 처리로 실제 순서는 앞당겨질 수 있다)
+    private void publishQueuePositions() {
+        List<PendingGeneration> changed = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+
+        synchronized (this) {
+            // 라운드로빈 순서를 그대로 펼쳐서 각 요청의 대기 순번(1부터)을 계산
+            int position = 0;
+            for (int round = 0; position < queued; round++) {
+                for (Long userId : userRotation) {
+                    Deque<PendingGeneration> userQueue = queuesByUser.get(userId);
+                    if (userQueue.size() > round) {
+                        PendingGeneration pending = getAt(userQueue, round);
+                        position++;
+                        if (pending.lastPosition != position) {
+                            pending.lastPosition = position;
+                            changed.add(pending);
+                            positions.add(position);
+                        }
+                    }
+                }
+            }
+        }
+
+        for (int i = 0; i < changed.size(); i++) {
+            try {
+                changed.get(i).queuePositionListener.accept(positions.get(i));
+            } catch (Exception e) {
+                logger.warn("Queue position listener failed", e);
+            }
+        }
+    }
+
+    private static PendingGeneration getAt(Deque<PendingGeneration> deque, int index) {
+        int i = 0;
+        for (PendingGeneration pending : deque) {
+            if (i++ == index) {
+                return pending;
+            }
+        }
+        throw new IndexOutOfBoundsException(index);
+    }
+
+    private enum State {
+        NEW, QUEUED, RUNNING, REJECTED, DONE
+    }
+
+    private static class PendingGeneration {
+        private final Long userId;
+        private final String model;
+        private final IntConsumer queuePositionListener;
+        private MonoSink<Void> sink;
+        private State state = State.NEW;
+        private int lastPosition = 0;
+        private int residencySkips = 0;
+
+        private PendingGeneration(Long userId, String model, IntConsumer queuePositionListener) {
+            this.userId = userId != null ? userId : ANONYMOUS_USER_ID;
+            this.model = model;
+            this.queuePositionListener = queuePositionListener != null ? queuePositionListener : position -> { };
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,175 @@
+package com.chatgemma.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+
+// 고정 타임아웃 대신 생성 단계별 타임아웃을 적용한다
+// - 첫 토큰: 기본값 + 관측된 프롬프트 평가 속도로 계산한 평가 시간 (+ 모델이 로드되어 있지 않으면 로드 여유분)
+// - 토큰 간 대기: 스트림이 멈춘 서버를 빠르게 감지
+// - 전체: 첫 토큰 예산 + num_predict / 관측 tokens/sec (긴 답변을 중간에 자르지 않도록 안전 계수 적용, 상한 max-total)
+@Component
+public class GenerationTimeoutPolicy {
+
+    private static final double SMOOTHING = 0.2; // EWMA 가중치
+
+    private final MeterRegistry meterRegistry;
+    private final Predicate<String> isResident;
+    private final Duration firstTokenBase;
+    private final Duration idle;
+    private final Duration coldStartAllowance;
+    private final double minTokensPerSecond;
+    private final double safetyFactor;
+    private final Duration maxTotal;
+
+    private final Map<String, Throughput> throughputByModel = new ConcurrentHashMap<>();
+    private final Map<String, Counter> timeoutCounters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public GenerationTimeoutPolicy(ModelResidencyManager residencyManager,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${chatgemma.ollama.timeouts.first-token:30s}") Duration firstTokenBase,
+                                   @Value("${chatgemma.ollama.timeouts.idle:15s}") Duration idle,
+                                   @Value("${chatgemma.ollama.timeouts.cold-start-allowance:60s}") Duration coldStartAllowance,
+                                   @Value("${chatgemma.ollama.timeouts.min-tokens-per-second:2.0}") double minTokensPerSecond,
+                                   @Value("${chatgemma.ollama.timeouts.safety-factor:2.0}") double safetyFactor,
+                                   @Value("${chatgemma.ollama.timeouts.max-total:10m}") Duration maxTotal) {
+        this(residencyManager::isResident, meterRegistry, firstTokenBase, idle, coldStartAllowance,
+                minTokensPerSecond, safetyFactor, maxTotal);
+    }
+
+    public GenerationTimeoutPolicy(Predicate<String> isResident, MeterRegistry meterRegistry,
+                                   Duration firstTokenBase, Duration idle, Duration coldStartAllowance,
+                                   double minTokensPerSecond, double safetyFactor, Duration maxTotal) {
+        if (minTokensPerSecond <= 0 || safetyFactor < 1.0) {
+            throw new IllegalArgumentException("최소 처리 속도는 0보다 크고 안전 계수는 1.0 이상이어야 합니다");
+        }
+        this.meterRegistry = meterRegistry;
+        this.isResident = isResident;
+        this.firstTokenBase = firstTokenBase;
+        this.idle = idle;
+        this.coldStartAllowance = coldStartAllowance;
+        this.minTokensPerSecond = minTokensPerSecond;
+        this.safetyFactor = safetyFactor;
+        this.maxTotal = maxTotal;
+    }
+
+    // promptTokens: 이번 요청에서 Ollama가 평가할 프롬프트 토큰 추정치, numPredict: 최대 생성 토큰 수 (null = 제한 없음)
+    public Budget budgetFor(String model, int promptTokens, Integer numPredict) {
+        Throughput throughput = throughputByModel.get(model);
+
+        long firstTokenMillis = firstTokenBase.toMillis();
+        if (throughput != null && throughput.promptTokensPerSecond > 0) {
+            firstTokenMillis += (long) (safetyFactor * promptTokens / throughput.promptTokensPerSecond * 1000);
+        }
+        if (!isResident.test(model)) {
+            firstTokenMillis += coldStartAllowance.toMillis();
+        }
+
+        long totalMillis = maxTotal.toMillis();
+        if (numPredict != null) {
+            double tokensPerSecond = throughput != null
+                    ? Math.max(minTokensPerSecond, throughput.evalTokensPerSecond) : minTokensPerSecond;
+            long generationMillis = (long) (safetyFactor * numPredict / tokensPerSecond * 1000);
+            totalMillis = Math.min(totalMillis, firstTokenMillis + generationMillis);
+        }
+
+        return new Budget(Duration.ofMillis(Math.min(firstTokenMillis, totalMillis)), idle, Duration.ofMillis(totalMillis));
+    }
+
+    // 스트림 응답: 첫 항목은 firstToken 안에, 이후 항목은 idle 안에 도착해야 하고 전체는 total을 넘을 수 없다
+    public <T> Flux<T> applyToStream(Flux<T> responses, String model, Budget budget) {
+        return Flux.defer(() -> {
+            long deadline = System.nanoTime() + budget.getTotal().toNanos();
+            AtomicBoolean received = new AtomicBoolean(false);
+            return responses
+                    .timeout(Mono.delay(budget.getFirstToken()), item -> {
+                        received.set(true);
+                        long remaining = Math.max(0, deadline - System.nanoTime());
+                        return Mono.delay(Duration.ofNanos(Math.min(budget.getIdle().toNanos(), remaining)));
+                    })
+                    .onErrorMap(TimeoutException.class, e -> {
+                        String phase = !received.get() ? "first_token"
+                                : System.nanoTime() >= deadline ? "total" : "idle";
+                        return timeout(model, phase, budget);
+                    });
+        });
+    }
+
+    // 비스트림 응답은 완료 시점에 한 번에 도착하므로 전체 예산만 적용
+    public <T> Mono<T> applyToResponse(Mono<T> response, String model, Budget budget) {
+        return response.timeout(budget.getTotal())
+                .onErrorMap(TimeoutException.class, e -> timeout(model, "total", budget));
+    }
+
+    // 완료된 생성의 Ollama 통계로 모델별 처리 속도 갱신 (시간 단위는 나노초)
+    public void onCompleted(String model, Integer promptEvalCount, Long promptEvalNanos,
+                            Integer evalCount, Long evalNanos) {
+        Throughput throughput = throughputByModel.computeIfAbsent(model, m -> new Throughput());
+        synchronized (throughput) {
+            if (promptEvalCount != null && promptEvalNanos != null && promptEvalCount > 0 && promptEvalNanos > 0) {
+                throughput.promptTokensPerSecond = smooth(throughput.promptTokensPerSecond,
+                        promptEvalCount / (promptEvalNanos / 1_000_000_000.0));
+            }
+            if (evalCount != null && evalNanos != null && evalCount > 0 && evalNanos > 0) {
+                throughput.evalTokensPerSecond = smooth(throughput.evalTokensPerSecond,
+                        evalCount / (evalNanos / 1_000_000_000.0));
+            }
+        }
+    }
+
+    private TimeoutException timeout(String model, String phase, Budget budget) {
+        timeoutCounters.computeIfAbsent(phase, p -> Counter.builder("chatgemma.ollama.timeouts")
+                        .description("Ollama generations aborted by the first-token, idle or total timeout")
+                        .tag("phase", p)
+                        .register(meterRegistry))
+                .increment();
+        return new TimeoutException(String.format("Ollama %s timeout: model=%s, firstToken=%ds, idle=%ds, total=%ds",
+                phase, model, budget.getFirstToken().toSeconds(), budget.getIdle().toSeconds(),
+                budget.getTotal().toSeconds()));
+    }
+
+    private static double smooth(double current, double sample) {
+        return current == 0 ? sample : current * (1 - SMOOTHING) + sample * SMOOTHING;
+    }
+
+    private static final class Throughput {
+        private double promptTokensPerSecond;
+        private double evalTokensPerSecond;
+    }
+
+    public static final class Budget {
+        private final Duration firstToken;
+        private final Duration idle;
+        private final Duration total;
+
+        public Budget(Duration firstToken, Duration idle, Duration total) {
+            this.firstToken = firstToken;
+            this.idle = idle;
+            this.total = total;
+        }
+
+        public Duration getFirstToken() {
+            return firstToken;
+        }
+
+        public Duration getIdle() {
+            return idle;
+        }
+
+        public Duration getTotal() {
+            return total;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,243 @@
+package com.chatgemma.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+
+// 코사인 유사도 기반 HNSW(Hierarchical Navigable Small World) 근사 최근접 이웃 인덱스
+// - 벡터는 정규화해 저장하므로 내적이 곧 코사인 유사도
+// - 상위 층에서 탐욕 탐색으로 시작점을 좁힌 뒤 0층에서 ef개 후보를 넓게 탐색
+// - 삭제는 표시만 하고(검색 결과에서 제외, 그래프 연결에는 계속 사용) 삭제 비율이 높아지면 호출한 쪽에서 다시 만든다
+// - 스레드 안전하지 않으므로 호출한 쪽에서 잠금
+public class HnswIndex {
+
+    private static final int MAX_LEVEL = 16;
+
+    private final int maxNeighbors; // M: 1층 이상에서 노드당 이웃 수 (0층은 2M)
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final Random random;
+
+    private final Map<Long, Node> nodes = new HashMap<>();
+    private Node entryPoint;
+    private int dimension = -1;
+    private int deletedCount = 0;
+
+    public HnswIndex(int maxNeighbors, int efConstruction, long seed) {
+        if (maxNeighbors < 2 || efConstruction < 1) {
+            throw new IllegalArgumentException("이웃 수는 2 이상, ef-construction은 1 이상이어야 합니다");
+        }
+        this.maxNeighbors = maxNeighbors;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1.0 / Math.log(maxNeighbors);
+        this.random = new Random(seed);
+    }
+
+    public void add(long id, float[] vector) {
+        float[] normalized = VectorMath.normalize(vector);
+        if (dimension < 0) {
+            dimension = normalized.length;
+        } else if (dimension != normalized.length) {
+            throw new IllegalArgumentException("벡터 차원이 인덱스와 다릅니다: " + normalized.length + " != " + dimension);
+        }
+        if (nodes.containsKey(id)) {
+            throw new IllegalArgumentException("이미 있는 ID입니다: " + id);
+        }
+
+        Node node = new Node(id, normalized, randomLevel());
+        nodes.put(id, node);
+        if (entryPoint == null) {
+            entryPoint = node;
+            return;
+        }
+
+        Node current = entryPoint;
+        for (int layer = entryPoint.level; layer > node.level; layer--) {
+            current = greedyClosest(normalized, current, layer);
+        }
+
+        List<Node> entryPoints = List.of(current);
+        for (int layer = Math.min(node.level, entryPoint.level); layer >= 0; layer--) {
+            List<Scored> candidates = searchLayer(normalized, entryPoints, efConstruction, layer);
+            int limit = layer == 0 ? maxNeighbors * 2 : maxNeighbors;
+            for (Scored candidate : candidates.subList(0, Math.min(maxNeighbors, candidates.size()))) {
+                node.neighbors.get(layer).add(candidate.node);
+                candidate.node.neighbors.get(layer).add(node);
+                prune(candidate.node, layer, limit);
+            }
+            entryPoints = candidates.stream().map(scored -> scored.node).toList();
+        }
+
+        if (node.level > entryPoint.level) {
+            entryPoint = node;
+        }
+    }
+
+    // 유사도가 높은 순으로 최대 k개 (삭제 표시된 항목 제외)
+    public List<Match> search(float[] query, int k, int ef) {
+        if (entryPoint == null || k < 1) {
+            return List.of();
+        }
+        float[] normalized = VectorMath.normalize(query);
+        if (normalized.length != dimension) {
+            throw new IllegalArgumentException("벡터 차원이 인덱스와 다릅니다: " + normalized.length + " != " + dimension);
+        }
+
+        Node current = entryPoint;
+        for (int layer = entryPoint.level; layer > 0; layer--) {
+            current = greedyClosest(normalized, current, layer);
+        }
+        return searchLayer(normalized, List.of(current), Math.max(ef, k), 0).stream()
+                .filter(scored -> !scored.node.deleted)
+                .limit(k)
+                .map(scored -> new Match(scored.node.id, scored.similarity))
+                .toList();
+    }
+
+    public void remove(long id) {
+        Node node = nodes.get(id);
+        if (node != null && !node.deleted) {
+            node.deleted = true;
+            deletedCount++;
+        }
+    }
+
+    // 정규화된 벡터 (다시 만들 때 사용, 없거나 삭제된 ID면 null)
+    public float[] getVector(long id) {
+        Node node = nodes.get(id);
+        return node != null && !node.deleted ? node.vector : null;
+    }
+
+    public int size() {
+        return nodes.size() - deletedCount;
+    }
+
+    public int getDeletedCount() {
+        return deletedCount;
+    }
+
+    private Node greedyClosest(float[] query, Node start, int layer) {
+        Node current = start;
+        double best = VectorMath.dot(query, current.vector);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Node neighbor : current.neighbors.get(layer)) {
+                double similarity = VectorMath.dot(query, neighbor.vector);
+                if (similarity > best) {
+                    best = similarity;
+                    current = neighbor;
+                    changed = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    // 한 층에서 ef개의 가장 가까운 노드를 찾아 유사도 내림차순으로 반환
+    private List<Scored> searchLayer(float[] query, List<Node> entryPoints, int ef, int layer) {
+        Set<Node> visited = new HashSet<>(entryPoints);
+        PriorityQueue<Scored> candidates = new PriorityQueue<>(Comparator.comparingDouble((Scored s) -> s.similarity).reversed());
+        PriorityQueue<Scored> results = new PriorityQueue<>(Comparator.comparingDouble((Scored s) -> s.similarity));
+        for (Node node : entryPoints) {
+            Scored scored = new Scored(node, VectorMath.dot(query, node.vector));
+            candidates.add(scored);
+            results.add(scored);
+            if (results.size() > ef) {
+                results.poll();
+            }
+        }
+
+        while (!candidates.isEmpty()) {
+            Scored closest = candidates.poll();
+            if (results.size() >= ef && closest.similarity < results.peek().similarity) {
+                break;
+            }
+            for (Node neighbor : closest.node.neighbors.get(layer)) {
+                if (!visited.add(neighbor)) {
+                    continue;
+                }
+                double similarity = VectorMath.dot(query, neighbor.vector);
+                if (results.size() < ef || similarity > results.peek().similarity) {
+                    Scored scored = new Scored(neighbor, similarity);
+                    candidates.add(scored);
+                    results.add(scored);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+
+        List<Scored> sorted = new ArrayList<>(results);
+        sorted.sort(Comparator.comparingDouble((Scored s) -> s.similarity).reversed());
+        return sorted;
+    }
+
+    // 이웃 수가 상한을 넘으면 가장 가까운 이웃만 남긴다
+    private void prune(Node node, int layer, int limit) {
+        List<Node> neighbors = node.neighbors.get(layer);
+        if (neighbors.size() <= limit) {
+            return;
+        }
+        neighbors.sort(Comparator.comparingDouble((Node n) -> VectorMath.dot(node.vector, n.vector)).reversed());
+        neighbors.subList(limit, neighbors.size()).clear();
+    }
+
+    private int randomLevel() {
+        double level = -Math.log(1.0 - random.nextDouble()) * levelMultiplier;
+        return Math.min((int) level, MAX_LEVEL);
+    }
+
+    private static final class Node {
+        private final long id;
+        private final float[] vector;
+        private final int level;
+        private final List<List<Node>> neighbors;
+        private boolean deleted;
+
+        private Node(long id, float[] vector, int level) {
+            this.id = id;
+            this.vector = vector;
+            this.level = level;
+            this.neighbors = new ArrayList<>(level + 1);
+            for (int i = 0; i <= level; i++) {
+                neighbors.add(new ArrayList<>());
+            }
+        }
+    }
+
+    private static final class Scored {
+        private final Node node;
+        private final double similarity;
+
+        private Scored(Node node, double similarity) {
+            this.node = node;
+            this.similarity = similarity;
+        }
+    }
+
+    public static final class Match {
+        private final long id;
+        private final double similarity;
+
+        public Match(long id, double similarity) {
+            this.id = id;
+            this.similarity = similarity;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public double getSimilarity() {
+            return similarity;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,122 @@
+package com.chatgemma.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+// 클라이언트가 보낸 멱등성 키(Idempotency-Key)별로 처음 요청의 결과(또는 진행 중인 처리)를 보관한다
+// - 타임아웃 후 같은 키로 재시도하면 사용자 메시지를 다시 저장하거나 생성을 다시 시작하지 않고 처음 결과를 돌려준다
+// - 키는 사용자별로 구분하고, 개수 상한과 TTL로 오래된 키를 제거한다
+// - 같은 키로 내용이 다른 요청이 오면 거절한다
+@Component
+public class IdempotencyStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyStore.class);
+
+    static final int MAX_KEY_LENGTH = 128;
+
+    private final Cache<Key, Entry> entries;
+    private final Counter replayed;
+
+    public IdempotencyStore(MeterRegistry meterRegistry,
+                            @Value("${chatgemma.idempotency.maximum-size:10000}") long maximumSize,
+                            @Value("${chatgemma.idempotency.ttl:10m}") Duration ttl) {
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+        this.replayed = Counter.builder("chatgemma.idempotency.replayed")
+                .description("Requests answered from an earlier request with the same idempotency key")
+                .register(meterRegistry);
+    }
+
+    // 처음 보는 키면 factory로 만든 값을 저장해 반환하고, 이미 있는 키면(재시도) 저장된 값을 반환
+    // fingerprint: 요청 내용 식별자 (같은 키로 다른 요청을 보내면 IllegalArgumentException)
+    // factory는 캐시 잠금 안에서 호출되므로 값만 만들고 실제 처리는 호출한 쪽에서 시작해야 한다
+    public <T> T computeIfAbsent(Long userId, String idempotencyKey, Object fingerprint,
+                                 Class<T> type, Supplier<T> factory) {
+        AtomicBoolean created = new AtomicBoolean(false);
+        Entry entry = entries.get(new Key(userId, idempotencyKey, type), k -> {
+            created.set(true);
+            return new Entry(fingerprint, factory.get());
+        });
+        if (!Objects.equals(entry.fingerprint, fingerprint)) {
+            throw new IllegalArgumentException("같은 멱등성 키로 다른 요청을 보낼 수 없습니다");
+        }
+        if (!created.get()) {
+            replayed.increment();
+            logger.info("🔁 Idempotent replay: userId={}, key={}", userId, idempotencyKey);
+        }
+        return type.cast(entry.value);
+    }
+
+    // 처리가 실패한 경우 재시도가 다시 실행되도록 제거 (그 사이 새로 저장된 값은 유지)
+    public void invalidate(Long userId, String idempotencyKey, Class<?> type, Object value) {
+        entries.asMap().computeIfPresent(new Key(userId, idempotencyKey, type),
+                (k, entry) -> entry.value == value ? null : entry);
+    }
+
+    public long size() {
+        entries.cleanUp();
+        return entries.estimatedSize();
+    }
+
+    // 공백이면 멱등성 미적용(null), 길이 상한을 넘으면 IllegalArgumentException
+    public static String normalizeKey(String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return null;
+        }
+        String key = idempotencyKey.strip();
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("멱등성 키는 " + MAX_KEY_LENGTH + "자를 초과할 수 없습니다");
+        }
+        return key;
+    }
+
+    private static final class Entry {
+        private final Object fingerprint;
+        private final Object value;
+
+        private Entry(Object fingerprint, Object value) {
+            this.fingerprint = fingerprint;
+            this.value = value;
+        }
+    }
+
+    private static final class Key {
+        private final Long userId;
+        private final String idempotencyKey;
+        private final Class<?> type;
+
+        private Key(Long userId, String idempotencyKey, Class<?> type) {
+            this.userId = userId;
+            this.idempotencyKey = idempotencyKey;
+            this.type = type;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return Objects.equals(userId, key.userId)
+                    && Objects.equals(idempotencyKey, key.idempotencyKey)
+                    && Objects.equals(type, key.type);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, idempotencyKey, type);
+        }
+    }
+}
\ No newline at end of file
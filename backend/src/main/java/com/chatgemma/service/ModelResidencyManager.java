@@ -0,0 +1,247 @@
+package com.chatgemma.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Ollama /api/ps를 주기적으로 조회해 서버별로 메모리에 올라가 있는 모델을 추적한다
+// - 업무 시간에는 keep_alive 요청으로 기본 모델이 언로드되지 않게 유지 (OLLAMA_KEEP_ALIVE 만료/다른 모델에 의한 축출 방지)
+// - 생성 입장 관리자는 이미 로드된 모델의 요청을 먼저 꺼낸다 (모델 교체로 인한 재로드 방지)
+// - 모델 로드/언로드 횟수와 콜드 스타트 로드 시간을 메트릭으로 노출
+@Component
+public class ModelResidencyManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(ModelResidencyManager.class);
+
+    private final OllamaBackendPool backendPool;
+    private final OllamaModelRegistry modelRegistry;
+    private final GenerationOptions defaultOptions;
+    private final OllamaBulkhead bulkhead;
+    private final MeterRegistry meterRegistry;
+    private final String modelName;
+    private final boolean keepAliveEnabled;
+    private final Object keepAlive;
+    private final LocalTime businessStart;
+    private final LocalTime businessEnd;
+    private final Set<DayOfWeek> businessDays;
+    private final ZoneId zone;
+    private final Duration requestTimeout;
+    private final long coldStartThresholdNanos;
+
+    // 서버 주소 -> 로드된 모델 목록 (조회할 때마다 통째로 교체)
+    private final Map<String, Set<String>> residentByBackend = new ConcurrentHashMap<>();
+    private final Map<String, Counter> loadCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> unloadCounters = new ConcurrentHashMap<>();
+    private final Map<String, Timer> coldStartTimers = new ConcurrentHashMap<>();
+    private final Set<String> gaugedModels = ConcurrentHashMap.newKeySet();
+
+    public ModelResidencyManager(OllamaBackendPool backendPool,
+                                 OllamaModelRegistry modelRegistry,
+                                 GenerationOptions defaultGenerationOptions,
+                                 OllamaBulkhead bulkhead,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${chatgemma.ollama.model-name:gemma3n:e4b}") String modelName,
+                                 @Value("${chatgemma.ollama.residency.keep-alive.enabled:true}") boolean keepAliveEnabled,
+                                 @Value("${chatgemma.ollama.residency.business-hours.start:08:00}") String businessStart,
+                                 @Value("${chatgemma.ollama.residency.business-hours.end:20:00}") String businessEnd,
+                                 @Value("${chatgemma.ollama.residency.business-hours.days:MONDAY,TUESDAY,WEDNESDAY,THURSDAY,FRIDAY}") String businessDays,
+                                 @Value("${chatgemma.ollama.residency.zone:Asia/Seoul}") String zone,
+                                 @Value("${chatgemma.ollama.residency.request-timeout:5s}") Duration requestTimeout,
+                                 @Value("${chatgemma.ollama.residency.cold-start-threshold:1s}") Duration coldStartThreshold) {
+        this.backendPool = backendPool;
+        this.modelRegistry = modelRegistry;
+        this.defaultOptions = defaultGenerationOptions;
+        this.bulkhead = bulkhead;
+        this.meterRegistry = meterRegistry;
+        this.modelName = modelName;
+        this.keepAliveEnabled = keepAliveEnabled;
+        this.keepAlive = defaultGenerationOptions.getKeepAlive() != null
+                ? defaultGenerationOptions.getKeepAliveValue() : "30m";
+        this.businessStart = LocalTime.parse(businessStart.trim());
+        this.businessEnd = LocalTime.parse(businessEnd.trim());
+        this.businessDays = parseDays(businessDays);
+        this.zone = ZoneId.of(zone.trim());
+        this.requestTimeout = requestTimeout;
+        this.coldStartThresholdNanos = coldStartThreshold.toNanos();
+        registerResidentGauge(modelName);
+    }
+
+    // 조회 결과가 아직 없으면 로드된 것으로 보지 않는다
+    public boolean isResident(String model) {
+        if (model == null) {
+            return false;
+        }
+        for (Set<String> models : residentByBackend.values()) {
+            if (models.contains(model)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int getResidentBackendCount(String model) {
+        int count = 0;
+        for (Set<String> models : residentByBackend.values()) {
+            if (models.contains(model)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // 생성 완료 시 Ollama가 보고한 load_duration이 임계치를 넘으면 콜드 스타트로 기록
+    public void onGenerationCompleted(String model, Long loadDurationNanos) {
+        if (loadDurationNanos == null || loadDurationNanos < coldStartThresholdNanos) {
+            return;
+        }
+        String name = model != null ? model : modelName;
+        coldStartTimers.computeIfAbsent(name, m -> Timer.builder("chatgemma.ollama.model.cold.start")
+                        .description("Model load time paid by a generation because the model was not resident")
+                        .tag("model", m)
+                        .register(meterRegistry))
+                .record(loadDurationNanos, TimeUnit.NANOSECONDS);
+        logger.info("🥶 Cold start: model={}, loadDuration={}ms", name, loadDurationNanos / 1_000_000);
+    }
+
+    @Scheduled(fixedDelayString = "${chatgemma.ollama.residency.poll-interval-ms:15000}")
+    public void pollResidency() {
+        Flux.fromIterable(backendPool.getBackends())
+                .flatMap(this::poll)
+                .blockLast();
+    }
+
+    // 업무 시간에만 keep_alive 요청을 보내 모델을 메모리에 유지 (언로드되어 있으면 이 요청이 미리 로드한다)
+    // 백그라운드 레인에서 서버별로 하나씩 보내 사용자 요청의 자리를 차지하지 않는다
+    @Scheduled(fixedDelayString = "${chatgemma.ollama.residency.keep-alive.interval-ms:240000}")
+    public void keepModelsWarm() {
+        if (!keepAliveEnabled || !isBusinessHours(ZonedDateTime.now(zone))) {
+            return;
+        }
+        Flux.fromIterable(backendPool.getBackends())
+                .filter(OllamaBackend::isHealthy)
+                .concatMap(this::ping)
+                .blockLast();
+    }
+
+    boolean isBusinessHours(ZonedDateTime now) {
+        ZonedDateTime local = now.withZoneSameInstant(zone);
+        LocalTime time = local.toLocalTime();
+        return businessDays.contains(local.getDayOfWeek())
+                && !time.isBefore(businessStart) && time.isBefore(businessEnd);
+    }
+
+    Mono<Set<String>> poll(OllamaBackend backend) {
+        return backend.getWebClient().get()
+                .uri("/api/ps")
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .timeout(requestTimeout)
+                .map(ModelResidencyManager::parseModels)
+                .doOnNext(models -> update(backend.getBaseUrl(), models))
+                .onErrorResume(e -> {
+                    logger.debug("Failed to poll /api/ps: backend={}, error={}", backend.getBaseUrl(), e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    // prompt 없는 generate 요청은 모델을 로드만 하고 keep_alive 만료 시각을 연장한다
+    // num_ctx가 실제 요청과 다르면 Ollama가 모델을 다시 로드하므로 같은 값을 보낸다
+    private Mono<Void> ping(OllamaBackend backend) {
+        Map<String, Object> options = Map.of("num_ctx", modelRegistry.resolveNumCtx(modelName, defaultOptions));
+        return bulkhead.execute(OllamaBulkhead.Lane.BACKGROUND, () -> backend.getWebClient().post()
+                        .uri("/api/generate")
+                        .bodyValue(Map.of("model", modelName, "keep_alive", keepAlive, "stream", false, "options", options))
+                        .retrieve()
+                        .toBodilessEntity()
+                        .timeout(requestTimeout))
+                .then()
+                .onErrorResume(e -> {
+                    logger.warn("⚠️ Keep-alive ping failed: backend={}, model={}, error={}",
+                            backend.getBaseUrl(), modelName, e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    private void update(String backendUrl, Set<String> models) {
+        Set<String> previous = residentByBackend.put(backendUrl, models);
+        if (previous == null) {
+            models.forEach(this::registerResidentGauge);
+            return;
+        }
+
+        for (String model : models) {
+            if (!previous.contains(model)) {
+                registerResidentGauge(model);
+                counter(loadCounters, "chatgemma.ollama.model.loads", "Models observed loading into memory", model)
+                        .increment();
+                logger.info("📥 Model loaded: backend={}, model={}", backendUrl, model);
+            }
+        }
+        for (String model : previous) {
+            if (!models.contains(model)) {
+                counter(unloadCounters, "chatgemma.ollama.model.unloads", "Models observed leaving memory", model)
+                        .increment();
+                logger.info("📤 Model unloaded: backend={}, model={}", backendUrl, model);
+            }
+        }
+    }
+
+    private Counter counter(Map<String, Counter> counters, String name, String description, String model) {
+        return counters.computeIfAbsent(model, m -> Counter.builder(name)
+                .description(description)
+                .tag("model", m)
+                .register(meterRegistry));
+    }
+
+    private void registerResidentGauge(String model) {
+        if (gaugedModels.add(model)) {
+            Gauge.builder("chatgemma.ollama.model.resident", this, manager -> manager.getResidentBackendCount(model))
+                    .description("Number of Ollama backends that currently hold the model in memory")
+                    .tag("model", model)
+                    .register(meterRegistry);
+        }
+    }
+
+    // {"models":[{"name":"gemma3n:e4b","model":"gemma3n:e4b",...}]}
+    private static Set<String> parseModels(JsonNode ps) {
+        Set<String> models = new HashSet<>();
+        for (JsonNode model : ps.path("models")) {
+            String name = model.hasNonNull("name") ? model.get("name").asText() : model.path("model").asText("");
+            if (!name.isEmpty()) {
+                models.add(name);
+            }
+        }
+        return Set.copyOf(models);
+    }
+
+    private static Set<DayOfWeek> parseDays(String days) {
+        Set<DayOfWeek> result = EnumSet.noneOf(DayOfWeek.class);
+        for (String day : days.split(",")) {
+            if (!day.isBlank()) {
+                result.add(DayOfWeek.valueOf(day.trim().toUpperCase()));
+            }
+        }
+        return result;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,188 @@
+package com.chatgemma.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// 배포 직후 첫 사용자 요청이 모델 로드 시간을 떠안지 않도록 시작 시 모든 Ollama 서버에 모델을 미리 올린다
+// - 실제 요청과 같은 num_ctx로 로드해야 첫 요청에서 모델이 다시 로드되지 않는다
+// - 선택적으로 시스템 프롬프트를 한 번 평가해 prefix 캐시를 채운다
+// - 완료 전까지 readiness 그룹의 ollamaWarmup 헬스가 OUT_OF_SERVICE (롤링 배포 시 트래픽 차단)
+@Component
+public class ModelWarmupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ModelWarmupService.class);
+
+    private final OllamaBackendPool backendPool;
+    private final OllamaModelRegistry modelRegistry;
+    private final GenerationOptions defaultOptions;
+    private final MeterRegistry meterRegistry;
+    private final String modelName;
+    private final boolean chatApi;
+    private final boolean enabled;
+    private final boolean prefillSystemPrompt;
+    private final Duration requestTimeout;
+    private final Duration retryMinBackoff;
+    private final Duration retryMaxBackoff;
+    private final Set<String> warmedBackends = ConcurrentHashMap.newKeySet();
+
+    public ModelWarmupService(OllamaBackendPool backendPool,
+                              OllamaModelRegistry modelRegistry,
+                              GenerationOptions defaultGenerationOptions,
+                              MeterRegistry meterRegistry,
+                              @Value("${chatgemma.ollama.model-name:gemma3n:e4b}") String modelName,
+                              @Value("${chatgemma.ollama.api-mode:generate}") String apiMode,
+                              @Value("${chatgemma.ollama.warmup.enabled:true}") boolean enabled,
+                              @Value("${chatgemma.ollama.warmup.prefill-system-prompt:true}") boolean prefillSystemPrompt,
+                              @Value("${chatgemma.ollama.warmup.request-timeout:5m}") Duration requestTimeout,
+                              @Value("${chatgemma.ollama.warmup.retry-min-backoff:2s}") Duration retryMinBackoff,
+                              @Value("${chatgemma.ollama.warmup.retry-max-backoff:30s}") Duration retryMaxBackoff) {
+        this.backendPool = backendPool;
+        this.modelRegistry = modelRegistry;
+        this.defaultOptions = defaultGenerationOptions;
+        this.meterRegistry = meterRegistry;
+        this.modelName = modelName;
+        this.chatApi = "chat".equalsIgnoreCase(apiMode);
+        this.enabled = enabled;
+        this.prefillSystemPrompt = prefillSystemPrompt;
+        this.requestTimeout = requestTimeout;
+        this.retryMinBackoff = retryMinBackoff;
+        this.retryMaxBackoff = retryMaxBackoff;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            logger.info("Ollama warm-up disabled");
+            return;
+        }
+        warmUp().subscribe();
+    }
+
+    // 모든 서버의 워밍업이 끝나면 완료 (실패한 서버는 성공할 때까지 백오프하며 재시도)
+    Mono<Void> warmUp() {
+        return resolveNumCtx()
+                .flatMapMany(numCtx -> Flux.fromIterable(backendPool.getBackends())
+                        .flatMap(backend -> warmUp(backend, numCtx)))
+                .then();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // 모든 서버가 워밍업을 마쳤거나(헬스 체크로 제외된 서버는 제외), 적어도 한 서버는 워밍업된 상태
+    public boolean isReady() {
+        if (!enabled) {
+            return true;
+        }
+        return !warmedBackends.isEmpty() && getPendingBackends().isEmpty();
+    }
+
+    public List<String> getPendingBackends() {
+        return backendPool.getBackends().stream()
+                .filter(OllamaBackend::isHealthy)
+                .map(OllamaBackend::getBaseUrl)
+                .filter(url -> !warmedBackends.contains(url))
+                .toList();
+    }
+
+    public Set<String> getWarmedBackends() {
+        return Set.copyOf(warmedBackends);
+    }
+
+    // 실제 요청과 같은 규칙: 설정된 num-ctx가 없으면 /api/show 기준 (조회 실패 시 기본값)
+    private Mono<Integer> resolveNumCtx() {
+        if (defaultOptions.getNumCtx() != null) {
+            return Mono.just(defaultOptions.getNumCtx());
+        }
+        return modelRegistry.refresh(modelName)
+                .then(Mono.fromSupplier(() -> modelRegistry.resolveNumCtx(modelName, defaultOptions)));
+    }
+
+    private Mono<Void> warmUp(OllamaBackend backend, int numCtx) {
+        return Mono.defer(() -> {
+            long startedAt = System.nanoTime();
+            Mono<Void> prefill = prefillSystemPrompt ? prefill(backend, numCtx) : Mono.empty();
+            return load(backend, numCtx)
+                    .then(prefill)
+                    .retryWhen(Retry.backoff(Long.MAX_VALUE, retryMinBackoff)
+                            .maxBackoff(retryMaxBackoff)
+                            .doBeforeRetry(signal -> logger.warn("⏳ Ollama warm-up retry: backend={}, attempt={}, error={}",
+                                    backend.getBaseUrl(), signal.totalRetries() + 1, signal.failure().getMessage())))
+                    .doOnSuccess(ignored -> {
+                        long elapsed = System.nanoTime() - startedAt;
+                        warmedBackends.add(backend.getBaseUrl());
+                        Timer.builder("chatgemma.ollama.warmup.duration")
+                                .description("Time from startup until the model was loaded and ready on the backend")
+                                .tag("backend", backend.getBaseUrl())
+                                .tag("model", modelName)
+                                .register(meterRegistry)
+                                .record(elapsed, TimeUnit.NANOSECONDS);
+                        logger.info("🔥 Ollama warm-up complete: backend={}, model={}, num_ctx={}, duration={}ms",
+                                backend.getBaseUrl(), modelName, numCtx, elapsed / 1_000_000);
+                    });
+        });
+    }
+
+    // prompt가 빈 generate 요청은 모델을 메모리에 올리기만 한다
+    private Mono<Void> load(OllamaBackend backend, int numCtx) {
+        Map<String, Object> body = baseBody(numCtx, null);
+        body.put("prompt", "");
+        return post(backend, "/api/generate", body);
+    }
+
+    // 실제 요청과 같은 API로 시스템 프롬프트만 평가해 prefix 캐시를 채운다 (토큰 1개만 생성)
+    private Mono<Void> prefill(OllamaBackend backend, int numCtx) {
+        Map<String, Object> body = baseBody(numCtx, 1);
+        if (chatApi) {
+            body.put("messages", List.of(Map.of("role", "system", "content", OllamaServiceImpl.SYSTEM_PROMPT)));
+            return post(backend, "/api/chat", body);
+        }
+        body.put("prompt", OllamaServiceImpl.SYSTEM_PROMPT);
+        return post(backend, "/api/generate", body);
+    }
+
+    private Map<String, Object> baseBody(int numCtx, Integer numPredict) {
+        Map<String, Object> options = new LinkedHashMap<>();
+        options.put("num_ctx", numCtx);
+        if (numPredict != null) {
+            options.put("num_predict", numPredict);
+        }
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("model", modelName);
+        body.put("stream", false);
+        body.put("options", options);
+        if (defaultOptions.getKeepAlive() != null) {
+            body.put("keep_alive", defaultOptions.getKeepAliveValue());
+        }
+        return body;
+    }
+
+    private Mono<Void> post(OllamaBackend backend, String uri, Map<String, Object> body) {
+        return backend.getWebClient().post()
+                .uri(uri)
+                .bodyValue(body)
+                .retrieve()
+                .toBodilessEntity()
+                .timeout(requestTimeout)
+                .then();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,76 @@
+package com.chatgemma.service;
+
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Ollama 인스턴스 하나와 그 라우팅 상태 (진행 중 요청 수, 헬스 상태)
+public class OllamaBackend {
+
+    private final String baseUrl;
+    private final WebClient webClient;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile boolean healthy = true;
+
+    public OllamaBackend(String baseUrl, WebClient webClient) {
+        if (baseUrl == null || baseUrl.trim().isEmpty()) {
+            throw new IllegalArgumentException("Ollama 서버 주소는 필수입니다");
+        }
+        this.baseUrl = baseUrl.trim();
+        this.webClient = webClient;
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public WebClient getWebClient() {
+        return webClient;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    int acquire() {
+        return inFlight.incrementAndGet();
+    }
+
+    void release() {
+        inFlight.decrementAndGet();
+    }
+
+    // 연속 실패 횟수가 임계치에 도달하면 라우팅 대상에서 제외, 반환값은 이번 호출로 제외되었는지 여부
+    boolean recordFailure(int ejectAfterFailures) {
+        int failures = consecutiveFailures.incrementAndGet();
+        if (healthy && failures >= ejectAfterFailures) {
+            healthy = false;
+            return true;
+        }
+        return false;
+    }
+
+    // 성공 시 다시 라우팅 대상에 포함, 반환값은 이번 호출로 복귀했는지 여부
+    boolean recordSuccess() {
+        consecutiveFailures.set(0);
+        if (!healthy) {
+            healthy = true;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "OllamaBackend{" +
+                "baseUrl='" + baseUrl + '\'' +
+                ", inFlight=" + inFlight.get() +
+                ", healthy=" + healthy +
+                '}';
+    }
+}
\ No newline at end of file
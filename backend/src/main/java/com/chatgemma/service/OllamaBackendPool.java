@@ -0,0 +1,282 @@
+package com.chatgemma.service;
+
+import com.chatgemma.service.exception.NoAvailableBackendException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+// 여러 Ollama 인스턴스에 생성을 분배하고, 백그라운드 헬스 체크로 장애 노드를 제외/복귀
+// - 라우팅 키(chatId)가 있으면 일관 해시로 같은 채팅을 같은 노드에 보내 KV 캐시와 로드된 모델을 재사용
+// - 담당 노드가 부하 상한을 넘으면 링의 다음 노드로 넘긴다 (bounded-load consistent hashing)
+// - 라우팅 키가 없으면 진행 중 요청 수가 가장 적은 노드
+// - 모든 노드가 제외되면 헬스 체크 결과를 무시하고 전체 노드로 보낸다 (단일 노드 구성에서 복귀 전까지 전부 거절하지 않도록)
+public class OllamaBackendPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(OllamaBackendPool.class);
+    private static final int MAX_TRACKED_ROUTES = 10_000;
+
+    private final List<OllamaBackend> backends;
+    private final ConsistentHashRing<OllamaBackend> ring;
+    private final double loadFactor;
+    private final int ejectAfterFailures;
+    private final Duration probeTimeout;
+    private final AtomicInteger tieBreaker = new AtomicInteger();
+
+    // 라우팅 키별 직전 턴을 처리한 노드 (최근 사용 순으로 상한 유지)
+    private final Map<Object, OllamaBackend> lastBackendByKey = Collections.synchronizedMap(
+            new LinkedHashMap<>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Object, OllamaBackend> eldest) {
+                    return size() > MAX_TRACKED_ROUTES;
+                }
+            });
+    private final Counter affinityHits;
+    private final Counter affinityMisses;
+    private final Counter spillovers;
+    private final Counter allEjectedRoutes;
+
+    public OllamaBackendPool(List<OllamaBackend> backends, MeterRegistry meterRegistry,
+                             int ejectAfterFailures, Duration probeTimeout,
+                             int virtualNodes, double loadFactor) {
+        if (backends == null || backends.isEmpty()) {
+            throw new IllegalArgumentException("Ollama 서버가 하나 이상 필요합니다");
+        }
+        if (loadFactor < 1.0) {
+            throw new IllegalArgumentException("부하 상한 비율은 1.0 이상이어야 합니다");
+        }
+        this.backends = List.copyOf(backends);
+        this.ring = new ConsistentHashRing<>(this.backends, OllamaBackend::getBaseUrl, virtualNodes);
+        this.loadFactor = loadFactor;
+        this.ejectAfterFailures = Math.max(1, ejectAfterFailures);
+        this.probeTimeout = probeTimeout;
+
+        this.affinityHits = Counter.builder("chatgemma.ollama.routing.affinity")
+                .description("Turns served by the same backend as the previous turn of the chat")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.affinityMisses = Counter.builder("chatgemma.ollama.routing.affinity")
+                .description("Turns served by the same backend as the previous turn of the chat")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        this.spillovers = Counter.builder("chatgemma.ollama.routing.spillover")
+                .description("Sticky routes moved off their home backend because it was at its load bound")
+                .register(meterRegistry);
+        this.allEjectedRoutes = Counter.builder("chatgemma.ollama.routing.all.ejected")
+                .description("Requests routed to ejected backends because no backend was healthy")
+                .register(meterRegistry);
+
+        for (OllamaBackend backend : this.backends) {
+            Gauge.builder("chatgemma.ollama.backend.in.flight", backend, OllamaBackend::getInFlight)
+                    .description("In-flight generations per Ollama backend")
+                    .tag("backend", backend.getBaseUrl())
+                    .register(meterRegistry);
+            Gauge.builder("chatgemma.ollama.backend.healthy", backend, b -> b.isHealthy() ? 1 : 0)
+                    .description("1 when the backend receives traffic, 0 when ejected")
+                    .tag("backend", backend.getBaseUrl())
+                    .register(meterRegistry);
+        }
+    }
+
+    public List<OllamaBackend> getBackends() {
+        return backends;
+    }
+
+    public <T> Flux<T> execute(Function<OllamaBackend, ? extends Publisher<T>> call) {
+        return execute(null, call);
+    }
+
+    // 선택된 노드의 WebClient로 호출하고, 첫 응답 전에 연결 실패하면 아직 시도하지 않은 노드로 넘긴다
+    public <T> Flux<T> execute(Object routingKey, Function<OllamaBackend, ? extends Publisher<T>> call) {
+        return Flux.defer(() -> attempt(routingKey, call, new HashSet<>()));
+    }
+
+    private <T> Flux<T> attempt(Object routingKey, Function<OllamaBackend, ? extends Publisher<T>> call,
+                                Set<OllamaBackend> tried) {
+        OllamaBackend backend;
+        try {
+            backend = select(routingKey, tried);
+        } catch (NoAvailableBackendException e) {
+            return Flux.error(e);
+        }
+        tried.add(backend);
+        backend.acquire();
+
+        AtomicBoolean emitted = new AtomicBoolean(false);
+        return Flux.<T>from(call.apply(backend))
+                .doOnNext(value -> {
+                    if (emitted.compareAndSet(false, true)) {
+                        recordAffinity(routingKey, backend);
+                    }
+                })
+                .doOnComplete(backend::recordSuccess)
+                .doFinally(signal -> backend.release())
+                .onErrorResume(e -> {
+                    if (!isFailoverCandidate(e)) {
+                        return Flux.error(e);
+                    }
+                    if (isNodeFailure(e) && backend.recordFailure(ejectAfterFailures)) {
+                        logger.warn("🚫 Ollama backend ejected after request failures: {}", backend.getBaseUrl());
+                    }
+                    if (emitted.get() || tried.size() >= backends.size()) {
+                        return Flux.error(e);
+                    }
+                    logger.warn("↪️ Failing over from {} : {}", backend.getBaseUrl(), e.getMessage());
+                    return attempt(routingKey, call, tried);
+                });
+    }
+
+    OllamaBackend select(Object routingKey, Set<OllamaBackend> excluded) {
+        List<OllamaBackend> candidates = new ArrayList<>();
+        for (OllamaBackend backend : backends) {
+            if (backend.isHealthy() && !excluded.contains(backend)) {
+                candidates.add(backend);
+            }
+        }
+        if (candidates.isEmpty() && backends.stream().noneMatch(OllamaBackend::isHealthy)) {
+            // 정상 노드가 하나도 없으면 제외된 노드도 후보로 둔다 (요청이 성공하면 그 노드는 바로 복귀)
+            for (OllamaBackend backend : backends) {
+                if (!excluded.contains(backend)) {
+                    candidates.add(backend);
+                }
+            }
+            if (!candidates.isEmpty()) {
+                allEjectedRoutes.increment();
+            }
+        }
+        if (candidates.isEmpty()) {
+            throw new NoAvailableBackendException("사용 가능한 AI 서버가 없습니다");
+        }
+        if (routingKey == null) {
+            return leastLoaded(candidates);
+        }
+
+        // 부하 상한 = ceil(loadFactor × (전체 진행 중 요청 + 1) / 정상 노드 수)
+        int totalInFlight = candidates.stream().mapToInt(OllamaBackend::getInFlight).sum();
+        int capacity = (int) Math.ceil(loadFactor * (totalInFlight + 1) / candidates.size());
+
+        boolean home = true;
+        for (OllamaBackend backend : ring.walk(String.valueOf(routingKey))) {
+            if (!candidates.contains(backend)) {
+                continue; // 제외된 노드는 건너뛰어 해당 구간의 키만 다음 노드로 이동
+            }
+            if (backend.getInFlight() < capacity) {
+                if (!home) {
+                    spillovers.increment();
+                }
+                return backend;
+            }
+            home = false;
+        }
+        return leastLoaded(candidates);
+    }
+
+    // 정상 노드 중 진행 중 요청이 가장 적은 노드 (동률이면 순환)
+    private OllamaBackend leastLoaded(List<OllamaBackend> candidates) {
+        int minInFlight = candidates.stream().mapToInt(OllamaBackend::getInFlight).min().getAsInt();
+        List<OllamaBackend> leastLoaded = candidates.stream()
+                .filter(backend -> backend.getInFlight() == minInFlight)
+                .sorted(Comparator.comparing(OllamaBackend::getBaseUrl))
+                .toList();
+        return leastLoaded.get(Math.floorMod(tieBreaker.getAndIncrement(), leastLoaded.size()));
+    }
+
+    private void recordAffinity(Object routingKey, OllamaBackend backend) {
+        if (routingKey == null) {
+            return;
+        }
+        OllamaBackend previous = lastBackendByKey.put(routingKey, backend);
+        if (previous == null) {
+            return; // 첫 턴은 비교 대상이 없다
+        }
+        if (previous == backend) {
+            affinityHits.increment();
+        } else {
+            affinityMisses.increment();
+        }
+    }
+
+    // 연결 실패, 게이트웨이 오류, Ollama 과부하(503)는 다른 노드로 재시도
+    // 우리 쪽 커넥션 풀 포화는 노드와 무관하므로 넘기지 않는다
+    private boolean isFailoverCandidate(Throwable e) {
+        if (isConnectionPoolSaturated(e)) {
+            return false;
+        }
+        if (e instanceof WebClientRequestException) {
+            return true;
+        }
+        if (e instanceof WebClientResponseException responseException) {
+            HttpStatus status = HttpStatus.resolve(responseException.getStatusCode().value());
+            return status == HttpStatus.BAD_GATEWAY
+                    || status == HttpStatus.SERVICE_UNAVAILABLE
+                    || status == HttpStatus.GATEWAY_TIMEOUT;
+        }
+        return false;
+    }
+
+    // 노드 제외 집계 대상: 503(server busy)은 바쁠 뿐 살아 있으므로 넘기기만 하고 제외하지 않는다
+    private boolean isNodeFailure(Throwable e) {
+        return !(e instanceof WebClientResponseException responseException
+                && responseException.getStatusCode().value() == HttpStatus.SERVICE_UNAVAILABLE.value());
+    }
+
+    // 커넥션 풀 대기열 초과/대기 시간 초과 (reactor-pool 예외는 Reactor Netty 내부에 shading 되어 있어 이름으로 판별)
+    static boolean isConnectionPoolSaturated(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            String name = cause.getClass().getSimpleName();
+            if (name.equals("PoolAcquirePendingLimitException") || name.equals("PoolAcquireTimeoutException")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // 백그라운드 헬스 체크: /api/tags 응답 여부로 노드를 제외하거나 복귀시킨다
+    @Scheduled(fixedDelayString = "${chatgemma.ollama.health-check.interval-ms:10000}")
+    public void probeBackends() {
+        Flux.fromIterable(backends)
+                .flatMap(this::probe)
+                .blockLast();
+    }
+
+    Mono<Boolean> probe(OllamaBackend backend) {
+        return backend.getWebClient().get()
+                .uri("/api/tags")
+                .retrieve()
+                .toBodilessEntity()
+                .timeout(probeTimeout)
+                .map(response -> true)
+                // 커넥션 풀 포화는 노드 상태를 알 수 없으므로 이번 헬스 체크를 건너뛴다
+                .onErrorResume(e -> isConnectionPoolSaturated(e) ? Mono.empty() : Mono.just(false))
+                .doOnNext(ok -> {
+                    if (ok) {
+                        if (backend.recordSuccess()) {
+                            logger.info("✅ Ollama backend re-admitted: {}", backend.getBaseUrl());
+                        }
+                    } else if (backend.recordFailure(ejectAfterFailures)) {
+                        logger.warn("🚫 Ollama backend ejected after failed health checks: {}", backend.getBaseUrl());
+                    }
+                });
+    }
+}
\ No newline at end of file
@@ -0,0 +1,74 @@
+package com.chatgemma.service;
+
+import com.chatgemma.service.exception.AiServiceBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+// 사용자 요청과 백그라운드 작업(워밍업, keep-alive, 요약 등)이 Ollama 호출 슬롯을 나눠 쓰도록 격리
+// 레인마다 동시 호출 수 상한이 따로 있고, 상한에 도달하면 기다리지 않고 즉시 거절한다
+@Component
+public class OllamaBulkhead {
+
+    private static final Logger logger = LoggerFactory.getLogger(OllamaBulkhead.class);
+
+    public enum Lane {
+        INTERACTIVE, BACKGROUND
+    }
+
+    private final Map<Lane, Semaphore> permits = new EnumMap<>(Lane.class);
+    private final Map<Lane, Counter> rejections = new EnumMap<>(Lane.class);
+
+    public OllamaBulkhead(MeterRegistry meterRegistry,
+                          @Value("${chatgemma.ollama.bulkhead.interactive-max-concurrent:32}") int interactiveMaxConcurrent,
+                          @Value("${chatgemma.ollama.bulkhead.background-max-concurrent:1}") int backgroundMaxConcurrent) {
+        if (interactiveMaxConcurrent < 1 || backgroundMaxConcurrent < 1) {
+            throw new IllegalArgumentException("레인별 동시 호출 수는 1 이상이어야 합니다");
+        }
+        permits.put(Lane.INTERACTIVE, new Semaphore(interactiveMaxConcurrent));
+        permits.put(Lane.BACKGROUND, new Semaphore(backgroundMaxConcurrent));
+
+        for (Lane lane : Lane.values()) {
+            Semaphore semaphore = permits.get(lane);
+            int max = lane == Lane.INTERACTIVE ? interactiveMaxConcurrent : backgroundMaxConcurrent;
+            String tag = lane.name().toLowerCase();
+            Gauge.builder("chatgemma.ollama.bulkhead.in.use", semaphore, s -> max - s.availablePermits())
+                    .description("Ollama calls currently holding a bulkhead permit")
+                    .tag("lane", tag)
+                    .register(meterRegistry);
+            rejections.put(lane, Counter.builder("chatgemma.ollama.bulkhead.rejected")
+                    .description("Ollama calls rejected because the lane was full")
+                    .tag("lane", tag)
+                    .register(meterRegistry));
+        }
+    }
+
+    // 자리를 얻은 경우에만 call을 구독하고, 종료/취소/오류 시 반납한다
+    public <T> Flux<T> execute(Lane lane, Supplier<? extends Publisher<T>> call) {
+        return Flux.defer(() -> {
+            Semaphore semaphore = permits.get(lane);
+            if (!semaphore.tryAcquire()) {
+                rejections.get(lane).increment();
+                logger.warn("⚠️ Ollama bulkhead full: lane={}", lane);
+                return Flux.error(new AiServiceBusyException("AI 서비스 요청이 많아 처리할 수 없습니다. 잠시 후 다시 시도해주세요"));
+            }
+            return Flux.<T>defer(call)
+                    .doFinally(signal -> semaphore.release());
+        });
+    }
+
+    public int getAvailable(Lane lane) {
+        return permits.get(lane).availablePermits();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,215 @@
+package com.chatgemma.service;
+
+import com.chatgemma.service.exception.AiServiceBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+// Ollama 호출 회로 차단기: 최근 호출의 실패율이 임계치를 넘으면 일정 시간 호출 없이 즉시 실패시킨다
+// - Ollama가 내려가 있는 동안 요청마다 첫 토큰 대기 시간(first-token + 콜드 스타트 여유)이나
+//   청크 간 대기 시간(idle)이 지날 때까지 스레드/커넥션을 붙잡지 않게 한다 (GenerationTimeoutPolicy 참고)
+// - CLOSED -> (실패율 초과) OPEN -> (open-duration 경과) HALF_OPEN -> (시험 호출 모두 성공) CLOSED / (실패) OPEN
+// - 첫 응답을 받으면 성공, 첫 응답 전 서버 장애로 끝나면 실패, 취소나 요청 오류는 집계하지 않는다
+@Component
+public class OllamaCircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(OllamaCircuitBreaker.class);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final double failureRateThreshold;
+    private final int minimumCalls;
+    private final long openDurationNanos;
+    private final int halfOpenCalls;
+    private final LongSupplier nanoClock;
+
+    // 최근 호출 결과 (슬라이딩 윈도, 모든 상태 변경은 this 모니터로 보호)
+    private final boolean[] outcomes;
+    private int recorded = 0;
+    private int next = 0;
+    private int failures = 0;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int halfOpenPermits = 0;
+    private int halfOpenSuccesses = 0;
+
+    @Autowired
+    public OllamaCircuitBreaker(MeterRegistry meterRegistry,
+                                @Value("${chatgemma.ollama.circuit-breaker.failure-rate-threshold:0.5}") double failureRateThreshold,
+                                @Value("${chatgemma.ollama.circuit-breaker.sliding-window-size:20}") int slidingWindowSize,
+                                @Value("${chatgemma.ollama.circuit-breaker.minimum-calls:10}") int minimumCalls,
+                                @Value("${chatgemma.ollama.circuit-breaker.open-duration:30s}") Duration openDuration,
+                                @Value("${chatgemma.ollama.circuit-breaker.half-open-calls:2}") int halfOpenCalls) {
+        this(meterRegistry, failureRateThreshold, slidingWindowSize, minimumCalls, openDuration, halfOpenCalls,
+                System::nanoTime);
+    }
+
+    OllamaCircuitBreaker(MeterRegistry meterRegistry, double failureRateThreshold, int slidingWindowSize,
+                         int minimumCalls, Duration openDuration, int halfOpenCalls, LongSupplier nanoClock) {
+        if (failureRateThreshold <= 0 || failureRateThreshold > 1) {
+            throw new IllegalArgumentException("실패율 임계치는 0보다 크고 1 이하여야 합니다");
+        }
+        if (slidingWindowSize < 1) {
+            throw new IllegalArgumentException("슬라이딩 윈도 크기는 1 이상이어야 합니다");
+        }
+        this.meterRegistry = meterRegistry;
+        this.failureRateThreshold = failureRateThreshold;
+        this.outcomes = new boolean[slidingWindowSize];
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, slidingWindowSize));
+        this.openDurationNanos = openDuration.toNanos();
+        this.halfOpenCalls = Math.max(1, halfOpenCalls);
+        this.nanoClock = nanoClock;
+
+        Gauge.builder("chatgemma.ollama.circuit.state", this, breaker -> breaker.getState().ordinal())
+                .description("Ollama circuit breaker state (0 = closed, 1 = open, 2 = half-open)")
+                .register(meterRegistry);
+    }
+
+    // 호출 허가를 받은 경우에만 call을 구독한다. 차단 중이면 즉시 AiServiceBusyException
+    public <T> Flux<T> execute(Supplier<? extends Publisher<T>> call, Predicate<Throwable> isFailure) {
+        return Flux.defer(() -> {
+            if (!tryAcquirePermission()) {
+                return Flux.error(new AiServiceBusyException("AI 서비스에 일시적으로 연결할 수 없습니다. 잠시 후 다시 시도해주세요"));
+            }
+
+            AtomicBoolean recorded = new AtomicBoolean(false);
+            return Flux.<T>defer(call)
+                    .doOnNext(value -> {
+                        if (recorded.compareAndSet(false, true)) {
+                            onSuccess();
+                        }
+                    })
+                    .doOnComplete(() -> {
+                        if (recorded.compareAndSet(false, true)) {
+                            onSuccess();
+                        }
+                    })
+                    .doOnError(e -> {
+                        if (recorded.compareAndSet(false, true)) {
+                            if (isFailure.test(e)) {
+                                onFailure();
+                            } else {
+                                onIgnored();
+                            }
+                        }
+                    })
+                    .doOnCancel(() -> {
+                        if (recorded.compareAndSet(false, true)) {
+                            onIgnored();
+                        }
+                    });
+        });
+    }
+
+    public synchronized State getState() {
+        if (state == State.OPEN && nanoClock.getAsLong() - openedAt >= openDurationNanos) {
+            return State.HALF_OPEN; // 다음 호출에서 전환될 예정
+        }
+        return state;
+    }
+
+    synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (nanoClock.getAsLong() - openedAt < openDurationNanos) {
+                return false;
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermits >= halfOpenCalls) {
+                return false;
+            }
+            halfOpenPermits++;
+        }
+        return true;
+    }
+
+    synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++halfOpenSuccesses >= halfOpenCalls) {
+                transitionTo(State.CLOSED);
+            }
+            return;
+        }
+        record(false);
+    }
+
+    synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            transitionTo(State.OPEN);
+            return;
+        }
+        if (state == State.CLOSED) {
+            record(true);
+            if (recorded >= minimumCalls && (double) failures / recorded >= failureRateThreshold) {
+                transitionTo(State.OPEN);
+            }
+        }
+    }
+
+    // 결과를 판단할 수 없는 호출은 시험 호출 자리만 돌려준다
+    synchronized void onIgnored() {
+        if (state == State.HALF_OPEN && halfOpenPermits > halfOpenSuccesses) {
+            halfOpenPermits--;
+        }
+    }
+
+    private void record(boolean failure) {
+        if (recorded == outcomes.length) {
+            if (outcomes[next]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        outcomes[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % outcomes.length;
+    }
+
+    private void transitionTo(State target) {
+        State previous = state;
+        state = target;
+        halfOpenPermits = 0;
+        halfOpenSuccesses = 0;
+        if (target == State.OPEN) {
+            openedAt = nanoClock.getAsLong();
+        } else if (target == State.CLOSED) {
+            recorded = 0;
+            next = 0;
+            failures = 0;
+        }
+
+        Counter.builder("chatgemma.ollama.circuit.transitions")
+                .description("Ollama circuit breaker state transitions")
+                .tag("from", previous.name().toLowerCase())
+                .tag("to", target.name().toLowerCase())
+                .register(meterRegistry)
+                .increment();
+        if (target == State.OPEN) {
+            logger.warn("🔌 Ollama circuit opened: {} -> {}, retry after {}ms",
+                    previous, target, openDurationNanos / 1_000_000);
+        } else {
+            logger.info("🔌 Ollama circuit {} -> {}", previous, target);
+        }
+    }
+}
\ No newline at end of file
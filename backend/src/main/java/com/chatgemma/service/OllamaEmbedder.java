@@ -0,0 +1,83 @@
+package com.chatgemma.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+
+// Ollama /api/embed로 임베딩 생성 (WebClientConfig에서 생성)
+// - embedding-base-url을 지정하면 임베딩 전용 Ollama 서버로 보낸다 (전용 커넥션 풀)
+// - 지정하지 않으면 생성 서버 풀을 함께 쓴다: OLLAMA_MAX_LOADED_MODELS=1인 서버에서는 임베딩 요청마다
+//   생성 모델이 내려가고 다음 생성 때 다시 올라오므로, 생성 서버의 OLLAMA_MAX_LOADED_MODELS를 2 이상으로 둬야 한다
+//   이 경우 생성 요청과 같은 격벽(사용자 요청 레인)과 회로 차단기를 거치므로 장애 중에는 즉시 실패한다
+public class OllamaEmbedder implements Embedder {
+
+    private final OllamaBackendPool backendPool;
+    private final OllamaBulkhead bulkhead;
+    private final OllamaCircuitBreaker circuitBreaker;
+    private final WebClient dedicatedClient; // 임베딩 전용 서버 (없으면 null)
+    private final String modelName;
+    private final Duration timeout;
+
+    public OllamaEmbedder(OllamaBackendPool backendPool, OllamaBulkhead bulkhead, OllamaCircuitBreaker circuitBreaker,
+                          WebClient dedicatedClient, String modelName, Duration timeout) {
+        this.backendPool = backendPool;
+        this.bulkhead = bulkhead;
+        this.circuitBreaker = circuitBreaker;
+        this.dedicatedClient = dedicatedClient;
+        this.modelName = modelName;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public Mono<float[]> embed(String text) {
+        Mono<JsonNode> response = dedicatedClient != null
+                ? embed(dedicatedClient, text)
+                : bulkhead.execute(OllamaBulkhead.Lane.INTERACTIVE, () -> circuitBreaker.execute(
+                        () -> backendPool.execute(backend -> embed(backend.getWebClient(), text)),
+                        OllamaEmbedder::isBackendFailure)).next();
+        return response.map(OllamaEmbedder::firstEmbedding);
+    }
+
+    @Override
+    public String getModelName() {
+        return modelName;
+    }
+
+    @Override
+    public boolean hasDedicatedBackend() {
+        return dedicatedClient != null;
+    }
+
+    private Mono<JsonNode> embed(WebClient webClient, String text) {
+        return webClient.post()
+                .uri("/api/embed")
+                .bodyValue(Map.of("model", modelName, "input", text))
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .timeout(timeout);
+    }
+
+    // 회로 차단기 실패 집계 대상: 연결 실패와 서버 오류만 (임베딩 타임아웃은 생성 서버 장애로 보지 않는다)
+    private static boolean isBackendFailure(Throwable e) {
+        return e instanceof WebClientRequestException
+                || (e instanceof WebClientResponseException response && response.getStatusCode().is5xxServerError());
+    }
+
+    // {"model": "...", "embeddings": [[0.01, -0.02, ...]]}
+    static float[] firstEmbedding(JsonNode response) {
+        JsonNode embedding = response.path("embeddings").path(0);
+        if (!embedding.isArray() || embedding.isEmpty()) {
+            throw new IllegalStateException("Ollama 임베딩 응답이 비어 있습니다");
+        }
+        float[] vector = new float[embedding.size()];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = (float) embedding.get(i).asDouble();
+        }
+        return vector;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,191 @@
+package com.chatgemma.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+// Ollama /api/show로 모델별 컨텍스트 길이(num_ctx)와 파라미터를 조회해 캐시한다
+// - Modelfile에 num_ctx가 있으면 그 값을, 없으면 모델 학습 컨텍스트 길이를 max-num-ctx로 제한해 사용
+// - 조회 전이거나 실패하면 default-num-ctx로 동작하고, 주기적으로 다시 조회한다
+// - 같은 이름의 모델이 다시 받아지거나 Modelfile이 바뀌면(modified_at 변경) 등록된 리스너에 알린다
+@Component
+public class OllamaModelRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(OllamaModelRegistry.class);
+
+    private final OllamaBackendPool backendPool;
+    private final String modelName;
+    private final int defaultNumCtx;
+    private final int maxNumCtx;
+    private final int reservedOutputTokens;
+    private final Duration showTimeout;
+    private final Map<String, ModelProfile> profiles = new ConcurrentHashMap<>();
+    private final Set<String> knownModels = ConcurrentHashMap.newKeySet();
+    private final List<Consumer<String>> changeListeners = new CopyOnWriteArrayList<>();
+
+    public OllamaModelRegistry(OllamaBackendPool backendPool,
+                               @Value("${chatgemma.ollama.model-name:gemma3n:e4b}") String modelName,
+                               @Value("${chatgemma.ollama.context.default-num-ctx:32768}") int defaultNumCtx,
+                               @Value("${chatgemma.ollama.context.max-num-ctx:32768}") int maxNumCtx,
+                               @Value("${chatgemma.ollama.context.reserved-output-tokens:2048}") int reservedOutputTokens,
+                               @Value("${chatgemma.ollama.context.show-timeout:10s}") Duration showTimeout) {
+        this.backendPool = backendPool;
+        this.modelName = modelName;
+        this.defaultNumCtx = defaultNumCtx;
+        this.maxNumCtx = maxNumCtx;
+        this.reservedOutputTokens = reservedOutputTokens;
+        this.showTimeout = showTimeout;
+        this.knownModels.add(modelName);
+    }
+
+    // 조회된 프로필이 없으면 기본값 프로필 (다음 갱신 주기에 조회 대상에 포함)
+    public ModelProfile getProfile(String model) {
+        ModelProfile profile = profiles.get(model);
+        if (profile != null) {
+            return profile;
+        }
+        knownModels.add(model);
+        return new ModelProfile(model, defaultNumCtx, 0, Collections.emptyMap(), "");
+    }
+
+    // 모델이 바뀐 것을 감지하면 모델 이름으로 호출 (모델 출력에 의존하는 캐시 무효화용)
+    public void addModelChangeListener(Consumer<String> listener) {
+        changeListeners.add(listener);
+    }
+
+    // 옵션에 num_ctx가 지정되지 않았으면 모델 프로필 기준
+    public int resolveNumCtx(String model, GenerationOptions options) {
+        if (options != null && options.getNumCtx() != null) {
+            return options.getNumCtx();
+        }
+        return getProfile(model).getNumCtx();
+    }
+
+    // 대화 히스토리에 쓸 수 있는 토큰 수 = num_ctx - 출력 예약분 - 고정 프롬프트(system + 현재 메시지)
+    // num_predict가 지정되면 출력 예약분 대신 그 값을 남긴다
+    public int historyTokenBudget(int numCtx, Integer numPredict, int fixedPromptTokens) {
+        int reserved = numPredict != null ? numPredict : reservedOutputTokens;
+        return Math.max(0, numCtx - reserved - fixedPromptTokens);
+    }
+
+    // 시작 시 한 번, 이후 주기적으로 모델 정보를 갱신 (Modelfile 변경, 시작 시점에 Ollama가 내려가 있던 경우)
+    @Scheduled(fixedDelayString = "${chatgemma.ollama.context.refresh-interval-ms:300000}")
+    public void refreshProfiles() {
+        Flux.fromIterable(Set.copyOf(knownModels))
+                .flatMap(this::refresh)
+                .blockLast();
+    }
+
+    Mono<ModelProfile> refresh(String model) {
+        return backendPool.execute(backend -> backend.getWebClient().post()
+                        .uri("/api/show")
+                        .bodyValue(Map.of("model", model))
+                        .retrieve()
+                        .bodyToMono(JsonNode.class)
+                        .timeout(showTimeout))
+                .next()
+                .map(show -> toProfile(model, show))
+                .doOnNext(profile -> {
+                    ModelProfile previous = profiles.put(model, profile);
+                    if (previous == null || previous.getNumCtx() != profile.getNumCtx()) {
+                        logger.info("📐 Ollama model profile loaded: model={}, num_ctx={}, context_length={}",
+                                model, profile.getNumCtx(), profile.getContextLength());
+                    }
+                    if (previous != null && !previous.getRevision().equals(profile.getRevision())) {
+                        logger.info("🔄 Ollama model changed: model={}, modified_at={} -> {}",
+                                model, previous.getRevision(), profile.getRevision());
+                        changeListeners.forEach(listener -> listener.accept(model));
+                    }
+                })
+                .onErrorResume(e -> {
+                    logger.warn("⚠️ Failed to load Ollama model info: model={}, error={}", model, e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    ModelProfile toProfile(String model, JsonNode show) {
+        Map<String, String> parameters = parseParameters(show.path("parameters").asText(""));
+        int contextLength = findContextLength(show.path("model_info"));
+
+        int numCtx;
+        if (parameters.containsKey("num_ctx")) {
+            numCtx = parseInt(parameters.get("num_ctx"), defaultNumCtx);
+        } else if (contextLength > 0) {
+            numCtx = Math.min(contextLength, maxNumCtx);
+        } else {
+            numCtx = defaultNumCtx;
+        }
+        return new ModelProfile(model, numCtx, contextLength, parameters, show.path("modified_at").asText(""));
+    }
+
+    // "num_ctx 8192\nstop \"<end_of_turn>\"" 형식 (같은 키가 여러 번 나오면 첫 값)
+    private static Map<String, String> parseParameters(String text) {
+        Map<String, String> parameters = new LinkedHashMap<>();
+        for (String line : text.split("\n")) {
+            String[] parts = line.trim().split("\\s+", 2);
+            if (parts.length == 2) {
+                parameters.putIfAbsent(parts[0], parts[1].trim());
+            }
+        }
+        return parameters;
+    }
+
+    // model_info의 "<아키텍처>.context_length" 값
+    private static int findContextLength(JsonNode modelInfo) {
+        Iterator<Map.Entry<String, JsonNode>> fields = modelInfo.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if (field.getKey().endsWith(".context_length") && field.getValue().canConvertToInt()) {
+                return field.getValue().asInt();
+            }
+        }
+        return 0;
+    }
+
+    private static int parseInt(String value, int fallback) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    public static class ModelProfile {
+        private final String model;
+        private final int numCtx;
+        private final int contextLength;
+        private final Map<String, String> parameters;
+        private final String revision; // /api/show의 modified_at (모델을 다시 받거나 다시 만들면 바뀜)
+
+        public ModelProfile(String model, int numCtx, int contextLength, Map<String, String> parameters,
+                            String revision) {
+            this.model = model;
+            this.numCtx = numCtx;
+            this.contextLength = contextLength;
+            this.parameters = parameters;
+            this.revision = revision;
+        }
+
+        public String getModel() { return model; }
+        public int getNumCtx() { return numCtx; }
+        public int getContextLength() { return contextLength; }
+        public Map<String, String> getParameters() { return parameters; }
+        public String getRevision() { return revision; }
+    }
+}
\ No newline at end of file
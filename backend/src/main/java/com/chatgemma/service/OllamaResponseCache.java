@@ -0,0 +1,138 @@
+package com.chatgemma.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+// 대화 맥락 없는 단건 생성(sendMessage) 응답 캐시: 연동 시스템의 정형화된 질문이 반복될 때 GPU 호출을 생략한다
+// - 키: (모델, 생성 옵션, 정규화한 프롬프트, 이미지) 해시
+// - 전체 바이트 크기 상한 + TTL, 입장 정책은 Caffeine 기본(W-TinyLFU)이라 한 번 쓰이고 마는 응답이 자주 쓰이는 응답을 밀어내지 않는다
+// - 같은 키의 동시 요청은 생성 한 번을 공유하고, 실패한 생성은 저장하지 않는다
+// - 모델이 바뀌면(OllamaModelRegistry) 해당 모델의 응답을 모두 제거
+@Component
+public class OllamaResponseCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(OllamaResponseCache.class);
+
+    private static final int ENTRY_OVERHEAD_BYTES = 128; // 키/엔트리 객체 헤더 등 대략치
+
+    private final boolean enabled;
+    private final AsyncCache<Key, String> responses;
+
+    public OllamaResponseCache(OllamaModelRegistry modelRegistry,
+                               MeterRegistry meterRegistry,
+                               @Value("${chatgemma.ollama.response-cache.enabled:true}") boolean enabled,
+                               @Value("${chatgemma.ollama.response-cache.max-size-bytes:33554432}") long maxSizeBytes,
+                               @Value("${chatgemma.ollama.response-cache.expire-after-write:1h}") Duration expireAfterWrite) {
+        this.enabled = enabled;
+        this.responses = Caffeine.newBuilder()
+                .maximumWeight(maxSizeBytes)
+                .weigher((Key key, String response) -> key.sizeInBytes() + response.length() * 2)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .buildAsync();
+
+        // cache.gets{result=hit|miss}, cache.evictions, cache.size 등
+        CaffeineCacheMetrics.monitor(meterRegistry, responses.synchronous(), "ollama.response");
+        Gauge.builder("chatgemma.ollama.response.cache.bytes", this, OllamaResponseCache::getWeightedSize)
+                .description("Approximate bytes held by the Ollama response cache")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("chatgemma.ollama.response.cache.hit.ratio", this, cache -> cache.responses.synchronous().stats().hitRatio())
+                .description("Ollama response cache hit ratio since startup")
+                .register(meterRegistry);
+
+        modelRegistry.addModelChangeListener(this::invalidateModel);
+    }
+
+    // 캐시에 있으면 저장된 응답, 없으면 generation을 구독해 결과를 저장 (진행 중인 같은 키 요청이 있으면 그 결과를 기다림)
+    public Mono<String> get(String model, GenerationOptions options, String prompt, String imageUrl,
+                            Supplier<Mono<String>> generation) {
+        if (!enabled) {
+            return generation.get();
+        }
+        return Mono.defer(() -> {
+            Key key = Key.of(model, options, prompt, imageUrl);
+            // 먼저 구독한 요청이 취소되어도 기다리는 다른 요청을 위해 생성은 끝까지 진행
+            return Mono.fromFuture(responses.get(key, (k, executor) -> Mono.defer(generation).toFuture()), true);
+        });
+    }
+
+    public void invalidateModel(String model) {
+        int before = responses.synchronous().asMap().size();
+        responses.synchronous().asMap().keySet().removeIf(key -> key.model.equals(model));
+        logger.info("🧹 Ollama response cache invalidated: model={}, removed={}",
+                model, before - responses.synchronous().asMap().size());
+    }
+
+    public long getWeightedSize() {
+        return responses.synchronous().policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+    }
+
+    public long getEntryCount() {
+        responses.synchronous().cleanUp();
+        return responses.synchronous().estimatedSize();
+    }
+
+    static final class Key {
+        private final String model;
+        private final String digest;
+
+        private Key(String model, String digest) {
+            this.model = model;
+            this.digest = digest;
+        }
+
+        // 프롬프트는 공백/유니코드 정규화 후 해시, 이미지는 URL(업로드 파일마다 고유) 해시
+        static Key of(String model, GenerationOptions options, String prompt, String imageUrl) {
+            String image = imageUrl != null && !imageUrl.isBlank() ? sha256(imageUrl.trim()) : "";
+            // keep_alive는 응답 내용에 영향이 없으므로 제외
+            String generation = options != null
+                    ? options.getNumPredict() + "|" + options.getNumCtx() + "|" + options.getTemperature() : "";
+            return new Key(model, sha256(generation + "\n" + image + "\n" + GenerationCoalescer.normalize(prompt)));
+        }
+
+        int sizeInBytes() {
+            return ENTRY_OVERHEAD_BYTES + (model.length() + digest.length()) * 2;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return Objects.equals(model, key.model) && Objects.equals(digest, key.digest);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(model, digest);
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256을 사용할 수 없습니다", e);
+        }
+    }
+}
\ No newline at end of file
@@ -1,10 +1,36 @@
 package com.chatgemma.service;
 
+import com.chatgemma.entity.GenerationUsage;
 import com.chatgemma.entity.Message;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface OllamaService {
     String sendMessage(String message, String imageUrl);
 
-    String sendMessageWithContext(String message, String imageUrl, List<Message> recentMessages);
+    // chatId는 Ollama 서버 라우팅 키 (같은 채팅은 같은 서버로 보내 KV 캐시 재사용)
+    // conversation: 저장된 요약 + 이전 턴 (ConversationContext.empty() = 첫 턴)
+    String sendMessageWithContext(Long chatId, String message, String imageUrl, ConversationContext conversation);
+
+    // 스레드를 점유하지 않는 논블로킹 버전
+    Mono<String> sendMessageAsync(String message, String imageUrl);
+
+    // options는 전역 기본 옵션 위에 덮어쓸 채팅/요청별 옵션 (null 가능)
+    // usageListener는 생성 완료 시 Ollama 토큰/시간 통계를 받는다 (null 가능)
+    Mono<String> sendMessageWithContextAsync(Long chatId, String message, String imageUrl, ConversationContext conversation,
+                                             GenerationOptions options, Consumer<GenerationUsage> usageListener);
+
+    // Ollama가 생성하는 토큰 청크를 도착하는 즉시 흘려보내는 스트리밍 응답
+    Flux<String> streamMessageWithContext(Long chatId, String message, String imageUrl, ConversationContext conversation,
+                                          GenerationOptions options, Consumer<GenerationUsage> usageListener);
+
+    // 이전 턴에 쓸 수 있는 토큰 수 (num_ctx에서 출력 예약분, 시스템 프롬프트, 현재 메시지, 저장된 요약을 뺀 값)
+    // 턴은 보지 않으므로 요약만 담은 conversation을 넘겨도 된다
+    int historyTokenBudget(String message, ConversationContext conversation, GenerationOptions options);
+
+    // 오래된 대화를 이전 요약에 이어서 요약 (백그라운드 레인, previousSummary는 null 가능)
+    Mono<String> summarizeConversation(Long chatId, String previousSummary, List<Message> messages, int maxTokens);
 }
\ No newline at end of file
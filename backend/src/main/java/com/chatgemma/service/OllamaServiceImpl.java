@@ -1,83 +1,557 @@
 package com.chatgemma.service;
 
+import com.chatgemma.entity.GenerationUsage;
 import com.chatgemma.entity.Message;
+import com.chatgemma.service.exception.AiServiceBusyException;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import io.netty.handler.timeout.ReadTimeoutException;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Primary;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.netty.http.client.PrematureCloseException;
+import reactor.util.retry.Retry;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Service
 @Primary
 public class OllamaServiceImpl implements OllamaService {
 
-    private final WebClient webClient;
+    private static final Logger logger = LoggerFactory.getLogger(OllamaServiceImpl.class);
+
+    private static final String GENERATE_API = "/api/generate";
+    private static final String CHAT_API = "/api/chat";
+
+    // 시스템 지침은 매 요청 바이트 단위로 동일해야 Ollama의 프롬프트 prefix 캐시가 재사용된다
+    static final String SYSTEM_PROMPT =
+            "=== Gemma 3n AI 어시스턴트 지침 ===\n" +
+            "모델: Google Gemma 3n (효율적 온디바이스 멀티모달 모델)\n" +
+            "역할: 친근하고 도움이 되는 한국어 전문 AI 어시스턴트\n\n" +
+            "핵심 원칙:\n" +
+            "• 정확하고 실용적인 정보를 간결하게 제공\n" +
+            "• 친근하고 자연스러운 한국어 대화 스타일 유지\n" +
+            "• 이전 대화 맥락을 적극 활용한 일관된 답변\n" +
+            "• 불확실한 정보는 명확히 구분하여 표시\n" +
+            "• 복잡한 내용은 단계별로 체계적으로 설명\n" +
+            "• 텍스트와 이미지를 함께 고려한 멀티모달 이해\n\n" +
+            "응답 가이드라인:\n" +
+            "• 사용자 의도를 정확히 파악하고 개인화된 답변 제공\n" +
+            "• 한국 문화와 언어 특성을 고려한 적절한 표현 사용\n" +
+            "• 필요시 구체적 예시나 친숙한 비유 활용\n" +
+            "• 추가 궁금증을 예상하고 관련 정보나 도움 제안\n" +
+            "• 같은 질문에는 항상 일관된 정보 제공\n" +
+            "• 온디바이스 환경의 장점(개인정보 보호, 빠른 응답)을 활용\n\n";
+
+    private static final String SUMMARY_HEADER = "이전 대화 요약:\n";
+
+    private final OllamaBackendPool backendPool;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final ChatContextStore contextStore;
+    private final OllamaModelRegistry modelRegistry;
+    private final ModelResidencyManager residencyManager;
+    private final GenerationOptions defaultOptions;
+    private final OllamaCircuitBreaker circuitBreaker;
+    private final OllamaBulkhead bulkhead;
+    private final GenerationTimeoutPolicy timeoutPolicy;
+    private final OllamaResponseCache responseCache;
+    private final SemanticResponseCache semanticCache;
+    private final TokenCounter tokenCounter;
+    private final int systemPromptTokens;
     private final String modelName;
-    private final int timeoutSeconds;
-
-    public OllamaServiceImpl(WebClient webClient,
+    private final boolean chatApi;
+    private final int maxRetries;
+    private final Duration retryMinBackoff;
+    private final Duration retryMaxBackoff;
+    private final double retryJitter;
+
+    public OllamaServiceImpl(OllamaBackendPool backendPool,
+                            AdaptiveConcurrencyLimiter concurrencyLimiter,
+                            ChatContextStore contextStore,
+                            OllamaModelRegistry modelRegistry,
+                            ModelResidencyManager residencyManager,
+                            GenerationOptions defaultGenerationOptions,
+                            OllamaCircuitBreaker circuitBreaker,
+                            OllamaBulkhead bulkhead,
+                            GenerationTimeoutPolicy timeoutPolicy,
+                            OllamaResponseCache responseCache,
+                            SemanticResponseCache semanticCache,
+                            TokenCounter tokenCounter,
                             @Value("${chatgemma.ollama.model-name:gemma3n:e4b}") String modelName,
-                            @Value("${chatgemma.ollama.timeout:60}") int timeoutSeconds) {
-        this.webClient = webClient;
+                            @Value("${chatgemma.ollama.api-mode:generate}") String apiMode,
+                            @Value("${chatgemma.ollama.max-retries:3}") int maxRetries,
+                            @Value("${chatgemma.ollama.retry.min-backoff:200ms}") Duration retryMinBackoff,
+                            @Value("${chatgemma.ollama.retry.max-backoff:2s}") Duration retryMaxBackoff,
+                            @Value("${chatgemma.ollama.retry.jitter:0.5}") double retryJitter) {
+        this.backendPool = backendPool;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.contextStore = contextStore;
+        this.modelRegistry = modelRegistry;
+        this.residencyManager = residencyManager;
+        this.defaultOptions = defaultGenerationOptions;
+        this.circuitBreaker = circuitBreaker;
+        this.bulkhead = bulkhead;
+        this.timeoutPolicy = timeoutPolicy;
+        this.responseCache = responseCache;
+        this.semanticCache = semanticCache;
+        this.tokenCounter = tokenCounter;
+        this.systemPromptTokens = tokenCounter.count(SYSTEM_PROMPT);
         this.modelName = modelName;
-        this.timeoutSeconds = timeoutSeconds;
+        this.chatApi = isChatApiMode(apiMode);
+        this.maxRetries = Math.max(0, maxRetries);
+        this.retryMinBackoff = retryMinBackoff;
+        this.retryMaxBackoff = retryMaxBackoff;
+        this.retryJitter = retryJitter;
     }
 
     @Override
     public String sendMessage(String message, String imageUrl) {
-        validateInput(message);
+        return sendMessageAsync(message, imageUrl).block();
+    }
 
-        String prompt = buildPrompt(message, imageUrl);
-        OllamaRequest request = new OllamaRequest(modelName, prompt);
+    @Override
+    public String sendMessageWithContext(Long chatId, String message, String imageUrl, ConversationContext conversation) {
+        return sendMessageWithContextAsync(chatId, message, imageUrl, conversation, null, null).block();
+    }
 
-        try {
-            OllamaResponse response = webClient.post()
-                    .uri("/api/generate")
-                    .bodyValue(request)
-                    .retrieve()
-                    .bodyToMono(OllamaResponse.class)
-                    .timeout(Duration.ofSeconds(timeoutSeconds))
-                    .block();
+    @Override
+    public Mono<String> sendMessageAsync(String message, String imageUrl) {
+        validateInput(message);
 
-            if (response == null || response.getResponse() == null) {
-                throw new RuntimeException("AI 서비스로부터 응답을 받지 못했습니다");
-            }
+        // 대화 맥락이 없는 요청은 같은 모델/옵션/프롬프트면 같은 응답으로 보고 캐시 (정확히 일치 -> 의미 유사 순)
+        GenerationOptions options = resolveOptions(null);
+        return responseCache.get(modelName, options, message, imageUrl,
+                () -> semanticCache.get(modelName, options, "stateless", message, imageUrl, () -> {
+                    OllamaRequest request = new OllamaRequest(modelName, buildPrompt(message, imageUrl));
+                    applyOptions(request, options);
+                    return complete(null, message, GENERATE_API, request, null);
+                }));
+    }
 
-            return response.getResponse();
-        } catch (Exception e) {
-            throw new RuntimeException("AI 서비스 연결 실패: " + e.getMessage(), e);
+    @Override
+    public Mono<String> sendMessageWithContextAsync(Long chatId, String message, String imageUrl,
+                                                    ConversationContext conversation,
+                                                    GenerationOptions options,
+                                                    Consumer<GenerationUsage> usageListener) {
+        validateInput(message);
+        GenerationOptions resolved = resolveOptions(options);
+        ConversationContext history = conversation != null ? conversation : ConversationContext.empty();
+
+        Supplier<Mono<String>> generation = () -> chatApi
+                ? complete(chatId, message, CHAT_API,
+                        buildChatRequest(message, imageUrl, history, resolved, false), usageListener)
+                : complete(chatId, message, GENERATE_API,
+                        buildContextRequest(chatId, message, imageUrl, history, resolved, false), usageListener);
+        if (!isContextFree(message, history)) {
+            return generation.get();
         }
+        return semanticCache.get(modelName, resolved, firstTurnKind(), message, imageUrl, generation);
     }
 
     @Override
-    public String sendMessageWithContext(String message, String imageUrl, List<Message> recentMessages) {
+    public Flux<String> streamMessageWithContext(Long chatId, String message, String imageUrl,
+                                                 ConversationContext conversation,
+                                                 GenerationOptions options,
+                                                 Consumer<GenerationUsage> usageListener) {
         validateInput(message);
+        GenerationOptions resolved = resolveOptions(options);
+        ConversationContext history = conversation != null ? conversation : ConversationContext.empty();
+
+        Supplier<Flux<String>> generation = () -> chatApi
+                ? stream(chatId, message, CHAT_API,
+                        buildChatRequest(message, imageUrl, history, resolved, true), usageListener)
+                : stream(chatId, message, GENERATE_API,
+                        buildContextRequest(chatId, message, imageUrl, history, resolved, true), usageListener);
+        if (!isContextFree(message, history)) {
+            return generation.get();
+        }
+        return semanticCache.stream(modelName, resolved, firstTurnKind(), message, imageUrl, generation);
+    }
+
+    @Override
+    public int historyTokenBudget(String message, ConversationContext conversation, GenerationOptions options) {
+        ConversationContext history = conversation != null ? conversation : ConversationContext.empty();
+        return historyTokenBudget(message, resolveOptions(options), summaryTokens(history));
+    }
+
+    @Override
+    public Mono<String> summarizeConversation(Long chatId, String previousSummary, List<Message> messages,
+                                              int maxTokens) {
+        if (messages == null || messages.isEmpty()) {
+            throw new IllegalArgumentException("요약할 메시지가 없습니다");
+        }
+        GenerationOptions options = resolveOptions(new GenerationOptions(maxTokens, null, 0.2, null));
+        OllamaRequest request = new OllamaRequest(modelName, buildSummaryPrompt(previousSummary, messages));
+        applyOptions(request, options);
+        GenerationTimeoutPolicy.Budget budget = timeoutBudget(request);
+
+        // 백그라운드 레인에서 재시도 없이 한 번만 호출 (실패하면 다음 주기에 다시 요약)
+        // 사용자 요청용 동시성 한도, 응답 캐시, context 저장소는 거치지 않는다
+        return bulkhead.execute(OllamaBulkhead.Lane.BACKGROUND, () -> circuitBreaker.execute(
+                        () -> backendPool.execute(chatId, backend -> timeoutPolicy.applyToResponse(
+                                backend.getWebClient().post()
+                                        .uri(GENERATE_API)
+                                        .bodyValue(request)
+                                        .retrieve()
+                                        .bodyToMono(OllamaResponse.class), modelName, budget)),
+                        this::isBackendFailure))
+                .next()
+                .mapNotNull(OllamaServiceImpl::summaryText)
+                .map(String::trim)
+                .filter(summary -> !summary.isEmpty())
+                .switchIfEmpty(Mono.error(() -> new RuntimeException("AI 서비스로부터 요약을 받지 못했습니다")))
+                .onErrorMap(this::mapOllamaError);
+    }
+
+    // 요약 길이는 num_predict로 제한하고, 상한에 걸려 끊긴 요약은 마지막으로 끝난 문장/줄까지만 사용
+    private static String summaryText(OllamaResponse response) {
+        String text = response.getText();
+        if (text == null || !"length".equals(response.getDoneReason())) {
+            return text;
+        }
+        return upToLastCompleteSentence(text);
+    }
+
+    // 마지막 줄바꿈이나 문장 부호(뒤에 공백이 오는 . ! ?)까지 자른다 (경계가 없으면 그대로)
+    static String upToLastCompleteSentence(String text) {
+        String trimmed = text.stripTrailing();
+        for (int i = trimmed.length() - 1; i > 0; i--) {
+            char c = trimmed.charAt(i);
+            boolean sentenceEnd = (c == '.' || c == '!' || c == '?')
+                    && (i == trimmed.length() - 1 || Character.isWhitespace(trimmed.charAt(i + 1)));
+            if (c == '\n' || sentenceEnd) {
+                return trimmed.substring(0, i + 1);
+            }
+        }
+        return trimmed;
+    }
+
+    // 이전 대화가 없는 첫 턴은 질문만으로 답이 정해지므로 의미 기반 캐시 대상 (대화 초기화 요청 제외)
+    private boolean isContextFree(String message, ConversationContext conversation) {
+        return conversation.isEmpty() && !isContextResetRequest(message);
+    }
+
+    // 첫 턴은 시스템 프롬프트가 붙으므로 단건 생성(stateless)과 구분
+    private String firstTurnKind() {
+        return chatApi ? "first-turn:chat" : "first-turn:generate";
+    }
+
+    private Flux<String> stream(Long chatId, String message, String uri, Object request,
+                                Consumer<GenerationUsage> usageListener) {
+        return Flux.defer(() -> {
+            StringBuilder generated = new StringBuilder();
+            GenerationTimeoutPolicy.Budget budget = timeoutBudget(request);
+
+            // stream=true 요청 시 Ollama는 NDJSON(줄 단위 JSON) 청크를 생성되는 대로 내려준다
+            // 첫 청크/청크 간 대기/전체 시간 예산을 넘으면 중단
+            return measured(resilient(chatId, backend -> timeoutPolicy.applyToStream(backend.getWebClient().post()
+                                    .uri(uri)
+                                    .bodyValue(request)
+                                    .retrieve()
+                                    .bodyToFlux(OllamaResponse.class), modelName, budget)
+                            .takeUntil(OllamaResponse::isDone)))
+                    .doOnNext(response -> {
+                        if (response.getText() != null) {
+                            generated.append(response.getText());
+                        }
+                        if (response.isDone()) {
+                            rememberContext(chatId, message, generated.toString(), response);
+                            notifyUsage(usageListener, response);
+                        }
+                    })
+                    .mapNotNull(OllamaResponse::getText)
+                    .filter(chunk -> !chunk.isEmpty())
+                    .onErrorMap(this::mapOllamaError);
+        });
+    }
+
+    private Mono<String> complete(Long chatId, String message, String uri, Object request,
+                                  Consumer<GenerationUsage> usageListener) {
+        // stream=false 응답은 생성이 끝나야 도착하므로 전체 시간 예산만 적용
+        GenerationTimeoutPolicy.Budget budget = timeoutBudget(request);
+        return measured(resilient(chatId, backend -> timeoutPolicy.applyToResponse(backend.getWebClient().post()
+                        .uri(uri)
+                        .bodyValue(request)
+                        .retrieve()
+                        .bodyToMono(OllamaResponse.class), modelName, budget)))
+                .next()
+                .filter(response -> response.getText() != null)
+                .doOnNext(response -> {
+                    rememberContext(chatId, message, response.getText(), response);
+                    notifyUsage(usageListener, response);
+                })
+                .map(OllamaResponse::getText)
+                .switchIfEmpty(Mono.error(() -> new RuntimeException("AI 서비스로부터 응답을 받지 못했습니다")))
+                .onErrorMap(this::mapOllamaError);
+    }
+
+    // Ollama가 평가할 프롬프트 토큰 수와 num_predict로 이번 요청의 시간 예산을 계산
+    // (컨텍스트 예산과 같은 토큰 카운터를 사용: 토크나이저가 있으면 정확한 값, 없으면 추정치)
+    private GenerationTimeoutPolicy.Budget timeoutBudget(Object request) {
+        int promptTokens = 0;
+        OllamaOptions options = null;
+        if (request instanceof OllamaChatRequest chatRequest) {
+            for (OllamaChatMessage chatMessage : chatRequest.getMessages()) {
+                promptTokens += tokenCounter.count(chatMessage.getContent());
+            }
+            options = chatRequest.getOptions();
+        } else if (request instanceof OllamaRequest generateRequest) {
+            promptTokens = tokenCounter.count(generateRequest.getPrompt());
+            if (generateRequest.getContext() != null) {
+                promptTokens += generateRequest.getContext().length; // 이전 턴의 KV 캐시가 없으면 다시 평가
+            }
+            options = generateRequest.getOptions();
+        }
+        return timeoutPolicy.budgetFor(modelName, promptTokens, options != null ? options.getNumPredict() : null);
+    }
+
+    // /api/chat 요청: 고정된 system 메시지 + 잘라내지 않은 이전 대화 + 현재 메시지
+    // 턴이 뒤에 덧붙기만 하므로 연속된 요청이 가능한 한 긴 동일 prefix를 공유한다
+    private OllamaChatRequest buildChatRequest(String message, String imageUrl, ConversationContext conversation,
+                                               GenerationOptions options, boolean stream) {
+        List<OllamaChatMessage> messages = new ArrayList<>();
+        messages.add(new OllamaChatMessage("system", SYSTEM_PROMPT));
+
+        // 대화 초기화 요청은 이전 대화 없이 보낸다
+        if (!isContextResetRequest(message) && !conversation.isEmpty()) {
+            // 저장된 요약은 고정 system 메시지 바로 뒤에 둔다 (요약이 갱신될 때만 prefix가 바뀐다)
+            if (conversation.hasSummary()) {
+                messages.add(new OllamaChatMessage("system", SUMMARY_HEADER + conversation.getSummary()));
+            }
+            List<Message> turns = conversation.getTurns();
+            int maxMessages = Math.min(turns.size(),
+                    calculateOptimalMessageCount(turns, message, options, summaryTokens(conversation)));
+            for (int i = turns.size() - maxMessages; i < turns.size(); i++) {
+                Message msg = turns.get(i);
+                String role = msg.getRole() == Message.Role.USER ? "user" : "assistant";
+                messages.add(new OllamaChatMessage(role, buildPrompt(msg.getContent(), msg.getImageUrl())));
+            }
+        }
+
+        messages.add(new OllamaChatMessage("user", buildPrompt(message, imageUrl)));
+        OllamaChatRequest request = new OllamaChatRequest(modelName, messages, stream);
+        request.setOptions(toOllamaOptions(options));
+        request.setKeepAlive(options.getKeepAliveValue());
+        return request;
+    }
 
-        String prompt = buildPromptWithContext(message, imageUrl, recentMessages);
-        OllamaRequest request = new OllamaRequest(modelName, prompt);
+    // 직전 턴의 context가 남아 있으면 새 메시지만 보내고, 없으면 이전 대화를 포함한 전체 프롬프트를 구성
+    // 요약이 있는 대화는 요약 + 최근 턴으로 다시 구성해야 하므로 context를 쓰지 않는다
+    private OllamaRequest buildContextRequest(Long chatId, String message, String imageUrl,
+                                              ConversationContext conversation, GenerationOptions options,
+                                              boolean stream) {
+        OllamaRequest request;
+        if (isContextResetRequest(message)) {
+            contextStore.invalidate(chatId);
+            request = new OllamaRequest(modelName, buildPromptWithContext(message, imageUrl, conversation, options),
+                    stream);
+        } else {
+            int[] context = !conversation.hasSummary()
+                    ? contextStore.find(chatId, modelName, conversation.getTurns()) : null;
+            if (context != null && exceedsHistoryBudget(context, buildPrompt(message, imageUrl), options)) {
+                contextStore.invalidate(chatId);
+                context = null;
+            }
+            if (context != null) {
+                request = new OllamaRequest(modelName, buildPrompt(message, imageUrl), stream);
+                request.setContext(context);
+            } else {
+                request = new OllamaRequest(modelName, buildPromptWithContext(message, imageUrl, conversation, options),
+                    stream);
+            }
+        }
+        applyOptions(request, options);
+        return request;
+    }
+
+    // context는 턴마다 길어지기만 하고, num_ctx를 넘으면 Ollama가 앞부분(시스템 프롬프트 포함)을 말없이 잘라낸다
+    // 히스토리 토큰 예산을 넘으면 버리고 예산에 맞춰 자른 전체 프롬프트로 다시 시작
+    private boolean exceedsHistoryBudget(int[] context, String prompt, GenerationOptions options) {
+        // context에는 첫 턴의 시스템 프롬프트가 이미 들어 있으므로 새 메시지만 고정분으로 계산
+        int budget = modelRegistry.historyTokenBudget(options.getNumCtx(), options.getNumPredict(),
+                tokenCounter.count(prompt));
+        return context.length > budget;
+    }
+
+    // 전역 기본값 <- 채팅/요청별 옵션 순으로 적용하고, num_ctx가 없으면 모델의 실제 컨텍스트 길이를 명시해
+    // Ollama 기본값(2048~4096)으로 잘리지 않게 한다
+    private GenerationOptions resolveOptions(GenerationOptions override) {
+        GenerationOptions resolved = defaultOptions.overriddenBy(override);
+        return resolved.withNumCtx(modelRegistry.resolveNumCtx(modelName, resolved));
+    }
 
-        try {
-            OllamaResponse response = webClient.post()
-                    .uri("/api/generate")
-                    .bodyValue(request)
-                    .retrieve()
-                    .bodyToMono(OllamaResponse.class)
-                    .timeout(Duration.ofSeconds(timeoutSeconds))
-                    .block();
+    private void applyOptions(OllamaRequest request, GenerationOptions options) {
+        request.setOptions(toOllamaOptions(options));
+        request.setKeepAlive(options.getKeepAliveValue());
+    }
+
+    private static OllamaOptions toOllamaOptions(GenerationOptions options) {
+        OllamaOptions ollamaOptions = new OllamaOptions();
+        ollamaOptions.setNumCtx(options.getNumCtx());
+        ollamaOptions.setNumPredict(options.getNumPredict());
+        ollamaOptions.setTemperature(options.getTemperature());
+        return ollamaOptions;
+    }
 
-            if (response == null || response.getResponse() == null) {
-                throw new RuntimeException("AI 서비스로부터 응답을 받지 못했습니다");
+    private void rememberContext(Long chatId, String message, String generated, OllamaResponse response) {
+        // 대화 초기화 턴의 context는 이후 대화의 기준으로 쓰지 않는다
+        if (!isContextResetRequest(message)) {
+            contextStore.save(chatId, modelName, message, generated, response.getContext());
+        }
+    }
+
+    private void notifyUsage(Consumer<GenerationUsage> usageListener, OllamaResponse response) {
+        if (usageListener != null) {
+            usageListener.accept(new GenerationUsage(
+                    response.getModel() != null ? response.getModel() : modelName,
+                    response.getPromptEvalCount(), response.getPromptEvalDuration(),
+                    response.getEvalCount(), response.getEvalDuration(),
+                    response.getLoadDuration(), response.getTotalDuration()));
+        }
+    }
+
+    // 사용자 요청 레인에서 회로 차단기를 거쳐 호출하고, 첫 응답 전의 일시적 서버 장애는 지수 백오프(+지터)로 재시도
+    // 첫 토큰을 받은 뒤에는 재시도하지 않는다 (이미 전달된 응답이 중복되므로)
+    private Flux<OllamaResponse> resilient(Long chatId,
+                                           Function<OllamaBackend, ? extends Publisher<OllamaResponse>> call) {
+        return bulkhead.execute(OllamaBulkhead.Lane.INTERACTIVE, () -> {
+            AtomicBoolean emitted = new AtomicBoolean(false);
+            return circuitBreaker.execute(() -> backendPool.execute(chatId, call), this::isBackendFailure)
+                    .doOnNext(response -> emitted.set(true))
+                    .retryWhen(Retry.backoff(maxRetries, retryMinBackoff)
+                            .maxBackoff(retryMaxBackoff)
+                            .jitter(retryJitter)
+                            .filter(e -> !emitted.get() && isRetryable(e))
+                            .doBeforeRetry(signal -> logger.warn("🔁 Retrying Ollama call: chatId={}, attempt={}, error={}",
+                                    chatId, signal.totalRetries() + 1, signal.failure().getMessage()))
+                            .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+        });
+    }
+
+    // 요청이 처리되기 전에 끊긴 경우만 재시도 (연결 실패/리셋, 게이트웨이 오류, Ollama 과부하 503)
+    // 타임아웃은 같은 시간을 다시 기다리게 되므로 재시도하지 않는다 (WebClientRequestException으로 감싼 읽기 타임아웃 포함)
+    private boolean isRetryable(Throwable e) {
+        if (isTimeout(e)) {
+            return false;
+        }
+        if (e instanceof WebClientRequestException) {
+            return !isConnectionPoolSaturated(e);
+        }
+        if (e instanceof WebClientResponseException responseException) {
+            HttpStatus status = HttpStatus.resolve(responseException.getStatusCode().value());
+            return status == HttpStatus.BAD_GATEWAY
+                    || status == HttpStatus.SERVICE_UNAVAILABLE
+                    || status == HttpStatus.GATEWAY_TIMEOUT;
+        }
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof PrematureCloseException) {
+                return true;
             }
+        }
+        return false;
+    }
+
+    // 회로 차단기 실패 집계 대상: 재시도 대상 장애 + 타임아웃
+    // (사용 가능한 서버 없음은 이미 집계된 노드 장애의 결과이므로 다시 세지 않는다)
+    private boolean isBackendFailure(Throwable e) {
+        if (isConnectionPoolSaturated(e)) {
+            return false; // 우리 쪽 커넥션 풀 포화는 Ollama 장애가 아니다
+        }
+        return isRetryable(e) || isOverloadSignal(e);
+    }
+
+    // 적응형 동시성 한도에 지연/처리량 샘플과 과부하 신호를 전달
+    private Flux<OllamaResponse> measured(Flux<OllamaResponse> responses) {
+        return Flux.defer(() -> {
+            int inFlightAtStart = concurrencyLimiter.onRequestStart(modelName);
+            return responses
+                    .doOnNext(response -> {
+                        if (response.isDone()) {
+                            recordSample(response, inFlightAtStart);
+                            residencyManager.onGenerationCompleted(response.getModel(), response.getLoadDuration());
+                            timeoutPolicy.onCompleted(modelName, response.getPromptEvalCount(),
+                                    response.getPromptEvalDuration(), response.getEvalCount(), response.getEvalDuration());
+                        }
+                    })
+                    .doOnError(e -> {
+                        if (isOverloadSignal(e)) {
+                            concurrencyLimiter.onDrop(modelName);
+                        }
+                    })
+                    .doFinally(signal -> concurrencyLimiter.onRequestEnd(modelName));
+        });
+    }
 
-            return response.getResponse();
-        } catch (Exception e) {
-            throw new RuntimeException("AI 서비스 연결 실패: " + e.getMessage(), e);
+    private void recordSample(OllamaResponse response, int inFlightAtStart) {
+        long promptEvalCount = orZero(response.getPromptEvalCount());
+        long promptEvalDuration = orZero(response.getPromptEvalDuration());
+        long evalCount = orZero(response.getEvalCount());
+        long evalDuration = orZero(response.getEvalDuration());
+
+        // 전체 처리 시간 중 모델 로드/평가에 쓰이지 않은 시간 = Ollama 내부 대기 시간
+        long queueWait = 0;
+        if (response.getTotalDuration() != null) {
+            queueWait = response.getTotalDuration() - orZero(response.getLoadDuration()) - promptEvalDuration - evalDuration;
         }
+
+        concurrencyLimiter.onSample(modelName, promptEvalCount, promptEvalDuration, evalCount, evalDuration,
+                queueWait, inFlightAtStart);
+    }
+
+    private boolean isOverloadSignal(Throwable e) {
+        return isConnectionPoolSaturated(e) || isTimeout(e);
+    }
+
+    private static boolean isTimeout(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TimeoutException || cause instanceof ReadTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long orZero(Number value) {
+        return value != null ? value.longValue() : 0L;
+    }
+
+    private Throwable mapOllamaError(Throwable e) {
+        if (e instanceof AiServiceBusyException) {
+            return e; // 회로 차단/격벽 거절은 그대로 전달
+        }
+        if (isConnectionPoolSaturated(e)) {
+            return new AiServiceBusyException("AI 서비스 요청이 많아 처리할 수 없습니다. 잠시 후 다시 시도해주세요", e);
+        }
+        return new RuntimeException("AI 서비스 연결 실패: " + e.getMessage(), e);
+    }
+
+    private boolean isConnectionPoolSaturated(Throwable e) {
+        return OllamaBackendPool.isConnectionPoolSaturated(e);
+    }
+
+    private static boolean isChatApiMode(String apiMode) {
+        if ("chat".equalsIgnoreCase(apiMode)) {
+            return true;
+        }
+        if ("generate".equalsIgnoreCase(apiMode)) {
+            return false;
+        }
+        throw new IllegalArgumentException("지원하지 않는 Ollama API 모드입니다: " + apiMode);
     }
 
     private void validateInput(String message) {
@@ -94,7 +568,8 @@ public class OllamaServiceImpl implements OllamaService {
         return message;
     }
 
-    private String buildPromptWithContext(String message, String imageUrl, List<Message> recentMessages) {
+    private String buildPromptWithContext(String message, String imageUrl, ConversationContext conversation,
+                                          GenerationOptions options) {
         StringBuilder contextBuilder = new StringBuilder();
 
         // 대화 초기화 키워드 감지
@@ -107,51 +582,24 @@ public class OllamaServiceImpl implements OllamaService {
         }
 
         // 범용 고효율 프롬프트 시스템
-        contextBuilder.append("=== Gemma 3n AI 어시스턴트 지침 ===\n");
-        contextBuilder.append("모델: Google Gemma 3n (효율적 온디바이스 멀티모달 모델)\n");
-        contextBuilder.append("역할: 친근하고 도움이 되는 한국어 전문 AI 어시스턴트\n\n");
-
-        contextBuilder.append("핵심 원칙:\n");
-        contextBuilder.append("• 정확하고 실용적인 정보를 간결하게 제공\n");
-        contextBuilder.append("• 친근하고 자연스러운 한국어 대화 스타일 유지\n");
-        contextBuilder.append("• 이전 대화 맥락을 적극 활용한 일관된 답변\n");
-        contextBuilder.append("• 불확실한 정보는 명확히 구분하여 표시\n");
-        contextBuilder.append("• 복잡한 내용은 단계별로 체계적으로 설명\n");
-        contextBuilder.append("• 텍스트와 이미지를 함께 고려한 멀티모달 이해\n\n");
-
-        contextBuilder.append("응답 가이드라인:\n");
-        contextBuilder.append("• 사용자 의도를 정확히 파악하고 개인화된 답변 제공\n");
-        contextBuilder.append("• 한국 문화와 언어 특성을 고려한 적절한 표현 사용\n");
-        contextBuilder.append("• 필요시 구체적 예시나 친숙한 비유 활용\n");
-        contextBuilder.append("• 추가 궁금증을 예상하고 관련 정보나 도움 제안\n");
-        contextBuilder.append("• 같은 질문에는 항상 일관된 정보 제공\n");
-        contextBuilder.append("• 온디바이스 환경의 장점(개인정보 보호, 빠른 응답)을 활용\n\n");
-
-        // 스마트 컨텍스트 관리: 80% 토큰 사용량 (약 25,600 토큰)
-        if (recentMessages != null && !recentMessages.isEmpty()) {
-            contextBuilder.append("이전 대화 내용:\n");
+        contextBuilder.append(SYSTEM_PROMPT);
 
+        // 스마트 컨텍스트 관리: 모델 num_ctx에서 출력 예약분과 고정 프롬프트(+저장된 요약)를 뺀 만큼 사용
+        // 메시지는 잘라내지 않고 통째로 넣는다 (오래된 턴은 요약 작업이 압축)
+        if (conversation.hasSummary()) {
+            contextBuilder.append(SUMMARY_HEADER).append(conversation.getSummary()).append("\n\n");
+        }
+        List<Message> turns = conversation.getTurns();
+        if (!turns.isEmpty()) {
             // 토큰 기반 동적 메시지 수 조절
-            int maxMessages = calculateOptimalMessageCount(recentMessages);
-            maxMessages = Math.min(recentMessages.size(), maxMessages);
-
-            for (int i = recentMessages.size() - maxMessages; i < recentMessages.size(); i++) {
-                Message msg = recentMessages.get(i);
-                String roleLabel = msg.getRole() == Message.Role.USER ? "사용자" : "AI";
-
-                // 긴 메시지는 요약
-                String content = msg.getContent();
-                if (content.length() > 200) {
-                    content = content.substring(0, 197) + "...";
-                }
-
-                contextBuilder.append(String.format("%s: %s\n", roleLabel, content));
+            int maxMessages = calculateOptimalMessageCount(turns, message, options, summaryTokens(conversation));
+            maxMessages = Math.min(turns.size(), maxMessages);
 
-                if (msg.hasImage()) {
-                    contextBuilder.append(String.format("  (이미지: %s)\n", msg.getImageUrl()));
-                }
+            if (maxMessages > 0) {
+                contextBuilder.append("이전 대화 내용:\n");
+                appendTranscript(contextBuilder, turns.subList(turns.size() - maxMessages, turns.size()));
+                contextBuilder.append("\n");
             }
-            contextBuilder.append("\n");
         }
 
         // 현재 메시지 추가
@@ -166,11 +614,54 @@ public class OllamaServiceImpl implements OllamaService {
         return contextBuilder.toString();
     }
 
-    private int calculateOptimalMessageCount(List<Message> messages) {
-        // 스마트 토큰 관리: 3단계 전략
+    // 요약 작업용 프롬프트: 기존 요약에 이어서 새 턴을 합친 하나의 요약을 만든다
+    private String buildSummaryPrompt(String previousSummary, List<Message> messages) {
+        StringBuilder prompt = new StringBuilder();
+        prompt.append("다음 대화를 이후 대화에서 참고할 수 있도록 요약하세요.\n")
+                .append("• 사용자가 알려준 사실, 요청, 선호, 결정된 내용, 아직 해결되지 않은 질문을 빠짐없이 포함\n")
+                .append("• 인사말과 반복된 설명은 생략하고 한국어로 간결하게 작성\n")
+                .append("• 요약 내용만 출력\n\n");
+        if (previousSummary != null && !previousSummary.isBlank()) {
+            prompt.append("기존 요약:\n").append(previousSummary).append("\n\n");
+        }
+        prompt.append("대화:\n");
+        appendTranscript(prompt, messages);
+        return prompt.toString();
+    }
+
+    private static void appendTranscript(StringBuilder builder, List<Message> messages) {
+        for (Message msg : messages) {
+            String roleLabel = msg.getRole() == Message.Role.USER ? "사용자" : "AI";
+            builder.append(String.format("%s: %s\n", roleLabel, msg.getContent()));
+
+            if (msg.hasImage()) {
+                builder.append(String.format("  (이미지: %s)\n", msg.getImageUrl()));
+            }
+        }
+    }
+
+    // 저장된 요약의 토큰 수 (요약이 없으면 0, 기록된 값이 없으면 계산)
+    private int summaryTokens(ConversationContext conversation) {
+        if (!conversation.hasSummary()) {
+            return 0;
+        }
+        Integer stored = conversation.getSummaryTokenCount();
+        return stored != null ? stored : tokenCounter.count(conversation.getSummary());
+    }
+
+    // 요청 num_ctx 기준 토큰 예산 (num_predict가 있으면 그만큼을 출력용으로 남기고, 요약은 먼저 확보)
+    private int historyTokenBudget(String currentMessage, GenerationOptions resolved, int summaryTokens) {
+        int reservedTokens = systemPromptTokens + tokenCounter.count(currentMessage)
+                + summaryTokens;
+        return modelRegistry.historyTokenBudget(resolved.getNumCtx(), resolved.getNumPredict(), reservedTokens);
+    }
+
+    private int calculateOptimalMessageCount(List<Message> messages, String currentMessage,
+                                             GenerationOptions options, int summaryTokens) {
+        // 스마트 토큰 관리: 2단계 전략
 
-        // 1. 기본 토큰 예산 (80% 사용)
-        int targetTokens = 25600; // 32,000 × 0.8
+        // 1. 토큰 예산
+        int targetTokens = historyTokenBudget(currentMessage, options, summaryTokens);
 
         // 2. 메시지별 예상 토큰 계산
         int estimatedTokens = 0;
@@ -178,7 +669,7 @@ public class OllamaServiceImpl implements OllamaService {
 
         for (int i = messages.size() - 1; i >= 0 && estimatedTokens < targetTokens; i--) {
             Message msg = messages.get(i);
-            int msgTokens = estimateTokenCount(msg.getContent());
+            int msgTokens = tokenCounter.count(msg); // 저장 시 기록한 토큰 수 (없으면 계산)
 
             // 토큰 예산 초과 시 중단
             if (estimatedTokens + msgTokens > targetTokens) {
@@ -187,33 +678,11 @@ public class OllamaServiceImpl implements OllamaService {
 
             estimatedTokens += msgTokens;
             messageCount++;
-
-            // 최대 70개 제한 (안전 마진)
-            if (messageCount >= 70) {
-                break;
-            }
         }
 
         return messageCount;
     }
 
-    private int estimateTokenCount(String content) {
-        // 한국어 토큰 추정 알고리즘
-        if (content == null || content.isEmpty()) {
-            return 0;
-        }
-
-        // 기본 계산: 글자수 × 2.5 (한국어 평균)
-        int baseTokens = (int) (content.length() * 2.5);
-
-        // 특수문자, 숫자, 영어 고려한 보정
-        long koreanChars = content.chars().filter(ch -> ch >= 0xAC00 && ch <= 0xD7AF).count();
-        long otherChars = content.length() - koreanChars;
-
-        // 한글: 2.5토큰/글자, 기타: 1.2토큰/글자
-        return (int) (koreanChars * 2.5 + otherChars * 1.2);
-    }
-
     private boolean isContextResetRequest(String message) {
         if (message == null) return false;
 
@@ -239,10 +708,15 @@ public class OllamaServiceImpl implements OllamaService {
     }
 
     // Request/Response DTOs
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     static class OllamaRequest {
         private String model;
         private String prompt;
         private boolean stream = false;
+        private int[] context; // 이전 턴까지의 대화를 인코딩한 토큰 배열
+        private OllamaOptions options;
+        @JsonProperty("keep_alive")
+        private Object keepAlive; // 문자열 duration 또는 초 단위 숫자
 
         public OllamaRequest() {}
 
@@ -251,6 +725,12 @@ public class OllamaServiceImpl implements OllamaService {
             this.prompt = prompt;
         }
 
+        public OllamaRequest(String model, String prompt, boolean stream) {
+            this.model = model;
+            this.prompt = prompt;
+            this.stream = stream;
+        }
+
         public String getModel() { return model; }
         public void setModel(String model) { this.model = model; }
 
@@ -259,11 +739,92 @@ public class OllamaServiceImpl implements OllamaService {
 
         public boolean isStream() { return stream; }
         public void setStream(boolean stream) { this.stream = stream; }
+
+        public int[] getContext() { return context; }
+        public void setContext(int[] context) { this.context = context; }
+
+        public OllamaOptions getOptions() { return options; }
+        public void setOptions(OllamaOptions options) { this.options = options; }
+
+        public Object getKeepAlive() { return keepAlive; }
+        public void setKeepAlive(Object keepAlive) { this.keepAlive = keepAlive; }
     }
 
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    static class OllamaChatRequest {
+        private String model;
+        private List<OllamaChatMessage> messages;
+        private boolean stream = false;
+        private OllamaOptions options;
+        @JsonProperty("keep_alive")
+        private Object keepAlive; // 문자열 duration 또는 초 단위 숫자
+
+        public OllamaChatRequest() {}
+
+        public OllamaChatRequest(String model, List<OllamaChatMessage> messages, boolean stream) {
+            this.model = model;
+            this.messages = messages;
+            this.stream = stream;
+        }
+
+        public String getModel() { return model; }
+        public void setModel(String model) { this.model = model; }
+
+        public List<OllamaChatMessage> getMessages() { return messages; }
+        public void setMessages(List<OllamaChatMessage> messages) { this.messages = messages; }
+
+        public boolean isStream() { return stream; }
+        public void setStream(boolean stream) { this.stream = stream; }
+
+        public OllamaOptions getOptions() { return options; }
+        public void setOptions(OllamaOptions options) { this.options = options; }
+
+        public Object getKeepAlive() { return keepAlive; }
+        public void setKeepAlive(Object keepAlive) { this.keepAlive = keepAlive; }
+    }
+
+    // 요청별 모델 옵션 (지정하지 않은 값은 Modelfile/Ollama 기본값 사용)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    static class OllamaOptions {
+        @JsonProperty("num_ctx")
+        private Integer numCtx;
+        @JsonProperty("num_predict")
+        private Integer numPredict;
+        private Double temperature;
+
+        public Integer getNumCtx() { return numCtx; }
+        public void setNumCtx(Integer numCtx) { this.numCtx = numCtx; }
+
+        public Integer getNumPredict() { return numPredict; }
+        public void setNumPredict(Integer numPredict) { this.numPredict = numPredict; }
+
+        public Double getTemperature() { return temperature; }
+        public void setTemperature(Double temperature) { this.temperature = temperature; }
+    }
+
+    static class OllamaChatMessage {
+        private String role;
+        private String content;
+
+        public OllamaChatMessage() {}
+
+        public OllamaChatMessage(String role, String content) {
+            this.role = role;
+            this.content = content;
+        }
+
+        public String getRole() { return role; }
+        public void setRole(String role) { this.role = role; }
+
+        public String getContent() { return content; }
+        public void setContent(String content) { this.content = content; }
+    }
+
+    // /api/generate와 /api/chat 응답 공용 (generate는 response, chat은 message.content에 텍스트가 담긴다)
     static class OllamaResponse {
         private String model;
         private String response;
+        private OllamaChatMessage message;
 
         @JsonProperty("created_at")
         private String createdAt;
@@ -276,12 +837,40 @@ public class OllamaServiceImpl implements OllamaService {
         @JsonProperty("eval_duration")
         private Long evalDuration;
 
+        @JsonProperty("prompt_eval_count")
+        private Integer promptEvalCount;
+
+        @JsonProperty("prompt_eval_duration")
+        private Long promptEvalDuration;
+
+        @JsonProperty("load_duration")
+        private Long loadDuration;
+
+        @JsonProperty("total_duration")
+        private Long totalDuration;
+
+        private int[] context;
+
+        // 생성 종료 이유 ("stop" = 자연스럽게 끝남, "length" = num_predict 상한에 걸림)
+        @JsonProperty("done_reason")
+        private String doneReason;
+
         public String getModel() { return model; }
         public void setModel(String model) { this.model = model; }
 
         public String getResponse() { return response; }
         public void setResponse(String response) { this.response = response; }
 
+        public OllamaChatMessage getMessage() { return message; }
+        public void setMessage(OllamaChatMessage message) { this.message = message; }
+
+        public String getText() {
+            if (response != null) {
+                return response;
+            }
+            return message != null ? message.getContent() : null;
+        }
+
         public String getCreatedAt() { return createdAt; }
         public void setCreatedAt(String createdAt) { this.createdAt = createdAt; }
 
@@ -293,53 +882,23 @@ public class OllamaServiceImpl implements OllamaService {
 
         public Long getEvalDuration() { return evalDuration; }
         public void setEvalDuration(Long evalDuration) { this.evalDuration = evalDuration; }
-    }
 
-    // WebSocket 스트리밍용 메소드
-    public void sendMessageStream(String message, String imageUrl, Consumer<String> chunkConsumer) {
-        try {
-            String fullResponse = sendMessage(message, imageUrl);
-
-            // 응답을 단어별로 나누어 스트리밍 시뮬레이션
-            String[] words = fullResponse.split("\\s+");
-            for (int i = 0; i < words.length; i++) {
-                String word = words[i];
-                // 마지막 단어가 아닌 경우에만 공백 추가
-                String chunk = (i == words.length - 1) ? word : word + " ";
-                chunkConsumer.accept(chunk);
-                try {
-                    Thread.sleep(50); // 50ms 간격으로 단어별 전송
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
-                }
-            }
-        } catch (Exception e) {
-            chunkConsumer.accept("오류가 발생했습니다: " + e.getMessage());
-        }
-    }
-
-    // 컨텍스트를 포함한 WebSocket 스트리밍용 메소드
-    public void sendMessageStreamWithContext(String message, String imageUrl, List<Message> recentMessages, Consumer<String> chunkConsumer) {
-        try {
-            String fullResponse = sendMessageWithContext(message, imageUrl, recentMessages);
-
-            // 응답을 단어별로 나누어 스트리밍 시뮬레이션
-            String[] words = fullResponse.split("\\s+");
-            for (int i = 0; i < words.length; i++) {
-                String word = words[i];
-                // 마지막 단어가 아닌 경우에만 공백 추가
-                String chunk = (i == words.length - 1) ? word : word + " ";
-                chunkConsumer.accept(chunk);
-                try {
-                    Thread.sleep(50); // 50ms 간격으로 단어별 전송
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
-                }
-            }
-        } catch (Exception e) {
-            chunkConsumer.accept("오류가 발생했습니다: " + e.getMessage());
-        }
+        public Integer getPromptEvalCount() { return promptEvalCount; }
+        public void setPromptEvalCount(Integer promptEvalCount) { this.promptEvalCount = promptEvalCount; }
+
+        public Long getPromptEvalDuration() { return promptEvalDuration; }
+        public void setPromptEvalDuration(Long promptEvalDuration) { this.promptEvalDuration = promptEvalDuration; }
+
+        public Long getLoadDuration() { return loadDuration; }
+        public void setLoadDuration(Long loadDuration) { this.loadDuration = loadDuration; }
+
+        public Long getTotalDuration() { return totalDuration; }
+        public void setTotalDuration(Long totalDuration) { this.totalDuration = totalDuration; }
+
+        public int[] getContext() { return context; }
+        public void setContext(int[] context) { this.context = context; }
+
+        public String getDoneReason() { return doneReason; }
+        public void setDoneReason(String doneReason) { this.doneReason = doneReason; }
     }
 }
\ No newline at end of file
@@ -0,0 +1,29 @@
+package com.chatgemma.service;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+// readiness 그룹에 포함되는 모델 워밍업 상태 (management.endpoint.health.group.readiness)
+@Component
+public class OllamaWarmupHealthIndicator implements HealthIndicator {
+
+    private final ModelWarmupService warmupService;
+
+    public OllamaWarmupHealthIndicator(ModelWarmupService warmupService) {
+        this.warmupService = warmupService;
+    }
+
+    @Override
+    public Health health() {
+        if (!warmupService.isEnabled()) {
+            return Health.up().withDetail("warmup", "disabled").build();
+        }
+
+        Health.Builder builder = warmupService.isReady() ? Health.up() : Health.outOfService();
+        return builder
+                .withDetail("warmed", warmupService.getWarmedBackends())
+                .withDetail("pending", warmupService.getPendingBackends())
+                .build();
+    }
+}
\ No newline at end of file
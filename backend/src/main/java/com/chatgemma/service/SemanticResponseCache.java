@@ -0,0 +1,306 @@
+package com.chatgemma.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+// 의미 기반 응답 캐시: 이미 답한 질문을 다르게 표현한 질문(패러프레이즈)에 저장된 답을 돌려준다
+// - 질문을 임베딩해 HNSW 인덱스에서 가장 비슷한 과거 질문을 찾고, 유사도가 임계치 이상이면 그 답을 사용
+// - 같은 생성 모델/옵션/요청 종류(scope)끼리만 비교, 이미지가 있는 질문은 대상이 아니다
+// - 메모리 상한: max-entries × (임베딩 차원 × 4바이트 + 그래프 이웃 + 답변), 가득 차면 가장 오래 쓰이지 않은 항목부터 제거
+// - 임베딩 실패/지연 시에는 캐시 없이 그대로 생성 (캐시 때문에 요청이 실패하지 않는다)
+@Component
+public class SemanticResponseCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(SemanticResponseCache.class);
+
+    private static final int CANDIDATES = 8; // 다른 scope 항목이 섞여 있을 수 있어 여러 후보를 본다
+
+    private final Embedder embedder;
+    private final boolean enabled;
+    private final double similarityThreshold;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final int maxNeighbors;
+    private final int efConstruction;
+    private final int efSearch;
+    private final LongSupplier nanoClock;
+
+    // 모든 상태 변경은 this 모니터로 보호
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private HnswIndex index;
+    private long nextId = 0;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter errors;
+    private final Counter evictions;
+    private final DistributionSummary similarity;
+
+    @Autowired
+    public SemanticResponseCache(Embedder embedder,
+                                 OllamaModelRegistry modelRegistry,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${chatgemma.ollama.semantic-cache.enabled:false}") boolean enabled,
+                                 @Value("${chatgemma.ollama.semantic-cache.similarity-threshold:0.92}") double similarityThreshold,
+                                 @Value("${chatgemma.ollama.semantic-cache.max-entries:10000}") int maxEntries,
+                                 @Value("${chatgemma.ollama.semantic-cache.ttl:24h}") Duration ttl,
+                                 @Value("${chatgemma.ollama.semantic-cache.hnsw.m:16}") int maxNeighbors,
+                                 @Value("${chatgemma.ollama.semantic-cache.hnsw.ef-construction:100}") int efConstruction,
+                                 @Value("${chatgemma.ollama.semantic-cache.hnsw.ef-search:64}") int efSearch) {
+        this(embedder, modelRegistry, meterRegistry, enabled, similarityThreshold, maxEntries, ttl,
+                maxNeighbors, efConstruction, efSearch, System::nanoTime);
+    }
+
+    SemanticResponseCache(Embedder embedder, OllamaModelRegistry modelRegistry, MeterRegistry meterRegistry,
+                          boolean enabled, double similarityThreshold, int maxEntries, Duration ttl,
+                          int maxNeighbors, int efConstruction, int efSearch, LongSupplier nanoClock) {
+        if (similarityThreshold <= 0 || similarityThreshold > 1 || maxEntries < 1) {
+            throw new IllegalArgumentException("유사도 임계치는 0보다 크고 1 이하, 최대 항목 수는 1 이상이어야 합니다");
+        }
+        this.embedder = embedder;
+        this.enabled = enabled;
+        this.similarityThreshold = similarityThreshold;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.maxNeighbors = maxNeighbors;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+        this.nanoClock = nanoClock;
+        this.index = newIndex();
+        if (enabled && !embedder.hasDedicatedBackend()) {
+            logger.warn("의미 기반 캐시가 생성 서버에서 임베딩합니다. 생성 서버의 OLLAMA_MAX_LOADED_MODELS가 1이면 "
+                    + "임베딩할 때마다 생성 모델이 내려갑니다 (embedding-base-url 지정 권장)");
+        }
+
+        this.hits = requests(meterRegistry, "hit");
+        this.misses = requests(meterRegistry, "miss");
+        this.errors = requests(meterRegistry, "error");
+        this.evictions = Counter.builder("chatgemma.ollama.semantic.cache.evictions")
+                .description("Semantic cache entries evicted by size or TTL")
+                .register(meterRegistry);
+        this.similarity = DistributionSummary.builder("chatgemma.ollama.semantic.cache.similarity")
+                .description("Cosine similarity of the closest cached question per lookup")
+                .publishPercentiles(0.5, 0.9)
+                .register(meterRegistry);
+        Gauge.builder("chatgemma.ollama.semantic.cache.entries", this, SemanticResponseCache::size)
+                .description("Questions held by the semantic response cache")
+                .register(meterRegistry);
+
+        modelRegistry.addModelChangeListener(this::invalidateModel);
+    }
+
+    // 비슷한 질문의 답이 있으면 그 답, 없으면 generation 결과를 반환하고 저장
+    // kind: 요청 종류 (같은 질문이라도 시스템 프롬프트 유무 등으로 답이 달라지는 경로를 구분)
+    public Mono<String> get(String model, GenerationOptions options, String kind, String prompt, String imageUrl,
+                            Supplier<Mono<String>> generation) {
+        if (!enabled || hasImage(imageUrl)) {
+            return Mono.defer(generation);
+        }
+        String scope = scope(model, options, kind);
+        return lookup(scope, prompt).flatMap(lookup -> {
+            if (lookup.answer != null) {
+                return Mono.just(lookup.answer);
+            }
+            return Mono.defer(generation)
+                    .doOnNext(answer -> lookup.vector.ifPresent(vector -> put(scope, model, vector, answer)));
+        });
+    }
+
+    // 스트리밍 버전: 적중하면 저장된 답을 한 청크로, 아니면 생성 청크를 그대로 흘려보내고 완료 시 저장
+    public Flux<String> stream(String model, GenerationOptions options, String kind, String prompt, String imageUrl,
+                               Supplier<Flux<String>> generation) {
+        if (!enabled || hasImage(imageUrl)) {
+            return Flux.defer(generation);
+        }
+        String scope = scope(model, options, kind);
+        return lookup(scope, prompt).flatMapMany(lookup -> {
+            if (lookup.answer != null) {
+                return Flux.just(lookup.answer);
+            }
+            StringBuilder answer = new StringBuilder();
+            return Flux.defer(generation)
+                    .doOnNext(answer::append)
+                    .doOnComplete(() -> lookup.vector.ifPresent(vector -> put(scope, model, vector, answer.toString())));
+        });
+    }
+
+    public synchronized void invalidateModel(String model) {
+        int before = entries.size();
+        entries.values().removeIf(entry -> entry.model.equals(model));
+        if (entries.size() != before) {
+            rebuild();
+            logger.info("🧹 Semantic cache invalidated: model={}, removed={}", model, before - entries.size());
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private Mono<Lookup> lookup(String scope, String prompt) {
+        String text = GenerationCoalescer.normalize(prompt);
+        return embedder.embed(text)
+                .map(vector -> find(scope, vector))
+                .switchIfEmpty(Mono.fromSupplier(() -> new Lookup(Optional.empty(), null)))
+                .onErrorResume(e -> {
+                    errors.increment();
+                    logger.warn("⚠️ Semantic cache lookup skipped: {}", e.getMessage());
+                    return Mono.just(new Lookup(Optional.empty(), null));
+                });
+    }
+
+    private synchronized Lookup find(String scope, float[] vector) {
+        long now = nanoClock.getAsLong();
+        Entry best = null;
+        double bestSimilarity = -1;
+        for (HnswIndex.Match match : index.search(vector, CANDIDATES, efSearch)) {
+            Entry entry = entries.get(match.getId());
+            if (entry == null || !entry.scope.equals(scope)) {
+                continue;
+            }
+            if (now - entry.createdAt > ttlNanos) {
+                remove(entry.id);
+                evictions.increment();
+                continue;
+            }
+            if (match.getSimilarity() > bestSimilarity) {
+                best = entry;
+                bestSimilarity = match.getSimilarity();
+            }
+        }
+
+        if (best != null) {
+            similarity.record(bestSimilarity);
+        }
+        if (best != null && bestSimilarity >= similarityThreshold) {
+            best.lastAccess = now;
+            hits.increment();
+            logger.info("🎯 Semantic cache hit: similarity={}", String.format("%.3f", bestSimilarity));
+            return new Lookup(Optional.of(vector), best.answer);
+        }
+        misses.increment();
+        return new Lookup(Optional.of(vector), null);
+    }
+
+    private synchronized void put(String scope, String model, float[] vector, String answer) {
+        if (answer == null || answer.isBlank()) {
+            return;
+        }
+        while (entries.size() >= maxEntries) {
+            evictLeastRecentlyUsed();
+        }
+
+        long id = nextId++;
+        try {
+            index.add(id, vector);
+        } catch (IllegalArgumentException e) {
+            logger.warn("⚠️ Semantic cache entry skipped: {}", e.getMessage());
+            return;
+        }
+        long now = nanoClock.getAsLong();
+        entries.put(id, new Entry(id, scope, model, answer, now));
+
+        // 삭제 표시만 된 노드가 많아지면 검색이 느려지므로 살아있는 항목으로 다시 만든다
+        if (index.getDeletedCount() > Math.max(16, maxEntries / 2)) {
+            rebuild();
+        }
+    }
+
+    private void evictLeastRecentlyUsed() {
+        Entry oldest = null;
+        for (Entry entry : entries.values()) {
+            if (oldest == null || entry.lastAccess < oldest.lastAccess) {
+                oldest = entry;
+            }
+        }
+        if (oldest != null) {
+            remove(oldest.id);
+            evictions.increment();
+        }
+    }
+
+    private void remove(long id) {
+        entries.remove(id);
+        index.remove(id);
+    }
+
+    private void rebuild() {
+        HnswIndex rebuilt = newIndex();
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+            Entry entry = it.next();
+            float[] vector = index.getVector(entry.id);
+            if (vector == null) {
+                it.remove();
+                continue;
+            }
+            rebuilt.add(entry.id, vector);
+        }
+        index = rebuilt;
+    }
+
+    private HnswIndex newIndex() {
+        return new HnswIndex(maxNeighbors, efConstruction, 42L);
+    }
+
+    private String scope(String model, GenerationOptions options, String kind) {
+        String generation = options != null
+                ? options.getNumPredict() + "|" + options.getNumCtx() + "|" + options.getTemperature() : "";
+        return model + "|" + embedder.getModelName() + "|" + kind + "|" + generation;
+    }
+
+    private static boolean hasImage(String imageUrl) {
+        return imageUrl != null && !imageUrl.isBlank();
+    }
+
+    private static Counter requests(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("chatgemma.ollama.semantic.cache.requests")
+                .description("Semantic cache lookups by result")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static final class Entry {
+        private final long id;
+        private final String scope;
+        private final String model;
+        private final String answer;
+        private final long createdAt;
+        private long lastAccess;
+
+        private Entry(long id, String scope, String model, String answer, long createdAt) {
+            this.id = id;
+            this.scope = scope;
+            this.model = model;
+            this.answer = answer;
+            this.createdAt = createdAt;
+            this.lastAccess = createdAt;
+        }
+    }
+
+    private static final class Lookup {
+        private final Optional<float[]> vector;
+        private final String answer;
+
+        private Lookup(Optional<float[]> vector, String answer) {
+            this.vector = vector;
+            this.answer = answer;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,437 @@
+package com.chatgemma.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+// SentencePiece BPE 토크나이저 (Gemma tokenizer.model 호환)
+// - tokenizer.model(ModelProto protobuf)에서 piece/점수/종류와 공백 정규화 설정만 읽는다 (protobuf 라이브러리 없이 직접 파싱)
+// - 인코딩: 공백을 ▁로 바꾸고 사용자 정의 piece(<start_of_turn> 등)는 통째로 매칭한 뒤,
+//   나머지는 문자 단위에서 시작해 어휘에 있는 인접 쌍 중 점수가 가장 높은 것부터 병합
+//   병합 후에도 어휘에 없는 문자는 UTF-8 바이트 piece(<0xXX>), 바이트 piece가 없으면 <unk>
+// - 문자 정규화(precompiled charsmap, NFKC)는 지원하지 않는다 (Gemma는 사용하지 않음)
+// - 생성 후에는 바뀌지 않으므로 스레드 안전
+public final class SentencePieceTokenizer {
+
+    static final char SPACE_SYMBOL = '▁';
+
+    // sentencepiece_model.proto의 SentencePiece.Type 순서 (1부터)
+    public enum PieceType {
+        NORMAL, UNKNOWN, CONTROL, USER_DEFINED, UNUSED, BYTE
+    }
+
+    private final Map<String, Integer> pieceIds = new HashMap<>();    // 병합/최종 매칭 대상 (NORMAL, USER_DEFINED)
+    private final Map<Integer, List<String>> userDefinedByFirstChar = new HashMap<>(); // 긴 것부터
+    private final float[] scores;
+    private final int[] byteIds = new int[256];
+    private final int unknownId;
+    private final boolean byteFallback;
+    private final int vocabularySize;
+    private final boolean addDummyPrefix;
+    private final boolean removeExtraWhitespaces;
+    private final boolean escapeWhitespaces;
+
+    SentencePieceTokenizer(List<Piece> pieces, boolean addDummyPrefix, boolean removeExtraWhitespaces,
+                           boolean escapeWhitespaces) {
+        if (pieces.isEmpty()) {
+            throw new IllegalArgumentException("토크나이저 어휘가 비어 있습니다");
+        }
+        this.scores = new float[pieces.size()];
+        this.vocabularySize = pieces.size();
+        this.addDummyPrefix = addDummyPrefix;
+        this.removeExtraWhitespaces = removeExtraWhitespaces;
+        this.escapeWhitespaces = escapeWhitespaces;
+        Arrays.fill(byteIds, -1);
+
+        int unknown = -1;
+        for (int id = 0; id < pieces.size(); id++) {
+            Piece piece = pieces.get(id);
+            scores[id] = piece.score;
+            switch (piece.type) {
+                case NORMAL -> pieceIds.putIfAbsent(piece.text, id);
+                case USER_DEFINED -> {
+                    pieceIds.putIfAbsent(piece.text, id);
+                    userDefinedByFirstChar.computeIfAbsent(piece.text.codePointAt(0), c -> new ArrayList<>())
+                            .add(piece.text);
+                }
+                case UNKNOWN -> unknown = id;
+                case BYTE -> {
+                    int value = parseByte(piece.text);
+                    if (value >= 0) {
+                        byteIds[value] = id;
+                    }
+                }
+                default -> {
+                    // CONTROL(<bos>, <eos> 등)과 UNUSED는 일반 텍스트에서 나오지 않는다
+                }
+            }
+        }
+        if (unknown < 0) {
+            throw new IllegalArgumentException("토크나이저 어휘에 <unk> piece가 없습니다");
+        }
+        this.unknownId = unknown;
+        this.byteFallback = Arrays.stream(byteIds).anyMatch(id -> id >= 0);
+        userDefinedByFirstChar.values().forEach(list -> list.sort(Comparator.comparingInt(String::length).reversed()));
+    }
+
+    public static SentencePieceTokenizer load(Path modelPath) throws IOException {
+        return parse(Files.readAllBytes(modelPath));
+    }
+
+    // ModelProto: 1 = repeated SentencePiece pieces, 3 = NormalizerSpec normalizer_spec
+    static SentencePieceTokenizer parse(byte[] model) {
+        List<Piece> pieces = new ArrayList<>();
+        boolean addDummyPrefix = true;
+        boolean removeExtraWhitespaces = true;
+        boolean escapeWhitespaces = true;
+
+        ProtoReader reader = new ProtoReader(model, 0, model.length);
+        while (reader.hasMore()) {
+            int tag = reader.readTag();
+            int field = tag >>> 3;
+            if (field == 1 && (tag & 7) == ProtoReader.LENGTH_DELIMITED) {
+                pieces.add(parsePiece(reader.readMessage()));
+            } else if (field == 3 && (tag & 7) == ProtoReader.LENGTH_DELIMITED) {
+                // NormalizerSpec: 3 = add_dummy_prefix, 4 = remove_extra_whitespaces, 5 = escape_whitespaces
+                ProtoReader spec = reader.readMessage();
+                while (spec.hasMore()) {
+                    int specTag = spec.readTag();
+                    switch (specTag >>> 3) {
+                        case 3 -> addDummyPrefix = spec.readVarint() != 0;
+                        case 4 -> removeExtraWhitespaces = spec.readVarint() != 0;
+                        case 5 -> escapeWhitespaces = spec.readVarint() != 0;
+                        default -> spec.skip(specTag & 7);
+                    }
+                }
+            } else {
+                reader.skip(tag & 7);
+            }
+        }
+        return new SentencePieceTokenizer(pieces, addDummyPrefix, removeExtraWhitespaces, escapeWhitespaces);
+    }
+
+    // SentencePiece: 1 = piece, 2 = score, 3 = type (기본 NORMAL)
+    private static Piece parsePiece(ProtoReader reader) {
+        String text = "";
+        float score = 0;
+        PieceType type = PieceType.NORMAL;
+        while (reader.hasMore()) {
+            int tag = reader.readTag();
+            switch (tag >>> 3) {
+                case 1 -> text = reader.readString();
+                case 2 -> score = reader.readFloat();
+                case 3 -> {
+                    int value = (int) reader.readVarint();
+                    PieceType[] types = PieceType.values();
+                    type = value >= 1 && value <= types.length ? types[value - 1] : PieceType.NORMAL;
+                }
+                default -> reader.skip(tag & 7);
+            }
+        }
+        return new Piece(text, score, type);
+    }
+
+    public int[] encode(String text) {
+        if (text == null || text.isEmpty()) {
+            return new int[0];
+        }
+        String normalized = normalize(text);
+        IntList ids = new IntList(normalized.length());
+
+        // 사용자 정의 piece는 병합 없이 통째로, 그 사이 구간은 BPE
+        int runStart = 0;
+        int position = 0;
+        while (position < normalized.length()) {
+            String userDefined = matchUserDefined(normalized, position);
+            if (userDefined == null) {
+                position += Character.charCount(normalized.codePointAt(position));
+                continue;
+            }
+            encodeRun(normalized.substring(runStart, position), ids);
+            ids.add(pieceIds.get(userDefined));
+            position += userDefined.length();
+            runStart = position;
+        }
+        encodeRun(normalized.substring(runStart), ids);
+        return ids.toArray();
+    }
+
+    public int countTokens(String text) {
+        return encode(text).length;
+    }
+
+    public int getVocabularySize() {
+        return vocabularySize;
+    }
+
+    private String normalize(String text) {
+        String normalized = text;
+        if (removeExtraWhitespaces) {
+            normalized = normalized.strip().replaceAll(" {2,}", " ");
+        }
+        if (addDummyPrefix && !normalized.isEmpty()) {
+            normalized = " " + normalized;
+        }
+        if (escapeWhitespaces) {
+            normalized = normalized.replace(' ', SPACE_SYMBOL);
+        }
+        return normalized;
+    }
+
+    private String matchUserDefined(String text, int position) {
+        List<String> candidates = userDefinedByFirstChar.get(text.codePointAt(position));
+        if (candidates == null) {
+            return null;
+        }
+        for (String candidate : candidates) {
+            if (text.startsWith(candidate, position)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    // 문자(코드 포인트) 단위 심볼을 양방향 연결 리스트로 두고, 어휘에 있는 인접 쌍을 점수 순으로 병합
+    private void encodeRun(String run, IntList ids) {
+        if (run.isEmpty()) {
+            return;
+        }
+        int count = run.codePointCount(0, run.length());
+        String[] symbols = new String[count];
+        int[] prev = new int[count];
+        int[] next = new int[count];
+        for (int i = 0, offset = 0; i < count; i++) {
+            int length = Character.charCount(run.codePointAt(offset));
+            symbols[i] = run.substring(offset, offset + length);
+            prev[i] = i - 1;
+            next[i] = i + 1 < count ? i + 1 : -1;
+            offset += length;
+        }
+
+        PriorityQueue<Candidate> agenda = new PriorityQueue<>();
+        for (int i = 0; i + 1 < count; i++) {
+            offer(agenda, symbols, i, i + 1);
+        }
+        while (!agenda.isEmpty()) {
+            Candidate candidate = agenda.poll();
+            int left = candidate.left;
+            int right = candidate.right;
+            // 이미 다른 병합에 쓰였으면 무시
+            if (symbols[left] == null || symbols[right] == null || next[left] != right
+                    || !(symbols[left] + symbols[right]).equals(candidate.merged)) {
+                continue;
+            }
+            symbols[left] = candidate.merged;
+            symbols[right] = null;
+            next[left] = next[right];
+            if (next[right] >= 0) {
+                prev[next[right]] = left;
+            }
+            if (prev[left] >= 0) {
+                offer(agenda, symbols, prev[left], left);
+            }
+            if (next[left] >= 0) {
+                offer(agenda, symbols, left, next[left]);
+            }
+        }
+
+        for (int i = 0; i >= 0; i = next[i]) {
+            Integer id = pieceIds.get(symbols[i]);
+            if (id != null) {
+                ids.add(id);
+            } else {
+                appendBytes(symbols[i], ids);
+            }
+        }
+    }
+
+    private void offer(PriorityQueue<Candidate> agenda, String[] symbols, int left, int right) {
+        String merged = symbols[left] + symbols[right];
+        Integer id = pieceIds.get(merged);
+        if (id != null) {
+            agenda.add(new Candidate(left, right, merged, scores[id]));
+        }
+    }
+
+    private void appendBytes(String symbol, IntList ids) {
+        if (!byteFallback) {
+            ids.add(unknownId);
+            return;
+        }
+        for (byte b : symbol.getBytes(StandardCharsets.UTF_8)) {
+            int id = byteIds[b & 0xFF];
+            ids.add(id >= 0 ? id : unknownId);
+        }
+    }
+
+    // <0x41> 형식의 바이트 piece
+    private static int parseByte(String piece) {
+        if (piece.length() != 6 || !piece.startsWith("<0x") || !piece.endsWith(">")) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(piece.substring(3, 5), 16);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    static final class Piece {
+        private final String text;
+        private final float score;
+        private final PieceType type;
+
+        Piece(String text, float score, PieceType type) {
+            if (text == null || text.isEmpty()) {
+                throw new IllegalArgumentException("빈 piece는 사용할 수 없습니다");
+            }
+            this.text = text;
+            this.score = score;
+            this.type = type;
+        }
+    }
+
+    // 점수가 높은 쌍 우선, 같으면 왼쪽 쌍 우선 (SentencePiece와 동일)
+    private static final class Candidate implements Comparable<Candidate> {
+        private final int left;
+        private final int right;
+        private final String merged;
+        private final float score;
+
+        private Candidate(int left, int right, String merged, float score) {
+            this.left = left;
+            this.right = right;
+            this.merged = merged;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            int byScore = Float.compare(other.score, score);
+            return byScore != 0 ? byScore : Integer.compare(left, other.left);
+        }
+    }
+
+    private static final class IntList {
+        private int[] values;
+        private int size;
+
+        private IntList(int capacity) {
+            this.values = new int[Math.max(4, capacity)];
+        }
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    // protobuf wire format 최소 구현 (varint, 64비트, 길이 구분, 32비트)
+    private static final class ProtoReader {
+        private static final int VARINT = 0;
+        private static final int FIXED64 = 1;
+        private static final int LENGTH_DELIMITED = 2;
+        private static final int FIXED32 = 5;
+
+        private final byte[] buffer;
+        private final int limit;
+        private int position;
+
+        private ProtoReader(byte[] buffer, int offset, int limit) {
+            this.buffer = buffer;
+            this.position = offset;
+            this.limit = limit;
+        }
+
+        private boolean hasMore() {
+            return position < limit;
+        }
+
+        private int readTag() {
+            return (int) readVarint();
+        }
+
+        private long readVarint() {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = readByte();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IllegalArgumentException("잘못된 tokenizer.model 형식입니다 (varint)");
+        }
+
+        private float readFloat() {
+            ensure(4);
+            float value = ByteBuffer.wrap(buffer, position, 4).order(ByteOrder.LITTLE_ENDIAN).getFloat();
+            position += 4;
+            return value;
+        }
+
+        private String readString() {
+            int length = readLength();
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        private ProtoReader readMessage() {
+            int length = readLength();
+            ProtoReader message = new ProtoReader(buffer, position, position + length);
+            position += length;
+            return message;
+        }
+
+        private void skip(int wireType) {
+            switch (wireType) {
+                case VARINT -> readVarint();
+                case FIXED64 -> advance(8);
+                case LENGTH_DELIMITED -> advance(readLength());
+                case FIXED32 -> advance(4);
+                default -> throw new IllegalArgumentException("잘못된 tokenizer.model 형식입니다 (wire type " + wireType + ")");
+            }
+        }
+
+        private int readLength() {
+            long length = readVarint();
+            if (length < 0 || length > limit - position) {
+                throw new IllegalArgumentException("잘못된 tokenizer.model 형식입니다 (길이)");
+            }
+            return (int) length;
+        }
+
+        private byte readByte() {
+            ensure(1);
+            return buffer[position++];
+        }
+
+        private void advance(int length) {
+            ensure(length);
+            position += length;
+        }
+
+        private void ensure(int length) {
+            if (length > limit - position) {
+                throw new IllegalArgumentException("잘못된 tokenizer.model 형식입니다 (데이터 부족)");
+            }
+        }
+    }
+}
\ No newline at end of file
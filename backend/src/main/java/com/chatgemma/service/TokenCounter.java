@@ -0,0 +1,91 @@
+package com.chatgemma.service;
+
+import com.chatgemma.entity.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// 메시지/프롬프트의 토큰 수 계산
+// - chatgemma.tokenizer.model-path에 Gemma tokenizer.model이 있으면 SentencePiece로 정확히 센다
+// - 없거나 읽을 수 없으면 글자 종류별 추정치 (한글 2.5, 기타 1.2 토큰/글자)
+// - 메시지는 저장할 때 정확한 토큰 수를 기록해 두므로 컨텍스트 예산 계산 시 다시 토큰화하지 않는다
+@Component
+public class TokenCounter {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenCounter.class);
+
+    private final SentencePieceTokenizer tokenizer; // null이면 추정치 사용
+
+    @Autowired
+    public TokenCounter(@Value("${chatgemma.tokenizer.model-path:}") String modelPath) {
+        this(loadTokenizer(modelPath));
+    }
+
+    TokenCounter(SentencePieceTokenizer tokenizer) {
+        this.tokenizer = tokenizer;
+    }
+
+    public int count(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        return tokenizer != null ? tokenizer.countTokens(text) : estimate(text);
+    }
+
+    // 저장할 때 기록한 토큰 수가 있으면 그대로, 없으면(토크나이저 도입 전 메시지 등) 계산
+    public int count(Message message) {
+        Integer stored = message.getTokenCount();
+        return stored != null ? stored : count(message.getContent());
+    }
+
+    // 메시지에 기록할 정확한 토큰 수 (토크나이저가 없으면 추정치를 저장하지 않도록 null)
+    public Integer exactCount(String text) {
+        return tokenizer != null ? count(text) : null;
+    }
+
+    public boolean isExact() {
+        return tokenizer != null;
+    }
+
+    // 한국어 토큰 추정 (한글 음절: 2.5토큰/글자, 기타: 1.2토큰/글자)
+    public static int estimate(String content) {
+        if (content == null || content.isEmpty()) {
+            return 0;
+        }
+        int koreanChars = 0;
+        int length = content.length();
+        for (int i = 0; i < length; i++) {
+            char ch = content.charAt(i);
+            if (ch >= 0xAC00 && ch <= 0xD7AF) {
+                koreanChars++;
+            }
+        }
+        return (int) (koreanChars * 2.5 + (length - koreanChars) * 1.2);
+    }
+
+    private static SentencePieceTokenizer loadTokenizer(String modelPath) {
+        if (modelPath == null || modelPath.isBlank()) {
+            logger.info("ℹ️ Tokenizer model not configured, using estimated token counts");
+            return null;
+        }
+        Path path = Path.of(modelPath);
+        if (!Files.isReadable(path)) {
+            logger.warn("⚠️ Tokenizer model not found: {}, using estimated token counts", path);
+            return null;
+        }
+        try {
+            SentencePieceTokenizer tokenizer = SentencePieceTokenizer.load(path);
+            logger.info("✅ Tokenizer loaded: path={}, vocabularySize={}", path, tokenizer.getVocabularySize());
+            return tokenizer;
+        } catch (IOException | IllegalArgumentException e) {
+            logger.warn("⚠️ Failed to load tokenizer model: {}, using estimated token counts ({})", path, e.getMessage());
+            return null;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,181 @@
+package com.chatgemma.service;
+
+import com.chatgemma.entity.GenerationUsage;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// 생성별 Ollama 토큰 사용량을 사용자/채팅/모델 단위로 누적 (LongAdder 기반, 잠금 없음)
+// 용량 산정용 집계이며 애플리케이션 시작 이후의 값이다. 개별 기록은 Message에 함께 저장된다.
+// 채팅별 합계는 채팅 수만큼 늘어나므로 max-chats/expire-after-access로 제한하고, 채팅을 지우면 제거한다.
+@Component
+public class TokenUsageLedger {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<Long, UsageTotals> byUser = new ConcurrentHashMap<>();
+    private final Cache<Long, UsageTotals> byChat;
+    private final Map<String, UsageTotals> byModel = new ConcurrentHashMap<>();
+
+    public TokenUsageLedger(MeterRegistry meterRegistry,
+                            @Value("${chatgemma.usage-ledger.max-chats:10000}") long maxChats,
+                            @Value("${chatgemma.usage-ledger.chat-expire-after-access:24h}") Duration chatExpireAfterAccess) {
+        this.meterRegistry = meterRegistry;
+        this.byChat = Caffeine.newBuilder()
+                .maximumSize(maxChats)
+                .expireAfterAccess(chatExpireAfterAccess)
+                .build();
+    }
+
+    public void record(Long userId, Long chatId, GenerationUsage usage) {
+        if (usage == null) {
+            return;
+        }
+        if (userId != null) {
+            byUser.computeIfAbsent(userId, id -> new UsageTotals()).add(usage);
+        }
+        if (chatId != null) {
+            byChat.get(chatId, id -> new UsageTotals()).add(usage);
+        }
+        String model = usage.getModel() != null ? usage.getModel() : "unknown";
+        byModel.computeIfAbsent(model, this::createModelTotals).add(usage);
+    }
+
+    public UsageSnapshot getUserUsage(Long userId) {
+        return snapshot(byUser.get(userId));
+    }
+
+    public UsageSnapshot getChatUsage(Long chatId) {
+        return snapshot(byChat.getIfPresent(chatId));
+    }
+
+    public void removeChat(Long chatId) {
+        if (chatId != null) {
+            byChat.invalidate(chatId);
+        }
+    }
+
+    public UsageSnapshot getModelUsage(String model) {
+        return snapshot(byModel.get(model));
+    }
+
+    public Map<String, UsageSnapshot> getUsageByModel() {
+        Map<String, UsageSnapshot> result = new TreeMap<>();
+        byModel.forEach((model, totals) -> result.put(model, totals.snapshot()));
+        return result;
+    }
+
+    public Map<Long, UsageSnapshot> getUsageByUser() {
+        Map<Long, UsageSnapshot> result = new TreeMap<>();
+        byUser.forEach((userId, totals) -> result.put(userId, totals.snapshot()));
+        return result;
+    }
+
+    private UsageSnapshot snapshot(UsageTotals totals) {
+        return totals != null ? totals.snapshot() : new UsageTotals().snapshot();
+    }
+
+    // 모델별 합계는 Micrometer 카운터로도 내보낸다 (chatgemma.ollama.tokens{model, type})
+    private UsageTotals createModelTotals(String model) {
+        UsageTotals totals = new UsageTotals();
+        totals.promptTokenCounter = Counter.builder("chatgemma.ollama.tokens")
+                .description("Tokens processed by Ollama")
+                .tag("model", model)
+                .tag("type", "prompt")
+                .register(meterRegistry);
+        totals.evalTokenCounter = Counter.builder("chatgemma.ollama.tokens")
+                .description("Tokens processed by Ollama")
+                .tag("model", model)
+                .tag("type", "eval")
+                .register(meterRegistry);
+        return totals;
+    }
+
+    private static final class UsageTotals {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder promptTokens = new LongAdder();
+        private final LongAdder promptEvalNanos = new LongAdder();
+        private final LongAdder evalTokens = new LongAdder();
+        private final LongAdder evalNanos = new LongAdder();
+        private final LongAdder loadNanos = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private Counter promptTokenCounter;
+        private Counter evalTokenCounter;
+
+        private void add(GenerationUsage usage) {
+            requests.increment();
+            promptTokens.add(orZero(usage.getPromptEvalCount()));
+            promptEvalNanos.add(orZero(usage.getPromptEvalDuration()));
+            evalTokens.add(orZero(usage.getEvalCount()));
+            evalNanos.add(orZero(usage.getEvalDuration()));
+            loadNanos.add(orZero(usage.getLoadDuration()));
+            totalNanos.add(orZero(usage.getTotalDuration()));
+
+            if (promptTokenCounter != null) {
+                promptTokenCounter.increment(orZero(usage.getPromptEvalCount()));
+                evalTokenCounter.increment(orZero(usage.getEvalCount()));
+            }
+        }
+
+        private UsageSnapshot snapshot() {
+            return new UsageSnapshot(requests.sum(), promptTokens.sum(), promptEvalNanos.sum(),
+                    evalTokens.sum(), evalNanos.sum(), loadNanos.sum(), totalNanos.sum());
+        }
+
+        private static long orZero(Number value) {
+            return value != null ? value.longValue() : 0L;
+        }
+    }
+
+    public static class UsageSnapshot {
+        private final long requests;
+        private final long promptTokens;
+        private final long promptEvalNanos;
+        private final long evalTokens;
+        private final long evalNanos;
+        private final long loadNanos;
+        private final long totalNanos;
+
+        public UsageSnapshot(long requests, long promptTokens, long promptEvalNanos, long evalTokens,
+                             long evalNanos, long loadNanos, long totalNanos) {
+            this.requests = requests;
+            this.promptTokens = promptTokens;
+            this.promptEvalNanos = promptEvalNanos;
+            this.evalTokens = evalTokens;
+            this.evalNanos = evalNanos;
+            this.loadNanos = loadNanos;
+            this.totalNanos = totalNanos;
+        }
+
+        public long getRequests() { return requests; }
+        public long getPromptTokens() { return promptTokens; }
+        public long getPromptEvalNanos() { return promptEvalNanos; }
+        public long getEvalTokens() { return evalTokens; }
+        public long getEvalNanos() { return evalNanos; }
+        public long getLoadNanos() { return loadNanos; }
+        public long getTotalNanos() { return totalNanos; }
+
+        // 요청당 평균 프롬프트 토큰 수
+        public double getAveragePromptTokens() {
+            return requests > 0 ? (double) promptTokens / requests : 0.0;
+        }
+
+        // 프롬프트 평가 속도 (tokens/sec)
+        public double getPromptTokensPerSecond() {
+            return promptEvalNanos > 0 ? promptTokens / (promptEvalNanos / 1_000_000_000.0) : 0.0;
+        }
+
+        // 생성 속도 (tokens/sec)
+        public double getEvalTokensPerSecond() {
+            return evalNanos > 0 ? evalTokens / (evalNanos / 1_000_000_000.0) : 0.0;
+        }
+    }
+}
\ No newline at end of file
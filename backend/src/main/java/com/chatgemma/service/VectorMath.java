@@ -0,0 +1,32 @@
+package com.chatgemma.service;
+
+// 임베딩 벡터 연산 (HnswIndex, ChatMemoryIndex 공용): 정규화한 벡터끼리의 내적이 코사인 유사도
+final class VectorMath {
+
+    private VectorMath() {
+    }
+
+    static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (vector.length == 0 || norm == 0) {
+            throw new IllegalArgumentException("영벡터는 인덱스에 넣을 수 없습니다");
+        }
+        double scale = 1.0 / Math.sqrt(norm);
+        float[] normalized = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = (float) (vector[i] * scale);
+        }
+        return normalized;
+    }
+
+    static double dot(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
\ No newline at end of file
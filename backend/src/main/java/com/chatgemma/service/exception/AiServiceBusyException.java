@@ -0,0 +1,11 @@
+package com.chatgemma.service.exception;
+
+public class AiServiceBusyException extends RuntimeException {
+    public AiServiceBusyException(String message) {
+        super(message);
+    }
+
+    public AiServiceBusyException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
\ No newline at end of file
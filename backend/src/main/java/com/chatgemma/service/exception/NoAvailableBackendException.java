@@ -0,0 +1,8 @@
+package com.chatgemma.service.exception;
+
+// 요청을 보낼 Ollama 서버가 남아 있지 않음 (모든 서버에 이미 시도함)
+public class NoAvailableBackendException extends AiServiceBusyException {
+    public NoAvailableBackendException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,34 @@
+package com.chatgemma.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("WebMvcConfig Tests")
+class WebMvcConfigTest {
+
+    @Test
+    @DisplayName("30초를 넘는 느린 생성도 끊기지 않도록 비동기 요청 타임아웃을 생성 시간 상한보다 길게 둔다")
+    void configureAsyncSupport_ShouldOutlastSlowGeneration() {
+        // Given: 생성 시간 상한 10분, 여유 2분
+        WebMvcConfig config = new WebMvcConfig(Duration.ofMinutes(10), Duration.ofMinutes(2));
+        RecordingAsyncSupportConfigurer configurer = new RecordingAsyncSupportConfigurer();
+
+        // When
+        config.configureAsyncSupport(configurer);
+
+        // Then
+        assertThat(configurer.timeout()).isEqualTo(Duration.ofMinutes(12).toMillis());
+        assertThat(configurer.timeout()).isGreaterThan(Duration.ofSeconds(30).toMillis());
+    }
+
+    private static final class RecordingAsyncSupportConfigurer extends AsyncSupportConfigurer {
+        Long timeout() {
+            return getTimeout();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.chatgemma.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("ActiveGenerationRegistry Tests")
+class ActiveGenerationRegistryTest {
+
+    private final ActiveGenerationRegistry registry = new ActiveGenerationRegistry();
+    private final AtomicInteger cancelled = new AtomicInteger();
+
+    @Test
+    @DisplayName("중지 명령 시 해당 채팅의 생성 구독을 취소한다")
+    void cancel_ShouldDisposeGeneration() {
+        // Given
+        registry.start("session-1", "10", generation(Sinks.empty()));
+
+        // When
+        boolean result = registry.cancel("session-1", "10");
+
+        // Then
+        assertThat(result).isTrue();
+        assertThat(cancelled.get()).isEqualTo(1);
+        assertThat(registry.getActiveCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("진행 중인 생성이 없으면 아무 것도 취소하지 않는다")
+    void cancel_ShouldReturnFalse_WhenNothingActive() {
+        assertThat(registry.cancel("session-1", "10")).isFalse();
+    }
+
+    @Test
+    @DisplayName("정상 완료된 생성은 등록에서 제거된다")
+    void start_ShouldForgetGeneration_WhenCompleted() {
+        // Given
+        Sinks.Empty<Void> completion = Sinks.empty();
+        registry.start("session-1", "10", generation(completion));
+        assertThat(registry.getActiveCount()).isEqualTo(1);
+
+        // When
+        completion.tryEmitEmpty();
+
+        // Then
+        assertThat(registry.getActiveCount()).isZero();
+        assertThat(registry.cancel("session-1", "10")).isFalse();
+        assertThat(cancelled.get()).isZero();
+    }
+
+    @Test
+    @DisplayName("연결이 끊긴 세션의 생성만 모두 취소한다")
+    void cancelSession_ShouldDisposeOnlyThatSession() {
+        // Given
+        registry.start("session-1", "10", generation(Sinks.empty()));
+        registry.start("session-1", "11", generation(Sinks.empty()));
+        registry.start("session-2", "10", generation(Sinks.empty()));
+
+        // When
+        int result = registry.cancelSession("session-1");
+
+        // Then
+        assertThat(result).isEqualTo(2);
+        assertThat(cancelled.get()).isEqualTo(2);
+        assertThat(registry.getActiveCount()).isEqualTo(1);
+    }
+
+    private Mono<Void> generation(Sinks.Empty<Void> completion) {
+        return completion.asMono().doOnCancel(cancelled::incrementAndGet);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,101 @@
+package com.chatgemma.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("AdaptiveConcurrencyLimiter Tests")
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final String MODEL = "gemma3n:e4b";
+    private static final long MS = 1_000_000L;
+
+    private SimpleMeterRegistry meterRegistry;
+    private AdaptiveConcurrencyLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        limiter = new AdaptiveConcurrencyLimiter(meterRegistry, true, 2, 1, 4, 2.0, 0.5, 1000, 3);
+    }
+
+    @Test
+    @DisplayName("초기 한도는 설정된 동시 실행 수이다")
+    void getLimit_ShouldReturnInitialLimit() {
+        assertThat(limiter.getLimit(MODEL)).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("한도를 모두 쓰고 지연이 안정적이면 한도를 올린다")
+    void onSample_ShouldIncreaseLimit_WhenSaturatedAndLatencyStable() {
+        // When: 동시 2개 실행, 토큰당 1ms, 초당 50토큰
+        for (int i = 0; i < 3; i++) {
+            limiter.onSample(MODEL, 100, 100 * MS, 50, 1000 * MS, 0, 2);
+        }
+
+        // Then
+        assertThat(limiter.getLimit(MODEL)).isEqualTo(3);
+        assertThat(meterRegistry.get("chatgemma.ollama.concurrency.limit").tag("model", MODEL).gauge().value())
+                .isEqualTo(3.0);
+    }
+
+    @Test
+    @DisplayName("한도를 다 쓰지 않으면 한도를 올리지 않는다")
+    void onSample_ShouldHoldLimit_WhenNotSaturated() {
+        for (int i = 0; i < 3; i++) {
+            limiter.onSample(MODEL, 100, 100 * MS, 50, 1000 * MS, 0, 1);
+        }
+
+        assertThat(limiter.getLimit(MODEL)).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("프롬프트 평가 지연이 기준치보다 크게 늘어나면 한도를 줄인다")
+    void onSample_ShouldDecreaseLimit_WhenPromptEvalLatencyInflates() {
+        // Given: 토큰당 1ms 기준치
+        for (int i = 0; i < 3; i++) {
+            limiter.onSample(MODEL, 100, 100 * MS, 50, 1000 * MS, 0, 1);
+        }
+
+        // When: 토큰당 10ms로 악화
+        for (int i = 0; i < 6; i++) {
+            limiter.onSample(MODEL, 100, 1000 * MS, 50, 1000 * MS, 0, 2);
+        }
+
+        // Then
+        assertThat(limiter.getLimit(MODEL)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Ollama 내부 대기 시간이 길어지면 한도를 줄인다")
+    void onSample_ShouldDecreaseLimit_WhenQueuingInsideOllama() {
+        for (int i = 0; i < 3; i++) {
+            limiter.onSample(MODEL, 100, 100 * MS, 50, 1000 * MS, 5000 * MS, 2);
+        }
+
+        assertThat(limiter.getLimit(MODEL)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("타임아웃 신호를 받으면 즉시 한도를 줄이되 최소 한도 아래로는 내리지 않는다")
+    void onDrop_ShouldDecreaseLimitDownToMinimum() {
+        limiter.onDrop(MODEL);
+        limiter.onDrop(MODEL);
+
+        assertThat(limiter.getLimit(MODEL)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("적응형 모드가 꺼져 있으면 한도가 고정된다")
+    void onSample_ShouldKeepLimit_WhenAdaptiveDisabled() {
+        AdaptiveConcurrencyLimiter fixed = new AdaptiveConcurrencyLimiter(meterRegistry, false, 2, 1, 4, 2.0, 0.5, 1000, 1);
+
+        fixed.onDrop(MODEL);
+        fixed.onSample(MODEL, 100, 100 * MS, 50, 1000 * MS, 0, 2);
+
+        assertThat(fixed.getLimit(MODEL)).isEqualTo(2);
+    }
+}
\ No newline at end of file
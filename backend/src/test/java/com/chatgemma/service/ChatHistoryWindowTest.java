@@ -0,0 +1,249 @@
+package com.chatgemma.service;
+
+import com.chatgemma.entity.ChatSummary;
+import com.chatgemma.entity.Message;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("ChatHistoryWindow Tests")
+class ChatHistoryWindowTest {
+
+    private static final Long CHAT_ID = 100L;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    @DisplayName("처음 한 번만 DB에서 채우고, 이후에는 저장된 메시지를 창에 추가해 조회 없이 돌려준다")
+    void recent_ShouldLoadOnce_ThenServeAppendedMessages() {
+        // Given
+        ChatHistoryWindow window = window(64, 32768);
+        List<Message> stored = new ArrayList<>(List.of(user(1, "질문 1", 10), assistant(2, "답변 1", 10)));
+
+        // When
+        List<Message> first = window.recent(CHAT_ID, null, loader(stored));
+        Message question = user(3, "질문 2", 10);
+        window.append(question);
+        List<Message> second = window.recent(CHAT_ID, 3L, loader(stored));
+
+        // Then
+        assertThat(first).extracting(Message::getId).containsExactly(1L, 2L);
+        assertThat(second).extracting(Message::getId).containsExactly(1L, 2L, 3L);
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(meterRegistry.get("chatgemma.history.window.lookups").tag("result", "hit")
+                .counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("chatgemma.history.window.lookups").tag("result", "miss")
+                .counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("메시지 수 상한이나 토큰 상한을 넘으면 가장 오래된 메시지부터 밀어낸다")
+    void append_ShouldEvictOldest_WhenCapacityOrTokensExceeded() {
+        // Given: 메시지 4개, 토큰 100
+        ChatHistoryWindow window = window(4, 100);
+        window.recent(CHAT_ID, null, loader(List.of(user(1, "질문 1", 30), assistant(2, "답변 1", 30))));
+
+        // When
+        window.append(user(3, "질문 2", 20));
+        window.append(assistant(4, "답변 2", 20));
+        window.append(user(5, "질문 3", 10));           // 5개 -> 1번 제거
+        window.append(assistant(6, "답변 3", 80));      // 5개 -> 2번 제거, 3번을 빼도 110 -> 제거
+
+        // Then
+        assertThat(window.recent(CHAT_ID, 6L, loader(List.of())))
+                .extracting(Message::getId).containsExactly(4L, 5L, 6L);
+        assertThat(loads.get()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("밀려난 메시지가 있어도 DB에서 다시 채우지 않고 창을 돌려주며, 밀려난 메시지가 있음을 알린다")
+    void recent_ShouldServeTrimmedWindow_AndReportIncomplete() {
+        // Given
+        ChatHistoryWindow window = window(2, 32768);
+        List<Message> stored = List.of(user(1, "질문 1", 10), assistant(2, "답변 1", 10), user(3, "질문 2", 10));
+
+        // When
+        List<Message> trimmed = window.recent(CHAT_ID, 3L, loader(stored));
+        window.append(assistant(4, "답변 2", 10));
+        List<Message> next = window.recent(CHAT_ID, 4L, loader(stored));
+
+        // Then
+        assertThat(trimmed).extracting(Message::getId).containsExactly(2L, 3L);
+        assertThat(next).extracting(Message::getId).containsExactly(3L, 4L);
+        assertThat(window.isComplete(CHAT_ID)).isFalse();
+        assertThat(loads.get()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("방금 저장한 메시지가 창에 없으면 어긋난 창으로 보고 DB에서 다시 채운다")
+    void recent_ShouldReload_WhenCurrentMessageMissing() {
+        // Given: 창을 채우는 동안 저장된 3번 메시지가 창에 반영되지 않은 상황
+        ChatHistoryWindow window = window(64, 32768);
+        window.recent(CHAT_ID, null, loader(List.of(user(1, "질문 1", 10), assistant(2, "답변 1", 10))));
+        List<Message> stored = List.of(user(1, "질문 1", 10), assistant(2, "답변 1", 10), user(3, "질문 2", 10));
+
+        // When
+        List<Message> result = window.recent(CHAT_ID, 3L, loader(stored));
+
+        // Then
+        assertThat(result).extracting(Message::getId).containsExactly(1L, 2L, 3L);
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("DB에서 채우는 동안 저장된 메시지는 채우기가 끝난 뒤 창에 추가되고, 조회 결과에 이미 있으면 중복되지 않는다")
+    void append_ShouldWaitForInFlightLoad() throws Exception {
+        // Given: 조회가 끝나기 전에 3번 메시지가 저장된다
+        ChatHistoryWindow window = window(64, 32768);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread loaderThread = new Thread(() -> window.recent(CHAT_ID, null, () -> {
+            loading.countDown();
+            awaitQuietly(release);
+            return List.of(user(1, "질문 1", 10), assistant(2, "답변 1", 10));
+        }));
+        loaderThread.start();
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // When
+        Thread appender = new Thread(() -> {
+            window.append(user(3, "질문 2", 10));
+            window.append(assistant(2, "답변 1", 10));
+        });
+        appender.start();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (appender.getState() != Thread.State.BLOCKED && appender.isAlive() && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+        loaderThread.join(5000);
+        appender.join(5000);
+
+        // Then
+        assertThat(window.recent(CHAT_ID, 3L, loader(List.of())))
+                .extracting(Message::getId).containsExactly(1L, 2L, 3L);
+        assertThat(window.lastMessageId(CHAT_ID, Message.Role.USER, () -> -1L)).isEqualTo(3L);
+        assertThat(loads.get()).isZero();
+    }
+
+    @Test
+    @DisplayName("대화 초기화 시 초기화를 요청한 메시지만 남기고, 창에 없으면 창을 버린다")
+    void reset_ShouldRetainOnlyResetMessage() {
+        // Given
+        ChatHistoryWindow window = window(64, 32768);
+        window.recent(CHAT_ID, null,
+                loader(List.of(user(1, "질문 1", 10), assistant(2, "답변 1", 10), user(3, "대화 초기화", 10))));
+
+        // When
+        window.reset(CHAT_ID, 3L);
+        window.append(assistant(4, "새로 시작합니다", 10));
+
+        // Then
+        assertThat(window.recent(CHAT_ID, null, loader(List.of())))
+                .extracting(Message::getId).containsExactly(3L, 4L);
+        assertThat(window.isComplete(CHAT_ID)).isTrue();
+        window.reset(CHAT_ID, 99L);
+        assertThat(window.chatCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("저장된 요약은 창과 함께 유지해 한 번만 DB에서 읽고, 요약 갱신/대화 초기화 후에는 다시 읽는다")
+    void summary_ShouldLoadOnce_UntilInvalidated() {
+        // Given
+        ChatHistoryWindow window = window(64, 32768);
+        window.recent(CHAT_ID, null, loader(List.of(user(1, "질문 1", 10), user(2, "대화 초기화", 10))));
+        ChatSummary stored = ChatSummary.create(CHAT_ID, "이전 대화 요약", 1L, 1);
+        AtomicInteger summaryLoads = new AtomicInteger();
+        Supplier<Optional<ChatSummary>> summaryLoader = () -> {
+            summaryLoads.incrementAndGet();
+            return Optional.of(stored);
+        };
+
+        // When
+        Optional<ChatSummary> first = window.summary(CHAT_ID, summaryLoader);
+        Optional<ChatSummary> second = window.summary(CHAT_ID, summaryLoader);
+        window.invalidateSummary(CHAT_ID);
+        window.summary(CHAT_ID, summaryLoader);
+        window.reset(CHAT_ID, 2L);
+        window.summary(CHAT_ID, summaryLoader);
+
+        // Then: 창이 없는 채팅은 매번 DB 조회
+        assertThat(first).contains(stored);
+        assertThat(second).contains(stored);
+        assertThat(summaryLoads.get()).isEqualTo(3);
+        window.summary(999L, summaryLoader);
+        window.summary(999L, summaryLoader);
+        assertThat(summaryLoads.get()).isEqualTo(5);
+    }
+
+    @Test
+    @DisplayName("마지막 AI 응답 ID는 창에서 찾고, 밀려난 메시지가 있어 알 수 없을 때만 DB에서 조회한다")
+    void lastMessageId_ShouldUseWindow_WhenKnown() {
+        // Given
+        ChatHistoryWindow window = window(2, 32768);
+        window.recent(CHAT_ID, null, loader(List.of(user(1, "질문 1", 10))));
+
+        // When / Then: 창이 전체 히스토리를 담고 있으면 없는 것도 확정
+        assertThat(window.lastMessageId(CHAT_ID, Message.Role.ASSISTANT, () -> -1L)).isNull();
+        window.append(assistant(2, "답변 1", 10));
+        assertThat(window.lastMessageId(CHAT_ID, Message.Role.ASSISTANT, () -> -1L)).isEqualTo(2L);
+
+        // 창 밖으로 밀려난 메시지가 있고 창 안에 없으면 DB 조회
+        window.append(user(3, "질문 2", 10));
+        window.append(user(4, "질문 3", 10));
+        assertThat(window.lastMessageId(CHAT_ID, Message.Role.ASSISTANT, () -> 2L)).isEqualTo(2L);
+        assertThat(window.lastMessageId(999L, Message.Role.ASSISTANT, () -> 7L)).isEqualTo(7L);
+    }
+
+    private ChatHistoryWindow window(int capacity, int maxTokens) {
+        return new ChatHistoryWindow(new TokenCounter(""), meterRegistry, true, capacity, maxTokens, 100,
+                Duration.ofMinutes(30));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Supplier<List<Message>> loader(List<Message> stored) {
+        return () -> {
+            loads.incrementAndGet();
+            return stored;
+        };
+    }
+
+    private static Message user(long id, String content, int tokens) {
+        return withId(Message.createUserMessage(CHAT_ID, content), id, tokens);
+    }
+
+    private static Message assistant(long id, String content, int tokens) {
+        return withId(Message.createAssistantMessage(CHAT_ID, content), id, tokens);
+    }
+
+    private static Message withId(Message message, Long id, int tokens) {
+        try {
+            var field = Message.class.getDeclaredField("id");
+            field.setAccessible(true);
+            field.set(message, id);
+            message.recordTokenCount(tokens);
+            return message;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,245 @@
+package com.chatgemma.service;
+
+import com.chatgemma.entity.Message;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("ChatMemoryIndex Tests")
+class ChatMemoryIndexTest {
+
+    private static final Long CHAT_ID = 100L;
+    private static final int UNLIMITED = Integer.MAX_VALUE;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final StubEmbedder embedder = new StubEmbedder();
+    private final TokenCounter tokenCounter = new TokenCounter("");
+
+    @Test
+    @DisplayName("긴 대화는 최근 메시지와 질문과 관련 있는 예전 턴(질문/답 쌍)만 시간 순서대로 고른다")
+    void select_ShouldCombineRecentAndRelevantTurns() {
+        // Given: 12턴(24개 메시지) 중 3번째 턴만 환불 이야기
+        ChatMemoryIndex index = index(true);
+        embedder.put("환불 규정은 14일 이내입니다", 1.0f, 0.0f, 0.0f);
+        embedder.put("지난번 환불 기간이 며칠이었죠?", 0.95f, 0.3f, 0.0f);
+        List<Message> history = conversation(12, 2, "환불 규정은 14일 이내입니다");
+        history.forEach(index::index);
+
+        // When
+        List<Message> context = index.select(CHAT_ID, "지난번 환불 기간이 며칠이었죠?", history, UNLIMITED).block();
+
+        // Then
+        assertThat(context).hasSize(2 + 6);
+        assertThat(context.subList(0, 2)).containsExactly(history.get(4), history.get(5));
+        assertThat(context.subList(2, 8)).containsExactlyElementsOf(history.subList(18, 24));
+        assertThat(index.vectorCount()).isEqualTo(24);
+        assertThat(meterRegistry.get("chatgemma.memory.assemblies").tag("result", "retrieved")
+                .counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("토큰 예산은 최근 메시지에 먼저 쓰고, 예전 턴은 유사도 높은 순으로 남은 예산에 맞는 만큼만 넣는다")
+    void select_ShouldFitRetrievedTurnsIntoBudgetLeftByRecentMessages() {
+        // Given: 3번째 턴이 가장 관련 있고 8번째 턴도 관련 있지만, 예산은 최근 메시지 + 한 턴 분량
+        ChatMemoryIndex index = index(true);
+        embedder.put("환불 규정은 14일 이내입니다", 1.0f, 0.0f, 0.0f);
+        embedder.put("환불은 영수증이 있어야 합니다", 0.8f, 0.6f, 0.0f);
+        embedder.put("환불 기간?", 1.0f, 0.1f, 0.0f);
+        List<Message> history = conversation(12, 2, "환불 규정은 14일 이내입니다");
+        history.set(15, withId(Message.createAssistantMessage(CHAT_ID, "환불은 영수증이 있어야 합니다"), 16L));
+        history.forEach(index::index);
+        int recentTokens = history.subList(18, 24).stream().mapToInt(tokenCounter::count).sum();
+        int bestTurnTokens = tokenCounter.count(history.get(4)) + tokenCounter.count(history.get(5));
+
+        // When
+        List<Message> context = index.select(CHAT_ID, "환불 기간?", history, recentTokens + bestTurnTokens).block();
+        List<Message> recentOnly = index.select(CHAT_ID, "환불 기간?", history, recentTokens).block();
+
+        // Then: 덜 관련 있는 턴은 빠지고, 최근 메시지는 항상 남는다
+        assertThat(context).hasSize(2 + 6);
+        assertThat(context.subList(0, 2)).containsExactly(history.get(4), history.get(5));
+        assertThat(context.subList(2, 8)).containsExactlyElementsOf(history.subList(18, 24));
+        assertThat(recentOnly).containsExactlyElementsOf(history.subList(18, 24));
+    }
+
+    @Test
+    @DisplayName("인덱스에 없는 예전 메시지는 조회할 때 채운다")
+    void select_ShouldBackfillMissingMessages() {
+        // Given: 저장 시 인덱싱되지 않은 대화 (서버 재시작 등)
+        ChatMemoryIndex index = index(true);
+        embedder.put("환불 규정은 14일 이내입니다", 1.0f, 0.0f, 0.0f);
+        embedder.put("환불 기간?", 1.0f, 0.1f, 0.0f);
+        List<Message> history = conversation(12, 0, "환불 규정은 14일 이내입니다");
+
+        // When
+        List<Message> context = index.select(CHAT_ID, "환불 기간?", history, UNLIMITED).block();
+
+        // Then: 예전 메시지 18개가 채워지고 관련 턴이 선택된다
+        assertThat(index.vectorCount()).isEqualTo(18);
+        assertThat(context).startsWith(history.get(0), history.get(1));
+    }
+
+    @Test
+    @DisplayName("최근 메시지 창 밖의 예전 턴은 한 번만 DB에서 읽어 인덱싱하고, 이후에는 고른 메시지만 ID로 가져온다")
+    void select_ShouldFetchOnlyRetrievedOlderMessages_WhenWindowIsTrimmed() throws Exception {
+        // Given: 20턴(40개 메시지) 중 3번째 턴만 환불 이야기, 창에는 마지막 24개만 남아 있다
+        ChatMemoryIndex index = index(true);
+        embedder.put("환불 규정은 14일 이내입니다", 1.0f, 0.0f, 0.0f);
+        embedder.put("환불 기간?", 1.0f, 0.1f, 0.0f);
+        List<Message> stored = conversation(20, 2, "환불 규정은 14일 이내입니다");
+        List<Message> window = stored.subList(16, 40);
+        StubOlderMessages older = new StubOlderMessages(stored);
+
+        // When: 첫 조회에서 창 밖 메시지를 백그라운드로 인덱싱한 뒤 다시 조회
+        index.select(CHAT_ID, "환불 기간?", window, older, UNLIMITED).block();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (index.vectorCount() < 34 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        List<Message> context = index.select(CHAT_ID, "환불 기간?", window, older, UNLIMITED).block();
+
+        // Then: 창 밖의 관련 턴 + 최근 메시지, 전체 히스토리 조회는 처음 한 번뿐
+        assertThat(index.vectorCount()).isEqualTo(34);
+        assertThat(context).hasSize(2 + 6);
+        assertThat(context.subList(0, 2)).containsExactly(stored.get(4), stored.get(5));
+        assertThat(context.subList(2, 8)).containsExactlyElementsOf(stored.subList(34, 40));
+        assertThat(older.beforeCalls.get()).isEqualTo(1);
+        assertThat(older.fetched).contains(List.of(5L, 6L));
+    }
+
+    @Test
+    @DisplayName("짧은 대화, 비활성화, 임베딩 실패 시에는 전체 대화를 그대로 사용한다")
+    void select_ShouldReturnWholeHistory_WhenNotApplicable() {
+        // Given
+        ChatMemoryIndex index = index(true);
+        List<Message> shortHistory = conversation(5, 0, "짧은 대화");
+        List<Message> longHistory = conversation(12, 0, "긴 대화");
+
+        // When & Then
+        assertThat(index.select(CHAT_ID, "질문", shortHistory, UNLIMITED).block()).isSameAs(shortHistory);
+        assertThat(index(false).select(CHAT_ID, "질문", longHistory, UNLIMITED).block()).isSameAs(longHistory);
+        assertThat(index.select(CHAT_ID, "실패", longHistory, UNLIMITED).block()).isSameAs(longHistory);
+        assertThat(meterRegistry.get("chatgemma.memory.assemblies").tag("result", "fallback")
+                .counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("임베딩 전용 서버가 없으면 켜도 인덱싱하지 않고 전체 대화를 그대로 사용한다")
+    void enabled_ShouldRequireDedicatedEmbeddingBackend() {
+        // Given
+        embedder.dedicated = false;
+        ChatMemoryIndex index = index(true);
+        List<Message> history = conversation(12, 0, "긴 대화");
+
+        // When
+        history.forEach(index::index);
+
+        // Then
+        assertThat(index.select(CHAT_ID, "질문", history, UNLIMITED).block()).isSameAs(history);
+        assertThat(index.vectorCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("채팅을 지우면 그 채팅의 임베딩도 제거한다")
+    void invalidate_ShouldRemoveChatVectors() {
+        // Given
+        ChatMemoryIndex index = index(true);
+        conversation(3, 0, "대화").forEach(index::index);
+
+        // When
+        index.invalidate(CHAT_ID);
+
+        // Then
+        assertThat(index.vectorCount()).isZero();
+    }
+
+    private ChatMemoryIndex index(boolean enabled) {
+        return new ChatMemoryIndex(embedder, tokenCounter, meterRegistry, enabled, 6, 2, 20, 0.5, 50000, Duration.ofHours(2));
+    }
+
+    // turns개의 질문/답 턴 (relevantTurn번째 턴의 답만 relevantAnswer)
+    private static List<Message> conversation(int turns, int relevantTurn, String relevantAnswer) {
+        List<Message> messages = new ArrayList<>();
+        for (int turn = 0; turn < turns; turn++) {
+            messages.add(withId(Message.createUserMessage(CHAT_ID, "질문 " + turn), messages.size() + 1L));
+            String answer = turn == relevantTurn ? relevantAnswer : "답변 " + turn;
+            messages.add(withId(Message.createAssistantMessage(CHAT_ID, answer), messages.size() + 1L));
+        }
+        return messages;
+    }
+
+    private static Message withId(Message message, Long id) {
+        try {
+            var field = Message.class.getDeclaredField("id");
+            field.setAccessible(true);
+            field.set(message, id);
+            return message;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // 저장된 메시지에서 창 밖 메시지를 돌려주는 DB 대역 (호출 기록)
+    private static final class StubOlderMessages implements ChatMemoryIndex.OlderMessages {
+        private final List<Message> stored;
+        private final AtomicInteger beforeCalls = new AtomicInteger();
+        private final List<List<Long>> fetched = new CopyOnWriteArrayList<>();
+
+        StubOlderMessages(List<Message> stored) {
+            this.stored = stored;
+        }
+
+        @Override
+        public List<Message> before(Long beforeId) {
+            beforeCalls.incrementAndGet();
+            return stored.stream().filter(message -> message.getId() < beforeId).toList();
+        }
+
+        @Override
+        public List<Message> findAll(Collection<Long> messageIds) {
+            fetched.add(List.copyOf(messageIds));
+            return stored.stream().filter(message -> messageIds.contains(message.getId())).toList();
+        }
+    }
+
+    // 등록된 문장은 고정 벡터, 나머지는 관련 없는 벡터를 돌려주는 임베더 ("실패"는 오류)
+    private static final class StubEmbedder implements Embedder {
+        private final Map<String, float[]> vectors = new HashMap<>();
+        private boolean dedicated = true;
+
+        void put(String text, float... vector) {
+            vectors.put(text, vector);
+        }
+
+        @Override
+        public Mono<float[]> embed(String text) {
+            if (text.equals("실패")) {
+                return Mono.error(new IllegalStateException("임베딩 실패"));
+            }
+            return Mono.just(vectors.getOrDefault(text, new float[]{0.0f, 0.0f, 1.0f}));
+        }
+
+        @Override
+        public String getModelName() {
+            return "stub";
+        }
+
+        @Override
+        public boolean hasDedicatedBackend() {
+            return dedicated;
+        }
+    }
+}
\ No newline at end of file
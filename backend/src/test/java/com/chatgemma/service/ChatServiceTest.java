@@ -1,6 +1,9 @@
 package com.chatgemma.service;
 
+import com.chatgemma.dto.request.ChatMessageRequest;
+import com.chatgemma.dto.request.GenerationOptionsRequest;
 import com.chatgemma.entity.Chat;
+import com.chatgemma.entity.GenerationUsage;
 import com.chatgemma.entity.Message;
 import com.chatgemma.entity.Message.Role;
 import com.chatgemma.repository.AuditLogRepository;
@@ -8,20 +11,33 @@ import com.chatgemma.repository.ChatRepository;
 import com.chatgemma.repository.MessageRepository;
 import com.chatgemma.service.exception.ChatNotFoundException;
 import com.chatgemma.service.exception.UnauthorizedAccessException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -43,6 +59,35 @@ class ChatServiceTest {
     @Mock
     private OllamaService ollamaService;
 
+    @Spy
+    private GenerationScheduler generationScheduler = new GenerationScheduler(2, 50);
+
+    @Spy
+    private TokenUsageLedger tokenUsageLedger = new TokenUsageLedger(new SimpleMeterRegistry(), 10000, Duration.ofHours(24));
+
+    @Spy
+    private GenerationCoalescer generationCoalescer = new GenerationCoalescer(new SimpleMeterRegistry());
+
+    @Spy
+    private IdempotencyStore idempotencyStore = new IdempotencyStore(new SimpleMeterRegistry(), 100, Duration.ofMinutes(10));
+
+    @Spy
+    private ChatMemoryIndex chatMemoryIndex = new ChatMemoryIndex(null, new TokenCounter(""), new SimpleMeterRegistry(), false, 6, 4, 20, 0.5,
+            50000, Duration.ofHours(2));
+
+    @Mock
+    private ConversationCompactor conversationCompactor;
+
+    @Mock
+    private ChatContextStore contextStore;
+
+    @Spy
+    private TokenCounter tokenCounter = new TokenCounter("");
+
+    @Spy
+    private ChatHistoryWindow historyWindow = new ChatHistoryWindow(new TokenCounter(""), new SimpleMeterRegistry(),
+            true, 64, 32768, 100, Duration.ofMinutes(30));
+
     @InjectMocks
     private ChatService chatService;
 
@@ -58,6 +103,17 @@ class ChatServiceTest {
         setChatId(activeChat, chatId);
     }
 
+    private static Message withId(Message message, Long id) {
+        try {
+            var field = Message.class.getDeclaredField("id");
+            field.setAccessible(true);
+            field.set(message, id);
+            return message;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     private void setChatId(Chat chat, Long id) {
         try {
             var field = Chat.class.getDeclaredField("id");
@@ -206,24 +262,113 @@ class ChatServiceTest {
                 .thenReturn(Optional.of(activeChat));
         when(messageRepository.save(any(Message.class)))
                 .thenAnswer(invocation -> invocation.getArgument(0));
-        when(ollamaService.sendMessage(eq(userMessageContent), isNull()))
-                .thenReturn(aiResponse);
+        when(ollamaService.sendMessageWithContextAsync(eq(chatId), eq(userMessageContent), isNull(), any(), any(), any()))
+                .thenReturn(Mono.just(aiResponse));
 
         // When
-        Message result = chatService.sendMessage(chatId, userId, userMessageContent, null, clientIp, userAgent);
+        Message result = chatService.sendMessageAsync(chatId, userId, userMessageContent, null, clientIp, userAgent)
+                .block();
 
         // Then
         assertThat(result.getChatId()).isEqualTo(chatId);
-        assertThat(result.getContent()).isEqualTo(userMessageContent);
-        assertThat(result.getRole()).isEqualTo(Role.USER);
+        assertThat(result.getContent()).isEqualTo(aiResponse);
+        verify(messageRepository).save(argThat(message -> message.getRole() == Role.USER
+                && message.getContent().equals(userMessageContent)));
 
         verify(messageRepository, times(2)).save(any(Message.class)); // 사용자 메시지 + AI 응답
-        verify(ollamaService).sendMessage(userMessageContent, null);
+        verify(ollamaService).sendMessageWithContextAsync(eq(chatId), eq(userMessageContent), isNull(), any(), any(), any());
         verify(auditLogRepository).save(argThat(log ->
             log.getAction().equals("SEND_MESSAGE")
         ));
     }
 
+    @Test
+    @DisplayName("논블로킹 전송 시 AI 응답 메시지를 Mono로 반환한다")
+    void sendMessageAsync_ShouldReturnAssistantMessage() {
+        // Given
+        String userMessageContent = "안녕하세요";
+        String aiResponse = "안녕하세요! 무엇을 도와드릴까요?";
+
+        when(chatRepository.findByIdAndUserIdAndDeletedFalse(chatId, userId))
+                .thenReturn(Optional.of(activeChat));
+        when(messageRepository.save(any(Message.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        when(ollamaService.sendMessageWithContextAsync(eq(chatId), eq(userMessageContent), isNull(), any(), any(), any()))
+                .thenReturn(Mono.just(aiResponse));
+
+        // When
+        Message result = chatService.sendMessageAsync(chatId, userId, userMessageContent, null, clientIp, userAgent)
+                .block();
+
+        // Then
+        assertThat(result.getRole()).isEqualTo(Role.ASSISTANT);
+        assertThat(result.getContent()).isEqualTo(aiResponse);
+        verify(messageRepository, times(2)).save(any(Message.class));
+    }
+
+    @Test
+    @DisplayName("AI 응답 메시지에 Ollama 토큰 사용량을 저장하고 집계한다")
+    void sendMessageAsync_ShouldRecordTokenUsage() {
+        // Given
+        String userMessageContent = "안녕하세요";
+        GenerationUsage usage = new GenerationUsage("gemma3n:e4b", 120, 300_000_000L,
+                40, 2_000_000_000L, 1_000_000L, 2_400_000_000L);
+
+        when(chatRepository.findByIdAndUserIdAndDeletedFalse(chatId, userId))
+                .thenReturn(Optional.of(activeChat));
+        when(messageRepository.save(any(Message.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        when(ollamaService.sendMessageWithContextAsync(eq(chatId), eq(userMessageContent), isNull(), any(), any(), any()))
+                .thenAnswer(invocation -> {
+                    Consumer<GenerationUsage> listener = invocation.getArgument(5);
+                    return Mono.fromSupplier(() -> {
+                        listener.accept(usage);
+                        return "반가워요";
+                    });
+                });
+
+        // When
+        Message result = chatService.sendMessageAsync(chatId, userId, userMessageContent, null, clientIp, userAgent)
+                .block();
+
+        // Then
+        assertThat(result.getUsage()).isSameAs(usage);
+        assertThat(result.getUsage().getTokensPerSecond()).isEqualTo(20.0);
+        assertThat(tokenUsageLedger.getUserUsage(userId).getPromptTokens()).isEqualTo(120);
+        assertThat(tokenUsageLedger.getChatUsage(chatId).getEvalTokens()).isEqualTo(40);
+        assertThat(tokenUsageLedger.getModelUsage("gemma3n:e4b").getRequests()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("활성 채팅은 두 번째 메시지부터 히스토리를 조회하지 않고 메모리 창의 이전 턴을 컨텍스트로 사용한다")
+    void sendMessageAsync_ShouldUseHistoryWindow_ForActiveChat() {
+        // Given
+        AtomicLong ids = new AtomicLong();
+        List<Message> saved = new CopyOnWriteArrayList<>();
+        when(chatRepository.findByIdAndUserIdAndDeletedFalse(chatId, userId))
+                .thenReturn(Optional.of(activeChat));
+        when(messageRepository.save(any(Message.class))).thenAnswer(invocation -> {
+            Message message = withId(invocation.getArgument(0), ids.incrementAndGet());
+            saved.add(message);
+            return message;
+        });
+        when(messageRepository.findByChatIdAndExcludeFromContextFalseOrderByCreatedAtAsc(chatId))
+                .thenAnswer(invocation -> List.copyOf(saved));
+        when(ollamaService.sendMessageWithContextAsync(eq(chatId), anyString(), isNull(), any(), any(), any()))
+                .thenReturn(Mono.just("답변"));
+
+        // When
+        chatService.sendMessageAsync(chatId, userId, "첫 질문", null, clientIp, userAgent).block();
+        chatService.sendMessageAsync(chatId, userId, "두 번째 질문", null, clientIp, userAgent).block();
+
+        // Then
+        verify(messageRepository, times(1)).findByChatIdAndExcludeFromContextFalseOrderByCreatedAtAsc(chatId);
+        verify(ollamaService).sendMessageWithContextAsync(eq(chatId), eq("두 번째 질문"), isNull(),
+                argThat(conversation -> conversation.getTurns().stream().map(Message::getContent).toList()
+                        .equals(List.of("첫 질문", "답변"))),
+                any(), any());
+    }
+
     @Test
     @DisplayName("이미지가 포함된 메시지를 전송할 수 있다")
     void sendMessage_ShouldHandleImageMessage_WhenImageProvided() {
@@ -236,16 +381,16 @@ class ChatServiceTest {
                 .thenReturn(Optional.of(activeChat));
         when(messageRepository.save(any(Message.class)))
                 .thenAnswer(invocation -> invocation.getArgument(0));
-        when(ollamaService.sendMessage(eq(userMessageContent), eq(imageUrl)))
-                .thenReturn(aiResponse);
+        when(ollamaService.sendMessageWithContextAsync(eq(chatId), eq(userMessageContent), eq(imageUrl), any(), any(), any()))
+                .thenReturn(Mono.just(aiResponse));
 
         // When
-        Message result = chatService.sendMessage(chatId, userId, userMessageContent, imageUrl, clientIp, userAgent);
+        chatService.sendMessageAsync(chatId, userId, userMessageContent, imageUrl, clientIp, userAgent).block();
 
         // Then
-        assertThat(result.hasImage()).isTrue();
-        assertThat(result.getImageUrl()).isEqualTo(imageUrl);
-        verify(ollamaService).sendMessage(userMessageContent, imageUrl);
+        verify(messageRepository).save(argThat(message -> message.getRole() == Role.USER
+                && message.hasImage() && imageUrl.equals(message.getImageUrl())));
+        verify(ollamaService).sendMessageWithContextAsync(eq(chatId), eq(userMessageContent), eq(imageUrl), any(), any(), any());
     }
 
     @Test
@@ -337,11 +482,38 @@ class ChatServiceTest {
     @DisplayName("입력 검증 - 빈 메시지 내용으로 전송 시 예외가 발생한다")
     void sendMessage_ShouldThrowException_WhenContentIsEmpty() {
         // When & Then
-        assertThatThrownBy(() -> chatService.sendMessage(chatId, userId, "", null, clientIp, userAgent))
+        assertThatThrownBy(() -> chatService.sendMessageAsync(chatId, userId, "", null, clientIp, userAgent))
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessage("메시지 내용은 필수입니다");
     }
 
+    @Test
+    @DisplayName("입력 검증 - WebSocket 요청의 생성 옵션이 범위를 벗어나면 생성하지 않고 예외가 발생한다")
+    void processMessageStreamAsync_ShouldThrowException_WhenOptionsOutOfRange() {
+        // Given
+        when(chatRepository.findByIdAndUserIdAndDeletedFalse(chatId, userId))
+                .thenReturn(Optional.of(activeChat));
+        GenerationOptionsRequest tooFewTokens = new GenerationOptionsRequest();
+        tooFewTokens.setNumPredict(0);
+        GenerationOptionsRequest tooHot = new GenerationOptionsRequest();
+        tooHot.setTemperature(3.5);
+        ChatMessageRequest first = new ChatMessageRequest(String.valueOf(chatId), "안녕하세요", null);
+        first.setOptions(tooFewTokens);
+        ChatMessageRequest second = new ChatMessageRequest(String.valueOf(chatId), "안녕하세요", null);
+        second.setOptions(tooHot);
+
+        // When & Then
+        assertThatThrownBy(() -> chatService.processMessageStreamAsync(first, "session-1", userId, chunk -> {},
+                position -> {}))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("최대 생성 토큰 수는 1 이상이어야 합니다");
+        assertThatThrownBy(() -> chatService.processMessageStreamAsync(second, "session-1", userId, chunk -> {},
+                position -> {}))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("temperature는 0 이상 2 이하여야 합니다");
+        verifyNoInteractions(ollamaService);
+    }
+
     @Test
     @DisplayName("AI 서비스 오류 시 적절히 처리한다")
     void sendMessage_ShouldHandleAIServiceError() {
@@ -351,15 +523,220 @@ class ChatServiceTest {
                 .thenReturn(Optional.of(activeChat));
         when(messageRepository.save(any(Message.class)))
                 .thenAnswer(invocation -> invocation.getArgument(0));
-        when(ollamaService.sendMessage(eq(userMessageContent), isNull()))
-                .thenThrow(new RuntimeException("AI 서비스 오류"));
+        when(ollamaService.sendMessageWithContextAsync(eq(chatId), eq(userMessageContent), isNull(), any(), any(), any()))
+                .thenReturn(Mono.error(new RuntimeException("AI 서비스 오류")));
 
         // When & Then
-        assertThatThrownBy(() -> chatService.sendMessage(chatId, userId, userMessageContent, null, clientIp, userAgent))
+        assertThatThrownBy(() -> chatService.sendMessageAsync(chatId, userId, userMessageContent, null, clientIp, userAgent)
+                .block())
                 .isInstanceOf(RuntimeException.class)
                 .hasMessage("AI 서비스 오류");
 
         // 사용자 메시지는 저장되어야 함
         verify(messageRepository, times(1)).save(any(Message.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("같은 질문이 동시에 들어오면 생성을 한 번만 실행하고 두 요청 모두 같은 청크를 받는다")
+    void processMessageStreamAsync_ShouldCoalesceIdenticalConcurrentRequests() throws Exception {
+        // Given
+        when(chatRepository.findByIdAndUserIdAndDeletedFalse(chatId, userId))
+                .thenReturn(Optional.of(activeChat));
+        when(messageRepository.save(any(Message.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        Sinks.Many<String> upstream = Sinks.many().unicast().onBackpressureBuffer();
+        when(ollamaService.streamMessageWithContext(eq(chatId), eq("안녕하세요"), isNull(), any(), any(), any()))
+                .thenReturn(upstream.asFlux());
+
+        List<String> first = new CopyOnWriteArrayList<>();
+        List<String> second = new CopyOnWriteArrayList<>();
+        ChatMessageRequest request = new ChatMessageRequest(String.valueOf(chatId), "안녕하세요", null);
+        ChatMessageRequest duplicate = new ChatMessageRequest(String.valueOf(chatId), "  안녕하세요 ", null);
+
+        // When: 더블 클릭으로 같은 질문이 두 번 전송됨
+        CompletableFuture<Void> firstDone = chatService.processMessageStreamAsync(
+                request, "session-1", userId, first::add, position -> {}).toFuture();
+        CompletableFuture<Void> secondDone = chatService.processMessageStreamAsync(
+                duplicate, "session-2", userId, second::add, position -> {}).toFuture();
+        upstream.tryEmitNext("안녕");
+        upstream.tryEmitNext("하세요");
+        upstream.tryEmitComplete();
+        firstDone.get(5, TimeUnit.SECONDS);
+        secondDone.get(5, TimeUnit.SECONDS);
+
+        // Then: 생성 1회, 사용자 메시지와 AI 응답도 각각 1건만 저장
+        assertThat(first).containsExactly("안녕", "하세요");
+        assertThat(second).containsExactly("안녕", "하세요");
+        verify(ollamaService, times(1))
+                .streamMessageWithContext(eq(chatId), anyString(), isNull(), any(), any(), any());
+        verify(messageRepository, times(2)).save(any(Message.class));
+        assertThat(generationCoalescer.getInFlightCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("같은 멱등성 키로 재시도하면 메시지를 다시 저장하지 않고 처음 요청의 AI 응답을 돌려준다")
+    void sendMessageAsync_ShouldReplayResponse_WhenIdempotencyKeyRepeated() {
+        // Given
+        when(chatRepository.findByIdAndUserIdAndDeletedFalse(chatId, userId))
+                .thenReturn(Optional.of(activeChat));
+        when(messageRepository.save(any(Message.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        when(ollamaService.sendMessageWithContextAsync(eq(chatId), eq("안녕하세요"), isNull(), any(), any(), any()))
+                .thenReturn(Mono.just("반가워요"));
+
+        // When: 클라이언트 타임아웃 후 같은 키로 재시도
+        Message first = chatService.sendMessageAsync(chatId, userId, "안녕하세요", null, null, "key-1",
+                clientIp, userAgent).block();
+        Message retried = chatService.sendMessageAsync(chatId, userId, "안녕하세요", null, null, "key-1",
+                clientIp, userAgent).block();
+
+        // Then: 생성 1회, 사용자 메시지와 AI 응답도 각각 1건만 저장
+        assertThat(retried).isSameAs(first);
+        verify(ollamaService, times(1))
+                .sendMessageWithContextAsync(eq(chatId), anyString(), isNull(), any(), any(), any());
+        verify(messageRepository, times(2)).save(any(Message.class));
+
+        // 같은 키로 다른 내용을 보내면 거절
+        assertThatThrownBy(() -> chatService.sendMessageAsync(chatId, userId, "다른 질문", null, null, "key-1",
+                clientIp, userAgent))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("스트리밍이 끝난 뒤 같은 멱등성 키로 재전송하면 저장된 응답을 그대로 전달한다")
+    void processMessageStreamAsync_ShouldReplayCompletedResponse_WhenIdempotencyKeyRepeated() {
+        // Given
+        when(chatRepository.findByIdAndUserIdAndDeletedFalse(chatId, userId))
+                .thenReturn(Optional.of(activeChat));
+        when(messageRepository.save(any(Message.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        when(ollamaService.streamMessageWithContext(eq(chatId), eq("안녕하세요"), isNull(), any(), any(), any()))
+                .thenReturn(Flux.just("안녕", "하세요"));
+
+        List<String> first = new CopyOnWriteArrayList<>();
+        List<String> retried = new CopyOnWriteArrayList<>();
+        ChatMessageRequest request = new ChatMessageRequest(String.valueOf(chatId), "안녕하세요", null);
+        request.setIdempotencyKey("key-1");
+
+        // When
+        chatService.processMessageStreamAsync(request, "session-1", userId, first::add, position -> {})
+                .block(Duration.ofSeconds(5));
+        chatService.processMessageStreamAsync(request, "session-2", userId, retried::add, position -> {})
+                .block(Duration.ofSeconds(5));
+
+        // Then
+        assertThat(first).containsExactly("안녕", "하세요");
+        assertThat(retried).containsExactly("안녕하세요");
+        verify(ollamaService, times(1))
+                .streamMessageWithContext(eq(chatId), anyString(), isNull(), any(), any(), any());
+        verify(messageRepository, times(2)).save(any(Message.class));
+    }
+
+    @Test
+    @DisplayName("마지막 청크 후 전체 응답을 저장하는 중에 취소되어도 전체 응답을 한 번만 저장한다")
+    void processMessageStreamAsync_ShouldSaveFullResponseOnce_WhenCancelledAfterLastChunk() throws Exception {
+        // Given: 전체 응답 저장이 끝나지 않은 채 대기
+        AtomicLong ids = new AtomicLong();
+        CountDownLatch saving = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(chatRepository.findByIdAndUserIdAndDeletedFalse(chatId, userId))
+                .thenReturn(Optional.of(activeChat));
+        when(messageRepository.save(any(Message.class))).thenAnswer(invocation -> {
+            Message message = invocation.getArgument(0);
+            if (message.getRole() == Role.ASSISTANT) {
+                saving.countDown();
+                assertThat(release.await(5, TimeUnit.SECONDS)).isTrue();
+            }
+            return withId(message, ids.incrementAndGet());
+        });
+        when(ollamaService.streamMessageWithContext(eq(chatId), eq("안녕하세요"), isNull(), any(), any(), any()))
+                .thenReturn(Flux.just("안녕", "하세요"));
+        ChatMessageRequest request = new ChatMessageRequest(String.valueOf(chatId), "안녕하세요", null);
+
+        // When: 저장 중에 사용자가 중지
+        Disposable subscription = chatService.processMessageStreamAsync(request, "session-1", userId,
+                chunk -> {}, position -> {}).subscribe();
+        assertThat(saving.await(5, TimeUnit.SECONDS)).isTrue();
+        subscription.dispose();
+        release.countDown();
+
+        // Then: 저장이 중단되지 않고, 부분 응답은 저장하지 않는다
+        verify(messageRepository, timeout(5000).times(1)).save(argThat(message -> message.getRole() == Role.ASSISTANT
+                && message.getContent().equals("안녕하세요")));
+        verify(messageRepository, after(200).times(2)).save(any(Message.class));
+    }
+
+    @Test
+    @DisplayName("연결이 끊겨 생성이 취소된 뒤 같은 멱등성 키로 재전송하면 다시 생성하지 않고 저장된 일부 응답을 전달한다")
+    void processMessageStreamAsync_ShouldReplayPartialResponse_WhenRetriedAfterCancel() throws Exception {
+        // Given
+        AtomicLong ids = new AtomicLong();
+        when(chatRepository.findByIdAndUserIdAndDeletedFalse(chatId, userId))
+                .thenReturn(Optional.of(activeChat));
+        when(messageRepository.save(any(Message.class)))
+                .thenAnswer(invocation -> withId(invocation.getArgument(0), ids.incrementAndGet()));
+        Sinks.Many<String> upstream = Sinks.many().unicast().onBackpressureBuffer();
+        when(ollamaService.streamMessageWithContext(eq(chatId), eq("안녕하세요"), isNull(), any(), any(), any()))
+                .thenReturn(upstream.asFlux());
+
+        CompletableFuture<String> firstChunk = new CompletableFuture<>();
+        List<String> retried = new CopyOnWriteArrayList<>();
+        ChatMessageRequest request = new ChatMessageRequest(String.valueOf(chatId), "안녕하세요", null);
+        request.setIdempotencyKey("key-1");
+
+        // When: 첫 청크를 받은 뒤 연결이 끊기고, 클라이언트가 같은 키로 재전송
+        Disposable subscription = chatService.processMessageStreamAsync(request, "session-1", userId,
+                firstChunk::complete, position -> {}).subscribe();
+        upstream.tryEmitNext("안녕");
+        assertThat(firstChunk.get(5, TimeUnit.SECONDS)).isEqualTo("안녕");
+        subscription.dispose();
+        verify(messageRepository, timeout(5000).times(2)).save(any(Message.class));
+
+        chatService.processMessageStreamAsync(request, "session-2", userId, retried::add, position -> {})
+                .block(Duration.ofSeconds(5));
+
+        // Then: 생성 1회, 사용자 메시지와 일부 응답이 각각 1건만 저장
+        assertThat(retried).containsExactly("안녕");
+        verify(ollamaService, times(1))
+                .streamMessageWithContext(eq(chatId), anyString(), isNull(), any(), any(), any());
+        verify(messageRepository, times(1)).save(argThat(message -> message.getRole() == Role.USER));
+        verify(messageRepository, times(1)).save(argThat(message -> message.getRole() == Role.ASSISTANT
+                && message.getContent().equals("안녕")));
+    }
+
+    @Test
+    @DisplayName("첫 토큰 전에 취소된 요청을 같은 멱등성 키로 재전송하면 사용자 메시지를 다시 저장하지 않고 다시 생성한다")
+    void processMessageStreamAsync_ShouldRegenerateWithoutResavingUserMessage_WhenRetriedAfterCancelBeforeFirstToken()
+            throws Exception {
+        // Given
+        AtomicLong ids = new AtomicLong();
+        when(chatRepository.findByIdAndUserIdAndDeletedFalse(chatId, userId))
+                .thenReturn(Optional.of(activeChat));
+        when(messageRepository.save(any(Message.class)))
+                .thenAnswer(invocation -> withId(invocation.getArgument(0), ids.incrementAndGet()));
+        CompletableFuture<Void> streamStarted = new CompletableFuture<>();
+        when(ollamaService.streamMessageWithContext(eq(chatId), eq("안녕하세요"), isNull(), any(), any(), any()))
+                .thenReturn(Flux.<String>never().doOnSubscribe(s -> streamStarted.complete(null)))
+                .thenReturn(Flux.just("반가워요"));
+
+        List<String> retried = new CopyOnWriteArrayList<>();
+        ChatMessageRequest request = new ChatMessageRequest(String.valueOf(chatId), "안녕하세요", null);
+        request.setIdempotencyKey("key-1");
+
+        // When: 모델이 응답하기 전에 연결이 끊기고, 클라이언트가 같은 키로 재전송
+        Disposable subscription = chatService.processMessageStreamAsync(request, "session-1", userId,
+                chunk -> {}, position -> {}).subscribe();
+        streamStarted.get(5, TimeUnit.SECONDS);
+        subscription.dispose();
+
+        chatService.processMessageStreamAsync(request, "session-2", userId, retried::add, position -> {})
+                .block(Duration.ofSeconds(5));
+
+        // Then: 다시 생성하지만 사용자 메시지는 처음 저장한 1건만 남는다
+        assertThat(retried).containsExactly("반가워요");
+        verify(ollamaService, times(2))
+                .streamMessageWithContext(eq(chatId), anyString(), isNull(), any(), any(), any());
+        verify(messageRepository, timeout(5000).times(2)).save(any(Message.class));
+        verify(messageRepository, times(1)).save(argThat(message -> message.getRole() == Role.USER));
+    }
+}
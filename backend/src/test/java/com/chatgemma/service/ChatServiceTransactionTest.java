@@ -0,0 +1,164 @@
+package com.chatgemma.service;
+
+import com.chatgemma.entity.Chat;
+import com.chatgemma.entity.Message;
+import com.chatgemma.repository.AuditLogRepository;
+import com.chatgemma.repository.ChatRepository;
+import com.chatgemma.repository.MessageRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// 스프링 프록시를 거쳐 호출했을 때 사용자 메시지가 쓰기 트랜잭션 안에서 저장되는지 확인
+@SpringJUnitConfig
+@DisplayName("ChatService Transaction Tests")
+class ChatServiceTransactionTest {
+
+    private static final Long USER_ID = 1L;
+    private static final Long CHAT_ID = 100L;
+
+    @Autowired
+    private ChatService chatService;
+
+    @Autowired
+    private ChatRepository chatRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private OllamaService ollamaService;
+
+    @Autowired
+    private RecordingTransactionManager transactionManager;
+
+    // messageRepository.save 호출 시점의 트랜잭션 읽기 전용 여부
+    private final List<Boolean> readOnlyAtSave = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        reset(chatRepository, messageRepository, ollamaService);
+        transactionManager.definitions.clear();
+        readOnlyAtSave.clear();
+
+        when(chatRepository.findByIdAndUserIdAndDeletedFalse(CHAT_ID, USER_ID))
+                .thenReturn(Optional.of(Chat.create(USER_ID, "테스트 채팅")));
+        when(messageRepository.save(any(Message.class))).thenAnswer(invocation -> {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                readOnlyAtSave.add(TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+            }
+            return invocation.getArgument(0);
+        });
+        when(ollamaService.sendMessageWithContextAsync(eq(CHAT_ID), anyString(), isNull(), any(), any(), any()))
+                .thenReturn(Mono.just("반가워요"));
+    }
+
+    @Test
+    @DisplayName("멱등성 키 없이 호출해도 사용자 메시지는 쓰기 트랜잭션에서 저장된다")
+    void sendMessageAsync_ShouldSaveUserMessageInWritableTransaction_WithoutIdempotencyKey() {
+        assertThat(AopUtils.isAopProxy(chatService)).isTrue();
+
+        chatService.sendMessageAsync(CHAT_ID, USER_ID, "안녕하세요", null, null, null, "127.0.0.1", "test")
+                .block(Duration.ofSeconds(5));
+
+        assertThat(transactionManager.definitions).isNotEmpty();
+        assertThat(transactionManager.definitions.get(0).isReadOnly()).isFalse();
+        assertThat(readOnlyAtSave).first().isEqualTo(false);
+    }
+
+    @Test
+    @DisplayName("멱등성 키와 함께 호출해도 사용자 메시지는 쓰기 트랜잭션에서 저장된다")
+    void sendMessageAsync_ShouldSaveUserMessageInWritableTransaction_WithIdempotencyKey() {
+        chatService.sendMessageAsync(CHAT_ID, USER_ID, "안녕하세요", null, null, "key-1", "127.0.0.1", "test")
+                .block(Duration.ofSeconds(5));
+
+        assertThat(transactionManager.definitions.get(0).isReadOnly()).isFalse();
+        assertThat(readOnlyAtSave).first().isEqualTo(false);
+    }
+
+    @Configuration
+    @EnableTransactionManagement(proxyTargetClass = true)
+    static class Config {
+
+        @Bean
+        RecordingTransactionManager transactionManager() {
+            return new RecordingTransactionManager();
+        }
+
+        @Bean
+        ChatRepository chatRepository() {
+            return mock(ChatRepository.class);
+        }
+
+        @Bean
+        MessageRepository messageRepository() {
+            return mock(MessageRepository.class);
+        }
+
+        @Bean
+        OllamaService ollamaService() {
+            return mock(OllamaService.class);
+        }
+
+        @Bean
+        ChatService chatService(ChatRepository chatRepository, MessageRepository messageRepository,
+                                OllamaService ollamaService) {
+            SimpleMeterRegistry registry = new SimpleMeterRegistry();
+            TokenCounter tokenCounter = new TokenCounter("");
+            return new ChatService(chatRepository, messageRepository, mock(AuditLogRepository.class), ollamaService,
+                    new GenerationScheduler(2, 50),
+                    new TokenUsageLedger(registry, 10000, Duration.ofHours(24)),
+                    new GenerationCoalescer(registry),
+                    new IdempotencyStore(registry, 100, Duration.ofMinutes(10)),
+                    new ChatMemoryIndex(null, tokenCounter, registry, false, 6, 4, 20, 0.5, 50000, Duration.ofHours(2)),
+                    mock(ConversationCompactor.class), tokenCounter,
+                    new ChatHistoryWindow(tokenCounter, registry, true, 64, 32768, 100, Duration.ofMinutes(30)),
+                    mock(ChatContextStore.class));
+        }
+    }
+
+    // 시작된 트랜잭션 정의를 기록하고 읽기 전용 여부를 동기화 상태에 반영하는 최소 트랜잭션 매니저
+    static class RecordingTransactionManager extends AbstractPlatformTransactionManager {
+
+        final List<TransactionDefinition> definitions = new CopyOnWriteArrayList<>();
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+            definitions.add(definition);
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
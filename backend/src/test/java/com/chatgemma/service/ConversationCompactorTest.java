@@ -0,0 +1,237 @@
+package com.chatgemma.service;
+
+import com.chatgemma.entity.ChatSummary;
+import com.chatgemma.entity.Message;
+import com.chatgemma.repository.ChatSummaryRepository;
+import com.chatgemma.repository.MessageRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ConversationCompactor Tests")
+class ConversationCompactorTest {
+
+    private static final Long CHAT_ID = 100L;
+
+    @Mock
+    private ChatSummaryRepository summaryRepository;
+
+    @Mock
+    private MessageRepository messageRepository;
+
+    @Mock
+    private OllamaService ollamaService;
+
+    @Mock
+    private ChatContextStore contextStore;
+
+    @Mock
+    private ChatHistoryWindow historyWindow;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final GenerationScheduler generationScheduler = new GenerationScheduler(2, 50);
+    private ConversationCompactor compactor;
+
+    @BeforeEach
+    void setUp() {
+        // 기준 100토큰, 최근 4개 메시지 유지
+        compactor = new ConversationCompactor(summaryRepository, messageRepository, ollamaService,
+                generationScheduler, new TokenCounter(""), contextStore, historyWindow, meterRegistry, true, 100, 4, 8000, 256);
+    }
+
+    @Test
+    @DisplayName("오래된 턴이 기준 토큰을 넘으면 최근 메시지를 뺀 나머지를 요약해 저장한다")
+    void drainPending_ShouldSummarizeOlderTurns_WhenThresholdExceeded() {
+        // Given: 10턴(20개 메시지), 메시지당 약 50토큰
+        List<Message> history = conversation(1, 10);
+        when(summaryRepository.findByChatId(CHAT_ID)).thenReturn(Optional.empty());
+        when(messageRepository.findByChatIdAndExcludeFromContextFalseOrderByCreatedAtAsc(CHAT_ID)).thenReturn(history);
+        when(messageRepository.findById(16L)).thenReturn(Optional.of(history.get(15)));
+        when(ollamaService.summarizeConversation(eq(CHAT_ID), isNull(), anyList(), eq(256)))
+                .thenReturn(Mono.just("사용자는 환불 기간을 물었고 14일이라고 안내함"));
+
+        // When
+        compactor.onMessageSaved(CHAT_ID);
+        compactor.drainPending();
+
+        // Then: 앞 16개 메시지가 요약되고 최근 4개는 원문으로 남는다
+        ArgumentCaptor<List<Message>> batch = ArgumentCaptor.forClass(List.class);
+        verify(ollamaService).summarizeConversation(eq(CHAT_ID), isNull(), batch.capture(), eq(256));
+        assertThat(batch.getValue()).containsExactlyElementsOf(history.subList(0, 16));
+
+        ArgumentCaptor<ChatSummary> saved = ArgumentCaptor.forClass(ChatSummary.class);
+        verify(summaryRepository).save(saved.capture());
+        assertThat(saved.getValue().getCoveredUntilMessageId()).isEqualTo(16L);
+        assertThat(saved.getValue().getCoveredMessageCount()).isEqualTo(16);
+        verify(contextStore).invalidate(CHAT_ID);
+        verify(historyWindow).invalidateSummary(CHAT_ID);
+        assertThat(meterRegistry.get("chatgemma.summary.compactions").tag("result", "compacted")
+                .counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("주기 작업은 요약이 끝나기를 기다리지 않고 별도 스레드에서 처리한다")
+    void compactPending_ShouldNotBlockSchedulerThread() {
+        // Given: 아직 끝나지 않은 요약
+        List<Message> history = conversation(1, 10);
+        Sinks.One<String> summary = Sinks.one();
+        when(summaryRepository.findByChatId(CHAT_ID)).thenReturn(Optional.empty());
+        when(messageRepository.findByChatIdAndExcludeFromContextFalseOrderByCreatedAtAsc(CHAT_ID)).thenReturn(history);
+        when(messageRepository.findById(16L)).thenReturn(Optional.of(history.get(15)));
+        when(ollamaService.summarizeConversation(eq(CHAT_ID), isNull(), anyList(), eq(256)))
+                .thenReturn(summary.asMono());
+
+        // When: 요약이 끝나기 전에 반환
+        compactor.onMessageSaved(CHAT_ID);
+        compactor.compactPending();
+        verify(summaryRepository, never()).save(any());
+        summary.tryEmitValue("사용자는 환불 기간을 물었음");
+
+        // Then
+        verify(summaryRepository, timeout(5000)).save(any(ChatSummary.class));
+        verify(ollamaService, times(1)).summarizeConversation(anyLong(), any(), anyList(), anyInt());
+    }
+
+    @Test
+    @DisplayName("기존 요약이 있으면 그 이후 메시지만 이전 요약에 이어서 요약한다")
+    void compact_ShouldExtendExistingSummary() {
+        // Given: 1~16번은 이미 요약됨, 17~40번이 새로 쌓임
+        ChatSummary existing = ChatSummary.create(CHAT_ID, "기존 요약", 16L, 16);
+        List<Message> history = conversation(1, 20);
+        when(summaryRepository.findByChatId(CHAT_ID)).thenReturn(Optional.of(existing));
+        when(messageRepository.findByChatIdAndExcludeFromContextFalseOrderByCreatedAtAsc(CHAT_ID)).thenReturn(history);
+        when(messageRepository.findById(36L)).thenReturn(Optional.of(history.get(35)));
+        when(ollamaService.summarizeConversation(eq(CHAT_ID), eq("기존 요약"), anyList(), eq(256)))
+                .thenReturn(Mono.just("갱신된 요약"));
+
+        // When
+        boolean compacted = compactor.compact(CHAT_ID);
+
+        // Then
+        assertThat(compacted).isTrue();
+        assertThat(existing.getContent()).isEqualTo("갱신된 요약");
+        assertThat(existing.getCoveredUntilMessageId()).isEqualTo(36L);
+        assertThat(existing.getCoveredMessageCount()).isEqualTo(36);
+    }
+
+    @Test
+    @DisplayName("오래된 턴이 기준 토큰보다 적으면 요약하지 않는다")
+    void compact_ShouldSkip_WhenBelowThreshold() {
+        // Given: 3턴
+        when(summaryRepository.findByChatId(CHAT_ID)).thenReturn(Optional.empty());
+        when(messageRepository.findByChatIdAndExcludeFromContextFalseOrderByCreatedAtAsc(CHAT_ID))
+                .thenReturn(conversation(1, 3));
+
+        // When & Then
+        assertThat(compactor.compact(CHAT_ID)).isFalse();
+        verifyNoInteractions(ollamaService);
+        verify(summaryRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("사용자 생성이 실행 중이면 요약을 다음 주기로 미룬다")
+    void drainPending_ShouldWait_WhenGenerationRunning() {
+        // Given: 끝나지 않는 사용자 생성 하나
+        Sinks.Many<String> running = Sinks.many().unicast().onBackpressureBuffer();
+        generationScheduler.submit(1L, running::asFlux, null).subscribe();
+        compactor.onMessageSaved(CHAT_ID);
+
+        // When
+        compactor.drainPending();
+
+        // Then
+        verifyNoInteractions(summaryRepository, messageRepository, ollamaService);
+        assertThat(meterRegistry.get("chatgemma.summary.pending").gauge().value()).isEqualTo(1.0);
+        running.tryEmitComplete();
+    }
+
+    @Test
+    @DisplayName("요약 중에 사용자 생성이 들어오면 요약 요청을 취소하고 채팅을 다시 후보로 표시한다")
+    void compactPending_ShouldCancelSummary_WhenUserGenerationSubmittedMidSummary() throws Exception {
+        // Given: 응답이 오지 않는 요약
+        List<Message> history = conversation(1, 10);
+        CountDownLatch summarizing = new CountDownLatch(1);
+        AtomicBoolean cancelled = new AtomicBoolean(false);
+        when(summaryRepository.findByChatId(CHAT_ID)).thenReturn(Optional.empty());
+        when(messageRepository.findByChatIdAndExcludeFromContextFalseOrderByCreatedAtAsc(CHAT_ID)).thenReturn(history);
+        when(ollamaService.summarizeConversation(eq(CHAT_ID), isNull(), anyList(), eq(256)))
+                .thenReturn(Mono.<String>never()
+                        .doOnSubscribe(subscription -> summarizing.countDown())
+                        .doOnCancel(() -> cancelled.set(true)));
+        compactor.onMessageSaved(CHAT_ID);
+        compactor.compactPending();
+        assertThat(summarizing.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // When: 요약하는 동안 사용자 생성이 입장
+        Sinks.Many<String> running = Sinks.many().unicast().onBackpressureBuffer();
+        generationScheduler.submit(1L, running::asFlux, null).subscribe();
+
+        // Then: 요약 요청이 취소되고 다음 주기에 다시 요약
+        assertThat(cancelled).isTrue();
+        assertThat(meterRegistry.get("chatgemma.summary.compactions").tag("result", "preempted")
+                .counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("chatgemma.summary.pending").gauge().value()).isEqualTo(1.0);
+        verify(summaryRepository, never()).save(any());
+        running.tryEmitComplete();
+    }
+
+    @Test
+    @DisplayName("요약이 실패하면 다음 주기에 다시 시도한다")
+    void drainPending_ShouldRetryLater_WhenSummarizationFails() {
+        // Given
+        when(summaryRepository.findByChatId(CHAT_ID)).thenReturn(Optional.empty());
+        when(messageRepository.findByChatIdAndExcludeFromContextFalseOrderByCreatedAtAsc(CHAT_ID))
+                .thenReturn(conversation(1, 10));
+        when(ollamaService.summarizeConversation(anyLong(), any(), anyList(), anyInt()))
+                .thenReturn(Mono.error(new RuntimeException("AI 서비스 연결 실패")));
+
+        // When
+        compactor.onMessageSaved(CHAT_ID);
+        compactor.drainPending();
+
+        // Then
+        assertThat(meterRegistry.get("chatgemma.summary.compactions").tag("result", "failed")
+                .counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("chatgemma.summary.pending").gauge().value()).isEqualTo(1.0);
+    }
+
+    // firstId부터 turns개의 질문/답 턴 (메시지당 약 50토큰)
+    private static List<Message> conversation(long firstId, int turns) {
+        List<Message> messages = new ArrayList<>();
+        for (int turn = 0; turn < turns; turn++) {
+            messages.add(withId(Message.createUserMessage(CHAT_ID, "질문입니다 ".repeat(4) + turn), firstId + messages.size()));
+            messages.add(withId(Message.createAssistantMessage(CHAT_ID, "답변입니다 ".repeat(4) + turn), firstId + messages.size()));
+        }
+        return messages;
+    }
+
+    private static Message withId(Message message, Long id) {
+        try {
+            var field = Message.class.getDeclaredField("id");
+            field.setAccessible(true);
+            field.set(message, id);
+            return message;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,124 @@
+package com.chatgemma.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("GenerationCoalescer Tests")
+class GenerationCoalescerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final GenerationCoalescer coalescer = new GenerationCoalescer(meterRegistry);
+
+    @Test
+    @DisplayName("진행 중인 생성에 합류한 요청은 처음부터의 청크를 모두 받고 생성은 한 번만 실행된다")
+    void execute_ShouldShareInFlightGeneration() {
+        // Given
+        Sinks.Many<String> upstream = Sinks.many().unicast().onBackpressureBuffer();
+        AtomicInteger generations = new AtomicInteger();
+        GenerationCoalescer.Key key = GenerationCoalescer.of(1L, "안녕하세요", null, null, 10L);
+
+        List<String> first = new CopyOnWriteArrayList<>();
+        List<String> second = new CopyOnWriteArrayList<>();
+
+        // When: 첫 청크 이후에 같은 요청이 합류
+        coalescer.execute(key, () -> {
+            generations.incrementAndGet();
+            return upstream.asFlux();
+        }).subscribe(first::add);
+        upstream.tryEmitNext("안녕");
+        coalescer.execute(GenerationCoalescer.of(1L, " 안녕하세요  ", "", null, 10L), () -> {
+            generations.incrementAndGet();
+            return Flux.just("다른 생성");
+        }).subscribe(second::add);
+        upstream.tryEmitNext("하세요");
+        upstream.tryEmitComplete();
+
+        // Then
+        assertThat(generations.get()).isEqualTo(1);
+        assertThat(first).containsExactly("안녕", "하세요");
+        assertThat(second).containsExactly("안녕", "하세요");
+        assertThat(meterRegistry.get("chatgemma.generation.coalesced").counter().count()).isEqualTo(1.0);
+        assertThat(coalescer.getInFlightCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("생성이 끝나면 구독자가 완료를 받기 전에 키가 제거돼, 그 뒤의 같은 요청은 새로 생성한다")
+    void execute_ShouldReleaseKey_BeforeCompletionReachesSubscribers() {
+        // Given
+        GenerationCoalescer.Key key = GenerationCoalescer.of(1L, "질문", null, null, 10L);
+        AtomicInteger inFlightOnComplete = new AtomicInteger(-1);
+        List<String> late = new CopyOnWriteArrayList<>();
+
+        // When: 완료 신호를 받는 시점에 같은 요청이 들어온다
+        coalescer.execute(key, () -> Flux.just("첫 답변"))
+                .doOnComplete(() -> {
+                    inFlightOnComplete.set(coalescer.getInFlightCount());
+                    coalescer.execute(key, () -> Flux.just("새 답변")).subscribe(late::add);
+                })
+                .subscribe();
+
+        // Then
+        assertThat(inFlightOnComplete.get()).isZero();
+        assertThat(late).containsExactly("새 답변");
+        assertThat(coalescer.getInFlightCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("대화 상태나 옵션이 다르면 합치지 않는다")
+    void execute_ShouldNotCoalesce_WhenKeyDiffers() {
+        // Given
+        Sinks.Many<String> upstream = Sinks.many().multicast().onBackpressureBuffer();
+        AtomicInteger generations = new AtomicInteger();
+
+        // When
+        coalescer.execute(GenerationCoalescer.of(1L, "질문", null, null, 10L), () -> {
+            generations.incrementAndGet();
+            return upstream.asFlux();
+        }).subscribe();
+        coalescer.execute(GenerationCoalescer.of(1L, "질문", null, null, 11L), () -> {
+            generations.incrementAndGet();
+            return upstream.asFlux();
+        }).subscribe();
+        coalescer.execute(GenerationCoalescer.of(1L, "질문", null,
+                new GenerationOptions(256, null, null, null), 10L), () -> {
+            generations.incrementAndGet();
+            return upstream.asFlux();
+        }).subscribe();
+
+        // Then
+        assertThat(generations.get()).isEqualTo(3);
+        assertThat(coalescer.getInFlightCount()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("한 요청이 취소해도 다른 요청이 남아 있으면 생성은 계속되고, 모두 떠나면 생성을 취소한다")
+    void execute_ShouldCancelGeneration_OnlyWhenAllSubscribersLeave() {
+        // Given
+        Sinks.Many<String> upstream = Sinks.many().unicast().onBackpressureBuffer();
+        AtomicBoolean cancelled = new AtomicBoolean(false);
+        GenerationCoalescer.Key key = GenerationCoalescer.of(1L, "질문", null, null, null);
+
+        Disposable first = coalescer.execute(key, () -> upstream.asFlux().doOnCancel(() -> cancelled.set(true)))
+                .subscribe();
+        Disposable second = coalescer.execute(key, () -> Flux.just("다른 생성")).subscribe();
+
+        // When & Then
+        first.dispose();
+        assertThat(cancelled.get()).isFalse();
+
+        second.dispose();
+        assertThat(cancelled.get()).isTrue();
+        assertThat(coalescer.getInFlightCount()).isZero();
+    }
+}
\ No newline at end of file
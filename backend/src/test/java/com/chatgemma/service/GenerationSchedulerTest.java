@@ -0,0 +1,177 @@
+package com.chatgemma.service;
+
+import com.chatgemma.service.exception.AiServiceBusyException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("GenerationScheduler Tests")
+class GenerationSchedulerTest {
+
+    private final List<String> started = new ArrayList<>();
+    private final List<Sinks.Empty<Void>> runningGenerations = new ArrayList<>();
+
+    @Test
+    @DisplayName("동시 실행 한도까지는 즉시 실행하고 나머지는 대기시킨다")
+    void submit_ShouldQueue_WhenConcurrencyLimitReached() {
+        // Given
+        GenerationScheduler scheduler = new GenerationScheduler(2, 10);
+
+        // When
+        scheduler.submit(1L, () -> generation("a1"), null).subscribe();
+        scheduler.submit(2L, () -> generation("b1"), null).subscribe();
+        scheduler.submit(3L, () -> generation("c1"), null).subscribe();
+
+        // Then
+        assertThat(started).containsExactly("a1", "b1");
+        assertThat(scheduler.getRunningCount()).isEqualTo(2);
+        assertThat(scheduler.getQueuedCount()).isEqualTo(1);
+
+        // 실행 중인 생성이 끝나면 대기 중인 요청이 시작된다
+        runningGenerations.get(0).tryEmitEmpty();
+        assertThat(started).containsExactly("a1", "b1", "c1");
+        assertThat(scheduler.getQueuedCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("한 사용자가 여러 요청을 보내도 다른 사용자와 번갈아 처리한다")
+    void submit_ShouldServeUsersRoundRobin() {
+        // Given
+        GenerationScheduler scheduler = new GenerationScheduler(1, 10);
+        scheduler.submit(9L, () -> generation("busy"), null).subscribe();
+
+        scheduler.submit(1L, () -> generation("a1"), null).subscribe();
+        scheduler.submit(1L, () -> generation("a2"), null).subscribe();
+        scheduler.submit(1L, () -> generation("a3"), null).subscribe();
+        scheduler.submit(2L, () -> generation("b1"), null).subscribe();
+
+        // When
+        for (int i = 0; i < 4; i++) {
+            runningGenerations.get(i).tryEmitEmpty();
+        }
+
+        // Then
+        assertThat(started).containsExactly("busy", "a1", "b1", "a2", "a3");
+    }
+
+    @Test
+    @DisplayName("대기열이 가득 차면 즉시 혼잡 예외로 거절한다")
+    void submit_ShouldReject_WhenQueueFull() {
+        // Given
+        GenerationScheduler scheduler = new GenerationScheduler(1, 1);
+        scheduler.submit(1L, () -> generation("running"), null).subscribe();
+        scheduler.submit(2L, () -> generation("queued"), null).subscribe();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+
+        // When
+        scheduler.submit(3L, () -> generation("rejected"), null).subscribe(v -> { }, error::set);
+
+        // Then
+        assertThat(error.get()).isInstanceOf(AiServiceBusyException.class);
+        assertThat(started).containsExactly("running");
+    }
+
+    @Test
+    @DisplayName("대기 순번이 바뀔 때마다 리스너에 알린다")
+    void submit_ShouldPublishQueuePositions() {
+        // Given
+        GenerationScheduler scheduler = new GenerationScheduler(1, 10);
+        List<Integer> positions = new ArrayList<>();
+        scheduler.submit(1L, () -> generation("running"), null).subscribe();
+        scheduler.submit(2L, () -> generation("first"), null).subscribe();
+
+        // When
+        scheduler.submit(3L, () -> generation("second"), positions::add).subscribe();
+        runningGenerations.get(0).tryEmitEmpty();
+
+        // Then
+        assertThat(positions).containsExactly(2, 1);
+    }
+
+    @Test
+    @DisplayName("대기 중 취소된 요청은 대기열에서 제거되고 실행되지 않는다")
+    void submit_ShouldRemoveFromQueue_WhenCancelledWhileWaiting() {
+        // Given
+        GenerationScheduler scheduler = new GenerationScheduler(1, 10);
+        scheduler.submit(1L, () -> generation("running"), null).subscribe();
+        Disposable waiting = scheduler.submit(2L, () -> generation("cancelled"), null).subscribe();
+
+        // When
+        waiting.dispose();
+        runningGenerations.get(0).tryEmitEmpty();
+
+        // Then
+        assertThat(started).containsExactly("running");
+        assertThat(scheduler.getQueuedCount()).isZero();
+        assertThat(scheduler.getRunningCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("실행 중인 생성이 취소되면 슬롯을 반납한다")
+    void submit_ShouldReleaseSlot_WhenRunningGenerationCancelled() {
+        // Given
+        GenerationScheduler scheduler = new GenerationScheduler(1, 10);
+        Disposable running = scheduler.submit(1L, () -> generation("running"), null).subscribe();
+        scheduler.submit(2L, () -> generation("next"), null).subscribe();
+
+        // When
+        running.dispose();
+
+        // Then
+        assertThat(started).containsExactly("running", "next");
+        assertThat(scheduler.getRunningCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("대기열에서는 이미 로드된 모델의 요청을 먼저 처리한다")
+    void submit_ShouldPreferResidentModel() {
+        // Given
+        GenerationScheduler scheduler = new GenerationScheduler(1, 10, "gemma3n:e4b"::equals);
+        scheduler.submit(9L, "gemma3n:e4b", () -> generation("busy"), null).subscribe();
+
+        scheduler.submit(1L, "llama3", () -> generation("cold"), null).subscribe();
+        scheduler.submit(2L, "gemma3n:e4b", () -> generation("warm"), null).subscribe();
+
+        // When
+        runningGenerations.get(0).tryEmitEmpty();
+        runningGenerations.get(1).tryEmitEmpty();
+
+        // Then
+        assertThat(started).containsExactly("busy", "warm", "cold");
+    }
+
+    @Test
+    @DisplayName("로드되지 않은 모델의 요청도 일정 횟수 이상 밀리지 않는다")
+    void submit_ShouldNotStarveColdModel() {
+        // Given
+        GenerationScheduler scheduler = new GenerationScheduler(1, 20, "gemma3n:e4b"::equals);
+        scheduler.submit(9L, "gemma3n:e4b", () -> generation("busy"), null).subscribe();
+        scheduler.submit(1L, "llama3", () -> generation("cold"), null).subscribe();
+        for (int i = 0; i < 10; i++) {
+            scheduler.submit(2L, "gemma3n:e4b", () -> generation("warm"), null).subscribe();
+        }
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            runningGenerations.get(i).tryEmitEmpty();
+        }
+
+        // Then: 8번 양보한 뒤에는 순서대로 처리
+        assertThat(started.indexOf("cold")).isEqualTo(9);
+    }
+
+    private Flux<String> generation(String name) {
+        started.add(name);
+        Sinks.Empty<Void> completion = Sinks.empty();
+        runningGenerations.add(completion);
+        return Flux.just(name).concatWith(completion.asMono().thenMany(Flux.empty()));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,114 @@
+package com.chatgemma.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("GenerationTimeoutPolicy Tests")
+class GenerationTimeoutPolicyTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("관측된 처리 속도와 num_predict로 전체 예산을 계산하고, 모델이 로드되어 있지 않으면 첫 토큰 예산을 늘린다")
+    void budgetFor_ShouldScaleWithThroughputAndResidency() {
+        // Given
+        GenerationTimeoutPolicy policy = new GenerationTimeoutPolicy("gemma3n:e4b"::equals, meterRegistry,
+                Duration.ofSeconds(10), Duration.ofSeconds(5), Duration.ofSeconds(60), 2.0, 2.0, Duration.ofMinutes(10));
+
+        // 프롬프트 1000토큰/초, 생성 20토큰/초
+        policy.onCompleted("gemma3n:e4b", 1000, 1_000_000_000L, 20, 1_000_000_000L);
+
+        // When
+        GenerationTimeoutPolicy.Budget warm = policy.budgetFor("gemma3n:e4b", 2000, 400);
+        GenerationTimeoutPolicy.Budget cold = policy.budgetFor("llama3", 2000, 400);
+        GenerationTimeoutPolicy.Budget unlimited = policy.budgetFor("gemma3n:e4b", 2000, null);
+
+        // Then: 첫 토큰 10s + 2 × 2000/1000s = 14s, 전체 14s + 2 × 400/20s = 54s
+        assertThat(warm.getFirstToken()).isEqualTo(Duration.ofSeconds(14));
+        assertThat(warm.getIdle()).isEqualTo(Duration.ofSeconds(5));
+        assertThat(warm.getTotal()).isEqualTo(Duration.ofSeconds(54));
+        // 관측값이 없는 모델은 로드 여유분 60s와 최소 속도 2토큰/초 기준
+        assertThat(cold.getFirstToken()).isEqualTo(Duration.ofSeconds(70));
+        assertThat(cold.getTotal()).isEqualTo(Duration.ofSeconds(470));
+        assertThat(unlimited.getTotal()).isEqualTo(Duration.ofMinutes(10));
+    }
+
+    @Test
+    @DisplayName("첫 토큰이 오지 않으면 첫 토큰 타임아웃으로 실패한다")
+    void applyToStream_ShouldFail_WhenFirstTokenNeverArrives() {
+        // Given
+        GenerationTimeoutPolicy policy = policy();
+        GenerationTimeoutPolicy.Budget budget = new GenerationTimeoutPolicy.Budget(
+                Duration.ofMillis(100), Duration.ofSeconds(5), Duration.ofSeconds(5));
+
+        // When & Then
+        assertThatThrownBy(() -> policy.applyToStream(Flux.never(), "gemma3n:e4b", budget).blockLast())
+                .hasCauseInstanceOf(TimeoutException.class)
+                .hasMessageContaining("first_token");
+        assertThat(meterRegistry.get("chatgemma.ollama.timeouts").tag("phase", "first_token")
+                .counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("토큰이 계속 오면 첫 토큰/토큰 간 대기 시간보다 긴 생성도 끝까지 받는다")
+    void applyToStream_ShouldNotTruncate_WhileTokensKeepArriving() {
+        // Given: 토큰 간 50ms 간격, 총 500ms 이상 걸리는 생성
+        GenerationTimeoutPolicy policy = policy();
+        GenerationTimeoutPolicy.Budget budget = new GenerationTimeoutPolicy.Budget(
+                Duration.ofMillis(200), Duration.ofMillis(200), Duration.ofSeconds(5));
+
+        // When
+        Long count = policy.applyToStream(Flux.interval(Duration.ofMillis(50)).take(12), "gemma3n:e4b", budget)
+                .count().block();
+
+        // Then
+        assertThat(count).isEqualTo(12);
+    }
+
+    @Test
+    @DisplayName("스트림이 중간에 멈추면 토큰 간 대기 타임아웃, 전체 예산을 넘으면 전체 타임아웃으로 실패한다")
+    void applyToStream_ShouldDistinguishIdleAndTotalTimeouts() {
+        // Given
+        GenerationTimeoutPolicy policy = policy();
+        GenerationTimeoutPolicy.Budget idleBudget = new GenerationTimeoutPolicy.Budget(
+                Duration.ofMillis(200), Duration.ofMillis(100), Duration.ofSeconds(5));
+        GenerationTimeoutPolicy.Budget totalBudget = new GenerationTimeoutPolicy.Budget(
+                Duration.ofMillis(200), Duration.ofMillis(200), Duration.ofMillis(300));
+
+        // When & Then
+        assertThatThrownBy(() -> policy.applyToStream(Flux.concat(Flux.just(1), Flux.never()), "gemma3n:e4b",
+                idleBudget).blockLast())
+                .hasMessageContaining("idle");
+        assertThatThrownBy(() -> policy.applyToStream(Flux.interval(Duration.ofMillis(50)), "gemma3n:e4b",
+                totalBudget).blockLast())
+                .hasMessageContaining("total");
+    }
+
+    @Test
+    @DisplayName("비스트림 응답은 전체 예산 안에 도착해야 한다")
+    void applyToResponse_ShouldApplyTotalBudget() {
+        // Given
+        GenerationTimeoutPolicy policy = policy();
+        GenerationTimeoutPolicy.Budget budget = new GenerationTimeoutPolicy.Budget(
+                Duration.ofMillis(50), Duration.ofMillis(50), Duration.ofMillis(300));
+
+        // When & Then: 첫 토큰 예산보다 늦어도 전체 예산 안이면 성공
+        assertThat(policy.applyToResponse(Mono.just("답변").delayElement(Duration.ofMillis(100)), "gemma3n:e4b", budget)
+                .block()).isEqualTo("답변");
+        assertThatThrownBy(() -> policy.applyToResponse(Mono.never(), "gemma3n:e4b", budget).block())
+                .hasMessageContaining("total");
+    }
+
+    private GenerationTimeoutPolicy policy() {
+        return new GenerationTimeoutPolicy(model -> true, meterRegistry, Duration.ofSeconds(1), Duration.ofSeconds(1),
+                Duration.ZERO, 2.0, 2.0, Duration.ofMinutes(1));
+    }
+}
\ No newline at end of file
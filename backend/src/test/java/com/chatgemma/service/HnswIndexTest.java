@@ -0,0 +1,101 @@
+package com.chatgemma.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("HnswIndex Tests")
+class HnswIndexTest {
+
+    @Test
+    @DisplayName("무작위 벡터에서 전수 탐색과 거의 같은 최근접 이웃을 찾는다")
+    void search_ShouldMatchBruteForce_OnRandomVectors() {
+        // Given
+        Random random = new Random(7);
+        HnswIndex index = new HnswIndex(16, 100, 42L);
+        List<float[]> vectors = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            float[] vector = randomVector(random, 32);
+            vectors.add(vector);
+            index.add(i, vector);
+        }
+
+        // When: 100개 질의에서 top-1이 전수 탐색 결과와 같은 횟수 (근사 탐색이므로 90% 이상)
+        int found = 0;
+        for (int q = 0; q < 100; q++) {
+            float[] query = randomVector(random, 32);
+            long expected = IntStream.range(0, vectors.size()).boxed()
+                    .max(Comparator.comparingDouble(i -> cosine(query, vectors.get(i))))
+                    .orElseThrow();
+            List<HnswIndex.Match> matches = index.search(query, 1, 64);
+            if (!matches.isEmpty() && matches.get(0).getId() == expected) {
+                found++;
+            }
+        }
+
+        // Then
+        assertThat(found).isGreaterThanOrEqualTo(90);
+    }
+
+    @Test
+    @DisplayName("같은 방향의 벡터는 유사도 1로 찾고, 삭제한 항목은 결과에서 제외한다")
+    void search_ShouldSkipRemovedEntries() {
+        // Given
+        HnswIndex index = new HnswIndex(4, 16, 42L);
+        index.add(1, new float[]{1, 0, 0});
+        index.add(2, new float[]{0, 1, 0});
+        index.add(3, new float[]{0.9f, 0.1f, 0});
+
+        // When
+        List<HnswIndex.Match> before = index.search(new float[]{2, 0, 0}, 1, 16);
+        index.remove(1);
+        List<HnswIndex.Match> after = index.search(new float[]{2, 0, 0}, 1, 16);
+
+        // Then
+        assertThat(before.get(0).getId()).isEqualTo(1);
+        assertThat(before.get(0).getSimilarity()).isCloseTo(1.0, within(1e-6));
+        assertThat(after.get(0).getId()).isEqualTo(3);
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.getDeletedCount()).isEqualTo(1);
+        assertThat(index.getVector(1)).isNull();
+    }
+
+    @Test
+    @DisplayName("차원이 다르거나 영벡터면 거절한다")
+    void add_ShouldRejectInvalidVectors() {
+        HnswIndex index = new HnswIndex(4, 16, 42L);
+        index.add(1, new float[]{1, 0, 0});
+
+        assertThatThrownBy(() -> index.add(2, new float[]{1, 0}))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> index.add(3, new float[]{0, 0, 0}))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> index.add(1, new float[]{0, 1, 0}))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static float[] randomVector(Random random, int dimension) {
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        double dot = 0, normA = 0, normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return dot / Math.sqrt(normA * normB);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,92 @@
+package com.chatgemma.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("IdempotencyStore Tests")
+class IdempotencyStoreTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final IdempotencyStore store = new IdempotencyStore(meterRegistry, 100, Duration.ofMinutes(10));
+
+    @Test
+    @DisplayName("같은 사용자가 같은 키로 다시 요청하면 처음 저장한 값을 돌려준다")
+    void computeIfAbsent_ShouldReturnStoredValue_WhenKeyRepeated() {
+        // Given
+        AtomicInteger created = new AtomicInteger();
+
+        // When
+        String first = store.computeIfAbsent(1L, "key-1", "안녕하세요", String.class,
+                () -> "응답-" + created.incrementAndGet());
+        String retried = store.computeIfAbsent(1L, "key-1", "안녕하세요", String.class,
+                () -> "응답-" + created.incrementAndGet());
+        String otherUser = store.computeIfAbsent(2L, "key-1", "안녕하세요", String.class,
+                () -> "응답-" + created.incrementAndGet());
+
+        // Then: 키는 사용자별로 구분
+        assertThat(first).isEqualTo("응답-1");
+        assertThat(retried).isEqualTo("응답-1");
+        assertThat(otherUser).isEqualTo("응답-2");
+        assertThat(meterRegistry.get("chatgemma.idempotency.replayed").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("같은 키로 내용이 다른 요청을 보내면 거절한다")
+    void computeIfAbsent_ShouldReject_WhenFingerprintDiffers() {
+        // Given
+        store.computeIfAbsent(1L, "key-1", "안녕하세요", String.class, () -> "응답");
+
+        // When & Then
+        assertThatThrownBy(() -> store.computeIfAbsent(1L, "key-1", "다른 질문", String.class, () -> "응답"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("같은 멱등성 키로 다른 요청을 보낼 수 없습니다");
+    }
+
+    @Test
+    @DisplayName("실패한 요청의 값을 제거하면 같은 키로 다시 실행되고, 다른 값은 제거하지 않는다")
+    void invalidate_ShouldRemoveOnlyMatchingValue() {
+        // Given
+        String first = store.computeIfAbsent(1L, "key-1", "안녕하세요", String.class, () -> new String("응답-1"));
+
+        // When
+        store.invalidate(1L, "key-1", String.class, new String("응답-1"));
+        String kept = store.computeIfAbsent(1L, "key-1", "안녕하세요", String.class, () -> "응답-2");
+        store.invalidate(1L, "key-1", String.class, first);
+        String recreated = store.computeIfAbsent(1L, "key-1", "안녕하세요", String.class, () -> "응답-2");
+
+        // Then
+        assertThat(kept).isSameAs(first);
+        assertThat(recreated).isEqualTo("응답-2");
+    }
+
+    @Test
+    @DisplayName("저장 개수 상한을 넘으면 오래된 키를 제거한다")
+    void computeIfAbsent_ShouldEvict_WhenMaximumSizeExceeded() {
+        // Given
+        IdempotencyStore small = new IdempotencyStore(meterRegistry, 2, Duration.ofMinutes(10));
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            small.computeIfAbsent(1L, "key-" + i, "요청", String.class, () -> "응답");
+        }
+
+        // Then
+        assertThat(small.size()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("공백 키는 멱등성 미적용으로, 길이 상한을 넘는 키는 오류로 처리한다")
+    void normalizeKey_ShouldValidateKey() {
+        assertThat(IdempotencyStore.normalizeKey(null)).isNull();
+        assertThat(IdempotencyStore.normalizeKey("  ")).isNull();
+        assertThat(IdempotencyStore.normalizeKey(" key-1 ")).isEqualTo("key-1");
+        assertThatThrownBy(() -> IdempotencyStore.normalizeKey("k".repeat(129)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,124 @@
+package com.chatgemma.service;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("ModelResidencyManager Tests")
+class ModelResidencyManagerTest {
+
+    private final List<HttpServer> servers = new ArrayList<>();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void tearDown() {
+        servers.forEach(server -> server.stop(0));
+    }
+
+    @Test
+    @DisplayName("/api/ps 결과로 로드된 모델을 추적하고 로드/언로드를 메트릭으로 남긴다")
+    void pollResidency_ShouldTrackLoadedModels() throws IOException {
+        // Given
+        AtomicReference<String> ps = new AtomicReference<>("{\"models\":[{\"name\":\"gemma3n:e4b\"}]}");
+        ModelResidencyManager manager = manager(stubBackend(ps));
+
+        // When
+        manager.pollResidency();
+
+        // Then
+        assertThat(manager.isResident("gemma3n:e4b")).isTrue();
+        assertThat(manager.isResident("llama3")).isFalse();
+        assertThat(meterRegistry.get("chatgemma.ollama.model.resident").tag("model", "gemma3n:e4b")
+                .gauge().value()).isEqualTo(1.0);
+
+        // 다른 모델이 기본 모델을 밀어낸 경우
+        ps.set("{\"models\":[{\"name\":\"llama3\"}]}");
+        manager.pollResidency();
+
+        assertThat(manager.isResident("gemma3n:e4b")).isFalse();
+        assertThat(meterRegistry.get("chatgemma.ollama.model.loads").tag("model", "llama3")
+                .counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("chatgemma.ollama.model.unloads").tag("model", "gemma3n:e4b")
+                .counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("설정한 요일/시간대와 시간대(zone) 기준으로 업무 시간을 판단한다")
+    void isBusinessHours_ShouldMatchConfiguredWindow() {
+        // Given
+        ModelResidencyManager manager = manager(new OllamaBackend("http://localhost:1",
+                WebClient.create("http://localhost:1")));
+        ZoneId seoul = ZoneId.of("Asia/Seoul");
+
+        // When & Then (2026-10-16은 금요일)
+        assertThat(manager.isBusinessHours(ZonedDateTime.of(2026, 10, 16, 8, 0, 0, 0, seoul))).isTrue();
+        assertThat(manager.isBusinessHours(ZonedDateTime.of(2026, 10, 16, 19, 59, 0, 0, seoul))).isTrue();
+        assertThat(manager.isBusinessHours(ZonedDateTime.of(2026, 10, 16, 20, 0, 0, 0, seoul))).isFalse();
+        assertThat(manager.isBusinessHours(ZonedDateTime.of(2026, 10, 17, 10, 0, 0, 0, seoul))).isFalse();
+        assertThat(manager.isBusinessHours(ZonedDateTime.of(2026, 10, 16, 1, 0, 0, 0, ZoneId.of("UTC"))))
+                .isTrue();
+    }
+
+    @Test
+    @DisplayName("로드 시간이 임계치를 넘은 생성만 콜드 스타트로 기록한다")
+    void onGenerationCompleted_ShouldRecordColdStarts() {
+        // Given
+        ModelResidencyManager manager = manager(new OllamaBackend("http://localhost:1",
+                WebClient.create("http://localhost:1")));
+
+        // When
+        manager.onGenerationCompleted("gemma3n:e4b", 5_000_000L);
+        manager.onGenerationCompleted("gemma3n:e4b", 4_000_000_000L);
+        manager.onGenerationCompleted(null, null);
+
+        // Then
+        assertThat(meterRegistry.get("chatgemma.ollama.model.cold.start").tag("model", "gemma3n:e4b")
+                .timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("chatgemma.ollama.model.cold.start").tag("model", "gemma3n:e4b")
+                .timer().totalTime(TimeUnit.SECONDS)).isEqualTo(4.0);
+    }
+
+    private ModelResidencyManager manager(OllamaBackend backend) {
+        OllamaBackendPool pool = new OllamaBackendPool(List.of(backend), meterRegistry,
+                2, Duration.ofSeconds(1), 128, 1.25);
+        OllamaModelRegistry modelRegistry = new OllamaModelRegistry(pool, "gemma3n:e4b", 32768, 32768, 2048,
+                Duration.ofSeconds(1));
+        return new ModelResidencyManager(pool, modelRegistry, new GenerationOptions(null, null, null, "30m"),
+                new OllamaBulkhead(meterRegistry, 4, 1), meterRegistry, "gemma3n:e4b", true, "08:00", "20:00", "MONDAY,TUESDAY,WEDNESDAY,THURSDAY,FRIDAY",
+                "Asia/Seoul", Duration.ofSeconds(5), Duration.ofSeconds(1));
+    }
+
+    private OllamaBackend stubBackend(AtomicReference<String> ps) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/api/ps", exchange -> {
+            byte[] bytes = ps.get().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+        servers.add(server);
+
+        String baseUrl = "http://localhost:" + server.getAddress().getPort();
+        return new OllamaBackend(baseUrl, WebClient.create(baseUrl));
+    }
+}
\ No newline at end of file
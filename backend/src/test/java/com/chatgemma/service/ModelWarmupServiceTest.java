@@ -0,0 +1,105 @@
+package com.chatgemma.service;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("ModelWarmupService Tests")
+class ModelWarmupServiceTest {
+
+    private final List<HttpServer> servers = new ArrayList<>();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void tearDown() {
+        servers.forEach(server -> server.stop(0));
+    }
+
+    @Test
+    @DisplayName("실제 요청과 같은 num_ctx로 모델을 로드하고 시스템 프롬프트를 미리 평가한 뒤 ready가 된다")
+    void warmUp_ShouldLoadModelAndPrefillSystemPrompt() throws IOException {
+        // Given
+        List<String> requests = new CopyOnWriteArrayList<>();
+        OllamaBackend backend = stubBackend(requests);
+        ModelWarmupService warmupService = warmupService(backend, true);
+        OllamaWarmupHealthIndicator indicator = new OllamaWarmupHealthIndicator(warmupService);
+
+        assertThat(indicator.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+        assertThat(warmupService.getPendingBackends()).containsExactly(backend.getBaseUrl());
+
+        // When
+        warmupService.warmUp().block(Duration.ofSeconds(5));
+
+        // Then: /api/show의 num_ctx 8192로 로드 -> 시스템 프롬프트 prefill
+        assertThat(requests).hasSize(3);
+        assertThat(requests.get(0)).startsWith("/api/show");
+        assertThat(requests.get(1)).startsWith("/api/generate")
+                .contains("\"prompt\":\"\"", "\"num_ctx\":8192", "\"keep_alive\":\"30m\"");
+        assertThat(requests.get(2)).startsWith("/api/generate")
+                .contains("\"num_ctx\":8192", "\"num_predict\":1", "Gemma 3n AI 어시스턴트 지침");
+        assertThat(indicator.health().getStatus()).isEqualTo(Status.UP);
+        assertThat(warmupService.getWarmedBackends()).containsExactly(backend.getBaseUrl());
+        assertThat(meterRegistry.get("chatgemma.ollama.warmup.duration").tag("backend", backend.getBaseUrl())
+                .timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("워밍업을 끄면 바로 ready로 본다")
+    void isReady_ShouldBeTrue_WhenDisabled() {
+        // Given
+        ModelWarmupService warmupService = warmupService(new OllamaBackend("http://localhost:1",
+                WebClient.create("http://localhost:1")), false);
+
+        // When & Then
+        assertThat(warmupService.isReady()).isTrue();
+        assertThat(new OllamaWarmupHealthIndicator(warmupService).health().getStatus()).isEqualTo(Status.UP);
+    }
+
+    private ModelWarmupService warmupService(OllamaBackend backend, boolean enabled) {
+        OllamaBackendPool pool = new OllamaBackendPool(List.of(backend), meterRegistry,
+                2, Duration.ofSeconds(1), 128, 1.25);
+        OllamaModelRegistry modelRegistry = new OllamaModelRegistry(pool, "gemma3n:e4b", 32768, 32768, 2048,
+                Duration.ofSeconds(1));
+        return new ModelWarmupService(pool, modelRegistry, new GenerationOptions(2048, null, null, "30m"),
+                meterRegistry, "gemma3n:e4b", "generate", enabled, true, Duration.ofSeconds(5),
+                Duration.ofMillis(10), Duration.ofMillis(50));
+    }
+
+    // /api/show, /api/generate 요청을 "경로 본문" 형태로 기록
+    private OllamaBackend stubBackend(List<String> requests) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/api/", exchange -> {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            requests.add(exchange.getRequestURI().getPath() + " " + body);
+            String response = exchange.getRequestURI().getPath().equals("/api/show")
+                    ? "{\"parameters\":\"num_ctx 8192\",\"model_info\":{\"gemma3.context_length\":32768}}"
+                    : "{\"model\":\"gemma3n:e4b\",\"response\":\"\",\"done\":true}";
+            byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+        servers.add(server);
+
+        String baseUrl = "http://localhost:" + server.getAddress().getPort();
+        return new OllamaBackend(baseUrl, WebClient.create(baseUrl));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,341 @@
+package com.chatgemma.service;
+
+import com.chatgemma.service.exception.NoAvailableBackendException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("OllamaBackendPool Tests")
+class OllamaBackendPoolTest {
+
+    private final List<HttpServer> servers = new ArrayList<>();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void tearDown() {
+        servers.forEach(server -> server.stop(0));
+    }
+
+    @Test
+    @DisplayName("진행 중 요청이 가장 적은 노드로 라우팅한다")
+    void select_ShouldPickLeastInFlightBackend() {
+        // Given
+        OllamaBackend busy = backend("http://node-a:11434");
+        OllamaBackend idle = backend("http://node-b:11434");
+        OllamaBackendPool pool = pool(busy, idle);
+        busy.acquire();
+
+        // When & Then
+        assertThat(pool.select(null, Set.of())).isSameAs(idle);
+        idle.acquire();
+        idle.acquire();
+        assertThat(pool.select(null, Set.of())).isSameAs(busy);
+    }
+
+    @Test
+    @DisplayName("같은 채팅은 부하가 허용하는 한 항상 같은 노드로 보낸다")
+    void select_ShouldKeepChatOnSameBackend() {
+        // Given
+        OllamaBackendPool pool = pool(backend("http://node-a:11434"), backend("http://node-b:11434"),
+                backend("http://node-c:11434"));
+        OllamaBackend home = pool.select(42L, Set.of());
+
+        // When & Then
+        for (int i = 0; i < 10; i++) {
+            assertThat(pool.select(42L, Set.of())).isSameAs(home);
+        }
+    }
+
+    @Test
+    @DisplayName("담당 노드가 부하 상한에 도달하면 링의 다음 노드로 넘긴다")
+    void select_ShouldSpillOver_WhenHomeBackendSaturated() {
+        // Given
+        OllamaBackendPool pool = pool(backend("http://node-a:11434"), backend("http://node-b:11434"));
+        OllamaBackend home = pool.select(42L, Set.of());
+        home.acquire();
+        home.acquire();
+
+        // When
+        OllamaBackend selected = pool.select(42L, Set.of());
+
+        // Then
+        assertThat(selected).isNotSameAs(home);
+        assertThat(meterRegistry.get("chatgemma.ollama.routing.spillover").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("노드가 제외되면 그 노드가 담당하던 채팅만 다른 노드로 옮겨진다")
+    void select_ShouldOnlyRemapEjectedBackendsChats() {
+        // Given
+        OllamaBackend ejected = backend("http://node-a:11434");
+        OllamaBackendPool pool = pool(ejected, backend("http://node-b:11434"), backend("http://node-c:11434"));
+        Map<Long, OllamaBackend> before = new HashMap<>();
+        for (long chatId = 0; chatId < 300; chatId++) {
+            before.put(chatId, pool.select(chatId, Set.of()));
+        }
+
+        // When
+        ejected.recordFailure(1);
+
+        // Then
+        for (long chatId = 0; chatId < 300; chatId++) {
+            OllamaBackend after = pool.select(chatId, Set.of());
+            if (before.get(chatId) != ejected) {
+                assertThat(after).isSameAs(before.get(chatId));
+            } else {
+                assertThat(after).isNotSameAs(ejected);
+            }
+        }
+        assertThat(before.values()).contains(ejected);
+    }
+
+    @Test
+    @DisplayName("직전 턴과 같은 노드에서 처리되었는지 집계한다")
+    void execute_ShouldCountAffinityHits() throws IOException {
+        // Given
+        OllamaBackendPool pool = pool(stubBackend(200, "a", new AtomicInteger()),
+                stubBackend(200, "b", new AtomicInteger()));
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            pool.execute(7L, this::generate).blockLast(Duration.ofSeconds(5));
+        }
+
+        // Then
+        assertThat(meterRegistry.get("chatgemma.ollama.routing.affinity").tag("result", "hit").counter().count())
+                .isEqualTo(2.0);
+        assertThat(meterRegistry.get("chatgemma.ollama.routing.affinity").tag("result", "miss").counter().count())
+                .isZero();
+    }
+
+    @Test
+    @DisplayName("노드가 503을 반환하면 다른 노드로 넘긴다")
+    void execute_ShouldFailOver_WhenBackendUnavailable() throws IOException {
+        // Given
+        AtomicInteger overloadedCalls = new AtomicInteger();
+        OllamaBackend overloaded = stubBackend(503, "overloaded", overloadedCalls);
+        OllamaBackend healthy = stubBackend(200, "ok", new AtomicInteger());
+        OllamaBackendPool pool = pool(overloaded, healthy);
+        healthy.acquire(); // 첫 시도가 overloaded 노드로 가도록 healthy를 바쁜 상태로 둔다
+
+        // When
+        String result = pool.execute(this::generate).blockFirst(Duration.ofSeconds(5));
+
+        // Then
+        assertThat(result).isEqualTo("ok");
+        assertThat(overloadedCalls.get()).isEqualTo(1);
+        assertThat(overloaded.getInFlight()).isZero();
+        assertThat(healthy.getInFlight()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("연결할 수 없는 노드는 건너뛰고 반복 실패하면 제외한다")
+    void execute_ShouldEjectBackend_WhenConnectionRefused() throws IOException {
+        // Given
+        OllamaBackend down = backend("http://localhost:" + unusedPort());
+        OllamaBackend healthy = stubBackend(200, "ok", new AtomicInteger());
+        OllamaBackendPool pool = pool(down, healthy);
+        healthy.acquire(); // 장애 노드가 먼저 선택되도록 한다
+
+        // When
+        for (int i = 0; i < 2; i++) {
+            assertThat(pool.execute(this::generate).blockFirst(Duration.ofSeconds(5))).isEqualTo("ok");
+        }
+
+        // Then
+        assertThat(down.isHealthy()).isFalse();
+        assertThat(healthy.isHealthy()).isTrue();
+    }
+
+    @Test
+    @DisplayName("노드 오류가 아닌 응답은 다른 노드로 재시도하지 않는다")
+    void execute_ShouldNotFailOver_WhenClientError() throws IOException {
+        // Given
+        AtomicInteger otherCalls = new AtomicInteger();
+        OllamaBackend badRequest = stubBackend(400, "bad request", new AtomicInteger());
+        OllamaBackend other = stubBackend(200, "ok", otherCalls);
+        OllamaBackendPool pool = pool(badRequest, other);
+        other.acquire();
+
+        // When & Then
+        assertThatThrownBy(() -> pool.execute(this::generate).blockFirst(Duration.ofSeconds(5)))
+                .isInstanceOf(WebClientResponseException.class);
+        assertThat(otherCalls.get()).isZero();
+        assertThat(badRequest.isHealthy()).isTrue();
+    }
+
+    @Test
+    @DisplayName("503은 다른 노드로 넘기기만 하고 반복되어도 노드를 제외하지 않는다")
+    void execute_ShouldNotEject_WhenBackendBusy() throws IOException {
+        // Given
+        OllamaBackend busy = stubBackend(503, "server busy", new AtomicInteger());
+        OllamaBackendPool pool = pool(busy);
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(() -> pool.execute(this::generate).blockFirst(Duration.ofSeconds(5)))
+                    .isInstanceOf(WebClientResponseException.class);
+        }
+
+        // Then
+        assertThat(busy.isHealthy()).isTrue();
+    }
+
+    @Test
+    @DisplayName("우리 쪽 커넥션 풀 포화는 노드 장애로 보지 않아 넘기거나 제외하지 않는다")
+    void execute_ShouldIgnorePoolSaturation() throws IOException {
+        // Given
+        AtomicInteger otherCalls = new AtomicInteger();
+        OllamaBackend saturated = backend("http://node-a:11434");
+        OllamaBackend other = stubBackend(200, "ok", otherCalls);
+        OllamaBackendPool pool = pool(saturated, other);
+        other.acquire();
+        WebClientRequestException poolFull = new WebClientRequestException(
+                new PoolAcquirePendingLimitException(), HttpMethod.POST, URI.create("/api/generate"), new HttpHeaders());
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(() -> pool.execute(backend -> backend == saturated
+                    ? Mono.<String>error(poolFull) : generate(backend)).blockFirst(Duration.ofSeconds(5)))
+                    .isSameAs(poolFull);
+        }
+
+        // Then
+        assertThat(saturated.isHealthy()).isTrue();
+        assertThat(otherCalls.get()).isZero();
+    }
+
+    @Test
+    @DisplayName("헬스 체크가 연속 실패하면 제외하고 회복되면 다시 포함한다")
+    void probeBackends_ShouldEjectAndReadmitBackend() throws IOException {
+        // Given
+        AtomicInteger tagsStatus = new AtomicInteger(500);
+        OllamaBackend backend = stubBackend(tagsStatus);
+        OllamaBackendPool pool = pool(backend);
+
+        // When & Then
+        pool.probeBackends();
+        assertThat(backend.isHealthy()).isTrue(); // 한 번의 실패로는 제외하지 않는다
+        pool.probeBackends();
+        assertThat(backend.isHealthy()).isFalse();
+
+        tagsStatus.set(200);
+        pool.probeBackends();
+        assertThat(backend.isHealthy()).isTrue();
+    }
+
+    @Test
+    @DisplayName("모든 노드가 제외되면 거절하지 않고 전체 노드로 보내며, 성공한 노드는 바로 복귀시킨다")
+    void execute_ShouldRouteToAllBackends_WhenEveryBackendIsEjected() throws IOException {
+        // Given: 헬스 체크 실패로 유일한 노드가 제외됨
+        AtomicInteger tagsStatus = new AtomicInteger(500);
+        OllamaBackend backend = stubBackend(tagsStatus);
+        OllamaBackendPool pool = pool(backend);
+        pool.probeBackends();
+        pool.probeBackends();
+        assertThat(backend.isHealthy()).isFalse();
+
+        // When
+        String result = pool.execute(7L, this::generate).blockFirst(Duration.ofSeconds(5));
+
+        // Then
+        assertThat(result).isEqualTo("ok");
+        assertThat(backend.isHealthy()).isTrue();
+        assertThat(meterRegistry.get("chatgemma.ollama.routing.all.ejected").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("모든 노드에 시도했으면 전용 예외로 거절한다")
+    void select_ShouldThrowNoAvailableBackend_WhenEveryBackendWasTried() {
+        // Given
+        OllamaBackend backend = backend("http://localhost:1");
+        OllamaBackendPool pool = pool(backend);
+
+        // When & Then
+        assertThatThrownBy(() -> pool.select(null, Set.of(backend)))
+                .isInstanceOf(NoAvailableBackendException.class)
+                .hasMessage("사용 가능한 AI 서버가 없습니다");
+    }
+
+    private Mono<String> generate(OllamaBackend backend) {
+        return backend.getWebClient().post()
+                .uri("/api/generate")
+                .retrieve()
+                .bodyToMono(String.class);
+    }
+
+    private OllamaBackendPool pool(OllamaBackend... backends) {
+        return new OllamaBackendPool(List.of(backends), meterRegistry, 2, Duration.ofSeconds(1), 128, 1.25);
+    }
+
+    private OllamaBackend backend(String baseUrl) {
+        return new OllamaBackend(baseUrl, WebClient.create(baseUrl));
+    }
+
+    private OllamaBackend stubBackend(int generateStatus, String body, AtomicInteger calls) throws IOException {
+        HttpServer server = startServer();
+        server.createContext("/api/generate", exchange -> {
+            calls.incrementAndGet();
+            respond(exchange, generateStatus, body);
+        });
+        server.createContext("/api/tags", exchange -> respond(exchange, 200, "{\"models\":[]}"));
+        return backend("http://localhost:" + server.getAddress().getPort());
+    }
+
+    private OllamaBackend stubBackend(AtomicInteger tagsStatus) throws IOException {
+        HttpServer server = startServer();
+        server.createContext("/api/generate", exchange -> respond(exchange, 200, "ok"));
+        server.createContext("/api/tags", exchange -> respond(exchange, tagsStatus.get(), "{\"models\":[]}"));
+        return backend("http://localhost:" + server.getAddress().getPort());
+    }
+
+    private HttpServer startServer() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.start();
+        servers.add(server);
+        return server;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    // Reactor Netty 내부에 shading 된 reactor-pool 예외와 같은 이름
+    private static final class PoolAcquirePendingLimitException extends RuntimeException {
+    }
+
+    private static int unusedPort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
\ No newline at end of file
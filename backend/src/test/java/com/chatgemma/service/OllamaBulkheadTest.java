@@ -0,0 +1,50 @@
+package com.chatgemma.service;
+
+import com.chatgemma.service.exception.AiServiceBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("OllamaBulkhead Tests")
+class OllamaBulkheadTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final OllamaBulkhead bulkhead = new OllamaBulkhead(meterRegistry, 2, 1);
+
+    @Test
+    @DisplayName("백그라운드 레인이 가득 차도 사용자 요청 레인은 영향을 받지 않는다")
+    void execute_ShouldIsolateLanes() {
+        // Given: 백그라운드 작업 하나가 진행 중
+        Sinks.Many<String> running = Sinks.many().unicast().onBackpressureBuffer();
+        Disposable background = bulkhead.execute(OllamaBulkhead.Lane.BACKGROUND, running::asFlux).subscribe();
+
+        // When & Then
+        assertThatThrownBy(() -> bulkhead.execute(OllamaBulkhead.Lane.BACKGROUND, () -> Flux.just("summary"))
+                .blockLast()).isInstanceOf(AiServiceBusyException.class);
+        assertThat(bulkhead.execute(OllamaBulkhead.Lane.INTERACTIVE, () -> Flux.just("answer")).blockLast())
+                .isEqualTo("answer");
+        assertThat(meterRegistry.get("chatgemma.ollama.bulkhead.rejected").tag("lane", "background")
+                .counter().count()).isEqualTo(1.0);
+
+        // 진행 중이던 작업이 끝나면 자리를 돌려받는다
+        background.dispose();
+        assertThat(bulkhead.getAvailable(OllamaBulkhead.Lane.BACKGROUND)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("호출이 실패해도 자리를 반납한다")
+    void execute_ShouldReleasePermit_OnError() {
+        // When
+        assertThatThrownBy(() -> bulkhead.execute(OllamaBulkhead.Lane.INTERACTIVE,
+                () -> Flux.<String>error(new IllegalStateException("down"))).blockLast())
+                .isInstanceOf(IllegalStateException.class);
+
+        // Then
+        assertThat(bulkhead.getAvailable(OllamaBulkhead.Lane.INTERACTIVE)).isEqualTo(2);
+    }
+}
\ No newline at end of file
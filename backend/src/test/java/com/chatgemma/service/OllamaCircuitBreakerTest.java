@@ -0,0 +1,111 @@
+package com.chatgemma.service;
+
+import com.chatgemma.service.exception.AiServiceBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("OllamaCircuitBreaker Tests")
+class OllamaCircuitBreakerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong clock = new AtomicLong();
+
+    // 최근 4건 중 최소 4건, 실패율 50% 이상이면 10초간 차단, 시험 호출 2건
+    private final OllamaCircuitBreaker circuitBreaker = new OllamaCircuitBreaker(meterRegistry,
+            0.5, 4, 4, Duration.ofSeconds(10), 2, clock::get);
+
+    @Test
+    @DisplayName("최소 호출 수를 채우고 실패율이 임계치를 넘으면 회로가 열린다")
+    void onFailure_ShouldOpen_WhenFailureRateExceeded() {
+        // When
+        circuitBreaker.onSuccess();
+        circuitBreaker.onFailure();
+        circuitBreaker.onSuccess();
+        assertThat(circuitBreaker.getState()).isEqualTo(OllamaCircuitBreaker.State.CLOSED);
+        circuitBreaker.onFailure();
+
+        // Then
+        assertThat(circuitBreaker.getState()).isEqualTo(OllamaCircuitBreaker.State.OPEN);
+        assertThat(circuitBreaker.tryAcquirePermission()).isFalse();
+        assertThat(meterRegistry.get("chatgemma.ollama.circuit.transitions")
+                .tag("from", "closed").tag("to", "open").counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("chatgemma.ollama.circuit.state").gauge().value()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("차단 시간이 지나면 시험 호출만 허용하고, 모두 성공하면 회로를 닫는다")
+    void tryAcquirePermission_ShouldProbe_AfterOpenDuration() {
+        // Given
+        openCircuit();
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+
+        // When & Then
+        assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+        assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+        assertThat(circuitBreaker.tryAcquirePermission()).isFalse();
+        assertThat(circuitBreaker.getState()).isEqualTo(OllamaCircuitBreaker.State.HALF_OPEN);
+
+        circuitBreaker.onSuccess();
+        circuitBreaker.onSuccess();
+        assertThat(circuitBreaker.getState()).isEqualTo(OllamaCircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    @DisplayName("시험 호출이 실패하면 다시 회로를 연다")
+    void onFailure_ShouldReopen_WhenProbeFails() {
+        // Given
+        openCircuit();
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        circuitBreaker.tryAcquirePermission();
+
+        // When
+        circuitBreaker.onFailure();
+
+        // Then
+        assertThat(circuitBreaker.getState()).isEqualTo(OllamaCircuitBreaker.State.OPEN);
+        assertThat(meterRegistry.get("chatgemma.ollama.circuit.transitions")
+                .tag("from", "half_open").tag("to", "open").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("회로가 열려 있으면 호출을 구독하지 않고 혼잡 예외로 실패한다")
+    void execute_ShouldFailFast_WhenOpen() {
+        // Given
+        openCircuit();
+        AtomicLong subscriptions = new AtomicLong();
+
+        // When & Then
+        assertThatThrownBy(() -> circuitBreaker.execute(() -> {
+            subscriptions.incrementAndGet();
+            return Flux.just("ok");
+        }, e -> true).blockLast()).isInstanceOf(AiServiceBusyException.class);
+        assertThat(subscriptions.get()).isZero();
+    }
+
+    @Test
+    @DisplayName("장애로 보지 않는 오류는 실패율에 포함하지 않는다")
+    void execute_ShouldIgnore_NonBackendFailures() {
+        // When
+        for (int i = 0; i < 4; i++) {
+            circuitBreaker.execute(() -> Flux.<String>error(new IllegalArgumentException("bad request")),
+                    e -> !(e instanceof IllegalArgumentException)).onErrorResume(e -> Flux.empty()).blockLast();
+        }
+
+        // Then
+        assertThat(circuitBreaker.getState()).isEqualTo(OllamaCircuitBreaker.State.CLOSED);
+    }
+
+    private void openCircuit() {
+        for (int i = 0; i < 4; i++) {
+            circuitBreaker.onFailure();
+        }
+        assertThat(circuitBreaker.getState()).isEqualTo(OllamaCircuitBreaker.State.OPEN);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,66 @@
+package com.chatgemma.service;
+
+import com.chatgemma.service.exception.AiServiceBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("OllamaEmbedder Tests")
+class OllamaEmbedderTest {
+
+    @Mock
+    private WebClient webClient;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final OllamaBulkhead bulkhead = new OllamaBulkhead(meterRegistry, 1, 1);
+    private final OllamaCircuitBreaker circuitBreaker = new OllamaCircuitBreaker(meterRegistry,
+            0.5, 1, 1, Duration.ofSeconds(30), 1, System::nanoTime);
+
+    @Test
+    @DisplayName("전용 서버가 없으면 사용자 요청 레인이 가득 찼을 때 생성 서버를 호출하지 않고 즉시 실패한다")
+    void embed_ShouldFailFast_WhenInteractiveLaneIsFull() {
+        // Given: 사용자 요청 레인의 자리를 생성 요청이 차지
+        Sinks.Many<String> running = Sinks.many().unicast().onBackpressureBuffer();
+        Disposable generation = bulkhead.execute(OllamaBulkhead.Lane.INTERACTIVE, running::asFlux).subscribe();
+
+        // When & Then
+        assertThatThrownBy(() -> embedder().embed("질문").block()).isInstanceOf(AiServiceBusyException.class);
+        verifyNoInteractions(webClient);
+        generation.dispose();
+    }
+
+    @Test
+    @DisplayName("전용 서버가 없으면 회로 차단기가 열렸을 때 생성 서버를 호출하지 않고 즉시 실패한다")
+    void embed_ShouldFailFast_WhenCircuitIsOpen() {
+        // Given: 생성 서버 장애로 회로 차단기가 열림
+        assertThatThrownBy(() -> circuitBreaker.execute(() -> Flux.error(new IllegalStateException("장애")),
+                e -> true).blockLast()).isInstanceOf(IllegalStateException.class);
+        assertThat(circuitBreaker.getState()).isEqualTo(OllamaCircuitBreaker.State.OPEN);
+
+        // When & Then
+        assertThatThrownBy(() -> embedder().embed("질문").block()).isInstanceOf(AiServiceBusyException.class);
+        verifyNoInteractions(webClient);
+    }
+
+    private OllamaEmbedder embedder() {
+        OllamaBackendPool backendPool = new OllamaBackendPool(
+                List.of(new OllamaBackend("http://localhost:11434", webClient)),
+                new SimpleMeterRegistry(), 2, Duration.ofSeconds(1), 128, 1.25);
+        return new OllamaEmbedder(backendPool, bulkhead, circuitBreaker, null, "nomic-embed-text",
+                Duration.ofSeconds(1));
+    }
+}
@@ -0,0 +1,130 @@
+package com.chatgemma.service;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("OllamaModelRegistry Tests")
+class OllamaModelRegistryTest {
+
+    private final List<HttpServer> servers = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        servers.forEach(server -> server.stop(0));
+    }
+
+    @Test
+    @DisplayName("Modelfile에 num_ctx가 있으면 그 값을 사용한다")
+    void refresh_ShouldUseModelfileNumCtx() throws IOException {
+        // Given
+        AtomicReference<String> requestBody = new AtomicReference<>();
+        OllamaModelRegistry registry = registry(stubShow(requestBody,
+                "{\"parameters\":\"num_ctx                        8192\\nstop                           \\\"<end_of_turn>\\\"\","
+                        + "\"model_info\":{\"gemma3.context_length\":32768}}"));
+
+        // When
+        registry.refreshProfiles();
+
+        // Then
+        OllamaModelRegistry.ModelProfile profile = registry.getProfile("gemma3n:e4b");
+        assertThat(profile.getNumCtx()).isEqualTo(8192);
+        assertThat(profile.getContextLength()).isEqualTo(32768);
+        assertThat(profile.getParameters()).containsEntry("stop", "\"<end_of_turn>\"");
+        assertThat(requestBody.get()).contains("\"model\":\"gemma3n:e4b\"");
+    }
+
+    @Test
+    @DisplayName("num_ctx 설정이 없으면 모델 최대 컨텍스트 길이를 상한까지 사용한다")
+    void refresh_ShouldCapModelContextLength() throws IOException {
+        // Given
+        OllamaModelRegistry registry = registry(stubShow(new AtomicReference<>(),
+                "{\"parameters\":\"temperature 1\",\"model_info\":{\"llama.context_length\":131072}}"));
+
+        // When
+        registry.refreshProfiles();
+
+        // Then
+        assertThat(registry.getProfile("gemma3n:e4b").getNumCtx()).isEqualTo(65536);
+    }
+
+    @Test
+    @DisplayName("같은 이름의 모델이 다시 만들어지면(modified_at 변경) 리스너에 알린다")
+    void refresh_ShouldNotifyListeners_WhenModelChanged() throws IOException {
+        // Given
+        AtomicReference<String> body = new AtomicReference<>("{\"modified_at\":\"2026-10-01T09:00:00Z\"}");
+        OllamaModelRegistry registry = registry(stubShow(new AtomicReference<>(), body));
+        List<String> changed = new ArrayList<>();
+        registry.addModelChangeListener(changed::add);
+
+        // When
+        registry.refreshProfiles();
+        registry.refreshProfiles();
+        body.set("{\"modified_at\":\"2026-10-16T09:00:00Z\"}");
+        registry.refreshProfiles();
+
+        // Then: 처음 조회와 변경 없는 재조회는 알리지 않음
+        assertThat(changed).containsExactly("gemma3n:e4b");
+        assertThat(registry.getProfile("gemma3n:e4b").getRevision()).isEqualTo("2026-10-16T09:00:00Z");
+    }
+
+    @Test
+    @DisplayName("모델 정보를 조회하지 못하면 기본 컨텍스트 길이로 예산을 계산한다")
+    void historyTokenBudget_ShouldFallBackToDefault_WhenShowFails() {
+        // Given
+        OllamaModelRegistry registry = registry(new OllamaBackend("http://localhost:1",
+                WebClient.create("http://localhost:1")));
+
+        // When
+        registry.refreshProfiles();
+
+        // Then: 32768 - 출력 예약 2048(num_predict가 있으면 그 값) - 고정 프롬프트 1000
+        int numCtx = registry.resolveNumCtx("gemma3n:e4b", GenerationOptions.none());
+        assertThat(numCtx).isEqualTo(32768);
+        assertThat(registry.historyTokenBudget(numCtx, null, 1000)).isEqualTo(29720);
+        assertThat(registry.historyTokenBudget(numCtx, 512, 1000)).isEqualTo(31256);
+        assertThat(registry.historyTokenBudget(numCtx, null, 40000)).isZero();
+    }
+
+    private OllamaModelRegistry registry(OllamaBackend backend) {
+        OllamaBackendPool pool = new OllamaBackendPool(List.of(backend), new SimpleMeterRegistry(),
+                2, Duration.ofSeconds(1), 128, 1.25);
+        return new OllamaModelRegistry(pool, "gemma3n:e4b", 32768, 65536, 2048, Duration.ofSeconds(5));
+    }
+
+    private OllamaBackend stubShow(AtomicReference<String> requestBody, String body) throws IOException {
+        return stubShow(requestBody, new AtomicReference<>(body));
+    }
+
+    private OllamaBackend stubShow(AtomicReference<String> requestBody, AtomicReference<String> body) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/api/show", exchange -> {
+            requestBody.set(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            byte[] bytes = body.get().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+        servers.add(server);
+
+        String baseUrl = "http://localhost:" + server.getAddress().getPort();
+        return new OllamaBackend(baseUrl, WebClient.create(baseUrl));
+    }
+}
\ No newline at end of file
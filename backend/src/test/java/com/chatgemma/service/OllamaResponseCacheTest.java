@@ -0,0 +1,126 @@
+package com.chatgemma.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("OllamaResponseCache Tests")
+class OllamaResponseCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("같은 모델/옵션/정규화된 프롬프트면 저장된 응답을 돌려주고 적중률을 메트릭으로 남긴다")
+    void get_ShouldReturnCachedResponse_WhenKeyMatches() {
+        // Given
+        OllamaResponseCache cache = cache(1024 * 1024);
+        AtomicInteger generations = new AtomicInteger();
+        GenerationOptions options = new GenerationOptions(512, 8192, 0.0, "30m");
+
+        // When
+        String first = cache.get("gemma3n:e4b", options, "환불 규정 알려줘", null,
+                () -> Mono.fromSupplier(() -> "응답-" + generations.incrementAndGet())).block();
+        String second = cache.get("gemma3n:e4b", new GenerationOptions(512, 8192, 0.0, "-1"), " 환불  규정 알려줘", null,
+                () -> Mono.fromSupplier(() -> "응답-" + generations.incrementAndGet())).block();
+        String otherOptions = cache.get("gemma3n:e4b", new GenerationOptions(512, 8192, 0.7, "30m"), "환불 규정 알려줘", null,
+                () -> Mono.fromSupplier(() -> "응답-" + generations.incrementAndGet())).block();
+        String withImage = cache.get("gemma3n:e4b", options, "환불 규정 알려줘", "/uploads/a.png",
+                () -> Mono.fromSupplier(() -> "응답-" + generations.incrementAndGet())).block();
+
+        // Then: keep_alive만 다른 요청은 적중, 온도나 이미지가 다르면 새로 생성
+        assertThat(first).isEqualTo("응답-1");
+        assertThat(second).isEqualTo("응답-1");
+        assertThat(otherOptions).isEqualTo("응답-2");
+        assertThat(withImage).isEqualTo("응답-3");
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "ollama.response").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("chatgemma.ollama.response.cache.bytes").gauge().value()).isPositive();
+    }
+
+    @Test
+    @DisplayName("같은 키의 동시 요청은 생성 한 번을 공유하고, 실패한 생성은 저장하지 않는다")
+    void get_ShouldShareInFlightGeneration_AndSkipFailures() throws Exception {
+        // Given
+        OllamaResponseCache cache = cache(1024 * 1024);
+        Sinks.One<String> upstream = Sinks.one();
+        AtomicInteger generations = new AtomicInteger();
+
+        // When
+        CompletableFuture<String> first = cache.get("gemma3n:e4b", null, "질문", null, () -> {
+            generations.incrementAndGet();
+            return upstream.asMono();
+        }).toFuture();
+        CompletableFuture<String> second = cache.get("gemma3n:e4b", null, "질문", null, () -> {
+            generations.incrementAndGet();
+            return Mono.just("다른 생성");
+        }).toFuture();
+        upstream.tryEmitValue("응답");
+
+        // Then
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("응답");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("응답");
+        assertThat(generations.get()).isEqualTo(1);
+
+        // 실패한 생성은 다음 요청에서 다시 실행
+        assertThatThrownBy(() -> cache.get("gemma3n:e4b", null, "실패할 질문", null,
+                () -> Mono.error(new RuntimeException("Ollama 오류"))).block())
+                .hasMessageContaining("Ollama 오류");
+        assertThat(cache.get("gemma3n:e4b", null, "실패할 질문", null, () -> Mono.just("복구")).block())
+                .isEqualTo("복구");
+    }
+
+    @Test
+    @DisplayName("전체 바이트 크기 상한을 넘으면 응답을 제거한다")
+    void get_ShouldEvict_WhenMaxSizeBytesExceeded() {
+        // Given: 응답 하나가 약 2KB
+        OllamaResponseCache cache = cache(8 * 1024);
+        String longAnswer = "가".repeat(1000);
+
+        // When
+        for (int i = 0; i < 20; i++) {
+            cache.get("gemma3n:e4b", null, "질문 " + i, null, () -> Mono.just(longAnswer)).block();
+        }
+
+        // Then
+        assertThat(cache.getEntryCount()).isLessThan(20);
+        assertThat(cache.getWeightedSize()).isLessThanOrEqualTo(8 * 1024);
+    }
+
+    @Test
+    @DisplayName("모델이 바뀌면 그 모델의 응답만 제거한다")
+    void invalidateModel_ShouldRemoveOnlyThatModel() {
+        // Given
+        OllamaResponseCache cache = cache(1024 * 1024);
+        cache.get("gemma3n:e4b", null, "질문", null, () -> Mono.just("gemma 응답")).block();
+        cache.get("llama3", null, "질문", null, () -> Mono.just("llama 응답")).block();
+
+        // When
+        cache.invalidateModel("gemma3n:e4b");
+
+        // Then
+        assertThat(cache.getEntryCount()).isEqualTo(1);
+        assertThat(cache.get("llama3", null, "질문", null, () -> Mono.just("새 응답")).block())
+                .isEqualTo("llama 응답");
+        assertThat(cache.get("gemma3n:e4b", null, "질문", null, () -> Mono.just("새 응답")).block())
+                .isEqualTo("새 응답");
+    }
+
+    private OllamaResponseCache cache(long maxSizeBytes) {
+        OllamaBackendPool pool = new OllamaBackendPool(List.of(new OllamaBackend("http://localhost:1",
+                WebClient.create("http://localhost:1"))), meterRegistry, 2, Duration.ofSeconds(1), 128, 1.25);
+        OllamaModelRegistry modelRegistry = new OllamaModelRegistry(pool, "gemma3n:e4b", 32768, 32768, 2048,
+                Duration.ofSeconds(1));
+        return new OllamaResponseCache(modelRegistry, meterRegistry, true, maxSizeBytes, Duration.ofMinutes(10));
+    }
+}
\ No newline at end of file
@@ -1,14 +1,32 @@
 package com.chatgemma.service;
 
+import com.chatgemma.entity.GenerationUsage;
+import com.chatgemma.entity.Message;
+import com.chatgemma.service.exception.AiServiceBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.handler.timeout.ReadTimeoutException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -36,7 +54,71 @@ class OllamaServiceImplTest {
 
     @BeforeEach
     void setUp() {
-        ollamaService = new OllamaServiceImpl(webClient, "gemma3n:e4b", 60);
+        ollamaService = createService("generate");
+    }
+
+    private OllamaServiceImpl createService(String apiMode) {
+        return createService(apiMode, 32768);
+    }
+
+    private OllamaServiceImpl createService(String apiMode, int numCtx) {
+        return createService(apiMode, numCtx, GenerationOptions.none());
+    }
+
+    private OllamaServiceImpl createService(String apiMode, int numCtx, GenerationOptions defaultOptions) {
+        return createService(apiMode, numCtx, defaultOptions, new OllamaCircuitBreaker(new SimpleMeterRegistry(),
+                0.5, 20, 10, Duration.ofSeconds(30), 2, System::nanoTime));
+    }
+
+    private OllamaServiceImpl createService(String apiMode, int numCtx, GenerationOptions defaultOptions,
+                                            OllamaCircuitBreaker circuitBreaker) {
+        OllamaBulkhead bulkhead = new OllamaBulkhead(new SimpleMeterRegistry(), 8, 1);
+        GenerationTimeoutPolicy timeoutPolicy = new GenerationTimeoutPolicy(model -> true, new SimpleMeterRegistry(),
+                Duration.ofMillis(500), Duration.ofMillis(500), Duration.ZERO, 2.0, 2.0, Duration.ofSeconds(1));
+        AdaptiveConcurrencyLimiter concurrencyLimiter = new AdaptiveConcurrencyLimiter(
+                new SimpleMeterRegistry(), true, 2, 1, 8, 2.0, 0.75, 1000, 5);
+        OllamaBackendPool backendPool = new OllamaBackendPool(
+                List.of(new OllamaBackend("http://localhost:11434", webClient)),
+                new SimpleMeterRegistry(), 2, Duration.ofSeconds(1), 128, 1.25);
+        ChatContextStore contextStore = new ChatContextStore(
+                new SimpleMeterRegistry(), true, 1024 * 1024, Duration.ofMinutes(30));
+        OllamaModelRegistry modelRegistry = new OllamaModelRegistry(
+                backendPool, "gemma3n:e4b", numCtx, numCtx, 2048, Duration.ofSeconds(1));
+        ModelResidencyManager residencyManager = new ModelResidencyManager(backendPool, modelRegistry,
+                defaultOptions, bulkhead, new SimpleMeterRegistry(), "gemma3n:e4b", false, "08:00", "20:00", "MONDAY",
+                "Asia/Seoul", Duration.ofSeconds(1), Duration.ofSeconds(1));
+        OllamaResponseCache responseCache = new OllamaResponseCache(modelRegistry, new SimpleMeterRegistry(),
+                true, 1024 * 1024, Duration.ofMinutes(10));
+        SemanticResponseCache semanticCache = new SemanticResponseCache(new OllamaEmbedder(backendPool, bulkhead,
+                circuitBreaker, null, "nomic-embed-text", Duration.ofSeconds(1)), modelRegistry, new SimpleMeterRegistry(),
+                false, 0.92, 100, Duration.ofHours(1), 16, 100, 64);
+        return new OllamaServiceImpl(backendPool, concurrencyLimiter, contextStore, modelRegistry, residencyManager,
+                defaultOptions, circuitBreaker, bulkhead, timeoutPolicy, responseCache, semanticCache,
+                new TokenCounter(""), "gemma3n:e4b", apiMode,
+                2, Duration.ofMillis(1), Duration.ofMillis(5), 0.5);
+    }
+
+    @Test
+    @DisplayName("맥락 없는 같은 질문이 반복되면 Ollama를 다시 호출하지 않고 캐시된 응답을 돌려준다")
+    void sendMessage_ShouldServeFromCache_WhenPromptRepeated() {
+        // Given
+        OllamaServiceImpl.OllamaResponse mockResponse = new OllamaServiceImpl.OllamaResponse();
+        mockResponse.setResponse("영업시간은 9시부터 18시까지입니다");
+
+        when(webClient.post()).thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.uri("/api/generate")).thenReturn(requestBodySpec);
+        when(requestBodySpec.bodyValue(any())).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.bodyToMono(OllamaServiceImpl.OllamaResponse.class))
+                .thenReturn(Mono.just(mockResponse));
+
+        // When
+        String first = ollamaService.sendMessage("영업시간이 어떻게 되나요?", null);
+        String second = ollamaService.sendMessage("  영업시간이   어떻게 되나요? ", null);
+
+        // Then
+        assertThat(second).isEqualTo(first);
+        verify(requestBodySpec, times(1)).bodyValue(any());
     }
 
     @Test
@@ -154,4 +236,541 @@ class OllamaServiceImplTest {
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessage("메시지는 필수입니다");
     }
+
+    @Test
+    @DisplayName("스트리밍 요청 시 NDJSON 청크를 도착 순서대로 전달한다")
+    void streamMessageWithContext_ShouldEmitChunks_WhenStreaming() {
+        // Given
+        String message = "안녕하세요";
+
+        when(webClient.post()).thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.uri("/api/generate")).thenReturn(requestBodySpec);
+        when(requestBodySpec.bodyValue(any())).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.bodyToFlux(OllamaServiceImpl.OllamaResponse.class))
+                .thenReturn(Flux.just(chunk("안녕", false), chunk("하세요!", false), chunk("", true)));
+
+        // When
+        List<String> chunks = ollamaService.streamMessageWithContext(1L, message, null, ConversationContext.empty(), null, null)
+                .collectList()
+                .block();
+
+        // Then
+        assertThat(chunks).containsExactly("안녕", "하세요!");
+        verify(requestBodySpec).bodyValue(argThat(body -> {
+            OllamaServiceImpl.OllamaRequest request = (OllamaServiceImpl.OllamaRequest) body;
+            return request.isStream() && request.getPrompt().contains(message);
+        }));
+    }
+
+    @Test
+    @DisplayName("스트리밍 완료 청크의 토큰 사용량을 리스너에 전달한다")
+    void streamMessageWithContext_ShouldReportUsage_WhenDone() {
+        // Given
+        OllamaServiceImpl.OllamaResponse done = chunk("", true);
+        done.setPromptEvalCount(26);
+        done.setPromptEvalDuration(130_000_000L);
+        done.setEvalCount(290);
+        done.setEvalDuration(4_700_000_000L);
+        done.setLoadDuration(5_000_000L);
+        done.setTotalDuration(5_000_000_000L);
+
+        when(webClient.post()).thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.uri("/api/generate")).thenReturn(requestBodySpec);
+        when(requestBodySpec.bodyValue(any())).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.bodyToFlux(OllamaServiceImpl.OllamaResponse.class))
+                .thenReturn(Flux.just(chunk("안녕", false), done));
+
+        AtomicReference<GenerationUsage> usage = new AtomicReference<>();
+
+        // When
+        ollamaService.streamMessageWithContext(1L, "안녕하세요", null, ConversationContext.empty(), null, usage::set).blockLast();
+
+        // Then
+        assertThat(usage.get()).isNotNull();
+        assertThat(usage.get().getModel()).isEqualTo("gemma3n:e4b");
+        assertThat(usage.get().getPromptEvalCount()).isEqualTo(26);
+        assertThat(usage.get().getEvalCount()).isEqualTo(290);
+        assertThat(usage.get().getTotalDuration()).isEqualTo(5_000_000_000L);
+    }
+
+    @Test
+    @DisplayName("모델 컨텍스트 길이를 num_ctx 옵션으로 보내고 히스토리를 그 예산 안에서 구성한다")
+    void streamMessageWithContext_ShouldBudgetHistoryByModelContext() {
+        // Given
+        List<Message> history = List.of(
+                Message.createUserMessage(1L, "이전 질문"),
+                Message.createAssistantMessage(1L, "이전 답변"));
+
+        when(webClient.post()).thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.uri("/api/generate")).thenReturn(requestBodySpec);
+        when(requestBodySpec.bodyValue(any())).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.bodyToFlux(OllamaServiceImpl.OllamaResponse.class))
+                .thenAnswer(invocation -> Flux.just(chunk("답변", false), chunk("", true)));
+
+        // When: 출력 예약분만으로 컨텍스트가 가득 차는 작은 모델과 충분히 큰 모델
+        createService("generate", 2048).streamMessageWithContext(1L, "새 질문", null, ConversationContext.of(history), null, null).blockLast();
+        createService("generate", 32768).streamMessageWithContext(2L, "새 질문", null, ConversationContext.of(history), null, null).blockLast();
+
+        // Then
+        ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+        verify(requestBodySpec, times(2)).bodyValue(captor.capture());
+        OllamaServiceImpl.OllamaRequest small = (OllamaServiceImpl.OllamaRequest) captor.getAllValues().get(0);
+        OllamaServiceImpl.OllamaRequest large = (OllamaServiceImpl.OllamaRequest) captor.getAllValues().get(1);
+
+        assertThat(small.getOptions().getNumCtx()).isEqualTo(2048);
+        assertThat(small.getPrompt()).doesNotContain("이전 질문");
+        assertThat(large.getOptions().getNumCtx()).isEqualTo(32768);
+        assertThat(large.getPrompt()).contains("사용자: 이전 질문", "AI: 이전 답변");
+    }
+
+    @Test
+    @DisplayName("전역 생성 옵션과 keep_alive를 보내고 요청별 옵션으로 덮어쓴다")
+    void streamMessageWithContext_ShouldApplyGenerationOptions() {
+        // Given
+        OllamaServiceImpl service = createService("generate", 32768,
+                new GenerationOptions(512, null, 0.7, "30m"));
+
+        when(webClient.post()).thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.uri("/api/generate")).thenReturn(requestBodySpec);
+        when(requestBodySpec.bodyValue(any())).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.bodyToFlux(OllamaServiceImpl.OllamaResponse.class))
+                .thenAnswer(invocation -> Flux.just(chunk("답변", false), chunk("", true)));
+
+        // When: 요청별 num_predict는 전역 상한을 넘을 수 없다
+        service.streamMessageWithContext(1L, "질문", null, ConversationContext.empty(), null, null).blockLast();
+        service.streamMessageWithContext(2L, "질문", null, ConversationContext.empty(),
+                new GenerationOptions(4096, null, 0.2, null), null).blockLast();
+        service.streamMessageWithContext(3L, "질문", null, ConversationContext.empty(),
+                new GenerationOptions(64, 8192, null, "-1"), null).blockLast();
+
+        // Then
+        ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+        verify(requestBodySpec, times(3)).bodyValue(captor.capture());
+        OllamaServiceImpl.OllamaRequest defaults = (OllamaServiceImpl.OllamaRequest) captor.getAllValues().get(0);
+        OllamaServiceImpl.OllamaRequest capped = (OllamaServiceImpl.OllamaRequest) captor.getAllValues().get(1);
+        OllamaServiceImpl.OllamaRequest overridden = (OllamaServiceImpl.OllamaRequest) captor.getAllValues().get(2);
+
+        assertThat(defaults.getOptions().getNumPredict()).isEqualTo(512);
+        assertThat(defaults.getOptions().getNumCtx()).isEqualTo(32768);
+        assertThat(defaults.getOptions().getTemperature()).isEqualTo(0.7);
+        assertThat(defaults.getKeepAlive()).isEqualTo("30m");
+
+        assertThat(capped.getOptions().getNumPredict()).isEqualTo(512);
+        assertThat(capped.getOptions().getTemperature()).isEqualTo(0.2);
+        assertThat(capped.getKeepAlive()).isEqualTo("30m");
+
+        assertThat(overridden.getOptions().getNumPredict()).isEqualTo(64);
+        assertThat(overridden.getOptions().getNumCtx()).isEqualTo(8192);
+        assertThat(overridden.getKeepAlive()).isEqualTo(-1L); // 단위 없는 값은 JSON 숫자로
+    }
+
+    @Test
+    @DisplayName("스트리밍 중 오류가 발생하면 연결 실패 예외로 변환된다")
+    void streamMessageWithContext_ShouldMapError_WhenServiceError() {
+        // Given
+        when(webClient.post()).thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.uri("/api/generate")).thenReturn(requestBodySpec);
+        when(requestBodySpec.bodyValue(any())).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.bodyToFlux(OllamaServiceImpl.OllamaResponse.class))
+                .thenReturn(Flux.error(new RuntimeException("Connection refused")));
+
+        // When & Then
+        assertThatThrownBy(() -> ollamaService.streamMessageWithContext(1L, "테스트", null, ConversationContext.empty(), null, null).blockLast())
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("AI 서비스 연결 실패");
+    }
+
+    @Test
+    @DisplayName("커넥션 풀 대기열이 가득 차면 혼잡 예외가 발생한다")
+    void sendMessage_ShouldThrowBusyException_WhenConnectionPoolSaturated() {
+        // Given
+        when(webClient.post()).thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.uri("/api/generate")).thenReturn(requestBodySpec);
+        when(requestBodySpec.bodyValue(any())).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.bodyToMono(OllamaServiceImpl.OllamaResponse.class))
+                .thenReturn(Mono.error(new PoolAcquirePendingLimitException()));
+
+        // When & Then
+        assertThatThrownBy(() -> ollamaService.sendMessage("테스트 메시지", null))
+                .isInstanceOf(AiServiceBusyException.class);
+    }
+
+    @Test
+    @DisplayName("첫 토큰 전에 Ollama가 503을 반환하면 백오프 후 재시도한다")
+    void streamMessageWithContext_ShouldRetry_WhenServiceUnavailableBeforeFirstToken() {
+        // Given
+        when(webClient.post()).thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.uri("/api/generate")).thenReturn(requestBodySpec);
+        when(requestBodySpec.bodyValue(any())).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.bodyToFlux(OllamaServiceImpl.OllamaResponse.class))
+                .thenReturn(Flux.error(serviceUnavailable()),
+                        Flux.just(chunk("안녕", false), chunk("", true)));
+
+        // When
+        List<String> chunks = ollamaService.streamMessageWithContext(1L, "테스트", null, ConversationContext.empty(), null, null)
+                .collectList().block();
+
+        // Then
+        assertThat(chunks).containsExactly("안녕");
+        verify(responseSpec, times(2)).bodyToFlux(OllamaServiceImpl.OllamaResponse.class);
+    }
+
+    @Test
+    @DisplayName("요청 예외로 감싼 읽기 타임아웃은 재시도하지 않는다")
+    void streamMessageWithContext_ShouldNotRetry_WhenReadTimeout() {
+        // Given
+        when(webClient.post()).thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.uri("/api/generate")).thenReturn(requestBodySpec);
+        when(requestBodySpec.bodyValue(any())).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.bodyToFlux(OllamaServiceImpl.OllamaResponse.class))
+                .thenReturn(Flux.error(new WebClientRequestException(ReadTimeoutException.INSTANCE, HttpMethod.POST,
+                        URI.create("http://localhost:11434/api/generate"), new HttpHeaders())));
+
+        // When & Then
+        assertThatThrownBy(() -> ollamaService.streamMessageWithContext(1L, "테스트", null, ConversationContext.empty(), null, null)
+                .blockLast())
+                .hasMessageContaining("AI 서비스 연결 실패");
+        verify(responseSpec, times(1)).bodyToFlux(OllamaServiceImpl.OllamaResponse.class);
+    }
+
+    @Test
+    @DisplayName("첫 토큰을 받은 뒤의 오류는 재시도하지 않는다")
+    void streamMessageWithContext_ShouldNotRetry_AfterFirstToken() {
+        // Given
+        when(webClient.post()).thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.uri("/api/generate")).thenReturn(requestBodySpec);
+        when(requestBodySpec.bodyValue(any())).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.bodyToFlux(OllamaServiceImpl.OllamaResponse.class))
+                .thenReturn(Flux.concat(Flux.just(chunk("안녕", false)), Flux.error(serviceUnavailable())));
+
+        // When & Then
+        assertThatThrownBy(() -> ollamaService.streamMessageWithContext(1L, "테스트", null, ConversationContext.empty(), null, null)
+                .blockLast())
+                .hasMessageContaining("AI 서비스 연결 실패");
+        verify(responseSpec, times(1)).bodyToFlux(OllamaServiceImpl.OllamaResponse.class);
+    }
+
+    @Test
+    @DisplayName("서버 장애가 이어지면 회로가 열려 Ollama를 호출하지 않고 즉시 실패한다")
+    void streamMessageWithContext_ShouldFailFast_WhenCircuitOpen() {
+        // Given: 최근 2건 중 50% 이상 실패하면 차단
+        OllamaCircuitBreaker circuitBreaker = new OllamaCircuitBreaker(new SimpleMeterRegistry(),
+                0.5, 2, 2, Duration.ofSeconds(30), 1, System::nanoTime);
+        OllamaServiceImpl service = createService("generate", 32768, GenerationOptions.none(), circuitBreaker);
+
+        when(webClient.post()).thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.uri("/api/generate")).thenReturn(requestBodySpec);
+        when(requestBodySpec.bodyValue(any())).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.bodyToFlux(OllamaServiceImpl.OllamaResponse.class))
+                .thenReturn(Flux.error(serviceUnavailable()));
+
+        // When & Then: 두 번째 실패에서 회로가 열려 세 번째 시도는 호출하지 않는다
+        assertThatThrownBy(() -> service.streamMessageWithContext(1L, "테스트", null, ConversationContext.empty(), null, null)
+                .blockLast())
+                .isInstanceOf(AiServiceBusyException.class);
+        assertThatThrownBy(() -> service.streamMessageWithContext(2L, "테스트", null, ConversationContext.empty(), null, null)
+                .blockLast())
+                .isInstanceOf(AiServiceBusyException.class);
+
+        assertThat(circuitBreaker.getState()).isEqualTo(OllamaCircuitBreaker.State.OPEN);
+        verify(responseSpec, times(2)).bodyToFlux(OllamaServiceImpl.OllamaResponse.class);
+    }
+
+    @Test
+    @DisplayName("직전 턴의 context가 있으면 새 메시지만 context와 함께 보낸다")
+    void streamMessageWithContext_ShouldReuseContext_WhenPreviousTurnMatches() {
+        // Given
+        OllamaServiceImpl.OllamaResponse done = chunk("", true);
+        done.setContext(new int[]{1, 2, 3});
+
+        when(webClient.post()).thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.uri("/api/generate")).thenReturn(requestBodySpec);
+        when(requestBodySpec.bodyValue(any())).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.bodyToFlux(OllamaServiceImpl.OllamaResponse.class))
+                .thenReturn(Flux.just(chunk("반가워요!", false), done));
+
+        ollamaService.streamMessageWithContext(1L, "안녕하세요", null, ConversationContext.empty(), null, null).blockLast();
+        List<Message> history = List.of(
+                Message.createUserMessage(1L, "안녕하세요"),
+                Message.createAssistantMessage(1L, "반가워요!"));
+
+        // When
+        ollamaService.streamMessageWithContext(1L, "오늘 날씨 어때?", null, ConversationContext.of(history), null, null).blockLast();
+
+        // Then
+        verify(requestBodySpec).bodyValue(argThat(body -> {
+            OllamaServiceImpl.OllamaRequest request = (OllamaServiceImpl.OllamaRequest) body;
+            return request.getPrompt().equals("오늘 날씨 어때?")
+                    && Arrays.equals(request.getContext(), new int[]{1, 2, 3});
+        }));
+    }
+
+    @Test
+    @DisplayName("직전 턴이 저장된 context와 다르면 전체 프롬프트를 다시 구성한다")
+    void streamMessageWithContext_ShouldRebuildPrompt_WhenHistoryDiffers() {
+        // Given
+        OllamaServiceImpl.OllamaResponse done = chunk("", true);
+        done.setContext(new int[]{1, 2, 3});
+
+        when(webClient.post()).thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.uri("/api/generate")).thenReturn(requestBodySpec);
+        when(requestBodySpec.bodyValue(any())).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.bodyToFlux(OllamaServiceImpl.OllamaResponse.class))
+                .thenReturn(Flux.just(chunk("반가워요!", false), done));
+
+        ollamaService.streamMessageWithContext(1L, "안녕하세요", null, ConversationContext.empty(), null, null).blockLast();
+        List<Message> history = List.of(
+                Message.createUserMessage(1L, "안녕하세요"),
+                Message.createAssistantMessage(1L, "다른 응답"));
+
+        // When
+        ollamaService.streamMessageWithContext(1L, "오늘 날씨 어때?", null, ConversationContext.of(history), null, null).blockLast();
+
+        // Then
+        verify(requestBodySpec).bodyValue(argThat(body -> {
+            OllamaServiceImpl.OllamaRequest request = (OllamaServiceImpl.OllamaRequest) body;
+            return request.getContext() == null
+                    && request.getPrompt().contains("이전 대화 내용:")
+                    && request.getPrompt().contains("오늘 날씨 어때?");
+        }));
+    }
+
+    @Test
+    @DisplayName("저장된 context가 히스토리 토큰 예산을 넘으면 버리고 예산에 맞춘 전체 프롬프트를 다시 구성한다")
+    void streamMessageWithContext_ShouldDropContext_WhenOverHistoryBudget() {
+        // Given: num_ctx 4096 - 출력 예약 2048 -> 예산 약 2000토큰, 저장된 context 3000토큰
+        OllamaServiceImpl service = createService("generate", 4096);
+        OllamaServiceImpl.OllamaResponse done = chunk("", true);
+        done.setContext(new int[3000]);
+
+        when(webClient.post()).thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.uri("/api/generate")).thenReturn(requestBodySpec);
+        when(requestBodySpec.bodyValue(any())).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.bodyToFlux(OllamaServiceImpl.OllamaResponse.class))
+                .thenReturn(Flux.just(chunk("반가워요!", false), done));
+
+        service.streamMessageWithContext(1L, "안녕하세요", null, ConversationContext.empty(), null, null).blockLast();
+        List<Message> history = List.of(
+                Message.createUserMessage(1L, "안녕하세요"),
+                Message.createAssistantMessage(1L, "반가워요!"));
+
+        // When
+        service.streamMessageWithContext(1L, "오늘 날씨 어때?", null, ConversationContext.of(history), null, null).blockLast();
+
+        // Then
+        verify(requestBodySpec).bodyValue(argThat(body -> {
+            OllamaServiceImpl.OllamaRequest request = (OllamaServiceImpl.OllamaRequest) body;
+            return request.getContext() == null && request.getPrompt().contains("이전 대화 내용:");
+        }));
+    }
+
+    @Test
+    @DisplayName("대화 요약이 있으면 직전 턴이 일치해도 context 대신 요약을 넣은 프롬프트를 보낸다")
+    void streamMessageWithContext_ShouldNotReuseContext_WhenSummaryPresent() {
+        // Given
+        OllamaServiceImpl.OllamaResponse done = chunk("", true);
+        done.setContext(new int[]{1, 2, 3});
+
+        when(webClient.post()).thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.uri("/api/generate")).thenReturn(requestBodySpec);
+        when(requestBodySpec.bodyValue(any())).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.bodyToFlux(OllamaServiceImpl.OllamaResponse.class))
+                .thenReturn(Flux.just(chunk("반가워요!", false), done));
+
+        ollamaService.streamMessageWithContext(1L, "안녕하세요", null, ConversationContext.empty(), null, null).blockLast();
+        ConversationContext conversation = ConversationContext.of("사용자는 환불 기간을 물었음", null, List.of(
+                Message.createUserMessage(1L, "안녕하세요"),
+                Message.createAssistantMessage(1L, "반가워요!")));
+
+        // When
+        ollamaService.streamMessageWithContext(1L, "오늘 날씨 어때?", null, conversation, null, null).blockLast();
+
+        // Then
+        verify(requestBodySpec).bodyValue(argThat(body -> {
+            OllamaServiceImpl.OllamaRequest request = (OllamaServiceImpl.OllamaRequest) body;
+            return request.getContext() == null && request.getPrompt().contains("이전 대화 요약:");
+        }));
+    }
+
+    @Test
+    @DisplayName("chat 모드에서는 고정된 system 메시지와 잘라내지 않은 이전 대화를 messages로 보낸다")
+    void streamMessageWithContext_ShouldSendChatMessages_WhenChatApiMode() {
+        // Given
+        OllamaServiceImpl chatService = createService("chat");
+        String longAnswer = "가".repeat(300);
+        List<Message> history = List.of(
+                Message.createUserMessage(1L, "안녕하세요"),
+                Message.createAssistantMessage(1L, longAnswer));
+
+        OllamaServiceImpl.OllamaChatMessage reply = new OllamaServiceImpl.OllamaChatMessage("assistant", "맑아요");
+        OllamaServiceImpl.OllamaResponse replyChunk = new OllamaServiceImpl.OllamaResponse();
+        replyChunk.setMessage(reply);
+
+        when(webClient.post()).thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.uri("/api/chat")).thenReturn(requestBodySpec);
+        when(requestBodySpec.bodyValue(any())).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.bodyToFlux(OllamaServiceImpl.OllamaResponse.class))
+                .thenReturn(Flux.just(replyChunk, chunk(null, true)));
+
+        // When
+        List<String> chunks = chatService.streamMessageWithContext(1L, "오늘 날씨 어때?", null, ConversationContext.of(history), null, null)
+                .collectList()
+                .block();
+
+        // Then
+        assertThat(chunks).containsExactly("맑아요");
+        verify(requestBodySpec).bodyValue(argThat(body -> {
+            List<OllamaServiceImpl.OllamaChatMessage> messages = ((OllamaServiceImpl.OllamaChatRequest) body).getMessages();
+            return messages.size() == 4
+                    && messages.get(0).getRole().equals("system")
+                    && messages.get(2).getContent().equals(longAnswer)
+                    && messages.get(3).getContent().equals("오늘 날씨 어때?");
+        }));
+    }
+
+    @Test
+    @DisplayName("chat 모드의 system 메시지는 요청마다 동일하다")
+    void sendMessageWithContextAsync_ShouldKeepSystemMessageStable_WhenChatApiMode() {
+        // Given
+        OllamaServiceImpl chatService = createService("chat");
+        OllamaServiceImpl.OllamaResponse response = new OllamaServiceImpl.OllamaResponse();
+        response.setMessage(new OllamaServiceImpl.OllamaChatMessage("assistant", "네"));
+
+        when(webClient.post()).thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.uri("/api/chat")).thenReturn(requestBodySpec);
+        when(requestBodySpec.bodyValue(any())).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.bodyToMono(OllamaServiceImpl.OllamaResponse.class)).thenReturn(Mono.just(response));
+
+        // When
+        chatService.sendMessageWithContextAsync(1L, "첫 질문", null, ConversationContext.empty(), null, null).block();
+        chatService.sendMessageWithContextAsync(2L, "다른 질문", null, ConversationContext.empty(), null, null).block();
+
+        // Then
+        ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+        verify(requestBodySpec, times(2)).bodyValue(captor.capture());
+        String first = ((OllamaServiceImpl.OllamaChatRequest) captor.getAllValues().get(0)).getMessages().get(0).getContent();
+        String second = ((OllamaServiceImpl.OllamaChatRequest) captor.getAllValues().get(1)).getMessages().get(0).getContent();
+        assertThat(first).isEqualTo(second);
+    }
+
+    @Test
+    @DisplayName("저장된 대화 요약을 이전 대화 앞에 넣고, 긴 메시지도 잘라내지 않는다")
+    void streamMessageWithContext_ShouldPrependSummary_AndKeepMessagesWhole() {
+        // Given
+        String longAnswer = "나".repeat(300);
+        ConversationContext conversation = ConversationContext.of("사용자는 환불 기간이 14일이라고 안내받음", null,
+                List.of(Message.createUserMessage(1L, "배송은요?"), Message.createAssistantMessage(1L, longAnswer)));
+
+        when(webClient.post()).thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.uri("/api/generate")).thenReturn(requestBodySpec);
+        when(requestBodySpec.bodyValue(any())).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.bodyToFlux(OllamaServiceImpl.OllamaResponse.class))
+                .thenReturn(Flux.just(chunk("네", false), chunk("", true)));
+
+        // When
+        ollamaService.streamMessageWithContext(1L, "환불 기간 다시 알려줘", null, conversation, null, null).blockLast();
+
+        // Then
+        verify(requestBodySpec).bodyValue(argThat(body -> {
+            String prompt = ((OllamaServiceImpl.OllamaRequest) body).getPrompt();
+            return prompt.indexOf("이전 대화 요약:\n사용자는 환불 기간이 14일이라고 안내받음")
+                    < prompt.indexOf("이전 대화 내용:")
+                    && prompt.contains("AI: " + longAnswer + "\n")
+                    && !prompt.contains("AI: 이전 대화 요약");
+        }));
+    }
+
+    @Test
+    @DisplayName("대화 요약은 기존 요약과 대화를 넣어 낮은 온도와 출력 상한으로 요청하고 앞뒤 공백을 제거한다")
+    void summarizeConversation_ShouldExtendPreviousSummary() {
+        // Given
+        List<Message> messages = List.of(
+                Message.createUserMessage(1L, "환불 기간이 어떻게 되나요?"),
+                Message.createAssistantMessage(1L, "구매 후 14일 이내입니다."));
+        OllamaServiceImpl.OllamaResponse response = chunk("  환불 기간: 14일  ", true);
+
+        when(webClient.post()).thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.uri("/api/generate")).thenReturn(requestBodySpec);
+        when(requestBodySpec.bodyValue(any())).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.bodyToMono(OllamaServiceImpl.OllamaResponse.class)).thenReturn(Mono.just(response));
+
+        // When
+        String summary = ollamaService.summarizeConversation(1L, "기존 요약", messages, 256).block();
+
+        // Then
+        assertThat(summary).isEqualTo("환불 기간: 14일");
+        verify(requestBodySpec).bodyValue(argThat(body -> {
+            OllamaServiceImpl.OllamaRequest request = (OllamaServiceImpl.OllamaRequest) body;
+            return request.getPrompt().contains("기존 요약:\n기존 요약")
+                    && request.getPrompt().contains("사용자: 환불 기간이 어떻게 되나요?")
+                    && request.getOptions().getNumPredict() == 256
+                    && request.getOptions().getTemperature() == 0.2;
+        }));
+    }
+
+    @Test
+    @DisplayName("출력 상한에 걸려 끊긴 요약은 중간에 잘린 문장을 빼고 마지막으로 끝난 문장까지만 사용한다")
+    void summarizeConversation_ShouldDropUnfinishedSentence_WhenCutByNumPredict() {
+        // Given
+        List<Message> messages = List.of(
+                Message.createUserMessage(1L, "환불 기간이 어떻게 되나요?"),
+                Message.createAssistantMessage(1L, "구매 후 14일 이내입니다."));
+        OllamaServiceImpl.OllamaResponse response = chunk("환불 기간은 14일입니다. 배송은 3.5일 걸리고 주말에는", true);
+        response.setDoneReason("length");
+
+        when(webClient.post()).thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.uri("/api/generate")).thenReturn(requestBodySpec);
+        when(requestBodySpec.bodyValue(any())).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.bodyToMono(OllamaServiceImpl.OllamaResponse.class)).thenReturn(Mono.just(response));
+
+        // When
+        String summary = ollamaService.summarizeConversation(1L, null, messages, 256).block();
+
+        // Then
+        assertThat(summary).isEqualTo("환불 기간은 14일입니다.");
+        assertThat(OllamaServiceImpl.upToLastCompleteSentence("• 환불 14일\n• 배송은 주말에")).isEqualTo("• 환불 14일\n");
+        assertThat(OllamaServiceImpl.upToLastCompleteSentence("경계 없는 요약")).isEqualTo("경계 없는 요약");
+    }
+
+    @Test
+    @DisplayName("알 수 없는 API 모드는 거부한다")
+    void constructor_ShouldRejectUnknownApiMode() {
+        assertThatThrownBy(() -> createService("completion"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private OllamaServiceImpl.OllamaResponse chunk(String text, boolean done) {
+        OllamaServiceImpl.OllamaResponse response = new OllamaServiceImpl.OllamaResponse();
+        response.setResponse(text);
+        response.setDone(done);
+        return response;
+    }
+
+    // Reactor Netty 내부(shaded) 풀 예외와 같은 이름의 테스트용 예외
+    private static WebClientResponseException serviceUnavailable() {
+        return WebClientResponseException.create(503, "Service Unavailable", HttpHeaders.EMPTY, new byte[0],
+                StandardCharsets.UTF_8);
+    }
+
+    static class PoolAcquirePendingLimitException extends RuntimeException {
+    }
 }
\ No newline at end of file
@@ -0,0 +1,188 @@
+package com.chatgemma.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("SemanticResponseCache Tests")
+class SemanticResponseCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final StubEmbedder embedder = new StubEmbedder();
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicInteger generations = new AtomicInteger();
+
+    @Test
+    @DisplayName("비슷한 표현의 질문은 저장된 답을, 유사도가 임계치보다 낮으면 새로 생성한 답을 돌려준다")
+    void get_ShouldServeParaphrase_WhenSimilarityAboveThreshold() {
+        // Given
+        SemanticResponseCache cache = cache(100);
+        embedder.put("환불은 어떻게 하나요?", 1.0f, 0.0f, 0.0f);
+        embedder.put("환불 방법 알려주세요", 0.98f, 0.2f, 0.0f);   // 코사인 ≈ 0.98
+        embedder.put("배송은 얼마나 걸리나요?", 0.0f, 1.0f, 0.0f);
+
+        // When
+        String first = cache.get("gemma3n:e4b", null, "stateless", "환불은 어떻게 하나요?", null, this::generate).block();
+        String paraphrase = cache.get("gemma3n:e4b", null, "stateless", "환불 방법 알려주세요", null, this::generate).block();
+        String different = cache.get("gemma3n:e4b", null, "stateless", "배송은 얼마나 걸리나요?", null, this::generate).block();
+
+        // Then
+        assertThat(first).isEqualTo("응답-1");
+        assertThat(paraphrase).isEqualTo("응답-1");
+        assertThat(different).isEqualTo("응답-2");
+        assertThat(meterRegistry.get("chatgemma.ollama.semantic.cache.requests").tag("result", "hit")
+                .counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("chatgemma.ollama.semantic.cache.requests").tag("result", "miss")
+                .counter().count()).isEqualTo(2.0);
+        assertThat(meterRegistry.get("chatgemma.ollama.semantic.cache.similarity").summary().count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("생성 옵션이나 요청 종류가 다르면 비슷한 질문이어도 저장된 답을 쓰지 않는다")
+    void get_ShouldNotMatchAcrossScopes() {
+        // Given
+        SemanticResponseCache cache = cache(100);
+        embedder.put("환불은 어떻게 하나요?", 1.0f, 0.0f, 0.0f);
+
+        // When
+        cache.get("gemma3n:e4b", null, "stateless", "환불은 어떻게 하나요?", null, this::generate).block();
+        String otherKind = cache.get("gemma3n:e4b", null, "first-turn:generate", "환불은 어떻게 하나요?", null,
+                this::generate).block();
+        String otherOptions = cache.get("gemma3n:e4b", new GenerationOptions(128, null, 0.7, null), "stateless",
+                "환불은 어떻게 하나요?", null, this::generate).block();
+        String withImage = cache.get("gemma3n:e4b", null, "stateless", "환불은 어떻게 하나요?", "/uploads/a.png",
+                this::generate).block();
+
+        // Then
+        assertThat(otherKind).isEqualTo("응답-2");
+        assertThat(otherOptions).isEqualTo("응답-3");
+        assertThat(withImage).isEqualTo("응답-4");
+    }
+
+    @Test
+    @DisplayName("스트리밍 적중 시 저장된 답을 한 청크로 보내고, 미스면 완료 후 전체 답을 저장한다")
+    void stream_ShouldStoreCompletedAnswer() {
+        // Given
+        SemanticResponseCache cache = cache(100);
+        embedder.put("환불은 어떻게 하나요?", 1.0f, 0.0f, 0.0f);
+        embedder.put("환불 방법 알려주세요", 0.98f, 0.2f, 0.0f);
+
+        // When
+        List<String> first = cache.stream("gemma3n:e4b", null, "first-turn:generate", "환불은 어떻게 하나요?", null,
+                () -> Flux.just("영수증을 ", "준비해 주세요")).collectList().block();
+        List<String> paraphrase = cache.stream("gemma3n:e4b", null, "first-turn:generate", "환불 방법 알려주세요", null,
+                () -> Flux.just("새로 생성")).collectList().block();
+
+        // Then
+        assertThat(first).containsExactly("영수증을 ", "준비해 주세요");
+        assertThat(paraphrase).containsExactly("영수증을 준비해 주세요");
+    }
+
+    @Test
+    @DisplayName("항목 수 상한을 넘으면 가장 오래 쓰이지 않은 항목을, TTL이 지나면 만료된 항목을 제거한다")
+    void put_ShouldEvictLeastRecentlyUsed_AndExpireByTtl() {
+        // Given
+        SemanticResponseCache cache = cache(2);
+        embedder.put("질문 A", 1.0f, 0.0f, 0.0f);
+        embedder.put("질문 B", 0.0f, 1.0f, 0.0f);
+        embedder.put("질문 C", 0.0f, 0.0f, 1.0f);
+
+        // When: A, B 저장 후 A를 다시 사용하고 C 저장 -> B 제거
+        cache.get("gemma3n:e4b", null, "stateless", "질문 A", null, this::generate).block();
+        clock.addAndGet(1_000);
+        cache.get("gemma3n:e4b", null, "stateless", "질문 B", null, this::generate).block();
+        clock.addAndGet(1_000);
+        cache.get("gemma3n:e4b", null, "stateless", "질문 A", null, this::generate).block();
+        cache.get("gemma3n:e4b", null, "stateless", "질문 C", null, this::generate).block();
+
+        // Then
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get("gemma3n:e4b", null, "stateless", "질문 A", null, this::generate).block())
+                .isEqualTo("응답-1");
+        assertThat(meterRegistry.get("chatgemma.ollama.semantic.cache.evictions").counter().count()).isEqualTo(1.0);
+
+        // TTL(1시간)이 지나면 다시 생성
+        clock.addAndGet(Duration.ofHours(2).toNanos());
+        assertThat(cache.get("gemma3n:e4b", null, "stateless", "질문 A", null, this::generate).block())
+                .isEqualTo("응답-4");
+    }
+
+    @Test
+    @DisplayName("임베딩에 실패하면 캐시 없이 그대로 생성한다")
+    void get_ShouldFallBackToGeneration_WhenEmbeddingFails() {
+        // Given: 스텁에 없는 질문은 임베딩 오류
+        SemanticResponseCache cache = cache(100);
+
+        // When
+        String answer = cache.get("gemma3n:e4b", null, "stateless", "등록되지 않은 질문", null, this::generate).block();
+
+        // Then
+        assertThat(answer).isEqualTo("응답-1");
+        assertThat(cache.size()).isZero();
+        assertThat(meterRegistry.get("chatgemma.ollama.semantic.cache.requests").tag("result", "error")
+                .counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("모델이 바뀌면 그 모델의 답을 모두 제거한다")
+    void invalidateModel_ShouldRemoveEntriesOfThatModel() {
+        // Given
+        SemanticResponseCache cache = cache(100);
+        embedder.put("질문 A", 1.0f, 0.0f, 0.0f);
+        cache.get("gemma3n:e4b", null, "stateless", "질문 A", null, this::generate).block();
+        cache.get("llama3", null, "stateless", "질문 A", null, this::generate).block();
+
+        // When
+        cache.invalidateModel("gemma3n:e4b");
+
+        // Then
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.get("llama3", null, "stateless", "질문 A", null, this::generate).block())
+                .isEqualTo("응답-2");
+    }
+
+    private Mono<String> generate() {
+        return Mono.fromSupplier(() -> "응답-" + generations.incrementAndGet());
+    }
+
+    private SemanticResponseCache cache(int maxEntries) {
+        OllamaBackendPool pool = new OllamaBackendPool(List.of(new OllamaBackend("http://localhost:1",
+                WebClient.create("http://localhost:1"))), meterRegistry, 2, Duration.ofSeconds(1), 128, 1.25);
+        OllamaModelRegistry modelRegistry = new OllamaModelRegistry(pool, "gemma3n:e4b", 32768, 32768, 2048,
+                Duration.ofSeconds(1));
+        return new SemanticResponseCache(embedder, modelRegistry, meterRegistry, true, 0.95, maxEntries,
+                Duration.ofHours(1), 4, 16, 16, clock::get);
+    }
+
+    // 질문별로 고정된 벡터를 돌려주는 결정적 임베더 (등록되지 않은 질문은 오류)
+    private static final class StubEmbedder implements Embedder {
+        private final Map<String, float[]> vectors = new HashMap<>();
+
+        void put(String text, float... vector) {
+            vectors.put(text, vector);
+        }
+
+        @Override
+        public Mono<float[]> embed(String text) {
+            float[] vector = vectors.get(text);
+            return vector != null ? Mono.just(vector) : Mono.error(new IllegalStateException("임베딩 실패: " + text));
+        }
+
+        @Override
+        public String getModelName() {
+            return "stub";
+        }
+    }
+}
\ No newline at end of file
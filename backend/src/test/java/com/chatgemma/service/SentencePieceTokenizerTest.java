@@ -0,0 +1,174 @@
+package com.chatgemma.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("SentencePieceTokenizer Tests")
+class SentencePieceTokenizerTest {
+
+    // piece 종류 (sentencepiece_model.proto)
+    private static final int NORMAL = 1;
+    private static final int UNKNOWN = 2;
+    private static final int CONTROL = 3;
+    private static final int USER_DEFINED = 4;
+    private static final int BYTE = 6;
+
+    @Test
+    @DisplayName("tokenizer.model의 어휘로 점수가 높은 인접 쌍부터 병합한다")
+    void encode_ShouldMergePairsByScore() {
+        // Given
+        ModelBuilder model = baseModel();
+        int hello = model.piece("hello", -4, NORMAL);
+        int world = model.piece("▁world", -9, NORMAL);
+        SentencePieceTokenizer tokenizer = SentencePieceTokenizer.parse(model.build(false));
+
+        // When
+        int[] ids = tokenizer.encode("hello world");
+
+        // Then: he -> ll -> hell -> hello, ▁w -> or -> ▁wor -> ld -> ▁world
+        assertThat(ids).containsExactly(hello, world);
+        assertThat(tokenizer.countTokens("hello world")).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("어휘에 없는 문자는 UTF-8 바이트 piece로 인코딩한다")
+    void encode_ShouldFallBackToBytes_WhenCharacterUnknown() {
+        // Given
+        ModelBuilder model = baseModel();
+        SentencePieceTokenizer tokenizer = SentencePieceTokenizer.parse(model.build(false));
+
+        // When: '한'은 UTF-8 3바이트 (ED 95 9C)
+        int[] ids = tokenizer.encode("한");
+
+        // Then
+        assertThat(ids).containsExactly(model.byteId(0xED), model.byteId(0x95), model.byteId(0x9C));
+    }
+
+    @Test
+    @DisplayName("사용자 정의 piece는 병합 없이 통째로 매칭하고 CONTROL piece는 텍스트에서 만들지 않는다")
+    void encode_ShouldMatchUserDefinedPiecesWhole() {
+        // Given
+        ModelBuilder model = baseModel();
+        int startOfTurn = model.piece("<start_of_turn>", 0, USER_DEFINED);
+        int hello = model.piece("hello", -4, NORMAL);
+        SentencePieceTokenizer tokenizer = SentencePieceTokenizer.parse(model.build(false));
+
+        // When
+        int[] ids = tokenizer.encode("<start_of_turn>hello");
+
+        // Then
+        assertThat(ids).containsExactly(startOfTurn, hello);
+        assertThat(tokenizer.encode("<bos>")).doesNotContain(1);
+    }
+
+    @Test
+    @DisplayName("정규화 설정에 따라 앞에 ▁를 붙인다")
+    void encode_ShouldAddDummyPrefix_WhenConfigured() {
+        // Given
+        ModelBuilder model = baseModel();
+        int spaceHello = model.piece("▁hello", -3.5f, NORMAL);
+        model.piece("▁h", -0.5f, NORMAL);
+        model.piece("▁he", -0.7f, NORMAL);
+        model.piece("▁hell", -3.2f, NORMAL);
+        SentencePieceTokenizer tokenizer = SentencePieceTokenizer.parse(model.build(true));
+
+        // When & Then
+        assertThat(tokenizer.encode("hello")).containsExactly(spaceHello);
+        assertThat(tokenizer.encode("")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("손상된 tokenizer.model은 거부한다")
+    void parse_ShouldRejectMalformedModel() {
+        assertThatThrownBy(() -> SentencePieceTokenizer.parse(new byte[]{0x0A, 0x7F, 0x01}))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> SentencePieceTokenizer.parse(new byte[0]))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // <unk>, <bos>, 바이트 piece 256개, 영문 소문자/▁와 "hello world" 병합 규칙
+    static ModelBuilder baseModel() {
+        ModelBuilder model = new ModelBuilder();
+        model.piece("<unk>", 0, UNKNOWN);
+        model.piece("<bos>", 0, CONTROL);
+        for (int b = 0; b < 256; b++) {
+            model.piece(String.format("<0x%02X>", b), 0, BYTE);
+        }
+        for (String single : List.of("▁", "h", "e", "l", "o", "w", "r", "d")) {
+            model.piece(single, -10, NORMAL);
+        }
+        model.piece("he", -1, NORMAL);
+        model.piece("ll", -2, NORMAL);
+        model.piece("hell", -3, NORMAL);
+        model.piece("▁w", -5, NORMAL);
+        model.piece("or", -6, NORMAL);
+        model.piece("▁wor", -7, NORMAL);
+        model.piece("ld", -8, NORMAL);
+        return model;
+    }
+
+    // ModelProto를 protobuf wire format으로 직접 만든다
+    static final class ModelBuilder {
+        private final List<byte[]> pieces = new ArrayList<>();
+
+        int piece(String text, float score, int type) {
+            ByteArrayOutputStream piece = new ByteArrayOutputStream();
+            writeTag(piece, 1, 2);
+            writeBytes(piece, text.getBytes(StandardCharsets.UTF_8));
+            writeTag(piece, 2, 5);
+            piece.writeBytes(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putFloat(score).array());
+            writeTag(piece, 3, 0);
+            writeVarint(piece, type);
+            pieces.add(piece.toByteArray());
+            return pieces.size() - 1;
+        }
+
+        int byteId(int value) {
+            return 2 + value;
+        }
+
+        byte[] build(boolean addDummyPrefix) {
+            ByteArrayOutputStream model = new ByteArrayOutputStream();
+            for (byte[] piece : pieces) {
+                writeTag(model, 1, 2);
+                writeBytes(model, piece);
+            }
+            ByteArrayOutputStream normalizer = new ByteArrayOutputStream();
+            writeTag(normalizer, 1, 2);
+            writeBytes(normalizer, "identity".getBytes(StandardCharsets.UTF_8));
+            writeTag(normalizer, 3, 0);
+            writeVarint(normalizer, addDummyPrefix ? 1 : 0);
+            writeTag(normalizer, 4, 0);
+            writeVarint(normalizer, 0);
+            writeTag(model, 3, 2);
+            writeBytes(model, normalizer.toByteArray());
+            return model.toByteArray();
+        }
+
+        private static void writeTag(ByteArrayOutputStream out, int field, int wireType) {
+            writeVarint(out, (field << 3) | wireType);
+        }
+
+        private static void writeBytes(ByteArrayOutputStream out, byte[] bytes) {
+            writeVarint(out, bytes.length);
+            out.writeBytes(bytes);
+        }
+
+        private static void writeVarint(ByteArrayOutputStream out, int value) {
+            while ((value & ~0x7F) != 0) {
+                out.write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.write(value);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,63 @@
+package com.chatgemma.service;
+
+import com.chatgemma.entity.Message;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("TokenCounter Tests")
+class TokenCounterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("tokenizer.model이 있으면 정확한 토큰 수를 세고 저장용 값도 돌려준다")
+    void count_ShouldUseTokenizer_WhenModelConfigured() throws Exception {
+        // Given
+        SentencePieceTokenizerTest.ModelBuilder model = SentencePieceTokenizerTest.baseModel();
+        model.piece("hello", -4, 1);
+        model.piece("▁world", -9, 1);
+        Path modelPath = tempDir.resolve("tokenizer.model");
+        Files.write(modelPath, model.build(false));
+
+        // When
+        TokenCounter counter = new TokenCounter(modelPath.toString());
+
+        // Then
+        assertThat(counter.isExact()).isTrue();
+        assertThat(counter.count("hello world")).isEqualTo(2);
+        assertThat(counter.exactCount("hello world")).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("모델 파일이 없으면 추정치를 쓰고 저장용 토큰 수는 남기지 않는다")
+    void count_ShouldEstimate_WhenModelMissing() {
+        // Given
+        TokenCounter counter = new TokenCounter(tempDir.resolve("missing.model").toString());
+
+        // When & Then: 한글 2글자(5) + 기타 2글자(2.4)
+        assertThat(counter.isExact()).isFalse();
+        assertThat(counter.count("안녕!!")).isEqualTo(7);
+        assertThat(counter.exactCount("안녕!!")).isNull();
+    }
+
+    @Test
+    @DisplayName("메시지에 기록된 토큰 수가 있으면 다시 세지 않는다")
+    void count_ShouldPreferStoredTokenCount() {
+        // Given
+        TokenCounter counter = new TokenCounter("");
+        Message stored = Message.createUserMessage(1L, "아주 긴 메시지");
+        stored.recordTokenCount(3);
+        Message legacy = Message.createUserMessage(1L, "안녕");
+
+        // When & Then
+        assertThat(counter.count(stored)).isEqualTo(3);
+        assertThat(counter.count(legacy)).isEqualTo(5);
+    }
+}
\ No newline at end of file
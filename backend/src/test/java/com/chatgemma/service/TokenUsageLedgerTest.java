@@ -0,0 +1,95 @@
+package com.chatgemma.service;
+
+import com.chatgemma.entity.GenerationUsage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("TokenUsageLedger Tests")
+class TokenUsageLedgerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TokenUsageLedger ledger = new TokenUsageLedger(meterRegistry, 10000, Duration.ofHours(24));
+
+    @Test
+    @DisplayName("사용자/채팅/모델별로 토큰 사용량을 누적한다")
+    void record_ShouldAggregatePerUserChatAndModel() {
+        // When
+        ledger.record(1L, 10L, usage("gemma3n:e4b", 100, 20));
+        ledger.record(1L, 11L, usage("gemma3n:e4b", 300, 40));
+        ledger.record(2L, 12L, usage("llama3", 50, 10));
+
+        // Then
+        TokenUsageLedger.UsageSnapshot user = ledger.getUserUsage(1L);
+        assertThat(user.getRequests()).isEqualTo(2);
+        assertThat(user.getPromptTokens()).isEqualTo(400);
+        assertThat(user.getEvalTokens()).isEqualTo(60);
+        assertThat(user.getAveragePromptTokens()).isEqualTo(200.0);
+
+        assertThat(ledger.getChatUsage(11L).getPromptTokens()).isEqualTo(300);
+        assertThat(ledger.getUsageByModel()).containsOnlyKeys("gemma3n:e4b", "llama3");
+        assertThat(ledger.getUsageByUser()).containsOnlyKeys(1L, 2L);
+    }
+
+    @Test
+    @DisplayName("채팅을 지우면 채팅별 합계만 제거하고 사용자/모델별 합계는 유지한다")
+    void removeChat_ShouldDropChatTotalsOnly() {
+        // Given
+        ledger.record(1L, 10L, usage("gemma3n:e4b", 100, 20));
+
+        // When
+        ledger.removeChat(10L);
+
+        // Then
+        assertThat(ledger.getChatUsage(10L).getRequests()).isZero();
+        assertThat(ledger.getUserUsage(1L).getRequests()).isEqualTo(1);
+        assertThat(ledger.getModelUsage("gemma3n:e4b").getRequests()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("모델별 토큰 수를 Micrometer 카운터로 내보낸다")
+    void record_ShouldIncrementTokenCounters() {
+        // When
+        ledger.record(1L, 10L, usage("gemma3n:e4b", 100, 20));
+        ledger.record(1L, 10L, usage("gemma3n:e4b", 50, 5));
+
+        // Then
+        assertThat(meterRegistry.get("chatgemma.ollama.tokens")
+                .tag("model", "gemma3n:e4b").tag("type", "prompt").counter().count()).isEqualTo(150.0);
+        assertThat(meterRegistry.get("chatgemma.ollama.tokens")
+                .tag("model", "gemma3n:e4b").tag("type", "eval").counter().count()).isEqualTo(25.0);
+    }
+
+    @Test
+    @DisplayName("처리 시간으로 토큰 처리 속도를 계산한다")
+    void snapshot_ShouldComputeTokensPerSecond() {
+        // When
+        ledger.record(1L, 10L, usage("gemma3n:e4b", 100, 20));
+
+        // Then
+        TokenUsageLedger.UsageSnapshot snapshot = ledger.getModelUsage("gemma3n:e4b");
+        assertThat(snapshot.getPromptTokensPerSecond()).isEqualTo(200.0);
+        assertThat(snapshot.getEvalTokensPerSecond()).isEqualTo(10.0);
+    }
+
+    @Test
+    @DisplayName("사용량 정보가 없거나 기록이 없으면 0으로 집계한다")
+    void record_ShouldIgnoreMissingUsage() {
+        // When
+        ledger.record(1L, 10L, null);
+
+        // Then
+        assertThat(ledger.getUserUsage(1L).getRequests()).isZero();
+        assertThat(ledger.getModelUsage("unknown").getEvalTokensPerSecond()).isZero();
+    }
+
+    // 프롬프트 평가 0.5초, 생성 2초
+    private GenerationUsage usage(String model, int promptTokens, int evalTokens) {
+        return new GenerationUsage(model, promptTokens, 500_000_000L, evalTokens, 2_000_000_000L,
+                1_000_000L, 2_600_000_000L);
+    }
+}
\ No newline at end of file
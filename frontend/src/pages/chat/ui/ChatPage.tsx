@@ -5,10 +5,12 @@ import { useChatContext } from "@/shared/lib/contexts/ChatContext"
 import { useAuth } from "@/shared/lib/contexts/AuthContext"
 
 export function ChatPage() {
-  const { currentChatId, chats, getCurrentMessages, sendMessage, isConnected, isAiResponding } = useChatContext()
+  const { currentChatId, chats, getCurrentMessages, sendMessage, stopGeneration, isConnected, isAiResponding } = useChatContext()
   const { user } = useAuth()
 
   const messages = getCurrentMessages()
+  // 응답 대기 중이거나 AI 메시지가 스트리밍 중이면 중지 가능
+  const isGenerating = isAiResponding || messages.some(msg => msg.role === 'ASSISTANT' && msg.isStreaming)
 
   const handleSendMessage = async (content: string, image?: File) => {
     if (!content.trim() && !image) return
@@ -77,6 +79,8 @@ export function ChatPage() {
         {/* Chat Input */}
         <ChatInput
           onSendMessage={handleSendMessage}
+          onStop={stopGeneration}
+          canStop={isGenerating}
           disabled={!isConnected}
           isAiResponding={isAiResponding}
           placeholder={
@@ -152,6 +152,18 @@ class WebSocketService {
     console.log('📤 [WebSocket] Message published successfully')
   }
 
+  // 진행 중인 AI 응답 생성 중지
+  stopGeneration(chatId: number): void {
+    if (!this.client || !this.connected) {
+      throw new Error('WebSocket not connected')
+    }
+
+    this.client.publish({
+      destination: '/app/chat.stop',
+      body: chatId.toString()
+    })
+  }
+
   joinChat(chatId: number): void {
     if (!this.client || !this.connected) {
       throw new Error('WebSocket not connected')
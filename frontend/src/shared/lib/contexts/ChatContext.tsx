@@ -22,6 +22,7 @@ interface ChatContextType {
   setSidebarCollapsed: (collapsed: boolean) => void
   setChats: (chats: Chat[]) => void
   sendMessage: (content: string, imageUrl?: string) => void
+  stopGeneration: () => void
   getCurrentMessages: () => Message[]
   loadChats: () => Promise<void>
 }
@@ -129,6 +130,12 @@ export function ChatProvider({ children }: { children: ReactNode }) {
         currentChatId
       })
 
+      // 생성 대기열 순번 안내 프레임은 메시지 목록에 추가하지 않음
+      if (chatMessage.queuePosition != null) {
+        console.log('⏳ [ChatContext] Waiting in generation queue, position:', chatMessage.queuePosition)
+        return
+      }
+
       const message: Message = {
         id: chatMessage.id,
         content: chatMessage.content,
@@ -193,6 +200,11 @@ export function ChatProvider({ children }: { children: ReactNode }) {
               ...prev,
               [currentChatId]: updatedMessages
             }
+          } else if (message.content === '' && !message.isStreaming) {
+            // 청크 없이 끝난 응답 (대기 중 중지 등): 빈 메시지는 추가하지 않음
+            console.log('🏁 [ChatContext] Completion signal without content')
+            setAiRespondingChats(prev => ({ ...prev, [currentChatId]: false }))
+            return prev
           } else {
             // 새로운 AI 응답 시작
             console.log('🆕 [ChatContext] Creating new AI message with ID:', message.id)
@@ -354,6 +366,18 @@ export function ChatProvider({ children }: { children: ReactNode }) {
     }
   }
 
+  // 응답 생성 중지 (서버가 지금까지 생성된 내용을 저장하고 완료 신호를 보냄)
+  const stopGeneration = () => {
+    if (!currentChatId || !isConnected) return
+
+    try {
+      webSocketService.stopGeneration(currentChatId)
+      console.log('🛑 [ChatContext] Stop requested for chat:', currentChatId)
+    } catch (error) {
+      console.error('❌ [ChatContext] Failed to stop generation:', error)
+    }
+  }
+
   const loadChats = async () => {
     try {
       setIsLoading(true)
@@ -402,6 +426,7 @@ export function ChatProvider({ children }: { children: ReactNode }) {
     setSidebarCollapsed,
     setChats,
     sendMessage,
+    stopGeneration,
     getCurrentMessages,
     loadChats
   }
@@ -7,6 +7,7 @@ export type ChatMessage = {
   imageUrl?: string
   isStreaming?: boolean
   isError?: boolean
+  queuePosition?: number | null
 }
 
 export type ChatMessageRequest = {
@@ -1,20 +1,24 @@
 import { useState, useRef, useEffect } from "react"
 import { Button } from "@/shared/ui/button"
 import { Card } from "@/shared/ui/card"
-import { Paperclip, Send, X } from "lucide-react"
+import { Paperclip, Send, Square, X } from "lucide-react"
 import { cn } from "@/shared/lib/utils"
 
 interface ChatInputProps {
   onSendMessage?: (content: string, image?: File) => void
+  onStop?: () => void
   disabled?: boolean
   isAiResponding?: boolean
+  canStop?: boolean
   placeholder?: string
 }
 
 export function ChatInput({
   onSendMessage,
+  onStop,
   disabled = false,
   isAiResponding = false,
+  canStop = false,
   placeholder = "메시지를 입력하세요...",
 }: ChatInputProps) {
   const [message, setMessage] = useState("")
@@ -197,20 +201,33 @@ export function ChatInput({
               />
             </div>
 
-            <Button
-              onClick={handleSend}
-              disabled={disabled || isSending || isAiResponding || (!message.trim() && !selectedImage)}
-              size="icon"
-              className={cn(
-                "h-10 w-10 flex-shrink-0",
-                (disabled || isSending || isAiResponding || (!message.trim() && !selectedImage)) && "opacity-50"
-              )}
-            >
-              <Send className={cn(
-                "h-4 w-4",
-                (disabled || isSending || isAiResponding) && "text-muted-foreground"
-              )} />
-            </Button>
+            {canStop && onStop ? (
+              <Button
+                onClick={onStop}
+                disabled={disabled}
+                size="icon"
+                variant="outline"
+                className="h-10 w-10 flex-shrink-0"
+                title="응답 중지"
+              >
+                <Square className="h-4 w-4" />
+              </Button>
+            ) : (
+              <Button
+                onClick={handleSend}
+                disabled={disabled || isSending || isAiResponding || (!message.trim() && !selectedImage)}
+                size="icon"
+                className={cn(
+                  "h-10 w-10 flex-shrink-0",
+                  (disabled || isSending || isAiResponding || (!message.trim() && !selectedImage)) && "opacity-50"
+                )}
+              >
+                <Send className={cn(
+                  "h-4 w-4",
+                  (disabled || isSending || isAiResponding) && "text-muted-foreground"
+                )} />
+              </Button>
+            )}
           </div>
         </Card>
       </div>